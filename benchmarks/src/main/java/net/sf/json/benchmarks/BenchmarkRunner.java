@@ -0,0 +1,43 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the same options as JMH's Main and
+ * always adds the GC profiler, so allocation rates are reported next to the
+ * timings. For example
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar Parse -p arraySize=1700000
+ * </pre>
+ *
+ * parses an array of roughly 100MB.
+ */
+public class BenchmarkRunner {
+   public static void main( String[] args ) throws Exception {
+      Options options = new OptionsBuilder().parent( new CommandLineOptions( args ) )
+            .addProfiler( GCProfiler.class )
+            .build();
+      new Runner( options ).run();
+   }
+}
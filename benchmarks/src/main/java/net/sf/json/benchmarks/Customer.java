@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.benchmarks;
+
+import java.util.Map;
+
+public class Customer {
+   private Map attributes;
+   private String email;
+   private int id;
+   private String name;
+
+   public Map getAttributes() {
+      return attributes;
+   }
+
+   public String getEmail() {
+      return email;
+   }
+
+   public int getId() {
+      return id;
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   public void setAttributes( Map attributes ) {
+      this.attributes = attributes;
+   }
+
+   public void setEmail( String email ) {
+      this.email = email;
+   }
+
+   public void setId( int id ) {
+      this.id = id;
+   }
+
+   public void setName( String name ) {
+      this.name = name;
+   }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.benchmarks;
+
+public class LineItem {
+   private double price;
+   private int quantity;
+   private String sku;
+
+   public double getPrice() {
+      return price;
+   }
+
+   public int getQuantity() {
+      return quantity;
+   }
+
+   public String getSku() {
+      return sku;
+   }
+
+   public void setPrice( double price ) {
+      this.price = price;
+   }
+
+   public void setQuantity( int quantity ) {
+      this.quantity = quantity;
+   }
+
+   public void setSku( String sku ) {
+      this.sku = sku;
+   }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.benchmarks;
+
+public class Order {
+   private Customer customer;
+   private int id;
+   private LineItem[] items;
+   private boolean paid;
+   private String status;
+
+   public Customer getCustomer() {
+      return customer;
+   }
+
+   public int getId() {
+      return id;
+   }
+
+   public LineItem[] getItems() {
+      return items;
+   }
+
+   public String getStatus() {
+      return status;
+   }
+
+   public boolean isPaid() {
+      return paid;
+   }
+
+   public void setCustomer( Customer customer ) {
+      this.customer = customer;
+   }
+
+   public void setId( int id ) {
+      this.id = id;
+   }
+
+   public void setItems( LineItem[] items ) {
+      this.items = items;
+   }
+
+   public void setPaid( boolean paid ) {
+      this.paid = paid;
+   }
+
+   public void setStatus( String status ) {
+      this.status = status;
+   }
+}
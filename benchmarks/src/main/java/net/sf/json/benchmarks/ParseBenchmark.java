@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.util.JSONTokener;
+import net.sf.json.util.JsonReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON text to JSONObject/JSONArray, through JSONTokener.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+   /** elements of the large array, about 60 bytes each */
+   @Param({ "10000" })
+   public int arraySize;
+   @Param({ "200" })
+   public int depth;
+   @Param({ "1000" })
+   public int wideProperties;
+
+   private String apiResponse;
+   private String deepNesting;
+   private String largeArray;
+   private String wideObject;
+
+   @Setup
+   public void setUp() {
+      apiResponse = Payloads.apiResponse();
+      deepNesting = Payloads.deepNesting( depth );
+      largeArray = Payloads.largeArray( arraySize );
+      wideObject = Payloads.wideObject( wideProperties );
+   }
+
+   @Benchmark
+   public Object apiResponse() {
+      return JSONObject.fromObject( apiResponse );
+   }
+
+   @Benchmark
+   public Object deepNesting() {
+      return JSONObject.fromObject( deepNesting );
+   }
+
+   @Benchmark
+   public Object largeArray() {
+      return JSONArray.fromObject( largeArray );
+   }
+
+   @Benchmark
+   public Object largeArrayFromReader() {
+      return JSONArray.fromObject( new StringReader( largeArray ) );
+   }
+
+   @Benchmark
+   public int largeArrayPullParser() {
+      JsonReader reader = new JsonReader( JSONTokener.fromReader( new StringReader( largeArray ) ) );
+      int events = 0;
+      while( reader.hasNext() ){
+         reader.next();
+         events++;
+      }
+      return events;
+   }
+
+   @Benchmark
+   public Object wideObject() {
+      return JSONObject.fromObject( wideObject );
+   }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Builds the payloads used by the benchmarks. Payloads are generated so their
+ * size can be changed with JMH parameters.
+ */
+public final class Payloads {
+   /**
+    * A typical API response: a few scalars, a nested object and a short list.
+    */
+   public static String apiResponse() {
+      return JSONObject.fromObject( order( 1, 5 ) )
+            .toString();
+   }
+
+   /**
+    * An object with a long list of scalar properties.
+    */
+   public static String wideObject( int properties ) {
+      JSONObject json = new JSONObject();
+      for( int i = 0; i < properties; i++ ){
+         switch( i % 4 ){
+            case 0:
+               json.element( "property" + i, i );
+               break;
+            case 1:
+               json.element( "property" + i, "value \"" + i + "\"" );
+               break;
+            case 2:
+               json.element( "property" + i, i * 1.5d );
+               break;
+            default:
+               json.element( "property" + i, i % 3 == 0 );
+         }
+      }
+      return json.toString();
+   }
+
+   /**
+    * Objects and arrays nested depth levels.
+    */
+   public static String deepNesting( int depth ) {
+      StringBuffer sb = new StringBuffer();
+      for( int i = 0; i < depth; i++ ){
+         sb.append( i % 2 == 0 ? "{\"level\":" + i + ",\"child\":" : "[" + i + "," );
+      }
+      sb.append( "null" );
+      for( int i = depth - 1; i >= 0; i-- ){
+         sb.append( i % 2 == 0 ? '}' : ']' );
+      }
+      return sb.toString();
+   }
+
+   /**
+    * An array of size small objects, about 60 bytes each.
+    */
+   public static String largeArray( int size ) {
+      StringBuffer sb = new StringBuffer( size * 64 );
+      sb.append( '[' );
+      for( int i = 0; i < size; i++ ){
+         if( i > 0 ){
+            sb.append( ',' );
+         }
+         sb.append( "{\"id\":" )
+               .append( i )
+               .append( ",\"name\":\"item-" )
+               .append( i )
+               .append( "\",\"price\":" )
+               .append( i % 100 )
+               .append( ".25,\"tags\":[\"a\",\"b\"]}" );
+      }
+      sb.append( ']' );
+      return sb.toString();
+   }
+
+   /**
+    * An array of size numbers.
+    */
+   public static JSONArray numbers( int size ) {
+      JSONArray array = new JSONArray();
+      for( int i = 0; i < size; i++ ){
+         array.element( i * 0.5d );
+      }
+      return array;
+   }
+
+   /**
+    * A graph of orders with customers and line items.
+    */
+   public static List orders( int orders, int items ) {
+      List list = new ArrayList();
+      for( int i = 0; i < orders; i++ ){
+         list.add( order( i, items ) );
+      }
+      return list;
+   }
+
+   public static Order order( int id, int items ) {
+      Customer customer = new Customer();
+      customer.setId( id % 50 );
+      customer.setName( "Customer " + (id % 50) );
+      customer.setEmail( "customer" + (id % 50) + "@example.com" );
+      Map attributes = new HashMap();
+      attributes.put( "tier", id % 2 == 0 ? "gold" : "silver" );
+      attributes.put( "since", new Integer( 2000 + id % 20 ) );
+      customer.setAttributes( attributes );
+
+      LineItem[] lineItems = new LineItem[items];
+      for( int i = 0; i < items; i++ ){
+         LineItem item = new LineItem();
+         item.setSku( "SKU-" + i );
+         item.setQuantity( i + 1 );
+         item.setPrice( 9.99d * (i + 1) );
+         lineItems[i] = item;
+      }
+
+      Order order = new Order();
+      order.setId( id );
+      order.setStatus( "SHIPPED" );
+      order.setCustomer( customer );
+      order.setItems( lineItems );
+      order.setPaid( id % 3 != 0 );
+      return order;
+   }
+
+   private Payloads() {
+
+   }
+}
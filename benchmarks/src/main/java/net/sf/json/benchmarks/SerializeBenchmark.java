@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.benchmarks;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bean graphs to JSON, and JSON trees to text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerializeBenchmark {
+   @Param({ "5" })
+   public int items;
+   @Param({ "100" })
+   public int orders;
+
+   private List beans;
+   private JSON tree;
+
+   @Setup
+   public void setUp() {
+      beans = Payloads.orders( orders, items );
+      tree = JSONArray.fromObject( beans );
+   }
+
+   @Benchmark
+   public Object fromObject() {
+      return JSONArray.fromObject( beans );
+   }
+
+   @Benchmark
+   public String fromObjectToString() {
+      return JSONArray.fromObject( beans )
+            .toString();
+   }
+
+   @Benchmark
+   public Writer streamingWrite() throws Exception {
+      Writer writer = new StringWriter();
+      JSONSerializer.write( beans, writer );
+      return writer;
+   }
+
+   @Benchmark
+   public String treeToString() {
+      return tree.toString();
+   }
+
+   @Benchmark
+   public Writer treeWrite() throws Exception {
+      return tree.write( new StringWriter() );
+   }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JsonConfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON trees to beans, DynaBeans and arrays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ToBeanBenchmark {
+   @Param({ "20" })
+   public int items;
+   @Param({ "10000" })
+   public int numbers;
+
+   private JsonConfig beanConfig;
+   private JSONArray itemsJson;
+   private JSONArray numbersJson;
+   private JSONObject orderJson;
+
+   @Setup
+   public void setUp() {
+      orderJson = JSONObject.fromObject( Payloads.order( 1, items ) );
+      itemsJson = orderJson.getJSONArray( "items" );
+      numbersJson = Payloads.numbers( numbers );
+
+      Map classMap = new HashMap();
+      classMap.put( "customer", Customer.class );
+      classMap.put( "items", LineItem.class );
+      beanConfig = new JsonConfig();
+      beanConfig.setRootClass( Order.class );
+      beanConfig.setClassMap( classMap );
+   }
+
+   @Benchmark
+   public Object toBean() {
+      return JSONObject.toBean( orderJson, beanConfig );
+   }
+
+   @Benchmark
+   public Object toDynaBean() {
+      return JSONObject.toBean( orderJson );
+   }
+
+   @Benchmark
+   public Object toArrayOfBeans() {
+      return JSONArray.toArray( itemsJson, LineItem.class );
+   }
+
+   @Benchmark
+   public Object toArrayOfNumbers() {
+      return JSONArray.toArray( numbersJson );
+   }
+}
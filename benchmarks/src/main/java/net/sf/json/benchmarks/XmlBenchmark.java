@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.xml.XMLSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * XMLSerializer in both directions. XMLSerializer is not thread safe, each
+ * thread gets its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XmlBenchmark {
+   @Param({ "100" })
+   public int orders;
+
+   private JSON json;
+   private String xml;
+   private XMLSerializer xmlSerializer;
+
+   @Setup
+   public void setUp() {
+      xmlSerializer = new XMLSerializer();
+      json = JSONArray.fromObject( Payloads.orders( orders, 5 ) );
+      xml = xmlSerializer.write( json );
+   }
+
+   @Benchmark
+   public JSON read() {
+      return xmlSerializer.read( xml );
+   }
+
+   @Benchmark
+   public String write() {
+      return xmlSerializer.write( json );
+   }
+}
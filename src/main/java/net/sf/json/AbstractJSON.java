@@ -17,14 +17,12 @@
 package net.sf.json;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
-import java.lang.ref.SoftReference;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
 import java.util.TreeSet;
 
+import net.sf.json.util.JSONTokener;
 import net.sf.json.util.JSONUtils;
 import net.sf.json.util.JsonEventListener;
 
@@ -37,34 +35,36 @@ import org.apache.commons.logging.LogFactory;
  * @author Andres Almiray <aalmiray@users.sourceforge.net>
  */
 abstract class AbstractJSON implements JSON {
-   private static class CycleSet extends ThreadLocal {
-      protected Object initialValue() {
-         return new SoftReference(new HashSet());
-      }
-
-      public Set getSet() {
-         Set set = (Set) ((SoftReference)get()).get();
-         if( set == null ) {
-             set = new HashSet();
-             set(new SoftReference(set));
-         }
-         return set;
-      }
-   }
-   
-   private static CycleSet cycleSet = new CycleSet();
+   /**
+    * The conversion in progress on each thread. Conversions re-enter the
+    * static builders, the tracker is bound to the thread only while the
+    * outermost one runs.
+    */
+   private static final ThreadLocal cycleTracker = new ThreadLocal();
 
    private static final Log log = LogFactory.getLog( AbstractJSON.class );
 
    /**
-    * Adds a reference for cycle detection check.
+    * Adds a reference for cycle detection check.<br>
+    * References are compared by identity. If jsonConfig trusts the graph to be
+    * acyclic the check is skipped and only the depth is tracked.
     *
     * @param instance the reference to add
     * @return true if the instance has not been added previously, false
     *        otherwise.
+    * @throws JSONException if the maximum depth set in jsonConfig is exceeded
     */
-   protected static boolean addInstance( Object instance ) {
-      return getCycleSet().add( instance );
+   protected static boolean addInstance( Object instance, JsonConfig jsonConfig ) {
+      CycleTracker tracker = (CycleTracker) cycleTracker.get();
+      if( tracker == null ){
+         tracker = new CycleTracker();
+         cycleTracker.set( tracker );
+      }
+      boolean added = tracker.push( instance, !jsonConfig.isTrustAcyclic(), jsonConfig.getMaxDepth() );
+      if( tracker.isEmpty() ){
+         cycleTracker.remove();
+      }
+      return added;
    }
 
    /**
@@ -72,11 +72,10 @@ abstract class AbstractJSON implements JSON {
     */
    protected static void fireArrayEndEvent( JsonConfig jsonConfig ) {
       if( jsonConfig.isEventTriggeringEnabled() ){
-         for( Iterator listeners = jsonConfig.getJsonEventListeners()
-               .iterator(); listeners.hasNext(); ){
-            JsonEventListener listener = (JsonEventListener) listeners.next();
+         JsonEventListener[] listeners = jsonConfig.getJsonEventListenerArray();
+         for( int i = 0; i < listeners.length; i++ ){
             try{
-               listener.onArrayEnd();
+               listeners[i].onArrayEnd();
             }catch( RuntimeException e ){
                log.warn( e );
             }
@@ -89,11 +88,10 @@ abstract class AbstractJSON implements JSON {
     */
    protected static void fireArrayStartEvent( JsonConfig jsonConfig ) {
       if( jsonConfig.isEventTriggeringEnabled() ){
-         for( Iterator listeners = jsonConfig.getJsonEventListeners()
-               .iterator(); listeners.hasNext(); ){
-            JsonEventListener listener = (JsonEventListener) listeners.next();
+         JsonEventListener[] listeners = jsonConfig.getJsonEventListenerArray();
+         for( int i = 0; i < listeners.length; i++ ){
             try{
-               listener.onArrayStart();
+               listeners[i].onArrayStart();
             }catch( RuntimeException e ){
                log.warn( e );
             }
@@ -109,11 +107,10 @@ abstract class AbstractJSON implements JSON {
     */
    protected static void fireElementAddedEvent( int index, Object element, JsonConfig jsonConfig ) {
       if( jsonConfig.isEventTriggeringEnabled() ){
-         for( Iterator listeners = jsonConfig.getJsonEventListeners()
-               .iterator(); listeners.hasNext(); ){
-            JsonEventListener listener = (JsonEventListener) listeners.next();
+         JsonEventListener[] listeners = jsonConfig.getJsonEventListenerArray();
+         for( int i = 0; i < listeners.length; i++ ){
             try{
-               listener.onElementAdded( index, element );
+               listeners[i].onElementAdded( index, element );
             }catch( RuntimeException e ){
                log.warn( e );
             }
@@ -128,11 +125,10 @@ abstract class AbstractJSON implements JSON {
     */
    protected static void fireErrorEvent( JSONException jsone, JsonConfig jsonConfig ) {
       if( jsonConfig.isEventTriggeringEnabled() ){
-         for( Iterator listeners = jsonConfig.getJsonEventListeners()
-               .iterator(); listeners.hasNext(); ){
-            JsonEventListener listener = (JsonEventListener) listeners.next();
+         JsonEventListener[] listeners = jsonConfig.getJsonEventListenerArray();
+         for( int i = 0; i < listeners.length; i++ ){
             try{
-               listener.onError( jsone );
+               listeners[i].onError( jsone );
             }catch( RuntimeException e ){
                log.warn( e );
             }
@@ -145,11 +141,10 @@ abstract class AbstractJSON implements JSON {
     */
    protected static void fireObjectEndEvent( JsonConfig jsonConfig ) {
       if( jsonConfig.isEventTriggeringEnabled() ){
-         for( Iterator listeners = jsonConfig.getJsonEventListeners()
-               .iterator(); listeners.hasNext(); ){
-            JsonEventListener listener = (JsonEventListener) listeners.next();
+         JsonEventListener[] listeners = jsonConfig.getJsonEventListenerArray();
+         for( int i = 0; i < listeners.length; i++ ){
             try{
-               listener.onObjectEnd();
+               listeners[i].onObjectEnd();
             }catch( RuntimeException e ){
                log.warn( e );
             }
@@ -162,11 +157,10 @@ abstract class AbstractJSON implements JSON {
     */
    protected static void fireObjectStartEvent( JsonConfig jsonConfig ) {
       if( jsonConfig.isEventTriggeringEnabled() ){
-         for( Iterator listeners = jsonConfig.getJsonEventListeners()
-               .iterator(); listeners.hasNext(); ){
-            JsonEventListener listener = (JsonEventListener) listeners.next();
+         JsonEventListener[] listeners = jsonConfig.getJsonEventListenerArray();
+         for( int i = 0; i < listeners.length; i++ ){
             try{
-               listener.onObjectStart();
+               listeners[i].onObjectStart();
             }catch( RuntimeException e ){
                log.warn( e );
             }
@@ -184,11 +178,10 @@ abstract class AbstractJSON implements JSON {
    protected static void firePropertySetEvent( String key, Object value, boolean accumulated,
          JsonConfig jsonConfig ) {
       if( jsonConfig.isEventTriggeringEnabled() ){
-         for( Iterator listeners = jsonConfig.getJsonEventListeners()
-               .iterator(); listeners.hasNext(); ){
-            JsonEventListener listener = (JsonEventListener) listeners.next();
+         JsonEventListener[] listeners = jsonConfig.getJsonEventListenerArray();
+         for( int i = 0; i < listeners.length; i++ ){
             try{
-               listener.onPropertySet( key, value, accumulated );
+               listeners[i].onPropertySet( key, value, accumulated );
             }catch( RuntimeException e ){
                log.warn( e );
             }
@@ -203,11 +196,10 @@ abstract class AbstractJSON implements JSON {
     */
    protected static void fireWarnEvent( String warning, JsonConfig jsonConfig ) {
       if( jsonConfig.isEventTriggeringEnabled() ){
-         for( Iterator listeners = jsonConfig.getJsonEventListeners()
-               .iterator(); listeners.hasNext(); ){
-            JsonEventListener listener = (JsonEventListener) listeners.next();
+         JsonEventListener[] listeners = jsonConfig.getJsonEventListenerArray();
+         for( int i = 0; i < listeners.length; i++ ){
             try{
-               listener.onWarning( warning );
+               listeners[i].onWarning( warning );
             }catch( RuntimeException e ){
                log.warn( e );
             }
@@ -215,17 +207,74 @@ abstract class AbstractJSON implements JSON {
       }
    }
 
+   /**
+    * Skips the next value of tokener if it is an object or array and lazy
+    * parsing is enabled, the value is parsed when it is first accessed.<br>
+    * Events need every value as it is parsed, and JsonValueProcessors are
+    * applied again each time a parsed value is copied into its parent, lazy
+    * parsing is ignored when either is configured.
+    *
+    * @return the unparsed JSONObject or JSONArray, or null if the next value
+    *         has to be read with nextValue()
+    */
+   static AbstractJSON nextDeferredValue( JSONTokener tokener, JsonConfig jsonConfig ) {
+      if( !jsonConfig.isLazyParsing() || jsonConfig.isEventTriggeringEnabled()
+            || jsonConfig.hasJsonValueProcessors() ){
+         return null;
+      }
+      JSONTokener source = tokener.skipValue( jsonConfig );
+      if( source == null ){
+         return null;
+      }
+      if( source.peek() == '[' ){
+         return JSONArray.deferred( source, jsonConfig );
+      }
+      return JSONObject.deferred( source, jsonConfig );
+   }
+
+   /**
+    * Returns a copy of the references being converted on this thread, for a
+    * part of the conversion that continues on another thread. Returns null if
+    * this thread is running such a part already, parts are not split again.
+    */
+   protected static CycleTracker forkCycleTracker() {
+      CycleTracker tracker = (CycleTracker) cycleTracker.get();
+      if( tracker == null ){
+         return new CycleTracker().fork();
+      }
+      return tracker.isForked() ? null : tracker.fork();
+   }
+
    /**
     * Removes a reference for cycle detection check.
     */
    protected static void removeInstance( Object instance ) {
-      Set set = getCycleSet();
-      set.remove( instance );
-      if(set.size() == 0) {
-          cycleSet.remove();
+      CycleTracker tracker = (CycleTracker) cycleTracker.get();
+      if( tracker == null ){
+         return;
+      }
+      tracker.remove( instance );
+      if( tracker.isEmpty() ){
+         cycleTracker.remove();
       }
    }
 
+   /**
+    * Sets the references used for cycle detection on this thread.
+    *
+    * @param tracker the references, null for none
+    * @return the references used until now, to be restored with this method
+    */
+   protected static CycleTracker swapCycleTracker( CycleTracker tracker ) {
+      CycleTracker previous = (CycleTracker) cycleTracker.get();
+      if( tracker == null ){
+         cycleTracker.remove();
+      }else{
+         cycleTracker.set( tracker );
+      }
+      return previous;
+   }
+
    protected Object _processValue( Object value, JsonConfig jsonConfig ) {
       if( JSONNull.getInstance().equals( value ) ) {
          return JSONNull.getInstance();
@@ -284,20 +333,67 @@ abstract class AbstractJSON implements JSON {
       }
    }
    
-   private static Set getCycleSet() {
-      return cycleSet.getSet();
-   }
 
     public final Writer write(Writer writer) throws IOException {
-        write(writer,NORMAL);
+        writeBuffered(writer,NORMAL);
         return writer;
     }
 
+    /**
+     * Writes the contents as JSON text to out, encoded as UTF-8, without
+     * creating a String or an OutputStreamWriter. For compactness, no
+     * whitespace is added. The stream is neither flushed nor closed.
+     *
+     * @return out
+     */
+    public final OutputStream write(OutputStream out) throws IOException {
+        BufferedJSONWriter buffered = BufferedJSONWriter.forStream(out);
+        try {
+            write(buffered,NORMAL);
+            buffered.drain();
+        } finally {
+            buffered.release();
+        }
+        return out;
+    }
+
     public final Writer writeCanonical(Writer writer) throws IOException {
-        write(writer,CANONICAL);
+        writeBuffered(writer,CANONICAL);
         return writer;
     }
 
+    /**
+     * Returns the JSON text written by write(Writer), built in a buffer reused
+     * by the current thread.
+     */
+    final String writeToString() throws IOException {
+        BufferedJSONWriter buffered = BufferedJSONWriter.forString();
+        try {
+            write(buffered,NORMAL);
+            return buffered.toString();
+        } finally {
+            buffered.release();
+        }
+    }
+
+    /**
+     * Writes through a buffer, unless writer already is one, so the target
+     * receives the text in bulk instead of a char or a token at a time.
+     */
+    private void writeBuffered(Writer writer, WritingVisitor visitor) throws IOException {
+        if (writer instanceof BufferedJSONWriter) {
+            write(writer,visitor);
+            return;
+        }
+        BufferedJSONWriter buffered = BufferedJSONWriter.forWriter(writer);
+        try {
+            write(buffered,visitor);
+            buffered.drain();
+        } finally {
+            buffered.release();
+        }
+    }
+
     protected abstract void write(Writer w, WritingVisitor v) throws IOException;
 
     interface WritingVisitor {
@@ -306,7 +402,7 @@ abstract class AbstractJSON implements JSON {
         void on(Object value, Writer w) throws IOException;
     }
 
-    private static final WritingVisitor NORMAL = new WritingVisitor() {
+    static final WritingVisitor NORMAL = new WritingVisitor() {
         public Collection keySet(JSONObject o) {
             return o.keySet();
         }
@@ -316,11 +412,15 @@ abstract class AbstractJSON implements JSON {
         }
 
         public void on(Object value, Writer w) throws IOException {
-            w.write(JSONUtils.valueToString(value));
+            if (value instanceof String && !JSONUtils.isNull(value)) {
+                JSONUtils.quote((String) value, w);
+            } else {
+                w.write(JSONUtils.valueToString(value));
+            }
         }
     };
 
-    private static final WritingVisitor CANONICAL = new WritingVisitor() {
+    static final WritingVisitor CANONICAL = new WritingVisitor() {
         public Collection keySet(JSONObject o) {
             return new TreeSet(o.keySet()); // sort them alphabetically
         }
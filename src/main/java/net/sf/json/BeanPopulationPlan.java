@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.json.processors.PropertyNameProcessor;
+import net.sf.json.util.JSONUtils;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.MethodUtils;
+import org.apache.commons.beanutils.PropertyUtils;
+
+/**
+ * Remembers how the keys of a JSONObject map to the properties of a bean
+ * class: the Java identifier produced for each key and the descriptor, type
+ * and accessible write method of each property. Entries are resolved the
+ * first time a key is seen.<br>
+ * Plans are cached by JsonConfig and discarded whenever the configuration
+ * changes. Nested classes are not part of a plan, they are looked up in the
+ * classMap every time.
+ */
+final class BeanPopulationPlan {
+   /** keys come from JSON input, so the caches are bounded */
+   private static final int MAX_ENTRIES = 1024;
+   private static final Object NO_PROPERTY = new Object();
+
+   private final Class beanClass;
+   private final JsonConfig jsonConfig;
+   private final Map keys = new ConcurrentHashMap();
+   private final Map properties = new ConcurrentHashMap();
+   private final PropertyNameProcessor propertyNameProcessor;
+   private final boolean skipJavaIdentifierTransformation;
+
+   BeanPopulationPlan( Class beanClass, JsonConfig jsonConfig ) {
+      this.beanClass = beanClass;
+      this.jsonConfig = jsonConfig;
+      this.propertyNameProcessor = jsonConfig.findJavaPropertyNameProcessor( beanClass );
+      this.skipJavaIdentifierTransformation = Map.class.isAssignableFrom( beanClass )
+            && jsonConfig.isSkipJavaIdentifierTransformationInMapKeys();
+   }
+
+   /**
+    * Returns the bean property name for a JSON key, after applying the
+    * JavaIdentifierTransformer and the java PropertyNameProcessor.
+    */
+   String getJavaKey( String name ) {
+      String key = (String) keys.get( name );
+      if( key == null ){
+         key = skipJavaIdentifierTransformation ? name : JSONUtils.convertToJavaIdentifier( name,
+               jsonConfig );
+         if( propertyNameProcessor != null ){
+            key = propertyNameProcessor.processPropertyName( beanClass, key );
+         }
+         if( keys.size() < MAX_ENTRIES ){
+            keys.put( name, key );
+         }
+      }
+      return key;
+   }
+
+   /**
+    * Returns the named property of bean, or null if there is none.
+    */
+   Property getProperty( Object bean, String key ) throws Exception {
+      Object property = properties.get( key );
+      if( property == null ){
+         if( !isSimpleName( key ) ){
+            // nested and indexed names depend on the bean's state
+            PropertyDescriptor pd = PropertyUtils.getPropertyDescriptor( bean, key );
+            return pd != null ? new Property( key, pd, null ) : null;
+         }
+         PropertyDescriptor pd = PropertyUtils.getPropertyDescriptor( bean, key );
+         property = pd != null ? new Property( key, pd, findWriteMethod( pd ) ) : NO_PROPERTY;
+         if( properties.size() < MAX_ENTRIES ){
+            properties.put( key, property );
+         }
+      }
+      return property != NO_PROPERTY ? (Property) property : null;
+   }
+
+   /**
+    * Returns the write method PropertyUtils would call for pd, or null if
+    * values must be set through it.
+    */
+   private Method findWriteMethod( PropertyDescriptor pd ) {
+      if( pd.getWriteMethod() == null || DynaBean.class.isAssignableFrom( beanClass ) ){
+         return null;
+      }
+      return MethodUtils.getAccessibleMethod( beanClass, pd.getWriteMethod() );
+   }
+
+   private static boolean isSimpleName( String key ) {
+      return key.indexOf( '.' ) < 0 && key.indexOf( '[' ) < 0 && key.indexOf( '(' ) < 0;
+   }
+
+   /**
+    * A property of the bean class.
+    */
+   static final class Property {
+      private final PropertyDescriptor descriptor;
+      private final String name;
+      private final Class type;
+      private final Method writeMethod;
+
+      Property( String name, PropertyDescriptor descriptor, Method writeMethod ) {
+         this.name = name;
+         this.descriptor = descriptor;
+         this.type = descriptor.getPropertyType();
+         this.writeMethod = writeMethod;
+      }
+
+      PropertyDescriptor getDescriptor() {
+         return descriptor;
+      }
+
+      /**
+       * Returns the name the property was looked up with, which may be a
+       * nested or indexed name.
+       */
+      String getName() {
+         return name;
+      }
+
+      Class getType() {
+         return type;
+      }
+
+      /**
+       * Returns the accessible write method of a simple property, or null if
+       * the value must be set through PropertyUtils.
+       */
+      Method getWriteMethod() {
+         return writeMethod;
+      }
+
+      boolean isWritable() {
+         return descriptor.getWriteMethod() != null;
+      }
+   }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.json.processors.JsonValueProcessor;
+import net.sf.json.processors.PropertyNameProcessor;
+
+import org.apache.commons.beanutils.MethodUtils;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Holds the result of introspecting a bean class against a JsonConfig: the
+ * readable properties and public fields in serialization order, with their
+ * exclusions, transient checks, JsonValueProcessors and property names already
+ * resolved.<br>
+ * Plans are cached by JsonConfig and discarded whenever the configuration
+ * changes.
+ */
+final class BeanSerializationPlan {
+   private static final Log log = LogFactory.getLog( BeanSerializationPlan.class );
+
+   /**
+    * A property or public field to be serialized.
+    */
+   static final class Accessor {
+      /** the property name, as seen by filters and JsonValueProcessors */
+      final String name;
+      /** the key written to the JSONObject */
+      final String key;
+      final Class type;
+      final JsonValueProcessor jsonValueProcessor;
+      /** a warning to be fired instead of reading the property, if any */
+      final String warning;
+      private final Method readMethod;
+      private final Field field;
+
+      Accessor( String name, String key, Class type, JsonValueProcessor jsonValueProcessor,
+            Method readMethod, Field field ) {
+         this.name = name;
+         this.key = key;
+         this.type = type;
+         this.jsonValueProcessor = jsonValueProcessor;
+         this.readMethod = readMethod;
+         this.field = field;
+         this.warning = null;
+      }
+
+      Accessor( String name, String warning ) {
+         this.name = name;
+         this.key = name;
+         this.type = null;
+         this.jsonValueProcessor = null;
+         this.readMethod = null;
+         this.field = null;
+         this.warning = warning;
+      }
+
+      Object getValue( Object bean ) throws Exception {
+         if( field != null ){
+            return field.get( bean );
+         }
+         if( readMethod != null ){
+            return readMethod.invoke( bean, (Object[]) null );
+         }
+         // let PropertyUtils report why the property can't be read
+         return PropertyUtils.getProperty( bean, name );
+      }
+   }
+
+   /**
+    * Introspects beanClass with the settings of jsonConfig.
+    */
+   static BeanSerializationPlan create( Class beanClass, JsonConfig jsonConfig ) {
+      PropertyNameProcessor propertyNameProcessor = jsonConfig.findJsonPropertyNameProcessor( beanClass );
+      Collection exclusions = jsonConfig.getMergedExcludes( beanClass );
+
+      List properties = new ArrayList();
+      PropertyDescriptor[] pds = PropertyUtils.getPropertyDescriptors( beanClass );
+      for( int i = 0; i < pds.length; i++ ){
+         String name = pds[i].getName();
+         if( exclusions.contains( name ) ){
+            continue;
+         }
+
+         if( jsonConfig.isIgnoreTransientFields() && isTransientField( name, beanClass, jsonConfig ) ){
+            continue;
+         }
+
+         Class type = pds[i].getPropertyType();
+         Method readMethod = null;
+         try{
+            readMethod = pds[i].getReadMethod();
+         }catch( Exception e ){
+            // bug 2565295
+         }
+         if( readMethod == null ){
+            properties.add( new Accessor( name, "Property '" + name + "' of " + beanClass
+                  + " has no read method. SKIPPED" ) );
+            continue;
+         }
+         if( isTransient( readMethod, jsonConfig ) ){
+            continue;
+         }
+         properties.add( new Accessor( name, processName( propertyNameProcessor, beanClass, name ),
+               type, jsonConfig.findJsonValueProcessor( beanClass, type, name ),
+               MethodUtils.getAccessibleMethod( beanClass, readMethod ), null ) );
+      }
+
+      List fields = new ArrayList();
+      // inspect public fields, this operation may fail under
+      // a SecurityManager so we will eat all exceptions
+      try{
+         if( !jsonConfig.isIgnorePublicFields() ){
+            Field[] publicFields = beanClass.getFields();
+            for( int i = 0; i < publicFields.length; i++ ){
+               Field field = publicFields[i];
+               String name = field.getName();
+               if( exclusions.contains( name ) ){
+                  continue;
+               }
+
+               if( jsonConfig.isIgnoreTransientFields() && isTransient( field, jsonConfig ) ){
+                  continue;
+               }
+
+               Class type = field.getType();
+               fields.add( new Accessor( name, processName( propertyNameProcessor, beanClass, name ),
+                     type, jsonConfig.findJsonValueProcessor( beanClass, type, name ), null, field ) );
+            }
+         }
+      }catch( Exception e ){
+         log.trace( "Couldn't read public fields.", e );
+      }
+
+      return new BeanSerializationPlan( (Accessor[]) properties.toArray( new Accessor[properties.size()] ),
+            (Accessor[]) fields.toArray( new Accessor[fields.size()] ) );
+   }
+
+   private static boolean isTransient( AnnotatedElement element, JsonConfig jsonConfig ) {
+      for( Iterator annotations = jsonConfig.getIgnoreFieldAnnotations().iterator(); annotations.hasNext(); ) {
+         try {
+           String annotationClassName = (String) annotations.next();
+           if( element.getAnnotation((Class) Class.forName( annotationClassName )) != null ) return true;
+         } catch( Exception e ){
+            log.info( "Error while inspecting "+element+" for transient status." ,e );
+         }
+      }
+      return false;
+   }
+
+   private static boolean isTransientField( String name, Class beanClass, JsonConfig jsonConfig ) {
+      try{
+         Field field = beanClass.getDeclaredField( name );
+         if((field.getModifiers() & Modifier.TRANSIENT) == Modifier.TRANSIENT) return true;
+         return isTransient(field, jsonConfig);
+      }catch( Exception e ){
+         log.info( "Error while inspecting field "+beanClass+"."+name+" for transient status." ,e );
+      }
+      return false;
+   }
+
+   private static String processName( PropertyNameProcessor propertyNameProcessor, Class beanClass,
+         String name ) {
+      if( propertyNameProcessor != null ){
+         return propertyNameProcessor.processPropertyName( beanClass, name );
+      }
+      return name;
+   }
+
+   /** public fields, serialized after the properties */
+   final Accessor[] fields;
+   /** readable properties, in PropertyUtils order */
+   final Accessor[] properties;
+
+   /**
+    * true if no two accessors write the same key, so the JSONObject never has
+    * to accumulate values
+    */
+   final boolean uniqueKeys;
+
+   private BeanSerializationPlan( Accessor[] properties, Accessor[] fields ) {
+      this.properties = properties;
+      this.fields = fields;
+      Set keys = new HashSet();
+      boolean unique = true;
+      for( int i = 0; i < properties.length && unique; i++ ){
+         // properties without a read method are skipped, their key is never written
+         unique = properties[i].warning != null || keys.add( properties[i].key );
+      }
+      for( int i = 0; i < fields.length && unique; i++ ){
+         unique = keys.add( fields[i].key );
+      }
+      this.uniqueKeys = unique;
+   }
+}
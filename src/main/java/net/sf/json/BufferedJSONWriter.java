@@ -0,0 +1,232 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * An unsynchronized Writer that collects JSON text in a char buffer, either
+ * to build a String or to pass it in bulk to a Writer or, encoded as UTF-8, to
+ * an OutputStream.<br>
+ * Buffers are reused by the thread that created them: call {@link #release()}
+ * once the writer is no longer needed. A writer created while another one is
+ * in use on the same thread gets a buffer of its own.
+ */
+final class BufferedJSONWriter extends Writer {
+   /** larger buffers, grown while building a String, are not kept */
+   private static final int MAX_POOLED_SIZE = 1 << 16;
+   private static final ThreadLocal POOL = new ThreadLocal();
+   private static final int SIZE = 8192;
+
+   /**
+    * Creates a writer whose text is read with toString().
+    */
+   static BufferedJSONWriter forString() {
+      return new BufferedJSONWriter( null, null );
+   }
+
+   /**
+    * Creates a writer that encodes its text as UTF-8 into out.
+    */
+   static BufferedJSONWriter forStream( OutputStream out ) {
+      return new BufferedJSONWriter( null, out );
+   }
+
+   /**
+    * Creates a writer that passes its text to out.
+    */
+   static BufferedJSONWriter forWriter( Writer out ) {
+      return new BufferedJSONWriter( out, null );
+   }
+
+   private char[] buffer;
+   private byte[] bytes;
+   private int count;
+   private final OutputStream stream;
+   private final Writer writer;
+
+   private BufferedJSONWriter( Writer writer, OutputStream stream ) {
+      this.writer = writer;
+      this.stream = stream;
+      char[] pooled = (char[]) POOL.get();
+      if( pooled != null ){
+         POOL.set( null );
+         buffer = pooled;
+      }else{
+         buffer = new char[SIZE];
+      }
+   }
+
+   /**
+    * Passes the buffered text to the target and releases the buffer, the
+    * target is neither flushed nor closed.
+    */
+   public void close() throws IOException {
+      if( buffer != null ){
+         drain( true );
+         release();
+      }
+   }
+
+   /**
+    * Passes the buffered text to the target and flushes it.
+    */
+   public void flush() throws IOException {
+      drain( false );
+      if( writer != null ){
+         writer.flush();
+      }else if( stream != null ){
+         stream.flush();
+      }
+   }
+
+   /**
+    * Returns the text written so far by a writer created with forString().
+    */
+   public String toString() {
+      return new String( buffer, 0, count );
+   }
+
+   public void write( char[] cbuf, int off, int len ) throws IOException {
+      while( len > 0 ){
+         if( count == buffer.length ){
+            makeRoom( len );
+         }
+         int n = Math.min( len, buffer.length - count );
+         System.arraycopy( cbuf, off, buffer, count, n );
+         count += n;
+         off += n;
+         len -= n;
+      }
+   }
+
+   public void write( int c ) throws IOException {
+      if( count == buffer.length ){
+         makeRoom( 1 );
+      }
+      buffer[count++] = (char) c;
+   }
+
+   public void write( String str, int off, int len ) throws IOException {
+      while( len > 0 ){
+         if( count == buffer.length ){
+            makeRoom( len );
+         }
+         int n = Math.min( len, buffer.length - count );
+         str.getChars( off, off + n, buffer, count );
+         count += n;
+         off += n;
+         len -= n;
+      }
+   }
+
+   /**
+    * Passes the buffered text to the target, which is neither flushed nor
+    * closed.
+    */
+   void drain() throws IOException {
+      drain( true );
+   }
+
+   /**
+    * Returns the buffer for reuse by this thread, the writer can't be used
+    * afterwards.
+    */
+   void release() {
+      if( buffer.length <= MAX_POOLED_SIZE ){
+         POOL.set( buffer );
+      }
+      buffer = null;
+   }
+
+   /**
+    * @param end if false a trailing high surrogate is kept until the low one
+    *        is written
+    */
+   private void drain( boolean end ) throws IOException {
+      if( writer != null ){
+         writer.write( buffer, 0, count );
+         count = 0;
+      }else if( stream != null ){
+         int len = count;
+         if( !end && len > 0 && Character.isHighSurrogate( buffer[len - 1] ) ){
+            len--;
+         }
+         encode( len );
+         if( len < count ){
+            buffer[0] = buffer[len];
+         }
+         count -= len;
+      }
+   }
+
+   /**
+    * Writes the first len chars of buffer to stream as UTF-8. Unpaired
+    * surrogates are written as '?', as String.getBytes() does.
+    */
+   private void encode( int len ) throws IOException {
+      if( bytes == null ){
+         bytes = new byte[SIZE * 3];
+      }
+      int n = 0;
+      for( int i = 0; i < len; i++ ){
+         if( n > bytes.length - 4 ){
+            stream.write( bytes, 0, n );
+            n = 0;
+         }
+         char c = buffer[i];
+         if( c < 0x80 ){
+            bytes[n++] = (byte) c;
+         }else if( c < 0x800 ){
+            bytes[n++] = (byte) (0xC0 | (c >> 6));
+            bytes[n++] = (byte) (0x80 | (c & 0x3F));
+         }else if( c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE ){
+            if( Character.isHighSurrogate( c ) && i + 1 < len
+                  && Character.isLowSurrogate( buffer[i + 1] ) ){
+               int cp = Character.toCodePoint( c, buffer[++i] );
+               bytes[n++] = (byte) (0xF0 | (cp >> 18));
+               bytes[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+               bytes[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+               bytes[n++] = (byte) (0x80 | (cp & 0x3F));
+            }else{
+               bytes[n++] = (byte) '?';
+            }
+         }else{
+            bytes[n++] = (byte) (0xE0 | (c >> 12));
+            bytes[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            bytes[n++] = (byte) (0x80 | (c & 0x3F));
+         }
+      }
+      stream.write( bytes, 0, n );
+   }
+
+   /**
+    * Makes room for len more chars, growing the buffer when building a String
+    * and passing its contents to the target otherwise.
+    */
+   private void makeRoom( int len ) throws IOException {
+      if( writer == null && stream == null ){
+         char[] b = new char[Math.max( buffer.length * 2, count + len )];
+         System.arraycopy( buffer, 0, b, 0, count );
+         buffer = b;
+      }else{
+         drain( false );
+      }
+   }
+}
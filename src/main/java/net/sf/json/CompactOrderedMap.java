@@ -0,0 +1,448 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The Map where a JSONObject keeps its properties, iterated in insertion
+ * order.<br>
+ * Keys and values are kept in two flat arrays in insertion order. Small maps
+ * are searched linearly, larger ones through an open addressing table of
+ * positions that is built once the map grows past LINEAR_THRESHOLD keys.
+ * Replacing the value of a key keeps its position, removing a key shifts the
+ * ones after it and clears its slot in the table without rehashing.
+ */
+final class CompactOrderedMap extends AbstractMap implements Serializable {
+   /** maps up to this size are searched without a hash table */
+   private static final int LINEAR_THRESHOLD = 8;
+   private static final long serialVersionUID = -2409727640934658231L;
+
+   private static boolean eq( Object a, Object b ) {
+      return a == b || (a != null && a.equals( b ));
+   }
+
+   private static int hash( Object key ) {
+      if( key == null ){
+         return 0;
+      }
+      int h = key.hashCode();
+      return h ^ (h >>> 16);
+   }
+
+   /**
+    * Positions plus one of the keys, 0 for an empty slot. Its length is twice
+    * the capacity of keys. null for small maps.
+    */
+   private transient int[] index;
+   private Object[] keys;
+   private transient int modCount;
+   private int size;
+   private Object[] values;
+
+   private transient Set entrySet;
+   private transient Set keySet;
+   private transient Collection valuesCollection;
+
+   public CompactOrderedMap() {
+      keys = new Object[4];
+      values = new Object[4];
+   }
+
+   public void clear() {
+      for( int i = 0; i < size; i++ ){
+         keys[i] = null;
+         values[i] = null;
+      }
+      size = 0;
+      index = null;
+      modCount++;
+   }
+
+   public boolean containsKey( Object key ) {
+      return indexOf( key ) >= 0;
+   }
+
+   public boolean containsValue( Object value ) {
+      for( int i = 0; i < size; i++ ){
+         if( eq( value, values[i] ) ){
+            return true;
+         }
+      }
+      return false;
+   }
+
+   public Set entrySet() {
+      if( entrySet == null ){
+         entrySet = new EntrySet();
+      }
+      return entrySet;
+   }
+
+   public Object get( Object key ) {
+      int i = indexOf( key );
+      return i >= 0 ? values[i] : null;
+   }
+
+   public boolean isEmpty() {
+      return size == 0;
+   }
+
+   public Set keySet() {
+      if( keySet == null ){
+         keySet = new KeySet();
+      }
+      return keySet;
+   }
+
+   public Object put( Object key, Object value ) {
+      int i = indexOf( key );
+      if( i >= 0 ){
+         Object previous = values[i];
+         values[i] = value;
+         return previous;
+      }
+      if( size == keys.length ){
+         grow();
+      }
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      modCount++;
+      if( index != null ){
+         insert( index, key, size - 1 );
+      }else if( size > LINEAR_THRESHOLD ){
+         rebuildIndex();
+      }
+      return null;
+   }
+
+   public Object remove( Object key ) {
+      int i = indexOf( key );
+      if( i < 0 ){
+         return null;
+      }
+      Object previous = values[i];
+      removeAt( i );
+      return previous;
+   }
+
+   public int size() {
+      return size;
+   }
+
+   public Collection values() {
+      if( valuesCollection == null ){
+         valuesCollection = new Values();
+      }
+      return valuesCollection;
+   }
+
+   /**
+    * Returns the key at position i, in insertion order.
+    */
+   Object keyAt( int i ) {
+      return keys[i];
+   }
+
+   /**
+    * Returns the value at position i, in insertion order.
+    */
+   Object valueAt( int i ) {
+      return values[i];
+   }
+
+   private void grow() {
+      int capacity = keys.length * 2;
+      Object[] k = new Object[capacity];
+      Object[] v = new Object[capacity];
+      System.arraycopy( keys, 0, k, 0, size );
+      System.arraycopy( values, 0, v, 0, size );
+      keys = k;
+      values = v;
+      if( index != null ){
+         rebuildIndex();
+      }
+   }
+
+   private int indexOf( Object key ) {
+      if( index == null ){
+         for( int i = 0; i < size; i++ ){
+            if( eq( key, keys[i] ) ){
+               return i;
+            }
+         }
+         return -1;
+      }
+      int mask = index.length - 1;
+      for( int slot = hash( key ) & mask;; slot = (slot + 1) & mask ){
+         int position = index[slot];
+         if( position == 0 ){
+            return -1;
+         }
+         if( eq( key, keys[position - 1] ) ){
+            return position - 1;
+         }
+      }
+   }
+
+   private void insert( int[] table, Object key, int position ) {
+      int mask = table.length - 1;
+      int slot = hash( key ) & mask;
+      while( table[slot] != 0 ){
+         slot = (slot + 1) & mask;
+      }
+      table[slot] = position + 1;
+   }
+
+   private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      if( size > LINEAR_THRESHOLD ){
+         rebuildIndex();
+      }
+   }
+
+   private void rebuildIndex() {
+      // keys.length is a power of two
+      int[] table = new int[keys.length * 2];
+      for( int i = 0; i < size; i++ ){
+         insert( table, keys[i], i );
+      }
+      index = table;
+   }
+
+   private void removeAt( int i ) {
+      if( size - 1 > LINEAR_THRESHOLD ){
+         unindex( i );
+      }else{
+         index = null;
+      }
+      int moved = size - i - 1;
+      if( moved > 0 ){
+         System.arraycopy( keys, i + 1, keys, i, moved );
+         System.arraycopy( values, i + 1, values, i, moved );
+      }
+      size--;
+      keys[size] = null;
+      values[size] = null;
+      modCount++;
+   }
+
+   /**
+    * Clears the slot of position i without rehashing, entries further along
+    * its probe sequence are shifted back into the gap and positions after i
+    * are moved down by one.
+    */
+   private void unindex( int i ) {
+      int mask = index.length - 1;
+      int gap = hash( keys[i] ) & mask;
+      while( index[gap] != i + 1 ){
+         gap = (gap + 1) & mask;
+      }
+      for( int slot = (gap + 1) & mask; index[slot] != 0; slot = (slot + 1) & mask ){
+         int home = hash( keys[index[slot] - 1] ) & mask;
+         // entries whose home lies cyclically in (gap, slot] stay where they are
+         boolean stays = gap <= slot ? gap < home && home <= slot : gap < home || home <= slot;
+         if( !stays ){
+            index[gap] = index[slot];
+            gap = slot;
+         }
+      }
+      index[gap] = 0;
+      if( i < size - 1 ){
+         for( int slot = 0; slot < index.length; slot++ ){
+            if( index[slot] > i + 1 ){
+               index[slot]--;
+            }
+         }
+      }
+   }
+
+   private final class Entry implements Map.Entry {
+      private final Object key;
+      private final int position;
+      private final int positionModCount;
+
+      Entry( int position ) {
+         this.position = position;
+         this.key = keys[position];
+         this.positionModCount = modCount;
+      }
+
+      public boolean equals( Object obj ) {
+         if( !(obj instanceof Map.Entry) ){
+            return false;
+         }
+         Map.Entry other = (Map.Entry) obj;
+         return eq( key, other.getKey() ) && eq( getValue(), other.getValue() );
+      }
+
+      public Object getKey() {
+         return key;
+      }
+
+      public Object getValue() {
+         // once keys have been added or removed the position may be stale
+         return modCount == positionModCount ? values[position] : get( key );
+      }
+
+      public int hashCode() {
+         Object value = getValue();
+         return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+      }
+
+      public Object setValue( Object value ) {
+         if( modCount == positionModCount ){
+            Object previous = values[position];
+            values[position] = value;
+            return previous;
+         }
+         return put( key, value );
+      }
+
+      public String toString() {
+         return key + "=" + getValue();
+      }
+   }
+
+   private final class EntrySet extends AbstractSet {
+      public void clear() {
+         CompactOrderedMap.this.clear();
+      }
+
+      public boolean contains( Object o ) {
+         if( !(o instanceof Map.Entry) ){
+            return false;
+         }
+         Map.Entry entry = (Map.Entry) o;
+         int i = indexOf( entry.getKey() );
+         return i >= 0 && eq( values[i], entry.getValue() );
+      }
+
+      public Iterator iterator() {
+         return new PositionIterator(){
+            Object element( int position ) {
+               return new Entry( position );
+            }
+         };
+      }
+
+      public int size() {
+         return size;
+      }
+   }
+
+   private final class KeySet extends AbstractSet {
+      public void clear() {
+         CompactOrderedMap.this.clear();
+      }
+
+      public boolean contains( Object o ) {
+         return containsKey( o );
+      }
+
+      public Iterator iterator() {
+         return new PositionIterator(){
+            Object element( int position ) {
+               return keys[position];
+            }
+         };
+      }
+
+      public boolean remove( Object o ) {
+         int i = indexOf( o );
+         if( i < 0 ){
+            return false;
+         }
+         removeAt( i );
+         return true;
+      }
+
+      public int size() {
+         return size;
+      }
+   }
+
+   private abstract class PositionIterator implements Iterator {
+      private int expectedModCount = modCount;
+      private int last = -1;
+      private int next;
+
+      public boolean hasNext() {
+         return next < size;
+      }
+
+      public Object next() {
+         if( modCount != expectedModCount ){
+            throw new ConcurrentModificationException();
+         }
+         if( next >= size ){
+            throw new NoSuchElementException();
+         }
+         last = next++;
+         return element( last );
+      }
+
+      public void remove() {
+         if( last < 0 ){
+            throw new IllegalStateException();
+         }
+         if( modCount != expectedModCount ){
+            throw new ConcurrentModificationException();
+         }
+         removeAt( last );
+         next = last;
+         last = -1;
+         expectedModCount = modCount;
+      }
+
+      abstract Object element( int position );
+   }
+
+   private final class Values extends AbstractCollection {
+      public void clear() {
+         CompactOrderedMap.this.clear();
+      }
+
+      public boolean contains( Object o ) {
+         return containsValue( o );
+      }
+
+      public Iterator iterator() {
+         return new PositionIterator(){
+            Object element( int position ) {
+               return values[position];
+            }
+         };
+      }
+
+      public int size() {
+         return size;
+      }
+   }
+}
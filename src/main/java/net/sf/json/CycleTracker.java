@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the objects that are being converted, from the root down to the
+ * current one, to detect cycles.<br>
+ * Objects are compared by identity, so their equals() and hashCode() are never
+ * called. Short paths are searched linearly, an identity index is built only
+ * when the path gets deep.
+ */
+final class CycleTracker {
+   /** paths up to this depth are searched without an index */
+   private static final int INDEX_THRESHOLD = 32;
+
+   /** true if created by fork() */
+   private boolean forked;
+   /** instance -> number of times it is on the path, only for deep paths */
+   private Map index;
+   private Object[] path = new Object[16];
+   private int size;
+
+   /**
+    * Returns a tracker that starts with the same path, for a part of the
+    * conversion that continues on another thread.
+    */
+   CycleTracker fork() {
+      CycleTracker tracker = new CycleTracker();
+      tracker.forked = true;
+      tracker.path = new Object[Math.max( path.length, size + 16 )];
+      System.arraycopy( path, 0, tracker.path, 0, size );
+      tracker.size = size;
+      if( index != null ){
+         tracker.index = new IdentityHashMap( index );
+      }
+      return tracker;
+   }
+
+   /**
+    * Returns the number of objects on the path.
+    */
+   int getDepth() {
+      return size;
+   }
+
+   boolean isEmpty() {
+      return size == 0;
+   }
+
+   boolean isForked() {
+      return forked;
+   }
+
+   /**
+    * Adds instance at the end of the path.
+    *
+    * @param checkCycles if false instance is added without looking for it
+    * @param maxDepth the maximum length of the path, 0 for no limit
+    * @return false if checkCycles is true and instance is already on the path,
+    *         in that case it is not added
+    * @throws JSONException if the path would be longer than maxDepth
+    */
+   boolean push( Object instance, boolean checkCycles, int maxDepth ) {
+      if( checkCycles && contains( instance ) ){
+         return false;
+      }
+      if( maxDepth > 0 && size >= maxDepth ){
+         throw new JSONException( "Maximum depth of " + maxDepth + " exceeded" );
+      }
+      if( size == path.length ){
+         Object[] p = new Object[path.length * 2];
+         System.arraycopy( path, 0, p, 0, size );
+         path = p;
+      }
+      path[size++] = instance;
+      if( index != null ){
+         addToIndex( instance );
+      }else if( size > INDEX_THRESHOLD ){
+         index = new IdentityHashMap();
+         for( int i = 0; i < size; i++ ){
+            addToIndex( path[i] );
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Removes the last occurrence of instance from the path, usually the last
+    * element. Does nothing if instance is not on the path.
+    */
+   void remove( Object instance ) {
+      for( int i = size - 1; i >= 0; i-- ){
+         if( path[i] == instance ){
+            System.arraycopy( path, i + 1, path, i, size - i - 1 );
+            path[--size] = null;
+            if( index != null ){
+               removeFromIndex( instance );
+               if( size <= INDEX_THRESHOLD ){
+                  index = null;
+               }
+            }
+            return;
+         }
+      }
+   }
+
+   private void addToIndex( Object instance ) {
+      Integer count = (Integer) index.get( instance );
+      index.put( instance, new Integer( count == null ? 1 : count.intValue() + 1 ) );
+   }
+
+   private boolean contains( Object instance ) {
+      if( index != null ){
+         return index.containsKey( instance );
+      }
+      for( int i = size - 1; i >= 0; i-- ){
+         if( path[i] == instance ){
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private void removeFromIndex( Object instance ) {
+      Integer count = (Integer) index.get( instance );
+      if( count == null || count.intValue() <= 1 ){
+         index.remove( instance );
+      }else{
+         index.put( instance, new Integer( count.intValue() - 1 ) );
+      }
+   }
+}
@@ -17,6 +17,8 @@ package net.sf.json;
 
 import java.beans.PropertyDescriptor;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Reader;
 import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
@@ -33,6 +35,11 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import net.sf.ezmorph.Morpher;
 import net.sf.ezmorph.object.IdentityObjectMorpher;
@@ -108,7 +115,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    /**
     * Creates a JSONArray.<br>
     * Inspects the object type to call the correct JSONArray factory method.
-    * Accepts JSON formatted strings, arrays, Collections and Enums.
+    * Accepts JSON formatted strings, Readers, arrays, Collections and Enums.
     *
     * @param object
     * @throws JSONException if the object can not be converted to a proper
@@ -123,6 +130,8 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
          return _fromCollection( (Collection) object, jsonConfig );
       }else if( object instanceof JSONTokener ){
          return _fromJSONTokener( (JSONTokener) object, jsonConfig );
+      }else if( object instanceof Reader ){
+         return _fromReader( (Reader) object, jsonConfig );
       }else if( object instanceof String ){
          return _fromString( (String) object, jsonConfig );
       }else if( object != null && object.getClass()
@@ -279,6 +288,15 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
          return Array.newInstance( objectClass == null ? Object.class : objectClass, 0 );
       }
 
+      List<Object> elements = jsonArray.elements();
+      if( elements instanceof PrimitiveArrayList && objectClass != null
+            && objectClass.isPrimitive() ){
+         Object array = ((PrimitiveArrayList) elements).toArray( objectClass );
+         if( array != null ){
+            return array;
+         }
+      }
+
       int[] dimensions = JSONArray.getDimensions( jsonArray );
       Object array = Array.newInstance( objectClass == null ? Object.class : objectClass,
             dimensions );
@@ -312,9 +330,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
                }
             }else{
                if( objectClass != null ){
-                  JsonConfig jsc = jsonConfig.copy();
-                  jsc.setRootClass( objectClass );
-                  jsc.setClassMap( classMap );
+                  JsonConfig jsc = jsonConfig.getChildConfig( objectClass, null );
                   Array.set( array, i, JSONObject.toBean( (JSONObject) value, jsc ) );
                }else{
                   Array.set( array, i, JSONObject.toBean( (JSONObject) value ) );
@@ -438,9 +454,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
                collection.add( value );
             }else{
                if( objectClass != null ){
-                  JsonConfig jsc = jsonConfig.copy();
-                  jsc.setRootClass( objectClass );
-                  jsc.setClassMap( classMap );
+                  JsonConfig jsc = jsonConfig.getChildConfig( objectClass, null );
                   collection.add( JSONObject.toBean( (JSONObject) value, jsc ) );
                }else{
                   collection.add( JSONObject.toBean( (JSONObject) value ) );
@@ -519,9 +533,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
                   throw new JSONException( e );
                }
                if( objectClass != null ){
-                  JsonConfig jsc = jsonConfig.copy();
-                  jsc.setRootClass( objectClass );
-                  jsc.setClassMap( classMap );
+                  JsonConfig jsc = jsonConfig.getChildConfig( objectClass, null );
                   collection.add( JSONObject.toBean( (JSONObject) value, jsc ) );
                }else{
                   collection.add( JSONObject.toBean( (JSONObject) value ) );
@@ -612,9 +624,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
                list.add( value );
             }else{
                if( objectClass != null ){
-                  JsonConfig jsc = jsonConfig.copy();
-                  jsc.setRootClass( objectClass );
-                  jsc.setClassMap( classMap );
+                  JsonConfig jsc = jsonConfig.getChildConfig( objectClass, null );
                   list.add( JSONObject.toBean( (JSONObject) value, jsc ) );
                }else{
                   list.add( JSONObject.toBean( (JSONObject) value ) );
@@ -664,13 +674,24 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       return list;
    }
 
+   /**
+    * Creates a JSONArray whose elements are parsed from source when it is
+    * first accessed.
+    */
+   static JSONArray deferred( JSONTokener source, JsonConfig jsonConfig ) {
+      JSONArray jsonArray = new JSONArray();
+      jsonArray.deferredConfig = jsonConfig;
+      jsonArray.deferredSource = source;
+      return jsonArray;
+   }
+
    /**
     * Construct a JSONArray from an boolean[].<br>
     *
     * @param array An boolean[] array.
     */
    private static JSONArray _fromArray( boolean[] array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -704,7 +725,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @param array An byte[] array.
     */
    private static JSONArray _fromArray( byte[] array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -738,7 +759,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @param array An char[] array.
     */
    private static JSONArray _fromArray( char[] array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -772,7 +793,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @param array An double[] array.
     */
    private static JSONArray _fromArray( double[] array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -790,11 +811,21 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       fireArrayStartEvent( jsonConfig );
       JSONArray jsonArray = new JSONArray();
       try{
-         for( int i = 0; i < array.length; i++ ){
-            Double d = array[i];
-            JSONUtils.testValidity( d );
-            jsonArray.addValue( d, jsonConfig );
-            fireElementAddedEvent( i, d, jsonConfig );
+         if( !jsonConfig.isEventTriggeringEnabled()
+               && jsonConfig.findJsonValueProcessor( Double.class ) == null ){
+            for( int i = 0; i < array.length; i++ ){
+               if( Double.isInfinite( array[i] ) || Double.isNaN( array[i] ) ){
+                  throw new JSONException( "JSON does not allow non-finite numbers" );
+               }
+            }
+            jsonArray.elements = PrimitiveArrayList.of( array );
+         }else{
+            for( int i = 0; i < array.length; i++ ){
+               Double d = array[i];
+               JSONUtils.testValidity( d );
+               jsonArray.addValue( d, jsonConfig );
+               fireElementAddedEvent( i, d, jsonConfig );
+            }
          }
       }catch( JSONException jsone ){
          removeInstance( array );
@@ -814,7 +845,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @throws JSONException If there is a syntax error.
     */
    private static JSONArray _fromArray( Enum e, JsonConfig jsonConfig ) {
-      if( !addInstance( e ) ){
+      if( !addInstance( e, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( e );
@@ -852,7 +883,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @param array An float[] array.
     */
    private static JSONArray _fromArray( float[] array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -893,7 +924,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @param array An int[] array.
     */
    private static JSONArray _fromArray( int[] array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -910,10 +941,15 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       }
       fireArrayStartEvent( jsonConfig );
       JSONArray jsonArray = new JSONArray();
-      for( int i = 0; i < array.length; i++ ){
-         Number n = new Integer( array[i] );
-         jsonArray.addValue( n, jsonConfig );
-         fireElementAddedEvent( i, n, jsonConfig );
+      if( !jsonConfig.isEventTriggeringEnabled()
+            && jsonConfig.findJsonValueProcessor( Integer.class ) == null ){
+         jsonArray.elements = PrimitiveArrayList.of( array );
+      }else{
+         for( int i = 0; i < array.length; i++ ){
+            Number n = new Integer( array[i] );
+            jsonArray.addValue( n, jsonConfig );
+            fireElementAddedEvent( i, n, jsonConfig );
+         }
       }
 
       removeInstance( array );
@@ -927,7 +963,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @param array An long[] array.
     */
    private static JSONArray _fromArray( long[] array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -944,10 +980,16 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       }
       fireArrayStartEvent( jsonConfig );
       JSONArray jsonArray = new JSONArray();
-      for( int i = 0; i < array.length; i++ ){
-         Number n = JSONUtils.transformNumber( new Long( array[i] ) );
-         jsonArray.addValue( n, jsonConfig );
-         fireElementAddedEvent( i, n, jsonConfig );
+      if( !jsonConfig.isEventTriggeringEnabled()
+            && jsonConfig.findJsonValueProcessor( Integer.class ) == null
+            && jsonConfig.findJsonValueProcessor( Long.class ) == null ){
+         jsonArray.elements = PrimitiveArrayList.of( array );
+      }else{
+         for( int i = 0; i < array.length; i++ ){
+            Number n = JSONUtils.transformNumber( new Long( array[i] ) );
+            jsonArray.addValue( n, jsonConfig );
+            fireElementAddedEvent( i, n, jsonConfig );
+         }
       }
 
       removeInstance( array );
@@ -958,7 +1000,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    // ------------------------------------------------------
 
    private static JSONArray _fromArray( Object[] array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -976,10 +1018,14 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       fireArrayStartEvent( jsonConfig );
       JSONArray jsonArray = new JSONArray();
       try{
-         for( int i = 0; i < array.length; i++ ){
-            Object element = array[i];
-            jsonArray.addValue( element, jsonConfig );
-            fireElementAddedEvent( i, jsonArray.get( i ), jsonConfig );
+         if( isParallel( array.length, jsonConfig ) ){
+            addValuesInParallel( jsonArray, array, jsonConfig );
+         }else{
+            for( int i = 0; i < array.length; i++ ){
+               Object element = array[i];
+               jsonArray.addValue( element, jsonConfig );
+               fireElementAddedEvent( i, jsonArray.get( i ), jsonConfig );
+            }
          }
       }catch( JSONException jsone ){
          removeInstance( array );
@@ -1003,7 +1049,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @param array An short[] array.
     */
    private static JSONArray _fromArray( short[] array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -1032,7 +1078,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    private static JSONArray _fromCollection( Collection collection, JsonConfig jsonConfig ) {
-      if( !addInstance( collection ) ){
+      if( !addInstance( collection, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( collection );
@@ -1050,11 +1096,15 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       fireArrayStartEvent( jsonConfig );
       JSONArray jsonArray = new JSONArray();
       try{
-         int i = 0;
-         for( Iterator elements = collection.iterator(); elements.hasNext(); ){
-            Object element = elements.next();
-            jsonArray.addValue( element, jsonConfig );
-            fireElementAddedEvent( i, jsonArray.get( i++ ), jsonConfig );
+         if( isParallel( collection.size(), jsonConfig ) ){
+            addValuesInParallel( jsonArray, collection.toArray(), jsonConfig );
+         }else{
+            int i = 0;
+            for( Iterator elements = collection.iterator(); elements.hasNext(); ){
+               Object element = elements.next();
+               jsonArray.addValue( element, jsonConfig );
+               fireElementAddedEvent( i, jsonArray.get( i++ ), jsonConfig );
+            }
          }
       }catch( JSONException jsone ){
          removeInstance( collection );
@@ -1073,7 +1123,12 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    private static JSONArray _fromJSONArray( JSONArray array, JsonConfig jsonConfig ) {
-      if( !addInstance( array ) ){
+      JSONTokener source = array.getDeferredCopySource( jsonConfig );
+      if( source != null ){
+         return deferred( source, jsonConfig );
+      }
+
+      if( !addInstance( array, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsArray( array );
@@ -1128,7 +1183,8 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
                fireElementAddedEvent( index, jsonArray.get( index++ ), jsonConfig );
             }else{
                tokener.back();
-               Object v = tokener.nextValue( jsonConfig );
+               AbstractJSON deferred = nextDeferredValue( tokener, jsonConfig );
+               Object v = deferred != null ? deferred : tokener.nextValue( jsonConfig );
                if( !JSONUtils.isFunctionHeader( v ) ){
                   if( v instanceof String && JSONUtils.mayBeJSON( (String) v ) ){
                      jsonArray.addValue( JSONUtils.DOUBLE_QUOTE + v + JSONUtils.DOUBLE_QUOTE,
@@ -1159,7 +1215,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
                         break;
                      }
                   }
-                  if( i != 0 ){
+                  if( i != 0 || sb.length() < 2 ){
                      throw tokener.syntaxError( "Unbalanced '{' or '}' on prop: " + v );
                   }
                   // trim '{' at start and '}' at end
@@ -1193,10 +1249,99 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       }
    }
 
+   private static JSONArray _fromReader( Reader reader, JsonConfig jsonConfig ) {
+      JSONTokener tokener = JSONTokener.fromReader( reader );
+      JSONArray json = _fromJSONTokener( tokener, jsonConfig );
+      // as with a String, nothing but whitespace may follow the value
+      if( tokener.nextClean() != 0 ){
+         throw tokener.syntaxError( "Unexpected text after the JSON value" );
+      }
+      return json;
+   }
+
    private static JSONArray _fromString( String string, JsonConfig jsonConfig ) {
       return _fromJSONTokener( new JSONTokener( string ), jsonConfig );
    }
 
+   /**
+    * Converts values into jsonArray in slices, the first one on this thread
+    * and the others on the parallel executor of jsonConfig. Values are
+    * converted on this thread alone if it runs a slice already.<br>
+    * This thread runs every slice the executor has not started by the time
+    * it needs it, so a caller that is itself a thread of the executor does
+    * not wait on slices queued behind it.
+    */
+   private static void addValuesInParallel( JSONArray jsonArray, Object[] values,
+         JsonConfig jsonConfig ) {
+      CycleTracker tracker = forkCycleTracker();
+      if( tracker == null ){
+         for( int i = 0; i < values.length; i++ ){
+            jsonArray.addValue( values[i], jsonConfig );
+         }
+         return;
+      }
+
+      int sliceCount = Math.min( Runtime.getRuntime()
+            .availableProcessors() * 4, values.length );
+      int sliceSize = (values.length + sliceCount - 1) / sliceCount;
+      List<FutureTask<JSONArray>> slices = new ArrayList<FutureTask<JSONArray>>();
+      ExecutorService executor = jsonConfig.getParallelExecutor();
+      try{
+         for( int from = sliceSize; from < values.length; from += sliceSize ){
+            if( tracker == null ){
+               tracker = forkCycleTracker();
+            }
+            int to = Math.min( from + sliceSize, values.length );
+            FutureTask<JSONArray> slice = new FutureTask<JSONArray>( new Slice( values, from, to, tracker,
+                  jsonConfig ) );
+            slices.add( slice );
+            tracker = null;
+            try{
+               executor.execute( slice );
+            }catch( RejectedExecutionException e ){
+               // run below on this thread
+            }
+         }
+         for( int i = 0; i < sliceSize; i++ ){
+            jsonArray.addValue( values[i], jsonConfig );
+         }
+         for( int i = 0; i < slices.size(); i++ ){
+            FutureTask<JSONArray> slice = slices.get( i );
+            // does nothing if the executor started it already
+            slice.run();
+            jsonArray.elements()
+                  .addAll( slice.get()
+                        .elements() );
+         }
+      }catch( InterruptedException e ){
+         Thread.currentThread()
+               .interrupt();
+         throw new JSONException( e );
+      }catch( ExecutionException e ){
+         Throwable cause = e.getCause();
+         if( cause instanceof RuntimeException ){
+            throw (RuntimeException) cause;
+         }else if( cause instanceof Error ){
+            throw (Error) cause;
+         }
+         throw new JSONException( cause );
+      }finally{
+         for( int i = 0; i < slices.size(); i++ ){
+            slices.get( i )
+                  .cancel( false );
+         }
+      }
+   }
+
+   /**
+    * Returns true if an array or collection of size elements is converted on
+    * the parallel executor of jsonConfig.
+    */
+   private static boolean isParallel( int size, JsonConfig jsonConfig ) {
+      return jsonConfig.getParallelExecutor() != null && size >= jsonConfig.getParallelThreshold()
+            && !jsonConfig.isEventTriggeringEnabled();
+   }
+
    private static void processArrayDimensions( JSONArray jsonArray, List dims, int index ) {
       if( dims.size() <= index ){
          dims.add(jsonArray.size());
@@ -1216,6 +1361,17 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
 
    // ------------------------------------------------------
 
+   /** the configuration used to parse deferredSource */
+   private transient JsonConfig deferredConfig;
+
+   /**
+    * The source of a lazily parsed array, null once it has been parsed. Copies
+    * made before then share it, so it is locked while it is parsed. It is
+    * cleared after elements is set, which makes the parsed array visible to
+    * every thread that sees it cleared.
+    */
+   private transient volatile JSONTokener deferredSource;
+
    /**
     * The List where the JSONArray's properties are kept.
     */
@@ -1238,7 +1394,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    public void add( int index, Object value, JsonConfig jsonConfig ) {
-      this.elements.add( index, processValue( value, jsonConfig ) );
+      elements().add( index, processValue( value, jsonConfig ) );
    }
 
    public boolean add( Object value ) {
@@ -1274,13 +1430,13 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       }
       int offset = 0;
        for (Object a : collection) {
-           this.elements.add(index + (offset++), processValue(a, jsonConfig));
+           elements().add(index + (offset++), processValue(a, jsonConfig));
        }
       return true;
    }
 
    public void clear() {
-      elements.clear();
+      elements().clear();
    }
 
    public int compareTo( Object obj ) {
@@ -1304,7 +1460,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    public boolean contains( Object o, JsonConfig jsonConfig ) {
-      return elements.contains( processValue( o, jsonConfig ) );
+      return elements().contains( processValue( o, jsonConfig ) );
    }
 
    public boolean containsAll( Collection collection ) {
@@ -1312,7 +1468,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    public boolean containsAll( Collection collection, JsonConfig jsonConfig ) {
-      return elements.containsAll( fromObject( collection, jsonConfig ) );
+      return elements().containsAll( fromObject( collection, jsonConfig ) );
    }
 
    /**
@@ -1322,7 +1478,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @return this.
     */
    public JSONArray discard( int index ) {
-      elements.remove( index );
+      elements().remove( index );
       return this;
    }
 
@@ -1333,7 +1489,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @return this.
     */
    public JSONArray discard( Object o ) {
-      elements.remove( o );
+      elements().remove( o );
       return this;
    }
 
@@ -1367,7 +1523,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     */
    public JSONArray element( Collection value, JsonConfig jsonConfig ) {
       if( value instanceof JSONArray ){
-         elements.add( value );
+         elements().add( value );
          return this;
       }else{
          return element( _fromCollection( value, jsonConfig ) );
@@ -1441,7 +1597,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
             throw new JSONException( "JSONArray[" + index + "] not found." );
          }
          if( index < size() ){
-            elements.set( index, value );
+            elements().set( index, value );
          }else{
             while( index != size() ){
                element( JSONNull.getInstance() );
@@ -1527,7 +1683,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
             throw new JSONException( "JSONArray[" + index + "] not found." );
          }
          if( index < size() ){
-            elements.set( index, value );
+            elements().set( index, value );
          }else{
             while( index != size() ){
                element( JSONNull.getInstance() );
@@ -1576,7 +1732,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
          throw new JSONException( "JSONArray[" + index + "] not found." );
       }
       if( index < size() ){
-         this.elements.set( index, processValue( value, jsonConfig ) );
+         elements().set( index, processValue( value, jsonConfig ) );
       }else{
          while( index != size() ){
             element( JSONNull.getInstance() );
@@ -1622,15 +1778,15 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       }
       if( index < size() ){
          if( value == null ){
-            this.elements.set( index, "" );
+            elements().set( index, "" );
          }else if( JSONUtils.mayBeJSON( value ) ){
             try{
-               this.elements.set( index, JSONSerializer.toJSON( value, jsonConfig ) );
+               elements().set( index, JSONSerializer.toJSON( value, jsonConfig ) );
             }catch( JSONException jsone ){
-               this.elements.set( index, JSONUtils.stripQuotes( value ) );
+               elements().set( index, JSONUtils.stripQuotes( value ) );
             }
          }else{
-            this.elements.set( index, JSONUtils.stripQuotes( value ) );
+            elements().set( index, JSONUtils.stripQuotes( value ) );
          }
       }else{
          while( index != size() ){
@@ -1648,7 +1804,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @return this.
     */
    public JSONArray element( JSONNull value ) {
-      this.elements.add( value );
+      elements().add( value );
       return this;
    }
 
@@ -1659,7 +1815,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @return this.
     */
    public JSONArray element( JSONObject value ) {
-      this.elements.add( value );
+      elements().add( value );
       return this;
    }
 
@@ -1693,7 +1849,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     */
    public JSONArray element( Map value, JsonConfig jsonConfig ) {
       if( value instanceof JSONObject ){
-         elements.add( value );
+         elements().add( value );
          return this;
       }else{
          return element( JSONObject.fromObject( value, jsonConfig ) );
@@ -1746,25 +1902,25 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     */
    public JSONArray element( String value, JsonConfig jsonConfig ) {
       if( value == null ) {
-         this.elements.add("");
+         elements().add("");
       } else if( JSONUtils.hasQuotes( value )) {
-         this.elements.add(value);
+         elements().add(value);
       } else if( JSONNull.getInstance().equals( value )) {
-         this.elements.add( JSONNull.getInstance() );
+         elements().add( JSONNull.getInstance() );
       } else if( JSONUtils.isJsonKeyword(value,jsonConfig)) {
          if( jsonConfig.isJavascriptCompliant() && "undefined".equals( value )){
-            this.elements.add( JSONNull.getInstance() );
+            elements().add( JSONNull.getInstance() );
          }else{
-            this.elements.add(value);
+            elements().add(value);
          }
       } else if( JSONUtils.mayBeJSON( value ) ){
          try{
-            this.elements.add( JSONSerializer.toJSON( value, jsonConfig ) );
+            elements().add( JSONSerializer.toJSON( value, jsonConfig ) );
          }catch( JSONException jsone ){
-            this.elements.add( value );
+            elements().add( value );
          }
       } else {
-         this.elements.add(value);
+         elements().add(value);
       }
       return this;
    }
@@ -1883,7 +2039,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
        * Object o = opt( index ); if( o == null ){ throw new JSONException(
        * "JSONArray[" + index + "] not found." ); } return o;
        */
-      return this.elements.get( index );
+      return elements().get( index );
    }
 
    /**
@@ -2016,7 +2172,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    public int hashCode() {
       int hashcode = 29;
 
-      for( Iterator e = elements.iterator(); e.hasNext(); ){
+      for( Iterator e = elements().iterator(); e.hasNext(); ){
          Object element = e.next();
          hashcode += JSONUtils.hashCode( element );
       }
@@ -2024,7 +2180,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    public int indexOf( Object o ) {
-      return elements.indexOf( o );
+      return elements().indexOf( o );
    }
 
    public boolean isArray() {
@@ -2032,7 +2188,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    public boolean isEmpty() {
-      return this.elements.isEmpty();
+      return elements().isEmpty();
    }
 
    public boolean isExpandElements() {
@@ -2070,20 +2226,31 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     */
    public String join( String separator, boolean stripQuotes ) {
       int len = size();
-      StringBuffer sb = new StringBuffer();
+      StringBuilder sb = new StringBuilder();
+      List<Object> list = elements();
+      if( list instanceof PrimitiveArrayList ){
+         // numbers have no quotes to strip
+         for( int i = 0; i < len; i += 1 ){
+            if( i > 0 ){
+               sb.append( separator );
+            }
+            ((PrimitiveArrayList) list).appendTo( sb, i );
+         }
+         return sb.toString();
+      }
 
       for( int i = 0; i < len; i += 1 ){
          if( i > 0 ){
             sb.append( separator );
          }
-         String value = JSONUtils.valueToString( this.elements.get( i ) );
+         String value = JSONUtils.valueToString( elements().get( i ) );
          sb.append( stripQuotes ? JSONUtils.stripQuotes( value ) : value );
       }
       return sb.toString();
    }
 
    public int lastIndexOf( Object o ) {
-      return elements.lastIndexOf( o );
+      return elements().lastIndexOf( o );
    }
 
    public ListIterator listIterator() {
@@ -2104,7 +2271,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @return An object value, or null if there is no object at that index.
     */
    public Object opt( int index ) {
-      return (index < 0 || index >= size()) ? null : this.elements.get( index );
+      return (index < 0 || index >= size()) ? null : elements().get( index );
    }
 
    /**
@@ -2274,11 +2441,11 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    public Object remove( int index ) {
-      return elements.remove( index );
+      return elements().remove( index );
    }
 
    public boolean remove( Object o ) {
-      return elements.remove( o );
+      return elements().remove( o );
    }
 
    public boolean removeAll( Collection collection ) {
@@ -2286,7 +2453,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    public boolean removeAll( Collection collection, JsonConfig jsonConfig ) {
-      return elements.removeAll( fromObject( collection, jsonConfig ) );
+      return elements().removeAll( fromObject( collection, jsonConfig ) );
    }
 
    public boolean retainAll( Collection collection ) {
@@ -2294,7 +2461,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
    public boolean retainAll( Collection collection, JsonConfig jsonConfig ) {
-      return elements.retainAll( fromObject( collection, jsonConfig ) );
+      return elements().retainAll( fromObject( collection, jsonConfig ) );
    }
 
    public Object set( int index, Object value ) {
@@ -2317,22 +2484,60 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @return The length (or size).
     */
    public int size() {
-      return this.elements.size();
+      return elements().size();
    }
 
    public List subList( int fromIndex, int toIndex ) {
-      return elements.subList( fromIndex, toIndex );
+      return elements().subList( fromIndex, toIndex );
    }
 
    /**
     * Produce an Object[] with the contents of this JSONArray.
     */
    public Object[] toArray() {
-      return this.elements.toArray();
+      return elements().toArray();
    }
 
    public Object[] toArray( Object[] array ) {
-      return elements.toArray( array );
+      return elements().toArray( array );
+   }
+
+   /**
+    * Produce a double[] with the contents of this JSONArray. Arrays created
+    * from a primitive array are copied without boxing their elements.
+    *
+    * @return A double[] of the same size as this JSONArray.
+    * @throws JSONException If an element can't be converted to a number.
+    */
+   public double[] toDoubleArray() {
+      List<Object> list = elements();
+      if( list instanceof PrimitiveArrayList ){
+         return ((PrimitiveArrayList) list).toDoubleArray();
+      }
+      double[] array = new double[list.size()];
+      for( int i = 0; i < array.length; i++ ){
+         array[i] = getDouble( i );
+      }
+      return array;
+   }
+
+   /**
+    * Produce an int[] with the contents of this JSONArray. Arrays created from
+    * a primitive array are copied without boxing their elements.
+    *
+    * @return An int[] of the same size as this JSONArray.
+    * @throws JSONException If an element can't be converted to a number.
+    */
+   public int[] toIntArray() {
+      List<Object> list = elements();
+      if( list instanceof PrimitiveArrayList ){
+         return ((PrimitiveArrayList) list).toIntArray();
+      }
+      int[] array = new int[list.size()];
+      for( int i = 0; i < array.length; i++ ){
+         array[i] = getInt( i );
+      }
+      return array;
    }
 
    /**
@@ -2356,6 +2561,25 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       return jo;
    }
 
+   /**
+    * Produce a long[] with the contents of this JSONArray. Arrays created from
+    * a primitive array are copied without boxing their elements.
+    *
+    * @return A long[] of the same size as this JSONArray.
+    * @throws JSONException If an element can't be converted to a number.
+    */
+   public long[] toLongArray() {
+      List<Object> list = elements();
+      if( list instanceof PrimitiveArrayList ){
+         return ((PrimitiveArrayList) list).toLongArray();
+      }
+      long[] array = new long[list.size()];
+      for( int i = 0; i < array.length; i++ ){
+         array[i] = getLong( i );
+      }
+      return array;
+   }
+
    /**
     * Make a JSON text of this JSONArray. For compactness, no unnecessary
     * whitespace is added. If it is not possible to produce a syntactically
@@ -2369,7 +2593,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     */
    public String toString() {
       try{
-         return '[' + join( "," ) + ']';
+         return writeToString();
       }catch( Exception e ){
          return null;
       }
@@ -2414,9 +2638,9 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
          return this.toString();
       }
       int i;
-      StringBuffer sb = new StringBuffer( "[" );
+      StringBuilder sb = new StringBuilder( "[" );
       if( len == 1 ){
-         sb.append( JSONUtils.valueToString( this.elements.get( 0 ), indentFactor, indent ) );
+         sb.append( JSONUtils.valueToString( elements().get( 0 ), indentFactor, indent ) );
       }else{
          int newindent = indent + indentFactor;
          sb.append( '\n' );
@@ -2427,7 +2651,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
             for( int j = 0; j < newindent; j += 1 ){
                sb.append( ' ' );
             }
-            sb.append( JSONUtils.valueToString( this.elements.get( i ), indentFactor, newindent ) );
+            sb.append( JSONUtils.valueToString( elements().get( i ), indentFactor, newindent ) );
          }
          sb.append( '\n' );
          for( i = 0; i < indent; i += 1 ){
@@ -2442,6 +2666,11 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
    }
 
     protected void write(Writer writer, WritingVisitor visitor) throws IOException {
+        List<Object> list = elements();
+        if( list instanceof PrimitiveArrayList ){
+           ((PrimitiveArrayList) list).write( writer, visitor == CANONICAL );
+           return;
+        }
         boolean b = false;
         int len = size();
 
@@ -2451,7 +2680,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
            if( b ){
               writer.write( ',' );
            }
-           Object v = this.elements.get( i );
+           Object v = elements().get( i );
            if( v instanceof JSON ){
                visitor.on((JSON)v,writer);
            }else{
@@ -2467,7 +2696,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     */
    protected JSONArray addString( String str ) {
       if( str != null ){
-         elements.add( str );
+         elements().add( str );
       }
       return this;
    }
@@ -2481,7 +2710,7 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
     * @return this.
     */
    private JSONArray _addValue( Object value, JsonConfig jsonConfig ) {
-      this.elements.add(value);
+      elements().add(value);
       return this;
    }
 
@@ -2522,6 +2751,91 @@ public final class JSONArray extends AbstractJSON implements JSON, List<Object>,
       return _processValue( value, jsonConfig );
    }
 
+   /**
+    * Returns the List of elements, parsing a lazily parsed array first.
+    */
+   private List<Object> elements() {
+      if( deferredSource != null ){
+         synchronized( this ){
+            JSONTokener source = deferredSource;
+            if( source != null ){
+               JSONArray parsed = null;
+               synchronized( source ){
+                  // every attempt starts over, a failed one leaves nothing behind
+                  source.reset();
+                  parsed = _fromJSONTokener( source, deferredConfig );
+               }
+               // as addValue() copies a nested array parsed at once
+               this.elements = _fromJSONArray( parsed, deferredConfig ).elements;
+               deferredConfig = null;
+               deferredSource = null;
+            }
+         }
+      }else if( elements instanceof PrimitiveArrayList ){
+         List<Object> inflated = ((PrimitiveArrayList) elements).getInflated();
+         if( inflated != null ){
+            this.elements = inflated;
+         }
+      }
+      return elements;
+   }
+
+   /**
+    * Returns the source of this array if it has not been parsed yet and copying
+    * it with jsonConfig would give the array it parses to, so the copy can be
+    * parsed lazily as well; null otherwise.
+    */
+   private JSONTokener getDeferredCopySource( JsonConfig jsonConfig ) {
+      JSONTokener source = deferredSource;
+      if( source == null || deferredConfig != jsonConfig || jsonConfig.isEventTriggeringEnabled()
+            || jsonConfig.hasJsonValueProcessors() ){
+         return null;
+      }
+      return source;
+   }
+
+   /**
+    * Parses a lazily parsed array before it is serialized.
+    */
+   private void writeObject( ObjectOutputStream out ) throws IOException {
+      elements();
+      out.defaultWriteObject();
+   }
+
+   /**
+    * Converts a slice of the values of an array on the thread it is called,
+    * detecting cycles with the references that were being converted when the
+    * array was reached.
+    */
+   private static final class Slice implements Callable<JSONArray> {
+      private final int from;
+      private final JsonConfig jsonConfig;
+      private final int to;
+      private final CycleTracker tracker;
+      private final Object[] values;
+
+      Slice( Object[] values, int from, int to, CycleTracker tracker, JsonConfig jsonConfig ) {
+         this.values = values;
+         this.from = from;
+         this.to = to;
+         this.tracker = tracker;
+         this.jsonConfig = jsonConfig;
+      }
+
+      public JSONArray call() {
+         CycleTracker previous = swapCycleTracker( tracker );
+         try{
+            JSONArray jsonArray = new JSONArray();
+            for( int i = from; i < to; i++ ){
+               jsonArray.addValue( values[i], jsonConfig );
+            }
+            return jsonArray;
+         }finally{
+            swapCycleTracker( previous );
+         }
+      }
+   }
+
    private class JSONArrayListIterator implements ListIterator {
       int currentIndex = 0;
       int lastIndex = -1;
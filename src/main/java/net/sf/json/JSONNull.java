@@ -17,6 +17,7 @@
 package net.sf.json;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 
 /**
@@ -100,6 +101,20 @@ public final class JSONNull implements JSON {
        return writer;
    }
 
+   /**
+    * Writes "null" to out, encoded as UTF-8. The stream is neither flushed
+    * nor closed.
+    *
+    * @return out
+    */
+   public OutputStream write( OutputStream out ) throws IOException {
+      out.write( 'n' );
+      out.write( 'u' );
+      out.write( 'l' );
+      out.write( 'l' );
+      return out;
+   }
+
     public Writer writeCanonical(Writer w) throws IOException {
         return write(w);
     }
@@ -17,12 +17,12 @@ package net.sf.json;
 
 import java.beans.PropertyDescriptor;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Reader;
 import java.io.Writer;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -41,7 +41,6 @@ import net.sf.ezmorph.object.IdentityObjectMorpher;
 import net.sf.json.processors.JsonBeanProcessor;
 import net.sf.json.processors.JsonValueProcessor;
 import net.sf.json.processors.JsonVerifier;
-import net.sf.json.processors.PropertyNameProcessor;
 import net.sf.json.regexp.RegexpUtils;
 import net.sf.json.util.CycleDetectionStrategy;
 import net.sf.json.util.EnumMorpher;
@@ -52,8 +51,6 @@ import net.sf.json.util.PropertySetStrategy;
 
 import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.beanutils.DynaProperty;
-import org.apache.commons.beanutils.PropertyUtils;
-import org.apache.commons.collections.map.ListOrderedMap;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -134,7 +131,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
    /**
     * Creates a JSONObject.<br>
     * Inspects the object type to call the correct JSONObject factory method.
-    * Accepts JSON formatted strings, Maps, DynaBeans and JavaBeans.
+    * Accepts JSON formatted strings, Readers, Maps, DynaBeans and JavaBeans.
     *
     * @param object
     * @throws JSONException if the object can not be converted to a proper
@@ -154,6 +151,8 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          return _fromDynaBean( (DynaBean) object, jsonConfig );
       }else if( object instanceof JSONTokener ){
          return _fromJSONTokener( (JSONTokener) object, jsonConfig );
+      }else if( object instanceof Reader ){
+         return _fromReader( (Reader) object, jsonConfig );
       }else if( object instanceof JSONString ){
          return _fromJSONString( (JSONString) object, jsonConfig );
       }else if( object instanceof Map ){
@@ -285,23 +284,21 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          throw new JSONException( e );
       }
 
-      Map props = JSONUtils.getProperties( jsonObject );
+      BeanPopulationPlan plan = jsonConfig.getBeanPopulationPlan( beanClass );
+      // the strategy may return a subclass, keys are named after beanClass
+      // but properties are looked up on the class of the bean
+      BeanPopulationPlan propertyPlan = bean.getClass() == beanClass ? plan
+            : jsonConfig.getBeanPopulationPlan( bean.getClass() );
       PropertyFilter javaPropertyFilter = jsonConfig.getJavaPropertyFilter();
       for( Iterator entries = jsonObject.names( jsonConfig )
             .iterator(); entries.hasNext(); ){
          String name = (String) entries.next();
-         Class type = (Class) props.get( name );
          Object value = jsonObject.get( name );
+         Class type = JSONUtils.getTypeClass( value );
          if( javaPropertyFilter != null && javaPropertyFilter.apply( bean, name, value ) ){
             continue;
          }
-         String key = Map.class.isAssignableFrom( beanClass )
-               && jsonConfig.isSkipJavaIdentifierTransformationInMapKeys() ? name
-               : JSONUtils.convertToJavaIdentifier( name, jsonConfig );
-         PropertyNameProcessor propertyNameProcessor = jsonConfig.findJavaPropertyNameProcessor( beanClass );
-         if( propertyNameProcessor != null ){
-            key = propertyNameProcessor.processPropertyName( beanClass, key );
-         }
+         String key = plan.getJavaKey( name );
          try{
             if( Map.class.isAssignableFrom( beanClass ) ){
                // no type info available for conversion
@@ -320,50 +317,48 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                   }
                }else{
                   Class targetClass = resolveClass(classMap, key, name, type);
-                  JsonConfig jsc = jsonConfig.copy();
-                  jsc.setRootClass( targetClass );
-                  jsc.setClassMap( classMap );
                   if( targetClass != null ){
+                     JsonConfig jsc = jsonConfig.getChildConfig( targetClass, null );
                      setProperty( bean, key, toBean( (JSONObject) value, jsc ), jsonConfig );
                   }else{
                      setProperty( bean, key, toBean( (JSONObject) value ), jsonConfig );
                   }
                }
             }else{
-               PropertyDescriptor pd = PropertyUtils.getPropertyDescriptor( bean, key );
-               if( pd != null && pd.getWriteMethod() == null ){
+               BeanPopulationPlan.Property property = propertyPlan.getProperty( bean, key );
+               if( property != null && !property.isWritable() ){
                   log.info( "Property '" + key + "' of "+ bean.getClass()+" has no write method. SKIPPED." );
                   continue;
                }
 
-               if( pd != null ){
-                  Class targetType = pd.getPropertyType();
+               if( property != null ){
+                  Class targetType = property.getType();
                   if( !JSONUtils.isNull( value ) ){
                      if( value instanceof JSONArray ){
-                        if( List.class.isAssignableFrom( pd.getPropertyType() ) ){
-                           setProperty( bean, key, convertPropertyValueToCollection( key, value,
-                                 jsonConfig, name, classMap, pd.getPropertyType() ), jsonConfig );
-                        }else if( Set.class.isAssignableFrom( pd.getPropertyType() ) ){
-                           setProperty( bean, key, convertPropertyValueToCollection( key, value,
-                                 jsonConfig, name, classMap, pd.getPropertyType() ), jsonConfig );
+                        if( List.class.isAssignableFrom( targetType ) ){
+                           setProperty( bean, property, convertPropertyValueToCollection( key, value,
+                                 jsonConfig, name, classMap, targetType ), jsonConfig );
+                        }else if( Set.class.isAssignableFrom( targetType ) ){
+                           setProperty( bean, property, convertPropertyValueToCollection( key, value,
+                                 jsonConfig, name, classMap, targetType ), jsonConfig );
                         }else{
-                           setProperty( bean, key, convertPropertyValueToArray( key, value,
+                           setProperty( bean, property, convertPropertyValueToArray( key, value,
                                  targetType, jsonConfig, classMap ), jsonConfig );
                         }
                      }else if( String.class.isAssignableFrom( type ) || JSONUtils.isBoolean( type )
                            || JSONUtils.isNumber( type ) || JSONUtils.isString( type )
                            || JSONFunction.class.isAssignableFrom( type ) ){
-                        if( pd != null ){
+                        if( property != null ){
                            if( jsonConfig.isHandleJettisonEmptyElement() && "".equals( value ) ){
-                              setProperty( bean, key, null, jsonConfig );
+                              setProperty( bean, property, null, jsonConfig );
                            }else if( !targetType.isInstance( value ) ){
-                              setProperty( bean, key, morphPropertyValue( key, value, type,
+                              setProperty( bean, property, morphPropertyValue( key, value, type,
                                     targetType ), jsonConfig );
                            }else{
-                              setProperty( bean, key, value, jsonConfig );
+                              setProperty( bean, property, value, jsonConfig );
                            }
                         }else if( beanClass == null || bean instanceof Map ){
-                           setProperty( bean, key, value, jsonConfig );
+                           setProperty( bean, property, value, jsonConfig );
                         }else{
                            log.warn( "Tried to assign property " + key + ":" + type.getName()
                                  + " to bean of class " + bean.getClass()
@@ -373,20 +368,17 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                         if( jsonConfig.isHandleJettisonSingleElementArray() ){
                            JSONArray array = new JSONArray().element( value, jsonConfig );
                            Class newTargetClass = resolveClass(classMap, key, name, type);
-                           JsonConfig jsc = jsonConfig.copy();
-                           jsc.setRootClass( newTargetClass );
-                           jsc.setClassMap( classMap );
+                           JsonConfig jsc = jsonConfig.getChildConfig( newTargetClass, null );
                            if( targetType.isArray() ){
-                              setProperty( bean, key, JSONArray.toArray( array, jsc ), jsonConfig );
+                              setProperty( bean, property, JSONArray.toArray( array, jsc ), jsonConfig );
                            }else if( JSONArray.class.isAssignableFrom( targetType ) ){
-                              setProperty( bean, key, array, jsonConfig );
+                              setProperty( bean, property, array, jsonConfig );
                            }else if( List.class.isAssignableFrom( targetType )
                                  || Set.class.isAssignableFrom( targetType ) ){
-                              jsc.setCollectionType( targetType );
-                              setProperty( bean, key, JSONArray.toCollection( array, jsc ),
-                                    jsonConfig );
+                              setProperty( bean, property, JSONArray.toCollection( array,
+                                    jsonConfig.getChildConfig( newTargetClass, targetType ) ), jsonConfig );
                            }else{
-                              setProperty( bean, key, toBean( (JSONObject) value, jsc ), jsonConfig );
+                              setProperty( bean, property, toBean( (JSONObject) value, jsc ), jsonConfig );
                            }
                         }else{
                            if( targetType == Object.class || targetType.isInterface() ) {
@@ -397,20 +389,18 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                               targetType = targetType == null && targetTypeCopy.isInterface() ? targetTypeCopy
                                     : targetType;
                            }
-                           JsonConfig jsc = jsonConfig.copy();
-                           jsc.setRootClass( targetType );
-                           jsc.setClassMap( classMap );
-                           setProperty( bean, key, toBean( (JSONObject) value, jsc ), jsonConfig );
+                           JsonConfig jsc = jsonConfig.getChildConfig( targetType, null );
+                           setProperty( bean, property, toBean( (JSONObject) value, jsc ), jsonConfig );
                         }
                      }
                   }else{
                      if( type.isPrimitive() ){
                         // assume assigned default value
                         log.warn( "Tried to assign null value to " + key + ":" + type.getName() );
-                        setProperty( bean, key, JSONUtils.getMorpherRegistry()
+                        setProperty( bean, property, JSONUtils.getMorpherRegistry()
                               .morph( type, null ), jsonConfig );
                      }else{
-                        setProperty( bean, key, null, jsonConfig );
+                        setProperty( bean, property, null, jsonConfig );
                      }
                   }
                }else{
@@ -432,9 +422,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                      }else{
                         if( jsonConfig.isHandleJettisonSingleElementArray() ){
                            Class newTargetClass = resolveClass(classMap, key, name, type);
-                           JsonConfig jsc = jsonConfig.copy();
-                           jsc.setRootClass( newTargetClass );
-                           jsc.setClassMap( classMap );
+                           JsonConfig jsc = jsonConfig.getChildConfig( newTargetClass, null );
                            setProperty( bean, key, toBean( (JSONObject) value, jsc ), jsonConfig );
                         }else{
                            setProperty( bean, key, value, jsonConfig );
@@ -480,20 +468,21 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          classMap = Collections.EMPTY_MAP;
       }
 
-      Map props = JSONUtils.getProperties( jsonObject );
+      BeanPopulationPlan plan = jsonConfig.getBeanPopulationPlan( rootClass );
       PropertyFilter javaPropertyFilter = jsonConfig.getJavaPropertyFilter();
       for( Iterator entries = jsonObject.names( jsonConfig )
             .iterator(); entries.hasNext(); ){
          String name = (String) entries.next();
-         Class type = (Class) props.get( name );
          Object value = jsonObject.get( name );
+         Class type = JSONUtils.getTypeClass( value );
          if( javaPropertyFilter != null && javaPropertyFilter.apply( root, name, value ) ){
             continue;
          }
          String key = JSONUtils.convertToJavaIdentifier( name, jsonConfig );
          try{
-            PropertyDescriptor pd = PropertyUtils.getPropertyDescriptor( root, key );
-            if( pd != null && pd.getWriteMethod() == null ){
+            BeanPopulationPlan.Property property = plan.getProperty( root, key );
+            PropertyDescriptor pd = property != null ? property.getDescriptor() : null;
+            if( property != null && !property.isWritable() ){
                log.info( "Property '" + key + "' of "+ root.getClass()+" has no write method. SKIPPED." );
                continue;
             }
@@ -541,14 +530,14 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                                        .getClass(), array );
                         }
                      }
-                     setProperty( root, key, array, jsonConfig );
+                     setProperty( root, property, array, jsonConfig );
                   }
                }else if( String.class.isAssignableFrom( type ) || JSONUtils.isBoolean( type )
                      || JSONUtils.isNumber( type ) || JSONUtils.isString( type )
                      || JSONFunction.class.isAssignableFrom( type ) ){
                   if( pd != null ){
                      if( jsonConfig.isHandleJettisonEmptyElement() && "".equals( value ) ){
-                        setProperty( root, key, null, jsonConfig );
+                        setProperty( root, property, null, jsonConfig );
                      }else if( !pd.getPropertyType()
                            .isInstance( value ) ){
                         Morpher morpher = JSONUtils.getMorpherRegistry()
@@ -563,10 +552,10 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                                        new BeanMorpher( pd.getPropertyType(),
                                              JSONUtils.getMorpherRegistry() ) );
                         }
-                        setProperty( root, key, JSONUtils.getMorpherRegistry()
+                        setProperty( root, property, JSONUtils.getMorpherRegistry()
                               .morph( pd.getPropertyType(), value ), jsonConfig );
                      }else{
-                        setProperty( root, key, value, jsonConfig );
+                        setProperty( root, property, value, jsonConfig );
                      }
                   }else if( root instanceof Map ){
                      setProperty( root, key, value, jsonConfig );
@@ -584,15 +573,15 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                         Object newRoot = jsonConfig.getNewBeanInstanceStrategy()
                               .newInstance( newTargetClass, (JSONObject) value );
                         if( targetClass.isArray() ){
-                           setProperty( root, key, JSONArray.toArray( array, newRoot, jsonConfig ),
+                           setProperty( root, property, JSONArray.toArray( array, newRoot, jsonConfig ),
                                  jsonConfig );
                         }else if( Collection.class.isAssignableFrom( targetClass ) ){
-                           setProperty( root, key, JSONArray.toList( array, newRoot, jsonConfig ),
+                           setProperty( root, property, JSONArray.toList( array, newRoot, jsonConfig ),
                                  jsonConfig );
                         }else if( JSONArray.class.isAssignableFrom( targetClass ) ){
-                           setProperty( root, key, array, jsonConfig );
+                           setProperty( root, property, array, jsonConfig );
                         }else{
-                           setProperty( root, key,
+                           setProperty( root, property,
                                  toBean( (JSONObject) value, newRoot, jsonConfig ), jsonConfig );
                         }
                      }else{
@@ -604,7 +593,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                         }
                         Object newRoot = jsonConfig.getNewBeanInstanceStrategy()
                               .newInstance( targetClass, (JSONObject) value );
-                        setProperty( root, key, toBean( (JSONObject) value, newRoot, jsonConfig ),
+                        setProperty( root, property, toBean( (JSONObject) value, newRoot, jsonConfig ),
                               jsonConfig );
                      }
                   }else if( root instanceof Map ){
@@ -640,6 +629,17 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       return root;
    }
 
+   /**
+    * Creates a JSONObject whose properties are parsed from source when it is
+    * first accessed.
+    */
+   static JSONObject deferred( JSONTokener source, JsonConfig jsonConfig ) {
+      JSONObject jsonObject = new JSONObject();
+      jsonObject.deferredConfig = jsonConfig;
+      jsonObject.deferredSource = source;
+      return jsonObject;
+   }
+
    /**
     * Creates a JSONObject from a POJO.<br>
     * Supports nested maps, POJOs, and arrays/collections.
@@ -649,7 +649,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
     *         JSONObject.
     */
    private static JSONObject _fromBean( Object bean, JsonConfig jsonConfig ) {
-      if( !addInstance( bean ) ){
+      if( !addInstance( bean, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsObject( bean );
@@ -699,108 +699,26 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       return jsonObject;
    }
    
-   private static JSONObject defaultBeanProcessing(Object bean, JsonConfig jsonConfig) {      
+   private static JSONObject defaultBeanProcessing( Object bean, JsonConfig jsonConfig ) {
       Class beanClass = bean.getClass();
-      PropertyNameProcessor propertyNameProcessor = jsonConfig.findJsonPropertyNameProcessor( beanClass );      
-      Collection exclusions = jsonConfig.getMergedExcludes( beanClass );
       JSONObject jsonObject = new JSONObject();
       try{
-         PropertyDescriptor[] pds = PropertyUtils.getPropertyDescriptors( bean );
+         BeanSerializationPlan plan = jsonConfig.getBeanSerializationPlan( beanClass );
          PropertyFilter jsonPropertyFilter = jsonConfig.getJsonPropertyFilter();
-         for( int i = 0; i < pds.length; i++ ){
-            boolean bypass = false;
-            String key = pds[i].getName();
-            if( exclusions.contains( key ) ){
-               continue;
-            }
-
-            if( jsonConfig.isIgnoreTransientFields() && isTransientField( key, beanClass, jsonConfig ) ){
-               continue;
-            }
-
-            Class type = pds[i].getPropertyType();
-            try { pds[i].getReadMethod(); }
-            catch( Exception e ) {
-               // bug 2565295
-               String warning = "Property '" + key + "' of "+ beanClass+" has no read method. SKIPPED";
-               fireWarnEvent( warning, jsonConfig );
-               log.info( warning );
+         for( int i = 0; i < plan.properties.length; i++ ){
+            BeanSerializationPlan.Accessor accessor = plan.properties[i];
+            if( accessor.warning != null ){
+               fireWarnEvent( accessor.warning, jsonConfig );
+               log.info( accessor.warning );
                continue;
             }
-            if( pds[i].getReadMethod() != null ){
-               /*
-               if( jsonConfig.isIgnoreJPATransient() ){
-                  try{
-                     Class transientClass = Class.forName( "javax.persistence.Transient" );
-                     if( pds[i].getReadMethod()
-                           .getAnnotation( transientClass ) != null ){
-                        continue;
-                     }
-                  }catch( ClassNotFoundException cnfe ){
-                     // ignore
-                  }
-               }
-               */
-               if(isTransient(pds[i].getReadMethod(), jsonConfig)) continue;
-
-               Object value = PropertyUtils.getProperty( bean, key );
-               if( jsonPropertyFilter != null && jsonPropertyFilter.apply( bean, key, value ) ){
-                  continue;
-               }
-               JsonValueProcessor jsonValueProcessor = jsonConfig.findJsonValueProcessor(
-                     beanClass, type, key );
-               if( jsonValueProcessor != null ){
-                  value = jsonValueProcessor.processObjectValue( key, value, jsonConfig );
-                  bypass = true;
-                  if( !JsonVerifier.isValidJsonValue( value ) ){
-                     throw new JSONException( "Value is not a valid JSON value. " + value );
-                  }
-               }
-               if( propertyNameProcessor != null ){
-                  key = propertyNameProcessor.processPropertyName( beanClass, key );
-               }
-               setValue( jsonObject, key, value, type, jsonConfig, bypass );
-            }else{
-               String warning = "Property '" + key + "' of "+ beanClass+" has no read method. SKIPPED";
-               fireWarnEvent( warning, jsonConfig );
-               log.info( warning );
-            }
+            processBeanValue( jsonObject, bean, accessor, jsonPropertyFilter, jsonConfig );
          }
-         // inspect public fields, this operation may fail under
-         // a SecurityManager so we will eat all exceptions
+         // public fields may fail to be read under a SecurityManager
+         // so we will eat all exceptions
          try {
-            if( !jsonConfig.isIgnorePublicFields() ) {
-               Field[] fields = beanClass.getFields();
-               for( int i = 0; i < fields.length; i++ ) {
-                  boolean bypass = false;
-                  Field field = fields[i];
-                  String key = field.getName();
-                  if( exclusions.contains( key ) ) {
-                     continue;
-                  }
-
-                  if( jsonConfig.isIgnoreTransientFields() && isTransient( field, jsonConfig ) ) {
-                     continue;
-                  }
-
-                  Class type = field.getType();
-                  Object value = field.get( bean );
-                  if( jsonPropertyFilter != null && jsonPropertyFilter.apply( bean, key, value ) ) {
-                     continue;
-                  }
-                  JsonValueProcessor jsonValueProcessor = jsonConfig.findJsonValueProcessor( beanClass, type, key );
-                  if( jsonValueProcessor != null ) {
-                     value = jsonValueProcessor.processObjectValue( key, value, jsonConfig );
-                     bypass = true;
-                     if( !JsonVerifier.isValidJsonValue( value ) ) {
-                        throw new JSONException( "Value is not a valid JSON value. " + value );
-                     }
-                  }
-                  if( propertyNameProcessor != null ) {
-                     key = propertyNameProcessor.processPropertyName( beanClass, key );
-                  }
-                  setValue( jsonObject, key, value, type, jsonConfig, bypass );
-               }
+            for( int i = 0; i < plan.fields.length; i++ ) {
+               processBeanValue( jsonObject, bean, plan.fields[i], jsonPropertyFilter, jsonConfig );
             }
          }
          catch( Exception e ){
@@ -819,6 +737,24 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       return jsonObject;
    }
 
+   private static void processBeanValue( JSONObject jsonObject, Object bean,
+         BeanSerializationPlan.Accessor accessor, PropertyFilter jsonPropertyFilter, JsonConfig jsonConfig )
+         throws Exception {
+      boolean bypass = false;
+      Object value = accessor.getValue( bean );
+      if( jsonPropertyFilter != null && jsonPropertyFilter.apply( bean, accessor.name, value ) ){
+         return;
+      }
+      if( accessor.jsonValueProcessor != null ){
+         value = accessor.jsonValueProcessor.processObjectValue( accessor.name, value, jsonConfig );
+         bypass = true;
+         if( !JsonVerifier.isValidJsonValue( value ) ){
+            throw new JSONException( "Value is not a valid JSON value. " + value );
+         }
+      }
+      setValue( jsonObject, accessor.key, value, accessor.type, jsonConfig, bypass );
+   }
+
    private static JSONObject _fromDynaBean( DynaBean bean, JsonConfig jsonConfig ) {
       if( bean == null ){
          fireObjectStartEvent( jsonConfig );
@@ -826,7 +762,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          return new JSONObject( true );
       }
 
-      if( !addInstance( bean ) ){
+      if( !addInstance( bean, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsObject( bean );
@@ -894,7 +830,12 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          return new JSONObject( true );
       }
 
-      if( !addInstance( object ) ){
+      JSONTokener source = object.getDeferredCopySource( jsonConfig );
+      if( source != null ){
+         return deferred( source, jsonConfig );
+      }
+
+      if( !addInstance( object, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsObject( object );
@@ -959,7 +900,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          String key;
          Object value;
 
-         if( tokener.matches( "null.*" ) ){
+         if( tokener.startsWith( "null" ) ){
             fireObjectStartEvent( jsonConfig );
             fireObjectEndEvent( jsonConfig );
             return new JSONObject( true );
@@ -983,8 +924,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                   return jsonObject;
                default:
                   tokener.back();
-                  key = tokener.nextValue( jsonConfig )
-                        .toString();
+                  key = tokener.nextKey( jsonConfig );
             }
 
             /*
@@ -1002,7 +942,8 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
 
             char peek = tokener.peek();
             boolean quoted = peek == '"' || peek == '\'';
-            Object v = tokener.nextValue( jsonConfig );
+            AbstractJSON deferred = nextDeferredValue( tokener, jsonConfig );
+            Object v = deferred != null ? deferred : tokener.nextValue( jsonConfig );
             if( quoted || !JSONUtils.isFunctionHeader( v ) ){
                if( exclusions.contains( key ) ){
                   switch( tokener.nextClean() ){
@@ -1056,7 +997,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                      break;
                   }
                }
-               if( i != 0 ){
+               if( i != 0 || sb.length() < 2 ){
                   throw tokener.syntaxError( "Unbalanced '{' or '}' on prop: " + v );
                }
                // trim '{' at start and '}' at end
@@ -1109,7 +1050,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          return new JSONObject( true );
       }
 
-      if( !addInstance( map ) ){
+      if( !addInstance( map, jsonConfig ) ){
          try{
             return jsonConfig.getCycleDetectionStrategy()
                   .handleRepeatedReferenceAsObject( map );
@@ -1189,6 +1130,16 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       return jsonObject;
    }
 
+   private static JSONObject _fromReader( Reader reader, JsonConfig jsonConfig ) {
+      JSONTokener tokener = JSONTokener.fromReader( reader );
+      JSONObject json = _fromJSONTokener( tokener, jsonConfig );
+      // as with a String, nothing but whitespace may follow the value
+      if( tokener.nextClean() != 0 ){
+         throw tokener.syntaxError( "Unexpected text after the JSON value" );
+      }
+      return json;
+   }
+
    private static JSONObject _fromString( String str, JsonConfig jsonConfig ) {
       if( str == null || "null".equals( str ) ){
          fireObjectStartEvent( jsonConfig );
@@ -1206,9 +1157,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
             && !targetInnerType.equals( Object.class ) ){
          innerType = targetInnerType;
       }
-      JsonConfig jsc = jsonConfig.copy();
-      jsc.setRootClass( innerType );
-      jsc.setClassMap( classMap );
+      JsonConfig jsc = jsonConfig.getChildConfig( innerType, null );
       Object array = JSONArray.toArray( (JSONArray) value, jsc );
       if( innerType.isPrimitive() || JSONUtils.isNumber( innerType )
             || Boolean.class.isAssignableFrom( innerType ) || JSONUtils.isString( innerType ) ){
@@ -1240,9 +1189,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          String name, Map classMap ) {
       Class targetClass = findTargetClass( key, classMap );
       targetClass = targetClass == null ? findTargetClass( name, classMap ) : targetClass;
-      JsonConfig jsc = jsonConfig.copy();
-      jsc.setRootClass( targetClass );
-      jsc.setClassMap( classMap );
+      JsonConfig jsc = jsonConfig.getChildConfig( targetClass, null );
       List list = (List) JSONArray.toCollection( (JSONArray) value, jsc );
       return list;
    }
@@ -1251,10 +1198,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          String name, Map classMap, Class collectionType ) {
       Class targetClass = findTargetClass( key, classMap );
       targetClass = targetClass == null ? findTargetClass( name, classMap ) : targetClass;
-      JsonConfig jsc = jsonConfig.copy();
-      jsc.setRootClass( targetClass );
-      jsc.setClassMap( classMap );
-      jsc.setCollectionType( collectionType );
+      JsonConfig jsc = jsonConfig.getChildConfig( targetClass, collectionType );
       return JSONArray.toCollection( (JSONArray) value, jsc );
    }
 
@@ -1336,29 +1280,6 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       return targetClass;
    }
 
-   private static boolean isTransientField( String name, Class beanClass, JsonConfig jsonConfig ) {
-      try{
-         Field field = beanClass.getDeclaredField( name );
-         if((field.getModifiers() & Modifier.TRANSIENT) == Modifier.TRANSIENT) return true;
-         return isTransient(field, jsonConfig);
-      }catch( Exception e ){
-         log.info( "Error while inspecting field "+beanClass+"."+name+" for transient status." ,e );
-      }
-      return false;
-   }
-
-   private static boolean isTransient( AnnotatedElement element, JsonConfig jsonConfig ) {
-      for( Iterator annotations = jsonConfig.getIgnoreFieldAnnotations().iterator(); annotations.hasNext(); ) {
-         try {
-           String annotationClassName = (String) annotations.next();
-           if( element.getAnnotation((Class) Class.forName( annotationClassName )) != null ) return true;
-         } catch( Exception e ){
-            log.info( "Error while inspecting "+element+" for transient status." ,e );
-         }
-      }
-      return false;
-   }
-
    private static Object morphPropertyValue( String key, Object value, Class type, Class targetType ) {
       Morpher morpher = JSONUtils.getMorpherRegistry()
             .getMorpherFor( targetType );
@@ -1391,6 +1312,25 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       propertySetStrategy.setProperty( bean, key, value, jsonConfig );
    }
 
+   /**
+    * Sets a property on the target bean through its cached write method,
+    * unless the configured PropertySetStrategy must be used.
+    */
+   private static void setProperty( Object bean, BeanPopulationPlan.Property property, Object value,
+         JsonConfig jsonConfig ) throws Exception {
+      Method writeMethod = property.getWriteMethod();
+      if( writeMethod == null || jsonConfig.getPropertySetStrategy() != null
+            || !jsonConfig.isIgnorePublicFields() || bean instanceof Map ){
+         setProperty( bean, property.getName(), value, jsonConfig );
+         return;
+      }
+      try{
+         writeMethod.invoke( bean, new Object[] { value } );
+      }catch( Exception e ){
+         throw new JSONException( e );
+      }
+   }
+
    private static void setValue( JSONObject jsonObject, String key, Object value, Class type,
          JsonConfig jsonConfig, boolean bypass ) {
       boolean accumulated = false;
@@ -1432,19 +1372,30 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
 
    // ------------------------------------------------------
 
+   /** the configuration used to parse deferredSource */
+   private transient JsonConfig deferredConfig;
+
+   /**
+    * The source of a lazily parsed object, null once it has been parsed. Copies
+    * made before then share it, so it is locked while it is parsed. It is
+    * cleared after properties is set, which makes the parsed object visible to
+    * every thread that sees it cleared.
+    */
+   private transient volatile JSONTokener deferredSource;
+
    /** identifies this object as null */
    private boolean nullObject;
 
    /**
     * The Map where the JSONObject's properties are kept.
     */
-   private Map properties;
+   private CompactOrderedMap properties;
 
    /**
     * Construct an empty JSONObject.
     */
    public JSONObject() {
-      this.properties = new ListOrderedMap();
+      this.properties = new CompactOrderedMap();
    }
 
    /**
@@ -1582,7 +1533,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
    }
 
    public void clear() {
-      properties.clear();
+      properties().clear();
    }
 
    public int compareTo( Object obj ) {
@@ -1602,7 +1553,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
    }
 
    public boolean containsKey( Object key ) {
-      return properties.containsKey( key );
+      return properties().containsKey( key );
    }
 
    public boolean containsValue( Object value ) {
@@ -1615,7 +1566,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       }catch( JSONException e ){
          return false;
       }
-      return properties.containsValue( value );
+      return properties().containsValue( value );
    }
 
    /**
@@ -1626,7 +1577,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
     */
    public JSONObject discard( String key ) {
       verifyIsNull();
-      this.properties.remove( key );
+      properties().remove( key );
       return this;
    }
 
@@ -1823,7 +1774,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
    }
 
    public Set entrySet() {
-      return Collections.unmodifiableSet( properties.entrySet() );
+      return Collections.unmodifiableSet( properties().entrySet() );
    }
 
    public boolean equals( Object obj ) {
@@ -1856,14 +1807,14 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          return false;
       }
 
-      for( Iterator keys = properties.keySet()
+      for( Iterator keys = properties().keySet()
             .iterator(); keys.hasNext(); ){
          String key = (String) keys.next();
-         if( !other.properties.containsKey( key ) ){
+         if( !other.properties().containsKey( key ) ){
             return false;
          }
-         Object o1 = properties.get( key );
-         Object o2 = other.properties.get( key );
+         Object o1 = properties().get( key );
+         Object o2 = other.properties().get( key );
 
          if( JSONNull.getInstance()
                .equals( o1 ) ){
@@ -1952,7 +1903,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
     */
    public Object get( String key ) {
       verifyIsNull();
-      return this.properties.get( key );
+      return properties().get( key );
    }
 
    /**
@@ -2097,7 +2048,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
     */
    public boolean has( String key ) {
       verifyIsNull();
-      return this.properties.containsKey( key );
+      return properties().containsKey( key );
    }
 
    public int hashCode() {
@@ -2106,7 +2057,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          return hashcode + JSONNull.getInstance()
                .hashCode();
       }
-      for( Iterator entries = properties.entrySet()
+      for( Iterator entries = properties().entrySet()
             .iterator(); entries.hasNext(); ){
          Map.Entry entry = (Map.Entry) entries.next();
          Object key = entry.getKey();
@@ -2122,7 +2073,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
 
    public boolean isEmpty() {
       // verifyIsNull();
-      return this.properties.isEmpty();
+      return properties().isEmpty();
    }
 
    /**
@@ -2143,7 +2094,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
    }
 
    public Set keySet() {
-      return Collections.unmodifiableSet( properties.keySet() );
+      return Collections.unmodifiableSet( properties().keySet() );
    }
 
    /**
@@ -2188,7 +2139,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
     */
    public Object opt( String key ) {
       verifyIsNull();
-      return key == null ? null : this.properties.get( key );
+      return key == null ? null : properties().get( key );
    }
 
    /**
@@ -2373,7 +2324,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       if( key == null ){
          throw new IllegalArgumentException( "key is null." );
       }
-      Object previous = properties.get( key );
+      Object previous = properties().get( key );
       element( String.valueOf( key ), value );
       return previous;
    }
@@ -2389,7 +2340,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
             Map.Entry entry = (Map.Entry) entries.next();
             String key = (String) entry.getKey();
             Object value = entry.getValue();
-            this.properties.put( key, value );
+            properties().put( key, value );
          }
       }else{
          for( Iterator entries = map.entrySet()
@@ -2403,7 +2354,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
    }
 
    public Object remove( Object key ) {
-      return properties.remove( key );
+      return properties().remove( key );
    }
 
    /**
@@ -2415,7 +2366,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
     */
    public Object remove( String key ) {
       verifyIsNull();
-      return this.properties.remove( key );
+      return properties().remove( key );
    }
 
    /**
@@ -2425,7 +2376,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
     */
    public int size() {
       // verifyIsNull();
-      return this.properties.size();
+      return properties().size();
    }
 
    /**
@@ -2467,20 +2418,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                .toString();
       }
       try{
-         Iterator keys = keys();
-         StringBuffer sb = new StringBuffer( "{" );
-
-         while( keys.hasNext() ){
-            if( sb.length() > 1 ){
-               sb.append( ',' );
-            }
-            Object o = keys.next();
-            sb.append( JSONUtils.quote( o.toString() ) );
-            sb.append( ':' );
-            sb.append( JSONUtils.valueToString( this.properties.get( o ) ) );
-         }
-         sb.append( '}' );
-         return sb.toString();
+         return writeToString();
       }catch( Exception e ){
          return null;
       }
@@ -2537,14 +2475,14 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          return this.toString();
       }
       Iterator keys = keys();
-      StringBuffer sb = new StringBuffer( "{" );
+      StringBuilder sb = new StringBuilder( "{" );
       int newindent = indent + indentFactor;
       Object o;
       if( n == 1 ){
          o = keys.next();
          sb.append( JSONUtils.quote( o.toString() ) );
          sb.append( ": " );
-         sb.append( JSONUtils.valueToString( this.properties.get( o ), indentFactor, indent ) );
+         sb.append( JSONUtils.valueToString( properties().get( o ), indentFactor, indent ) );
       }else{
          while( keys.hasNext() ){
             o = keys.next();
@@ -2558,7 +2496,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
             }
             sb.append( JSONUtils.quote( o.toString() ) );
             sb.append( ": " );
-            sb.append( JSONUtils.valueToString( this.properties.get( o ), indentFactor, newindent ) );
+            sb.append( JSONUtils.valueToString( properties().get( o ), indentFactor, newindent ) );
          }
          if( sb.length() > 1 ){
             sb.append( '\n' );
@@ -2575,7 +2513,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
    }
 
    public Collection values() {
-      return Collections.unmodifiableCollection( properties.values() );
+      return Collections.unmodifiableCollection( properties().values() );
    }
 
    /**
@@ -2592,6 +2530,28 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
          if( isNullObject() ){
             writer.write( JSONNull.getInstance()
                   .toString());
+            return;
+         }
+
+         if( visitor == NORMAL ){
+            // insertion order, walk the properties without looking up each key
+            CompactOrderedMap properties = properties();
+            writer.write( '{' );
+            for( int i = 0, n = properties.size(); i < n; i++ ){
+               if( i > 0 ){
+                  writer.write( ',' );
+               }
+               JSONUtils.quote( properties.keyAt( i ).toString(), writer );
+               writer.write( ':' );
+               Object v = properties.valueAt( i );
+               if( v instanceof JSON ){
+                  visitor.on( (JSON) v, writer );
+               }else{
+                  visitor.on( v, writer );
+               }
+            }
+            writer.write( '}' );
+            return;
          }
 
          boolean b = false;
@@ -2603,9 +2563,9 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                writer.write( ',' );
             }
             Object k = keys.next();
-            writer.write( JSONUtils.quote( k.toString() ) );
+            JSONUtils.quote( k.toString(), writer );
             writer.write( ':' );
-            Object v = this.properties.get( k );
+            Object v = properties().get( k );
             if( v instanceof JSON ){
                visitor.on( (JSON) v, writer );
             }else{
@@ -2666,7 +2626,7 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       }
 
       if( JSONUtils.isString( value ) && JSONUtils.mayBeJSON( String.valueOf( value ) ) ){
-         this.properties.put( key, value );
+         properties().put( key, value );
       }else{
          /*
          Object jo = _processValue( value, jsonConfig );
@@ -2674,14 +2634,14 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
                || CycleDetectionStrategy.IGNORE_PROPERTY_ARR == jo ){
             // do nothing
          }else{
-            this.properties.put( key, jo );
+            properties().put( key, jo );
          }
          */
          if( CycleDetectionStrategy.IGNORE_PROPERTY_OBJ == value
                || CycleDetectionStrategy.IGNORE_PROPERTY_ARR == value ){
             // do nothing
          }else{
-            this.properties.put( key, value );
+            properties().put( key, value );
          }
       }
 
@@ -2729,6 +2689,52 @@ public final class JSONObject extends AbstractJSON implements JSON, Map<String,O
       return _setInternal( key, processValue( key, value, jsonConfig ), jsonConfig );
    }
 
+   /**
+    * Parses a lazily parsed object before it is serialized.
+    */
+   private void writeObject( ObjectOutputStream out ) throws IOException {
+      properties();
+      out.defaultWriteObject();
+   }
+
+   /**
+    * Returns the Map of properties, parsing a lazily parsed object first.
+    */
+   private CompactOrderedMap properties() {
+      if( deferredSource != null ){
+         synchronized( this ){
+            JSONTokener source = deferredSource;
+            if( source != null ){
+               JSONObject parsed = null;
+               synchronized( source ){
+                  // every attempt starts over, a failed one leaves nothing behind
+                  source.reset();
+                  parsed = _fromJSONTokener( source, deferredConfig );
+               }
+               // as element() copies a nested object parsed at once
+               this.properties = _fromJSONObject( parsed, deferredConfig ).properties;
+               deferredConfig = null;
+               deferredSource = null;
+            }
+         }
+      }
+      return properties;
+   }
+
+   /**
+    * Returns the source of this object if it has not been parsed yet and copying
+    * it with jsonConfig would give the object it parses to, so the copy can be
+    * parsed lazily as well; null otherwise.
+    */
+   private JSONTokener getDeferredCopySource( JsonConfig jsonConfig ) {
+      JSONTokener source = deferredSource;
+      if( source == null || deferredConfig != jsonConfig || jsonConfig.isEventTriggeringEnabled()
+            || jsonConfig.hasJsonValueProcessors() ){
+         return null;
+      }
+      return source;
+   }
+
    /**
     * Checks if this object is a "null" object.
     */
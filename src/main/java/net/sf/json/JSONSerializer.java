@@ -16,6 +16,14 @@
 
 package net.sf.json;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
 import net.sf.json.util.JSONTokener;
 import net.sf.json.util.JSONUtils;
 
@@ -86,8 +94,10 @@ public class JSONSerializer {
 
    /**
     * Creates a JSONObject, JSONArray or a JSONNull from object.<br>
-    * Accepts JSON formatted strings, Maps, arrays, Collections, DynaBeans and
-    * JavaBeans.
+    * Accepts JSON formatted strings, Readers, InputStreams, ByteBuffers and
+    * FileChannels (UTF-8), Maps, arrays, Collections, DynaBeans and JavaBeans.
+    * Readers, InputStreams, ByteBuffers and FileChannels are parsed
+    * incrementally, streams and channels are not closed.
     *
     * @param object any java Object
     * @param jsonConfig additional configuration
@@ -101,6 +111,14 @@ public class JSONSerializer {
          json = toJSON( (JSONString) object, jsonConfig );
       }else if( object instanceof String ){
          json = toJSON( (String) object, jsonConfig );
+      }else if( object instanceof Reader ){
+         json = toJSON( JSONTokener.fromReader( (Reader) object ), jsonConfig );
+      }else if( object instanceof InputStream ){
+         json = toJSON( JSONTokener.fromInputStream( (InputStream) object ), jsonConfig );
+      }else if( object instanceof ByteBuffer ){
+         json = toJSON( (ByteBuffer) object, jsonConfig );
+      }else if( object instanceof FileChannel ){
+         json = toJSON( (FileChannel) object, jsonConfig );
       }else if( JSONUtils.isArray( object ) ){
          json = JSONArray.fromObject( object, jsonConfig );
       }else{
@@ -117,6 +135,120 @@ public class JSONSerializer {
       return json;
    }
 
+   /**
+    * Creates a JSONObject, JSONArray or a JSONNull from the remaining UTF-8
+    * bytes of buffer, decoding them as they are parsed instead of building a
+    * String of the whole text first. The position of the buffer is not
+    * changed.<br>
+    * A byte[] holding JSON text is parsed with
+    * <code>toJSON( ByteBuffer.wrap( bytes ), jsonConfig )</code>, as passing
+    * the array itself creates a JSONArray of its values.
+    *
+    * @param buffer UTF-8 encoded JSON text
+    * @param jsonConfig additional configuration
+    * @throws JSONException if the bytes do not hold a valid JSON text
+    */
+   public static JSON toJSON( ByteBuffer buffer, JsonConfig jsonConfig ) {
+      return toJSON( JSONTokener.fromByteBuffer( buffer ), jsonConfig );
+   }
+
+   /**
+    * Creates a JSONObject, JSONArray or a JSONNull from a UTF-8 file, read
+    * from the current position of channel to its end. The file is memory
+    * mapped in windows and parsed off the page cache, its text is never copied
+    * to the heap as a whole. The channel is neither moved nor closed.
+    *
+    * @param channel UTF-8 encoded JSON text
+    * @param jsonConfig additional configuration
+    * @throws JSONException if the file does not hold a valid JSON text or can
+    *         not be mapped
+    */
+   public static JSON toJSON( FileChannel channel, JsonConfig jsonConfig ) {
+      return toJSON( JSONTokener.fromFileChannel( channel ), jsonConfig );
+   }
+
+   /**
+    * Writes object to writer as JSON text, same as
+    * <code>toJSON( object ).write( writer )</code>.<br>
+    * Beans, Maps, Collections and arrays are written as they are traversed,
+    * without creating a JSONObject or JSONArray for them.
+    *
+    * @param object any java Object
+    * @param writer where the JSON text is written, it is not flushed nor closed
+    * @throws JSONException if the object can not be converted
+    * @throws IOException if the writer fails
+    */
+   public static void write( Object object, Writer writer ) throws IOException {
+      write( object, writer, new JsonConfig() );
+   }
+
+   /**
+    * Writes object to writer as JSON text, same as
+    * <code>toJSON( object, jsonConfig ).write( writer )</code>.<br>
+    * Beans, Maps, Collections and arrays are written as they are traversed,
+    * without creating a JSONObject or JSONArray for them. Exclusions, filters,
+    * processors and the cycle detection strategy of jsonConfig are honored;
+    * if events are enabled the JSON tree is created so listeners receive the
+    * same values as with toJSON.<br>
+    * If the conversion fails part of the text may have been written already.
+    *
+    * @param object any java Object
+    * @param writer where the JSON text is written, it is not flushed nor closed
+    * @param jsonConfig additional configuration
+    * @throws JSONException if the object can not be converted
+    * @throws IOException if the writer fails
+    */
+   public static void write( Object object, Writer writer, JsonConfig jsonConfig )
+         throws IOException {
+      if( writer instanceof BufferedJSONWriter ){
+         StreamingSerializer.write( object, writer, jsonConfig );
+         return;
+      }
+      BufferedJSONWriter buffered = BufferedJSONWriter.forWriter( writer );
+      try{
+         StreamingSerializer.write( object, buffered, jsonConfig );
+         buffered.drain();
+      }finally{
+         buffered.release();
+      }
+   }
+
+   /**
+    * Writes object to out as JSON text encoded as UTF-8, same as
+    * <code>write( object, writer )</code> with a UTF-8 writer over out but
+    * without the intermediate encoder.
+    *
+    * @param object any java Object
+    * @param out where the JSON text is written, it is not flushed nor closed
+    * @throws JSONException if the object can not be converted
+    * @throws IOException if the stream fails
+    */
+   public static void write( Object object, OutputStream out ) throws IOException {
+      write( object, out, new JsonConfig() );
+   }
+
+   /**
+    * Writes object to out as JSON text encoded as UTF-8, same as
+    * <code>write( object, writer, jsonConfig )</code> with a UTF-8 writer over
+    * out but without the intermediate encoder.
+    *
+    * @param object any java Object
+    * @param out where the JSON text is written, it is not flushed nor closed
+    * @param jsonConfig additional configuration
+    * @throws JSONException if the object can not be converted
+    * @throws IOException if the stream fails
+    */
+   public static void write( Object object, OutputStream out, JsonConfig jsonConfig )
+         throws IOException {
+      BufferedJSONWriter buffered = BufferedJSONWriter.forStream( out );
+      try{
+         StreamingSerializer.write( object, buffered, jsonConfig );
+         buffered.drain();
+      }finally{
+         buffered.release();
+      }
+   }
+
    /**
     * Creates a JSONObject, JSONArray or a JSONNull from a JSONString.
     *
@@ -126,6 +258,43 @@ public class JSONSerializer {
       return toJSON( string.toJSONString(), jsonConfig );
    }
 
+   /**
+    * Creates a JSONObject, JSONArray or a JSONNull from a stream-backed
+    * JSONTokener.
+    *
+    * @throws JSONException if the stream does not hold a valid JSON text
+    */
+   private static JSON toJSON( JSONTokener tokener, JsonConfig jsonConfig ) {
+      JSON json = null;
+      switch( tokener.peek() ){
+         case '[':
+            json = JSONArray.fromObject( tokener, jsonConfig );
+            break;
+         case '{':
+            json = JSONObject.fromObject( tokener, jsonConfig );
+            break;
+         case 'n':
+            // nextValue() would step back over the last character at the end
+            if( tokener.startsWith( "null" ) ){
+               for( int i = 0; i < 4; i++ ){
+                  tokener.next();
+               }
+               json = JSONNull.getInstance();
+            }
+            break;
+         default:
+            // empty
+      }
+      if( json == null ){
+         throw new JSONException( "Invalid JSON String" );
+      }
+      // as with a String, nothing but whitespace may follow the value
+      if( tokener.nextClean() != 0 ){
+         throw tokener.syntaxError( "Unexpected text after the JSON value" );
+      }
+      return json;
+   }
+
    /**
     * Creates a JSONObject, JSONArray or a JSONNull from a JSONString.
     *
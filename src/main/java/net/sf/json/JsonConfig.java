@@ -17,6 +17,7 @@
 package net.sf.json;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -25,6 +26,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 import net.sf.json.processors.DefaultDefaultValueProcessor;
 import net.sf.json.processors.DefaultValueProcessor;
@@ -43,6 +46,7 @@ import net.sf.json.util.PropertyExclusionClassMatcher;
 import net.sf.json.util.PropertyFilter;
 import net.sf.json.util.PropertySetStrategy;
 
+import org.apache.commons.collections.keyvalue.MultiKey;
 import org.apache.commons.collections.map.MultiKeyMap;
 import org.apache.commons.lang.StringUtils;
 
@@ -51,7 +55,7 @@ import org.apache.commons.lang.StringUtils;
  * 
  * @author Andres Almiray <aalmiray@users.sourceforge.net>
  */
-public class JsonConfig {
+public class JsonConfig implements Cloneable {
    public static final DefaultValueProcessorMatcher DEFAULT_DEFAULT_VALUE_PROCESSOR_MATCHER = DefaultValueProcessorMatcher.DEFAULT;
    public static final JsonBeanProcessorMatcher DEFAULT_JSON_BEAN_PROCESSOR_MATCHER = JsonBeanProcessorMatcher.DEFAULT;
    public static final JsonValueProcessorMatcher DEFAULT_JSON_VALUE_PROCESSOR_MATCHER = JsonValueProcessorMatcher.DEFAULT;
@@ -61,12 +65,16 @@ public class JsonConfig {
    public static final int MODE_LIST = 1;
    public static final int MODE_OBJECT_ARRAY = 2;
    public static final int MODE_SET = 2;
+   public static final int DEFAULT_PARALLEL_THRESHOLD = 10000;
    private static final Class DEFAULT_COLLECTION_TYPE = List.class;
    private static final CycleDetectionStrategy DEFAULT_CYCLE_DETECTION_STRATEGY = CycleDetectionStrategy.STRICT;
    private static final String[] DEFAULT_EXCLUDES = new String[] { "class", "declaringClass", "metaClass" };
    private static final JavaIdentifierTransformer DEFAULT_JAVA_IDENTIFIER_TRANSFORMER = JavaIdentifierTransformer.NOOP;
    private static final DefaultValueProcessor DEFAULT_VALUE_PROCESSOR = new DefaultDefaultValueProcessor();
+   private static final JsonEventListener[] EMPTY_EVENT_LISTENERS = new JsonEventListener[0];
    private static final String[] EMPTY_EXCLUDES = new String[0];
+   /** marks a resolved lookup that found nothing */
+   private static final Object NONE = new Object();
 
    /** Array conversion mode */
    private int arrayMode = MODE_LIST;
@@ -80,7 +88,8 @@ public class JsonConfig {
    private Map defaultValueMap = new HashMap();
    private DefaultValueProcessorMatcher defaultValueProcessorMatcher = DEFAULT_DEFAULT_VALUE_PROCESSOR_MATCHER;
    private Class enclosedType;
-   private List eventListeners = new ArrayList();
+   /** registered listeners, replaced by a new array whenever one is added or removed */
+   private volatile JsonEventListener[] eventListeners = EMPTY_EVENT_LISTENERS;
    private String[] excludes = EMPTY_EXCLUDES;
    private Map exclusionMap = new HashMap();
    private boolean handleJettisonEmptyElement;
@@ -110,6 +119,18 @@ public class JsonConfig {
    private Map typeMap = new HashMap();
    private List ignoreFieldAnnotations = new ArrayList();
    private boolean allowNonStringKeys = false;
+   private int maxDepth;
+   private boolean trustAcyclic;
+   private boolean lazyParsing;
+   private int keySymbolTableSize;
+   private ExecutorService parallelExecutor;
+   private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+   private Map beanPopulationPlans = new ConcurrentHashMap();
+   private Map beanSerializationPlans = new ConcurrentHashMap();
+   private Map childConfigs = new ConcurrentHashMap();
+   private boolean frozen;
+   /** lookups resolved so far, discarded whenever the configuration changes */
+   private ResolvedLookups resolvedLookups = new ResolvedLookups();
 
    public JsonConfig() {
    }
@@ -126,9 +147,14 @@ public class JsonConfig {
     * @param listener a listener for events
     */
    public synchronized void addJsonEventListener( JsonEventListener listener ) {
-      if( !eventListeners.contains( listener ) ) {
-         eventListeners.add( listener );
+      checkNotFrozen();
+      if( !getJsonEventListeners().contains( listener ) ) {
+         JsonEventListener[] listeners = new JsonEventListener[eventListeners.length + 1];
+         System.arraycopy( eventListeners, 0, listeners, 0, eventListeners.length );
+         listeners[eventListeners.length] = listener;
+         eventListeners = listeners;
       }
+      clearCaches();
    }
 
    /**
@@ -136,7 +162,9 @@ public class JsonConfig {
     * [JSON -&gt; Java]
     */
    public void clearJavaPropertyNameProcessors() {
+      checkNotFrozen();
       javaPropertyNameProcessorMap.clear();
+      clearCaches();
    }
 
    /**
@@ -144,7 +172,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void clearJsonBeanProcessors() {
+      checkNotFrozen();
       beanProcessorMap.clear();
+      clearCaches();
    }
 
    /**
@@ -152,7 +182,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public synchronized void clearJsonEventListeners() {
-      eventListeners.clear();
+      checkNotFrozen();
+      eventListeners = EMPTY_EVENT_LISTENERS;
+      clearCaches();
    }
 
    /**
@@ -160,7 +192,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void clearJsonPropertyNameProcessors() {
+      checkNotFrozen();
       jsonPropertyNameProcessorMap.clear();
+      clearCaches();
    }   
    
    /**
@@ -168,10 +202,12 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void clearJsonValueProcessors() {
+      checkNotFrozen();
       beanKeyMap.clear();
       beanTypeMap.clear();
       keyMap.clear();
       typeMap.clear();
+      clearCaches();
    }
    
    /**
@@ -179,7 +215,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void clearPropertyExclusions() {
+      checkNotFrozen();
       exclusionMap.clear();
+      clearCaches();
    }
 
    /**
@@ -194,6 +232,7 @@ public class JsonConfig {
 
    public JsonConfig copy() {
       JsonConfig jsc = new JsonConfig();
+      jsc.arrayMode = arrayMode;
       jsc.beanKeyMap.putAll( beanKeyMap );
       jsc.beanTypeMap.putAll( beanTypeMap );
       jsc.classMap = new HashMap();
@@ -201,9 +240,7 @@ public class JsonConfig {
          jsc.classMap.putAll( classMap );
       }
       jsc.cycleDetectionStrategy = cycleDetectionStrategy;
-      if( eventListeners != null ) {
-         jsc.eventListeners.addAll( eventListeners );
-      }
+      jsc.eventListeners = eventListeners;
       if( excludes != null ) {
          jsc.excludes = new String[excludes.length];
          System.arraycopy( excludes, 0, jsc.excludes, 0, excludes.length );
@@ -237,9 +274,18 @@ public class JsonConfig {
       jsc.jsonPropertyNameProcessorMatcher = jsonPropertyNameProcessorMatcher;
       jsc.jsonPropertyNameProcessorMap.putAll( jsonPropertyNameProcessorMap );
       jsc.propertyExclusionClassMatcher = propertyExclusionClassMatcher;
-      jsc.exclusionMap.putAll(  exclusionMap );
+      for( Iterator entries = exclusionMap.entrySet().iterator(); entries.hasNext(); ) {
+         Map.Entry entry = (Map.Entry) entries.next();
+         jsc.exclusionMap.put( entry.getKey(), new HashSet( (Set) entry.getValue() ) );
+      }
       jsc.ignoreFieldAnnotations.addAll( ignoreFieldAnnotations );
       jsc.allowNonStringKeys = allowNonStringKeys;
+      jsc.maxDepth = maxDepth;
+      jsc.trustAcyclic = trustAcyclic;
+      jsc.lazyParsing = lazyParsing;
+      jsc.keySymbolTableSize = keySymbolTableSize;
+      jsc.parallelExecutor = parallelExecutor;
+      jsc.parallelThreshold = parallelThreshold;
       return jsc;
    }
 
@@ -248,7 +294,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void disableEventTriggering() {
+      checkNotFrozen();
       triggerEvents = false;
+      clearCaches();
    }
 
    /**
@@ -256,7 +304,38 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void enableEventTriggering() {
+      checkNotFrozen();
       triggerEvents = true;
+      clearCaches();
+   }
+
+   /**
+    * Returns an immutable snapshot of this configuration.<br>
+    * Every method that would change a frozen configuration throws an
+    * UnsupportedOperationException and the lists and maps it returns can not
+    * be modified. A frozen configuration is meant to be created once,
+    * published safely (for example in a final field) and then shared by any
+    * number of threads without synchronization.<br>
+    * Variants that only differ in rootClass or classMap are derived with
+    * withRootClass() and withClassMap() without copying the registries.
+    * copy() returns a regular, mutable configuration.
+    *
+    * @return this if already frozen, a frozen copy otherwise
+    */
+   public JsonConfig freeze() {
+      if( frozen ) {
+         return this;
+      }
+      JsonConfig jsc = copy();
+      jsc.classMap = classMap != null ? Collections.unmodifiableMap( jsc.classMap ) : null;
+      for( Iterator entries = jsc.exclusionMap.entrySet().iterator(); entries.hasNext(); ) {
+         Map.Entry entry = (Map.Entry) entries.next();
+         entry.setValue( Collections.unmodifiableSet( (Set) entry.getValue() ) );
+      }
+      jsc.exclusionMap = Collections.unmodifiableMap( jsc.exclusionMap );
+      jsc.ignoreFieldAnnotations = Collections.unmodifiableList( jsc.ignoreFieldAnnotations );
+      jsc.frozen = true;
+      return jsc;
    }
 
    /**
@@ -267,6 +346,19 @@ public class JsonConfig {
     * @param target a class used for searching a DefaultValueProcessor.
     */
    public DefaultValueProcessor findDefaultValueProcessor( Class target ) {
+      if( target != null ) {
+         Map cache = resolvedLookups.defaultValueProcessors;
+         DefaultValueProcessor processor = (DefaultValueProcessor) cache.get( target );
+         if( processor == null ) {
+            processor = matchDefaultValueProcessor( target );
+            cache.put( target, processor );
+         }
+         return processor;
+      }
+      return matchDefaultValueProcessor( target );
+   }
+
+   private DefaultValueProcessor matchDefaultValueProcessor( Class target ) {
       if( !defaultValueMap.isEmpty() ) {
          Object key = defaultValueProcessorMatcher.getMatch( target, defaultValueMap.keySet() );
          DefaultValueProcessor processor = (DefaultValueProcessor) defaultValueMap.get( key );
@@ -285,6 +377,19 @@ public class JsonConfig {
     * @param propertyType a class used for searching a PropertyNameProcessor.
     */
    public PropertyNameProcessor findJavaPropertyNameProcessor( Class beanClass ) {
+      if( beanClass != null ) {
+         Map cache = resolvedLookups.javaPropertyNameProcessors;
+         Object processor = cache.get( beanClass );
+         if( processor == null ) {
+            processor = matchJavaPropertyNameProcessor( beanClass );
+            cache.put( beanClass, processor != null ? processor : NONE );
+         }
+         return processor != NONE ? (PropertyNameProcessor) processor : null;
+      }
+      return matchJavaPropertyNameProcessor( beanClass );
+   }
+
+   private PropertyNameProcessor matchJavaPropertyNameProcessor( Class beanClass ) {
       if( !javaPropertyNameProcessorMap.isEmpty() ) {
          Object key = javaPropertyNameProcessorMatcher.getMatch( beanClass, javaPropertyNameProcessorMap.keySet() );
          return (PropertyNameProcessor) javaPropertyNameProcessorMap.get( key );
@@ -301,6 +406,19 @@ public class JsonConfig {
     * @param target a class used for searching a JsonBeanProcessor.
     */
    public JsonBeanProcessor findJsonBeanProcessor( Class target ) {
+      if( target != null ) {
+         Map cache = resolvedLookups.jsonBeanProcessors;
+         Object processor = cache.get( target );
+         if( processor == null ) {
+            processor = matchJsonBeanProcessor( target );
+            cache.put( target, processor != null ? processor : NONE );
+         }
+         return processor != NONE ? (JsonBeanProcessor) processor : null;
+      }
+      return matchJsonBeanProcessor( target );
+   }
+
+   private JsonBeanProcessor matchJsonBeanProcessor( Class target ) {
       if( !beanProcessorMap.isEmpty() ) {
          Object key = jsonBeanProcessorMatcher.getMatch( target, beanProcessorMap.keySet() );
          return (JsonBeanProcessor) beanProcessorMap.get( key );
@@ -316,6 +434,19 @@ public class JsonConfig {
     * @param propertyType a class used for searching a PropertyNameProcessor.
     */
    public PropertyNameProcessor findJsonPropertyNameProcessor( Class beanClass ) {
+      if( beanClass != null ) {
+         Map cache = resolvedLookups.jsonPropertyNameProcessors;
+         Object processor = cache.get( beanClass );
+         if( processor == null ) {
+            processor = matchJsonPropertyNameProcessor( beanClass );
+            cache.put( beanClass, processor != null ? processor : NONE );
+         }
+         return processor != NONE ? (PropertyNameProcessor) processor : null;
+      }
+      return matchJsonPropertyNameProcessor( beanClass );
+   }
+
+   private PropertyNameProcessor matchJsonPropertyNameProcessor( Class beanClass ) {
       if( !jsonPropertyNameProcessorMap.isEmpty() ) {
          Object key = jsonPropertyNameProcessorMatcher.getMatch( beanClass, jsonPropertyNameProcessorMap.keySet() );
          return (PropertyNameProcessor) jsonPropertyNameProcessorMap.get( key );
@@ -333,9 +464,7 @@ public class JsonConfig {
     */
    public JsonValueProcessor findJsonValueProcessor( Class propertyType ) {
       if( !typeMap.isEmpty() ) {
-         Object key = jsonValueProcessorMatcher.getMatch( propertyType, typeMap.keySet() );
-         return (JsonValueProcessor) typeMap.get( key );
-
+         return findTypeJsonValueProcessor( propertyType );
       }
       return null;
    }
@@ -358,23 +487,28 @@ public class JsonConfig {
     */
    public JsonValueProcessor findJsonValueProcessor( Class beanClass, Class propertyType, String key ) {
       JsonValueProcessor jsonValueProcessor = null;
-      jsonValueProcessor = (JsonValueProcessor) beanKeyMap.get( beanClass, key );
-      if( jsonValueProcessor != null ) {
-         return jsonValueProcessor;
+      if( !beanKeyMap.isEmpty() ) {
+         jsonValueProcessor = (JsonValueProcessor) beanKeyMap.get( beanClass, key );
+         if( jsonValueProcessor != null ) {
+            return jsonValueProcessor;
+         }
       }
 
-      jsonValueProcessor = (JsonValueProcessor) beanTypeMap.get( beanClass, propertyType );
-      if( jsonValueProcessor != null ) {
-         return jsonValueProcessor;
+      if( !beanTypeMap.isEmpty() ) {
+         jsonValueProcessor = (JsonValueProcessor) beanTypeMap.get( beanClass, propertyType );
+         if( jsonValueProcessor != null ) {
+            return jsonValueProcessor;
+         }
       }
 
-      jsonValueProcessor = (JsonValueProcessor) keyMap.get( key );
-      if( jsonValueProcessor != null ) {
-         return jsonValueProcessor;
+      if( !keyMap.isEmpty() ) {
+         jsonValueProcessor = (JsonValueProcessor) keyMap.get( key );
+         if( jsonValueProcessor != null ) {
+            return jsonValueProcessor;
+         }
       }
 
-      Object tkey = jsonValueProcessorMatcher.getMatch( propertyType, typeMap.keySet() );
-      jsonValueProcessor = (JsonValueProcessor) typeMap.get( tkey );
+      jsonValueProcessor = findTypeJsonValueProcessor( propertyType );
       if( jsonValueProcessor != null ) {
          return jsonValueProcessor;
       }
@@ -397,13 +531,14 @@ public class JsonConfig {
     */
    public JsonValueProcessor findJsonValueProcessor( Class propertyType, String key ) {
       JsonValueProcessor jsonValueProcessor = null;
-      jsonValueProcessor = (JsonValueProcessor) keyMap.get( key );
-      if( jsonValueProcessor != null ) {
-         return jsonValueProcessor;
+      if( !keyMap.isEmpty() ) {
+         jsonValueProcessor = (JsonValueProcessor) keyMap.get( key );
+         if( jsonValueProcessor != null ) {
+            return jsonValueProcessor;
+         }
       }
 
-      Object tkey = jsonValueProcessorMatcher.getMatch( propertyType, typeMap.keySet() );
-      jsonValueProcessor = (JsonValueProcessor) typeMap.get( tkey );
+      jsonValueProcessor = findTypeJsonValueProcessor( propertyType );
       if( jsonValueProcessor != null ) {
          return jsonValueProcessor;
       }
@@ -411,6 +546,26 @@ public class JsonConfig {
       return null;
    }
    
+   /**
+    * Finds the JsonValueProcessor registered to propertyType, or a type it
+    * matches. The matcher is asked once per type, its answer is remembered
+    * until the configuration changes.
+    */
+   private JsonValueProcessor findTypeJsonValueProcessor( Class propertyType ) {
+      if( propertyType != null ) {
+         Map cache = resolvedLookups.typeJsonValueProcessors;
+         Object processor = cache.get( propertyType );
+         if( processor == null ) {
+            Object tkey = jsonValueProcessorMatcher.getMatch( propertyType, typeMap.keySet() );
+            processor = typeMap.get( tkey );
+            cache.put( propertyType, processor != null ? processor : NONE );
+         }
+         return processor != NONE ? (JsonValueProcessor) processor : null;
+      }
+      Object tkey = jsonValueProcessorMatcher.getMatch( propertyType, typeMap.keySet() );
+      return (JsonValueProcessor) typeMap.get( tkey );
+   }
+
    /**
     * Finds a PropertyNameProcessor registered to the target class.<br>
     * Returns null if none is registered. <br>
@@ -487,7 +642,7 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public String[] getExcludes() {
-      return excludes;
+      return frozen ? excludes.clone() : excludes;
    }
 
    /**
@@ -527,9 +682,19 @@ public class JsonConfig {
 
    /**
     * Returns a list of registered listeners for JSON events.<br>
+    * The list is an unmodifiable snapshot, it does not change when listeners
+    * are added or removed afterwards.<br>
     * [JSON -&gt; Java]
     */
-   public synchronized List getJsonEventListeners() {
+   public List getJsonEventListeners() {
+      return Collections.unmodifiableList( Arrays.asList( eventListeners ) );
+   }
+
+   /**
+    * Returns the registered listeners for JSON events, the array must not be
+    * modified. Firing an event reads it without locking this configuration.
+    */
+   JsonEventListener[] getJsonEventListenerArray() {
       return eventListeners;
    }
 
@@ -559,11 +724,102 @@ public class JsonConfig {
       return jsonValueProcessorMatcher;
    }
 
+   /**
+    * Returns the number of distinct keys a parser remembers to reuse their
+    * String instances.<br>
+    * Default value is 0 (keys are not reused)<br>
+    * [Java -&gt; JSON]
+    */
+   public int getKeySymbolTableSize() {
+      return keySymbolTableSize;
+   }
+
+   /**
+    * Returns the maximum nesting depth of beans, maps and collections.<br>
+    * Default value is 0 (no limit)<br>
+    * [Java -&gt; JSON]
+    */
+   public int getMaxDepth() {
+      return maxDepth;
+   }
+
+   /**
+    * Returns the cached population plan for beanClass, creating it if
+    * needed.<br>
+    * [JSON -&gt; Java]
+    */
+   BeanPopulationPlan getBeanPopulationPlan( Class beanClass ) {
+      BeanPopulationPlan plan = (BeanPopulationPlan) beanPopulationPlans.get( beanClass );
+      if( plan == null ) {
+         plan = new BeanPopulationPlan( beanClass, this );
+         beanPopulationPlans.put( beanClass, plan );
+      }
+      return plan;
+   }
+
+   /**
+    * Returns the cached serialization plan for beanClass, creating it if
+    * needed.<br>
+    * [Java -&gt; JSON]
+    */
+   BeanSerializationPlan getBeanSerializationPlan( Class beanClass ) {
+      BeanSerializationPlan plan = (BeanSerializationPlan) beanSerializationPlans.get( beanClass );
+      if( plan == null ) {
+         plan = BeanSerializationPlan.create( beanClass, this );
+         beanSerializationPlans.put( beanClass, plan );
+      }
+      return plan;
+   }
+
+   /**
+    * Returns a copy of this configuration with the given rootClass and
+    * collectionType (if not null), sharing this configuration's classMap.<br>
+    * Copies are cached, so nested conversions must not modify them.<br>
+    * [JSON -&gt; Java]
+    */
+   JsonConfig getChildConfig( Class rootClass, Class collectionType ) {
+      MultiKey key = new MultiKey( rootClass, collectionType );
+      JsonConfig jsc = (JsonConfig) childConfigs.get( key );
+      if( jsc == null ) {
+         if( frozen ) {
+            jsc = derive();
+            jsc.rootClass = rootClass;
+            if( collectionType != null ) {
+               if( !Collection.class.isAssignableFrom( collectionType ) ) {
+                  throw new JSONException( "The configured collectionType is not a Collection: " + collectionType.getName() );
+               }
+               jsc.collectionType = collectionType;
+            }
+         } else {
+            jsc = copy();
+            jsc.setRootClass( rootClass );
+            jsc.setClassMap( classMap );
+            if( collectionType != null ) {
+               jsc.setCollectionType( collectionType );
+            }
+         }
+         childConfigs.put( key, jsc );
+      }
+      return jsc;
+   }
+
    /**
     * Returns a set of default excludes with user-defined excludes.<br>
+    * The set can not be modified, it is merged once and remembered until the
+    * excludes change.<br>
     * [Java -&gt; JSON]
     */
    public Collection getMergedExcludes() {
+      ResolvedLookups lookups = resolvedLookups;
+      Collection exclusions = lookups.mergedExcludes;
+      if( exclusions == null ) {
+         exclusions = Collections.unmodifiableCollection( mergeExcludes() );
+         lookups.mergedExcludes = exclusions;
+      }
+      return exclusions;
+   }
+
+   private Collection mergeExcludes() {
       Collection exclusions = new HashSet();
       for( int i = 0; i < excludes.length; i++ ) {
          String exclusion = excludes[i];
@@ -585,15 +841,26 @@ public class JsonConfig {
    
    /**
     * Returns a set of default excludes with user-defined excludes.<br>
-    * Takes into account any additional excludes per matching class.
+    * Takes into account any additional excludes per matching class. The set
+    * can not be modified, it is merged once per class and remembered until
+    * the excludes change.<br>
     * [Java -&gt; JSON]
     */
    public Collection getMergedExcludes( Class target ) {
-      if( target == null ) {
+      if( target == null || exclusionMap.isEmpty() ) {
          return getMergedExcludes();
       }
+      Map cache = resolvedLookups.classMergedExcludes;
+      Collection exclusions = (Collection) cache.get( target );
+      if( exclusions == null ) {
+         exclusions = Collections.unmodifiableCollection( mergeExcludes( target ) );
+         cache.put( target, exclusions );
+      }
+      return exclusions;
+   }
 
-      Collection exclusionSet = getMergedExcludes();
+   private Collection mergeExcludes( Class target ) {
+      Collection exclusionSet = mergeExcludes();
       if( !exclusionMap.isEmpty() ) {
          Object key = propertyExclusionClassMatcher.getMatch( target, exclusionMap.keySet() );
          Set set = (Set) exclusionMap.get( key );
@@ -618,6 +885,25 @@ public class JsonConfig {
    public NewBeanInstanceStrategy getNewBeanInstanceStrategy() {
       return newBeanInstanceStrategy;
    }
+
+   /**
+    * Returns the executor large arrays and collections are converted on.<br>
+    * Default value is null (they are converted on the calling thread)<br>
+    * [Java -&gt; JSON]
+    */
+   public ExecutorService getParallelExecutor() {
+      return parallelExecutor;
+   }
+
+   /**
+    * Returns the number of elements from which arrays and collections are
+    * converted on the parallel executor.<br>
+    * Default value is DEFAULT_PARALLEL_THRESHOLD<br>
+    * [Java -&gt; JSON]
+    */
+   public int getParallelThreshold() {
+      return parallelThreshold;
+   }
    
    /**
     * Returns the configured PropertyExclusionClassMatcher.<br>
@@ -658,6 +944,14 @@ public class JsonConfig {
       return rootClass;
    }
 
+   /**
+    * Returns true if a JsonValueProcessor is registered by type or by
+    * property name, those are the ones values of a JSON text may match.
+    */
+   boolean hasJsonValueProcessors() {
+      return !typeMap.isEmpty() || !keyMap.isEmpty();
+   }
+
    /**
     * Returns true if non-String keys are allowed on JSONObject.<br>
     * Default value is false<br>
@@ -676,6 +970,14 @@ public class JsonConfig {
       return triggerEvents;
    }
 
+   /**
+    * Returns true if this configuration is an immutable snapshot created by
+    * freeze().
+    */
+   public boolean isFrozen() {
+      return frozen;
+   }
+
    /**
     * Returns true if this Jettison convention will be handled when converting to Java.<br>
     * Jettison assumes that "" (empty string) can be assigned to empty elements (objects), which
@@ -741,6 +1043,15 @@ public class JsonConfig {
       return javascriptCompliant;
    }
 
+   /**
+    * Returns true if nested objects and arrays are parsed on first access.<br>
+    * Default value is false.<br>
+    * [Java -&gt; JSON]
+    */
+   public boolean isLazyParsing() {
+      return lazyParsing;
+   }
+
    /**
     * Returns true if map keys will not be transformed.<br>
     * Default value is false.<br>
@@ -750,6 +1061,16 @@ public class JsonConfig {
       return skipJavaIdentifierTransformationInMapKeys;
    }
 
+   /**
+    * Returns true if object graphs are trusted to be acyclic, in that case the
+    * CycleDetectionStrategy is never used.<br>
+    * Default value is false<br>
+    * [Java -&gt; JSON]
+    */
+   public boolean isTrustAcyclic() {
+      return trustAcyclic;
+   }
+
    /**
     * Registers a DefaultValueProcessor.<br>
     * [Java -&gt; JSON]
@@ -758,9 +1079,11 @@ public class JsonConfig {
     * @param defaultValueProcessor the processor to register
     */
    public void registerDefaultValueProcessor( Class target, DefaultValueProcessor defaultValueProcessor ) {
+      checkNotFrozen();
       if( target != null && defaultValueProcessor != null ) {
          defaultValueMap.put( target, defaultValueProcessor );
       }
+      clearCaches();
    }
 
    /**
@@ -771,9 +1094,11 @@ public class JsonConfig {
     * @param propertyNameProcessor the processor to register
     */
    public void registerJavaPropertyNameProcessor( Class target, PropertyNameProcessor propertyNameProcessor ) {
+      checkNotFrozen();
       if( target != null && propertyNameProcessor != null ) {
          javaPropertyNameProcessorMap.put( target, propertyNameProcessor );
       }
+      clearCaches();
    }
    
    /**
@@ -784,9 +1109,11 @@ public class JsonConfig {
     * @param jsonBeanProcessor the processor to register
     */
    public void registerJsonBeanProcessor( Class target, JsonBeanProcessor jsonBeanProcessor ) {
+      checkNotFrozen();
       if( target != null && jsonBeanProcessor != null ) {
          beanProcessorMap.put( target, jsonBeanProcessor );
       }
+      clearCaches();
    }
 
    /**
@@ -797,9 +1124,11 @@ public class JsonConfig {
     * @param propertyNameProcessor the processor to register
     */
    public void registerJsonPropertyNameProcessor( Class target, PropertyNameProcessor propertyNameProcessor ) {
+      checkNotFrozen();
       if( target != null && propertyNameProcessor != null ) {
          jsonPropertyNameProcessorMap.put( target, propertyNameProcessor );
       }
+      clearCaches();
    }
 
    /**
@@ -811,9 +1140,11 @@ public class JsonConfig {
     * @param jsonValueProcessor the processor to register
     */
    public void registerJsonValueProcessor( Class beanClass, Class propertyType, JsonValueProcessor jsonValueProcessor ) {
+      checkNotFrozen();
       if( beanClass != null && propertyType != null && jsonValueProcessor != null ) {
          beanTypeMap.put( beanClass, propertyType, jsonValueProcessor );
       }
+      clearCaches();
    }
 
    /**
@@ -824,9 +1155,11 @@ public class JsonConfig {
     * @param jsonValueProcessor the processor to register
     */
    public void registerJsonValueProcessor( Class propertyType, JsonValueProcessor jsonValueProcessor ) {
+      checkNotFrozen();
       if( propertyType != null && jsonValueProcessor != null ) {
          typeMap.put( propertyType, jsonValueProcessor );
       }
+      clearCaches();
    }
 
    /**
@@ -838,9 +1171,11 @@ public class JsonConfig {
     * @param jsonValueProcessor the processor to register
     */
    public void registerJsonValueProcessor( Class beanClass, String key, JsonValueProcessor jsonValueProcessor ) {
+      checkNotFrozen();
       if( beanClass != null && key != null && jsonValueProcessor != null ) {
          beanKeyMap.put( beanClass, key, jsonValueProcessor );
       }
+      clearCaches();
    }
 
    /**
@@ -851,9 +1186,11 @@ public class JsonConfig {
     * @param jsonValueProcessor the processor to register
     */
    public void registerJsonValueProcessor( String key, JsonValueProcessor jsonValueProcessor ) {
+      checkNotFrozen();
       if( key != null && jsonValueProcessor != null ) {
          keyMap.put( key, jsonValueProcessor );
       }
+      clearCaches();
    }
    
    /**
@@ -864,6 +1201,7 @@ public class JsonConfig {
     * @param propertyName the property to be excluded
     */
    public void registerPropertyExclusion( Class target, String propertyName ) {
+      checkNotFrozen();
       if( target != null && propertyName != null ) {
          Set set = (Set) exclusionMap.get( target );
          if( set == null ){
@@ -874,6 +1212,7 @@ public class JsonConfig {
             set.add(propertyName );
          }
       }
+      clearCaches();
    }
    
    /**
@@ -884,6 +1223,7 @@ public class JsonConfig {
     * @param properties the properties to be excluded
     */
    public void registerPropertyExclusions( Class target, String[] properties ) {
+      checkNotFrozen();
       if( target != null && properties != null && properties.length > 0 ) {
          Set set = (Set) exclusionMap.get( target );
          if( set == null ) {
@@ -896,6 +1236,7 @@ public class JsonConfig {
             }
          }
       }
+      clearCaches();
    }
    
    /**
@@ -919,13 +1260,22 @@ public class JsonConfig {
     * @param listener a listener for events
     */
    public synchronized void removeJsonEventListener( JsonEventListener listener ) {
-      eventListeners.remove( listener );
+      checkNotFrozen();
+      int index = getJsonEventListeners().indexOf( listener );
+      if( index != -1 ) {
+         JsonEventListener[] listeners = new JsonEventListener[eventListeners.length - 1];
+         System.arraycopy( eventListeners, 0, listeners, 0, index );
+         System.arraycopy( eventListeners, index + 1, listeners, index, listeners.length - index );
+         eventListeners = listeners;
+      }
+      clearCaches();
    }
 
    /**
     * Resets all values to its default state.
     */
    public void reset() {
+      checkNotFrozen();
       excludes = EMPTY_EXCLUDES;
       ignoreDefaultExcludes = false;
       ignoreTransientFields = false;
@@ -964,6 +1314,13 @@ public class JsonConfig {
       exclusionMap.clear();
       ignoreFieldAnnotations.clear();
       allowNonStringKeys = false;
+      maxDepth = 0;
+      trustAcyclic = false;
+      lazyParsing = false;
+      keySymbolTableSize = 0;
+      parallelExecutor = null;
+      parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+      clearCaches();
    }
 
    /**
@@ -971,7 +1328,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setAllowNonStringKeys( boolean allowNonStringKeys ) {
+      checkNotFrozen();
       this.allowNonStringKeys = allowNonStringKeys;
+      clearCaches();
    }
    
    /**
@@ -982,6 +1341,7 @@ public class JsonConfig {
     * @param arrayMode array mode for conversion
     */
    public void setArrayMode( int arrayMode ) {
+      checkNotFrozen();
       if( arrayMode == MODE_OBJECT_ARRAY ) {
          this.arrayMode = arrayMode;
       } else if( arrayMode == MODE_SET ) {
@@ -991,6 +1351,7 @@ public class JsonConfig {
          this.arrayMode = MODE_LIST;
          this.enclosedType = DEFAULT_COLLECTION_TYPE;
       }
+      clearCaches();
    }
 
    /**
@@ -1000,7 +1361,9 @@ public class JsonConfig {
     * @param classMap a Map of classes, every key identifies a property or a regexp
     */
    public void setClassMap( Map classMap ) {
+      checkNotFrozen();
       this.classMap = classMap;
+      clearCaches();
    }
 
    /**
@@ -1010,6 +1373,7 @@ public class JsonConfig {
     * @param collectionType the target collection class for conversion
     */
    public void setCollectionType( Class collectionType ) {
+      checkNotFrozen();
       if( collectionType != null ) {
          if( !Collection.class.isAssignableFrom( collectionType ) ) {
             throw new JSONException( "The configured collectionType is not a Collection: " + collectionType.getName() );
@@ -1018,6 +1382,7 @@ public class JsonConfig {
       } else {
          collectionType = DEFAULT_COLLECTION_TYPE;
       }
+      clearCaches();
    }
 
    /**
@@ -1026,8 +1391,10 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setCycleDetectionStrategy( CycleDetectionStrategy cycleDetectionStrategy ) {
+      checkNotFrozen();
       this.cycleDetectionStrategy = cycleDetectionStrategy == null ? DEFAULT_CYCLE_DETECTION_STRATEGY
             : cycleDetectionStrategy;
+      clearCaches();
    }
 
    /**
@@ -1036,8 +1403,10 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setDefaultValueProcessorMatcher( DefaultValueProcessorMatcher defaultValueProcessorMatcher ) {
+      checkNotFrozen();
       this.defaultValueProcessorMatcher = defaultValueProcessorMatcher == null ? DEFAULT_DEFAULT_VALUE_PROCESSOR_MATCHER
             : defaultValueProcessorMatcher;
+      clearCaches();
    }
 
    /**
@@ -1047,7 +1416,9 @@ public class JsonConfig {
     * @param enclosedType the target type for conversion
     */
    public void setEnclosedType( Class enclosedType ) {
+      checkNotFrozen();
       this.enclosedType = enclosedType;
+      clearCaches();
    }
 
    /**
@@ -1056,7 +1427,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setExcludes( String[] excludes ) {
+      checkNotFrozen();
       this.excludes = excludes == null ? EMPTY_EXCLUDES : excludes;
+      clearCaches();
    }
 
    /**
@@ -1066,7 +1439,9 @@ public class JsonConfig {
     * [JSON -&gt; Java]
     */
    public void setHandleJettisonEmptyElement( boolean handleJettisonEmptyElement ) {
+      checkNotFrozen();
       this.handleJettisonEmptyElement = handleJettisonEmptyElement;
+      clearCaches();
    }
 
    /**
@@ -1076,7 +1451,9 @@ public class JsonConfig {
     * [JSON -&gt; Java]
     */
    public void setHandleJettisonSingleElementArray( boolean handleJettisonSingleElementArray ) {
+      checkNotFrozen();
       this.handleJettisonSingleElementArray = handleJettisonSingleElementArray;
+      clearCaches();
    }
 
    /**
@@ -1084,7 +1461,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setIgnoreDefaultExcludes( boolean ignoreDefaultExcludes ) {
+      checkNotFrozen();
       this.ignoreDefaultExcludes = ignoreDefaultExcludes;
+      clearCaches();
    }
 
    /**
@@ -1092,11 +1471,13 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setIgnoreJPATransient( boolean ignoreJPATransient ) {
+      checkNotFrozen();
       if(ignoreJPATransient) {
          addIgnoreFieldAnnotation("javax.persistence.Transient");
       } else {
          removeIgnoreFieldAnnotation("javax.persistence.Transient");
       }
+      clearCaches();
    }
    
    /**
@@ -1104,9 +1485,11 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void addIgnoreFieldAnnotation( String annotationClassName ) {
+      checkNotFrozen();
       if( annotationClassName != null && !ignoreFieldAnnotations.contains( annotationClassName )) {
          ignoreFieldAnnotations.add(annotationClassName);
       }
+      clearCaches();
    }
    
    /**
@@ -1114,7 +1497,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void removeIgnoreFieldAnnotation( String annotationClassName ) {
+      checkNotFrozen();
       if( annotationClassName != null ) ignoreFieldAnnotations.remove(annotationClassName);
+      clearCaches();
    }
 
    /**
@@ -1122,9 +1507,11 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void addIgnoreFieldAnnotation( Class annotationClass ) {
+      checkNotFrozen();
       if( annotationClass != null && !ignoreFieldAnnotations.contains( annotationClass.getName() )) {
          ignoreFieldAnnotations.add(annotationClass.getName());
       }
+      clearCaches();
    }
    
    /**
@@ -1132,7 +1519,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void removeIgnoreFieldAnnotation( Class annotationClass ) {
+      checkNotFrozen();
       if( annotationClass != null ) ignoreFieldAnnotations.remove(annotationClass.getName());
+      clearCaches();
    }
    
    /**
@@ -1148,7 +1537,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setIgnoreTransientFields( boolean ignoreTransientFields ) {
+      checkNotFrozen();
       this.ignoreTransientFields = ignoreTransientFields;
+      clearCaches();
    }
 
    /**
@@ -1156,7 +1547,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setIgnorePublicFields( boolean ignorePublicFields ) {
+      checkNotFrozen();
       this.ignorePublicFields = ignorePublicFields;
+      clearCaches();
    }
    
    /**
@@ -1164,7 +1557,9 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setJavascriptCompliant( boolean javascriptCompliant ) {
+      checkNotFrozen();
       this.javascriptCompliant = javascriptCompliant;
+      clearCaches();
    }
    
    /**
@@ -1173,8 +1568,10 @@ public class JsonConfig {
     * [JSON -&gt; Java]
     */
    public void setJavaIdentifierTransformer( JavaIdentifierTransformer javaIdentifierTransformer ) {
+      checkNotFrozen();
       this.javaIdentifierTransformer = javaIdentifierTransformer == null ? DEFAULT_JAVA_IDENTIFIER_TRANSFORMER
             : javaIdentifierTransformer;
+      clearCaches();
    }
 
    /**
@@ -1184,7 +1581,9 @@ public class JsonConfig {
     * @param javaPropertyFilter the property filter
     */
    public void setJavaPropertyFilter( PropertyFilter javaPropertyFilter ) {
+      checkNotFrozen();
       this.javaPropertyFilter = javaPropertyFilter;
+      clearCaches();
    }
 
    /**
@@ -1193,8 +1592,10 @@ public class JsonConfig {
     * [JSON -&gt; Java]
     */
    public void setJavaPropertyNameProcessorMatcher( PropertyNameProcessorMatcher propertyNameProcessorMatcher ) {
+      checkNotFrozen();
       this.javaPropertyNameProcessorMatcher = propertyNameProcessorMatcher == null ? DEFAULT_PROPERTY_NAME_PROCESSOR_MATCHER
             : propertyNameProcessorMatcher;
+      clearCaches();
    }
 
    /**
@@ -1203,8 +1604,10 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setJsonBeanProcessorMatcher( JsonBeanProcessorMatcher jsonBeanProcessorMatcher ) {
+      checkNotFrozen();
       this.jsonBeanProcessorMatcher = jsonBeanProcessorMatcher == null ? DEFAULT_JSON_BEAN_PROCESSOR_MATCHER
             : jsonBeanProcessorMatcher;
+      clearCaches();
    }
 
    /**
@@ -1214,7 +1617,9 @@ public class JsonConfig {
     * @param jsonPropertyFilter the property filter
     */
    public void setJsonPropertyFilter( PropertyFilter jsonPropertyFilter ) {
+      checkNotFrozen();
       this.jsonPropertyFilter = jsonPropertyFilter;
+      clearCaches();
    }
 
    /**
@@ -1223,8 +1628,10 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setJsonPropertyNameProcessorMatcher( PropertyNameProcessorMatcher propertyNameProcessorMatcher ) {
+      checkNotFrozen();
       this.jsonPropertyNameProcessorMatcher = propertyNameProcessorMatcher == null ? DEFAULT_PROPERTY_NAME_PROCESSOR_MATCHER
             : propertyNameProcessorMatcher;
+      clearCaches();
    }
 
    /**
@@ -1233,18 +1640,102 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setJsonValueProcessorMatcher( JsonValueProcessorMatcher jsonValueProcessorMatcher ) {
+      checkNotFrozen();
       this.jsonValueProcessorMatcher = jsonValueProcessorMatcher == null ? DEFAULT_JSON_VALUE_PROCESSOR_MATCHER
             : jsonValueProcessorMatcher;
+      clearCaches();
    }
    
+   /**
+    * Sets the number of distinct keys a parser remembers to reuse their String
+    * instances. 0 disables it.<br>
+    * When greater than 0, the keys read by a JSONTokener are kept in a symbol
+    * table of up to this many entries. A key already in the table is returned
+    * without allocating a new String, so objects parsed from the same text
+    * share their key instances. Keys seen once the table is full are not
+    * remembered. Lazily parsed values use a table of their own.<br>
+    * [Java -&gt; JSON]
+    */
+   public void setKeySymbolTableSize( int keySymbolTableSize ) {
+      checkNotFrozen();
+      this.keySymbolTableSize = keySymbolTableSize < 0 ? 0 : keySymbolTableSize;
+      clearCaches();
+   }
+
+   /**
+    * Sets if nested objects and arrays are parsed on first access.<br>
+    * When true, parsing a JSON text only builds the outermost object or array,
+    * nested values keep their position in the source and are parsed with this
+    * configuration when they are first read, iterated or written. Nested
+    * values are still checked for syntax errors by the first parse, and are
+    * built the same as when parsed at once.<br>
+    * Lazily parsed values are not safe for concurrent reads until they have
+    * been visited. Ignored when events are enabled or JsonValueProcessors are
+    * registered.<br>
+    * [Java -&gt; JSON]
+    */
+   public void setLazyParsing( boolean lazyParsing ) {
+      checkNotFrozen();
+      this.lazyParsing = lazyParsing;
+      clearCaches();
+   }
+
+   /**
+    * Sets the maximum nesting depth of beans, maps and collections, a
+    * JSONException is thrown when it is exceeded. 0 means no limit.<br>
+    * Useful together with trustAcyclic, where a cycle would otherwise end in a
+    * StackOverflowError.<br>
+    * [Java -&gt; JSON]
+    */
+   public void setMaxDepth( int maxDepth ) {
+      checkNotFrozen();
+      this.maxDepth = maxDepth < 0 ? 0 : maxDepth;
+      clearCaches();
+   }
+
    /**
     * Sets the NewBeanInstanceStrategy to use.<br>
     * Will set default value (NewBeanInstanceStrategy.DEFAULT) if null.<br>
     * [JSON -&gt; Java]
     */
    public void setNewBeanInstanceStrategy( NewBeanInstanceStrategy newBeanInstanceStrategy ) {
+      checkNotFrozen();
       this.newBeanInstanceStrategy = newBeanInstanceStrategy == null ? DEFAULT_NEW_BEAN_INSTANCE_STRATEGY
             : newBeanInstanceStrategy;
+      clearCaches();
+   }
+
+   /**
+    * Sets an executor on which Object arrays and collections with at least
+    * parallelThreshold elements are converted, in slices that run at the same
+    * time. The calling thread converts the first slice, then any slice the
+    * executor has not started or rejected, so the executor may be the pool
+    * the caller itself runs on. Slices are joined in order, so the JSONArray
+    * is the same as a sequential conversion creates. Each slice detects
+    * cycles against the objects being converted when the array was reached.
+    * Slices never split their own arrays again.<br>
+    * Elements are converted concurrently, so processors, filters and the beans
+    * themselves must allow it, and this configuration must not change while
+    * converting. Not used when event triggering is enabled, as listeners get
+    * the events in order.<br>
+    * Default value is null (sequential conversion)<br>
+    * [Java -&gt; JSON]
+    */
+   public void setParallelExecutor( ExecutorService parallelExecutor ) {
+      checkNotFrozen();
+      this.parallelExecutor = parallelExecutor;
+      clearCaches();
+   }
+
+   /**
+    * Sets the number of elements from which arrays and collections are
+    * converted on the parallel executor, values under 2 are taken as 2.<br>
+    * [Java -&gt; JSON]
+    */
+   public void setParallelThreshold( int parallelThreshold ) {
+      checkNotFrozen();
+      this.parallelThreshold = parallelThreshold < 2 ? 2 : parallelThreshold;
+      clearCaches();
    }
    
    /**
@@ -1253,8 +1744,10 @@ public class JsonConfig {
     * [Java -&gt; JSON]
     */
    public void setPropertyExclusionClassMatcher( PropertyExclusionClassMatcher propertyExclusionClassMatcher ) {
+      checkNotFrozen();
       this.propertyExclusionClassMatcher = propertyExclusionClassMatcher == null ? DEFAULT_PROPERTY_EXCLUSION_CLASS_MATCHER
             : propertyExclusionClassMatcher;
+      clearCaches();
    }
    
    /**
@@ -1266,6 +1759,7 @@ public class JsonConfig {
     */
    public void setPropertyNameProcessorMatcher( PropertyNameProcessorMatcher propertyNameProcessorMatcher ) {
       setJavaPropertyNameProcessorMatcher( propertyNameProcessorMatcher );
+      clearCaches();
    }
 
    /**
@@ -1274,7 +1768,9 @@ public class JsonConfig {
     * [JSON -&gt; Java]
     */
    public void setPropertySetStrategy( PropertySetStrategy propertySetStrategy ) {
+      checkNotFrozen();
       this.propertySetStrategy = propertySetStrategy;
+      clearCaches();
    }
 
    /**
@@ -1284,7 +1780,9 @@ public class JsonConfig {
     * @param rootClass the target class for conversion
     */
    public void setRootClass( Class rootClass ) {
+      checkNotFrozen();
       this.rootClass = rootClass;
+      clearCaches();
    }
 
    /**
@@ -1292,7 +1790,21 @@ public class JsonConfig {
     * [JSON -&gt; Java]
     */
    public void setSkipJavaIdentifierTransformationInMapKeys( boolean skipJavaIdentifierTransformationInMapKeys ) {
+      checkNotFrozen();
       this.skipJavaIdentifierTransformationInMapKeys = skipJavaIdentifierTransformationInMapKeys;
+      clearCaches();
+   }
+
+   /**
+    * Sets if object graphs are trusted to be acyclic.<br>
+    * When true the objects being converted are not checked for cycles, only
+    * the nesting depth is tracked (see setMaxDepth).<br>
+    * [Java -&gt; JSON]
+    */
+   public void setTrustAcyclic( boolean trustAcyclic ) {
+      checkNotFrozen();
+      this.trustAcyclic = trustAcyclic;
+      clearCaches();
    }
 
    /**
@@ -1302,9 +1814,11 @@ public class JsonConfig {
     * @param target a class used for searching a DefaultValueProcessor.
     */
    public void unregisterDefaultValueProcessor( Class target ) {
+      checkNotFrozen();
       if( target != null ) {
          defaultValueMap.remove( target );
       }
+      clearCaches();
    }
 
    /**
@@ -1314,9 +1828,11 @@ public class JsonConfig {
     * @param target a class used for searching a PropertyNameProcessor.
     */
    public void unregisterJavaPropertyNameProcessor( Class target ) {
+      checkNotFrozen();
       if( target != null ) {
          javaPropertyNameProcessorMap.remove( target );
       }
+      clearCaches();
    }
    
    /**
@@ -1326,9 +1842,11 @@ public class JsonConfig {
     * @param target a class used for searching a JsonBeanProcessor.
     */
    public void unregisterJsonBeanProcessor( Class target ) {
+      checkNotFrozen();
       if( target != null ) {
          beanProcessorMap.remove( target );
       }
+      clearCaches();
    }
 
    /**
@@ -1338,9 +1856,11 @@ public class JsonConfig {
     * @param target a class used for searching a PropertyNameProcessor.
     */
    public void unregisterJsonPropertyNameProcessor( Class target ) {
+      checkNotFrozen();
       if( target != null ) {
          jsonPropertyNameProcessorMap.remove( target );
       }
+      clearCaches();
    }
 
    /**
@@ -1350,9 +1870,11 @@ public class JsonConfig {
     * @param propertyType a class used for searching a JsonValueProcessor.
     */
    public void unregisterJsonValueProcessor( Class propertyType ) {
+      checkNotFrozen();
       if( propertyType != null ) {
          typeMap.remove( propertyType );
       }
+      clearCaches();
    }
 
    /**
@@ -1363,9 +1885,11 @@ public class JsonConfig {
     * @param propertyType the type of the property
     */
    public void unregisterJsonValueProcessor( Class beanClass, Class propertyType ) {
+      checkNotFrozen();
       if( beanClass != null && propertyType != null ) {
          beanTypeMap.remove( beanClass, propertyType );
       }
+      clearCaches();
    }
 
    /**
@@ -1376,9 +1900,11 @@ public class JsonConfig {
     * @param key the name of the property which may belong to the target class
     */
    public void unregisterJsonValueProcessor( Class beanClass, String key ) {
+      checkNotFrozen();
       if( beanClass != null && key != null ) {
          beanKeyMap.remove( beanClass, key );
       }
+      clearCaches();
    }
 
    /**
@@ -1388,9 +1914,11 @@ public class JsonConfig {
     * @param key the name of the property which may belong to the target class
     */
    public void unregisterJsonValueProcessor( String key ) {
+      checkNotFrozen();
       if( key != null ) {
          keyMap.remove( key );
       }
+      clearCaches();
    }
 
    /**
@@ -1401,6 +1929,7 @@ public class JsonConfig {
     * @param propertyName the name of the property to be removed from the exclusion list.
     */
    public void unregisterPropertyExclusion( Class target, String propertyName ) {
+      checkNotFrozen();
       if( target != null && propertyName != null ) {
          Set set = (Set) exclusionMap.get( target );
          if( set == null ) {
@@ -1409,6 +1938,7 @@ public class JsonConfig {
          }
          set.remove( propertyName );
       }
+      clearCaches();
    }
    
    /**
@@ -1418,12 +1948,14 @@ public class JsonConfig {
     * @param target a class used for searching property exclusions.
     */
    public void unregisterPropertyExclusions( Class target ) {
+      checkNotFrozen();
       if( target != null ) {
          Set set = (Set) exclusionMap.get( target );
          if( set != null ) {
             set.clear();
          }
       }
+      clearCaches();
    }
    
    /**
@@ -1437,4 +1969,90 @@ public class JsonConfig {
    public void unregisterPropertyNameProcessor( Class target ) {
       unregisterJavaPropertyNameProcessor( target );
    }
-}
\ No newline at end of file
+
+   /**
+    * Returns a frozen configuration that differs from this one only in its
+    * classMap. The registries and resolved lookups are shared, not copied.<br>
+    * [JSON -&gt; Java]
+    *
+    * @throws IllegalStateException if this configuration is not frozen
+    */
+   public JsonConfig withClassMap( Map classMap ) {
+      if( !frozen ) {
+         throw new IllegalStateException( "Only a frozen JsonConfig can derive variants, use copy() instead" );
+      }
+      JsonConfig jsc = derive();
+      jsc.classMap = classMap != null ? Collections.unmodifiableMap( new HashMap( classMap ) ) : null;
+      return jsc;
+   }
+
+   /**
+    * Returns a frozen configuration that differs from this one only in its
+    * rootClass. The registries and resolved lookups are shared, not copied.<br>
+    * [JSON -&gt; Java]
+    *
+    * @throws IllegalStateException if this configuration is not frozen
+    */
+   public JsonConfig withRootClass( Class rootClass ) {
+      if( !frozen ) {
+         throw new IllegalStateException( "Only a frozen JsonConfig can derive variants, use copy() instead" );
+      }
+      JsonConfig jsc = derive();
+      jsc.rootClass = rootClass;
+      return jsc;
+   }
+
+   private void checkNotFrozen() {
+      if( frozen ) {
+         throw new UnsupportedOperationException( "This JsonConfig is frozen, use copy() to get a mutable one" );
+      }
+   }
+
+   /**
+    * Discards any state derived from this configuration, such as bean
+    * plans, child configurations, resolved processors and merged excludes.
+    * Must be called by every method that changes a setting those caches
+    * depend on.
+    */
+   private void clearCaches() {
+      beanPopulationPlans.clear();
+      beanSerializationPlans.clear();
+      childConfigs.clear();
+      // a lookup running concurrently keeps filling the discarded instance
+      resolvedLookups = new ResolvedLookups();
+   }
+
+   /**
+    * Returns a frozen configuration that shares every setting, registry and
+    * resolved lookup of this frozen one. Bean plans and child configurations
+    * are built for the rootClass, collectionType and classMap of a
+    * configuration, so they are not shared.
+    */
+   private JsonConfig derive() {
+      try {
+         JsonConfig jsc = (JsonConfig) clone();
+         jsc.beanPopulationPlans = new ConcurrentHashMap();
+         jsc.beanSerializationPlans = new ConcurrentHashMap();
+         jsc.childConfigs = new ConcurrentHashMap();
+         return jsc;
+      } catch( CloneNotSupportedException e ) {
+         throw new JSONException( e );
+      }
+   }
+
+   /**
+    * Processors resolved through the matchers and merged excludes, per class,
+    * including the classes for which no processor was found (stored as NONE).
+    * A frozen configuration never changes, so its lookups are shared with the
+    * configurations derived from it.
+    */
+   private static final class ResolvedLookups {
+      final Map classMergedExcludes = new ConcurrentHashMap();
+      final Map defaultValueProcessors = new ConcurrentHashMap();
+      final Map javaPropertyNameProcessors = new ConcurrentHashMap();
+      final Map jsonBeanProcessors = new ConcurrentHashMap();
+      final Map jsonPropertyNameProcessors = new ConcurrentHashMap();
+      volatile Collection mergedExcludes;
+      final Map typeJsonValueProcessors = new ConcurrentHashMap();
+   }
+}
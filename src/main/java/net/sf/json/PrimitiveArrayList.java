@@ -0,0 +1,399 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Element storage of a JSONArray built from an int[], long[] or double[],
+ * kept as a primitive array instead of one boxed Number per element.<br>
+ * Elements are boxed as the JSONArray would have stored them: int and double
+ * values as Integer and Double, long values as Integer when they fit in an int
+ * and as Long otherwise. Setting or inserting a value that the primitive array
+ * can't hold moves all elements to an ArrayList, which the owning JSONArray
+ * then uses directly.
+ */
+final class PrimitiveArrayList extends AbstractList<Object> implements RandomAccess, Serializable {
+   private static final int DOUBLE = 2;
+   private static final int INT = 0;
+   private static final int LONG = 1;
+   private static final long serialVersionUID = 2871470532924373041L;
+
+   /**
+    * Creates a list holding a copy of array.
+    */
+   static PrimitiveArrayList of( double[] array ) {
+      PrimitiveArrayList list = new PrimitiveArrayList( DOUBLE, array.length );
+      System.arraycopy( array, 0, list.doubles, 0, array.length );
+      list.size = array.length;
+      return list;
+   }
+
+   /**
+    * Creates a list holding a copy of array.
+    */
+   static PrimitiveArrayList of( int[] array ) {
+      PrimitiveArrayList list = new PrimitiveArrayList( INT, array.length );
+      System.arraycopy( array, 0, list.ints, 0, array.length );
+      list.size = array.length;
+      return list;
+   }
+
+   /**
+    * Creates a list holding a copy of array.
+    */
+   static PrimitiveArrayList of( long[] array ) {
+      PrimitiveArrayList list = new PrimitiveArrayList( LONG, array.length );
+      System.arraycopy( array, 0, list.longs, 0, array.length );
+      list.size = array.length;
+      return list;
+   }
+
+   /**
+    * Writes a double the way JSONUtils.numberToString() writes a Double.
+    */
+   private static String doubleToString( double d ) {
+      String s = Double.toString( d );
+      if( s.indexOf( '.' ) > 0 && s.indexOf( 'E' ) < 0 ){
+         int end = s.length();
+         while( s.charAt( end - 1 ) == '0' ){
+            end--;
+         }
+         if( s.charAt( end - 1 ) == '.' ){
+            end--;
+         }
+         s = s.substring( 0, end );
+      }
+      return s;
+   }
+
+   private double[] doubles;
+   /** all elements once a value the primitive array can't hold is stored */
+   private List<Object> inflated;
+   private int[] ints;
+   private final int kind;
+   private long[] longs;
+   private int size;
+
+   private PrimitiveArrayList( int kind, int capacity ) {
+      this.kind = kind;
+      switch( kind ){
+         case INT:
+            ints = new int[capacity];
+            break;
+         case LONG:
+            longs = new long[capacity];
+            break;
+         default:
+            doubles = new double[capacity];
+      }
+   }
+
+   public void add( int index, Object element ) {
+      if( inflated == null && index >= 0 && index <= size && accepts( element ) ){
+         ensureCapacity( size + 1 );
+         Object array = array();
+         System.arraycopy( array, index, array, index + 1, size - index );
+         store( index, element );
+         size++;
+         modCount++;
+      }else{
+         inflate().add( index, element );
+      }
+   }
+
+   public void clear() {
+      if( inflated == null ){
+         size = 0;
+         modCount++;
+      }else{
+         inflated.clear();
+      }
+   }
+
+   public Object get( int index ) {
+      if( inflated != null ){
+         return inflated.get( index );
+      }
+      if( index < 0 || index >= size ){
+         throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+      }
+      switch( kind ){
+         case INT:
+            return new Integer( ints[index] );
+         case LONG:
+            long l = longs[index];
+            return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE ? (Object) new Integer( (int) l )
+                  : new Long( l );
+         default:
+            return new Double( doubles[index] );
+      }
+   }
+
+   public Object remove( int index ) {
+      if( inflated != null ){
+         return inflated.remove( index );
+      }
+      Object removed = get( index );
+      Object array = array();
+      System.arraycopy( array, index + 1, array, index, size - index - 1 );
+      size--;
+      modCount++;
+      return removed;
+   }
+
+   public Object set( int index, Object element ) {
+      if( inflated == null && accepts( element ) ){
+         Object previous = get( index );
+         store( index, element );
+         return previous;
+      }
+      return inflate().set( index, element );
+   }
+
+   public int size() {
+      return inflated != null ? inflated.size() : size;
+   }
+
+   /**
+    * Returns the elements as a primitive array of componentType, or null if
+    * they don't fit in one without being converted.
+    */
+   Object toArray( Class componentType ) {
+      if( inflated != null ){
+         return null;
+      }
+      if( componentType == Double.TYPE ){
+         return toDoubleArray();
+      }
+      if( componentType == Long.TYPE && kind != DOUBLE ){
+         return toLongArray();
+      }
+      if( componentType == Integer.TYPE && kind == INT ){
+         return toIntArray();
+      }
+      return null;
+   }
+
+   /**
+    * Returns the elements as doubles, or null if the list has been inflated.
+    */
+   double[] toDoubleArray() {
+      if( inflated != null ){
+         return null;
+      }
+      double[] array = new double[size];
+      switch( kind ){
+         case INT:
+            for( int i = 0; i < size; i++ ){
+               array[i] = ints[i];
+            }
+            break;
+         case LONG:
+            for( int i = 0; i < size; i++ ){
+               array[i] = longs[i];
+            }
+            break;
+         default:
+            System.arraycopy( doubles, 0, array, 0, size );
+      }
+      return array;
+   }
+
+   /**
+    * Returns the elements as ints, narrowed like Number.intValue(), or null if
+    * the list has been inflated.
+    */
+   int[] toIntArray() {
+      if( inflated != null ){
+         return null;
+      }
+      int[] array = new int[size];
+      switch( kind ){
+         case INT:
+            System.arraycopy( ints, 0, array, 0, size );
+            break;
+         case LONG:
+            for( int i = 0; i < size; i++ ){
+               array[i] = (int) longs[i];
+            }
+            break;
+         default:
+            for( int i = 0; i < size; i++ ){
+               array[i] = (int) doubles[i];
+            }
+      }
+      return array;
+   }
+
+   /**
+    * Returns the elements as longs, narrowed like Number.longValue(), or null
+    * if the list has been inflated.
+    */
+   long[] toLongArray() {
+      if( inflated != null ){
+         return null;
+      }
+      long[] array = new long[size];
+      switch( kind ){
+         case INT:
+            for( int i = 0; i < size; i++ ){
+               array[i] = ints[i];
+            }
+            break;
+         case LONG:
+            System.arraycopy( longs, 0, array, 0, size );
+            break;
+         default:
+            for( int i = 0; i < size; i++ ){
+               array[i] = (long) doubles[i];
+            }
+      }
+      return array;
+   }
+
+   /**
+    * Returns the list all elements have been moved to, null if they are still
+    * in the primitive array.
+    */
+   List<Object> getInflated() {
+      return inflated;
+   }
+
+   /**
+    * Appends the JSON text of the element at index without boxing it.
+    */
+   void appendTo( StringBuilder sb, int index ) {
+      switch( kind ){
+         case INT:
+            sb.append( ints[index] );
+            break;
+         case LONG:
+            sb.append( longs[index] );
+            break;
+         default:
+            sb.append( doubleToString( doubles[index] ) );
+      }
+   }
+
+   /**
+    * Writes the elements as a JSON array without boxing them.
+    *
+    * @param canonical if true exponents are written in lower case
+    */
+   void write( Writer writer, boolean canonical ) throws IOException {
+      writer.write( '[' );
+      for( int i = 0; i < size; i++ ){
+         if( i > 0 ){
+            writer.write( ',' );
+         }
+         switch( kind ){
+            case INT:
+               writer.write( Integer.toString( ints[i] ) );
+               break;
+            case LONG:
+               writer.write( Long.toString( longs[i] ) );
+               break;
+            default:
+               String s = doubleToString( doubles[i] );
+               writer.write( canonical ? s.toLowerCase() : s );
+         }
+      }
+      writer.write( ']' );
+   }
+
+   private boolean accepts( Object element ) {
+      switch( kind ){
+         case INT:
+            return element instanceof Integer;
+         case LONG:
+            return element instanceof Integer || element instanceof Long;
+         default:
+            return element instanceof Double;
+      }
+   }
+
+   private Object array() {
+      switch( kind ){
+         case INT:
+            return ints;
+         case LONG:
+            return longs;
+         default:
+            return doubles;
+      }
+   }
+
+   private void ensureCapacity( int capacity ) {
+      int length = kind == INT ? ints.length : kind == LONG ? longs.length : doubles.length;
+      if( capacity <= length ){
+         return;
+      }
+      int newLength = Math.max( capacity, length + (length >> 1) + 1 );
+      switch( kind ){
+         case INT:
+            int[] i = new int[newLength];
+            System.arraycopy( ints, 0, i, 0, size );
+            ints = i;
+            break;
+         case LONG:
+            long[] l = new long[newLength];
+            System.arraycopy( longs, 0, l, 0, size );
+            longs = l;
+            break;
+         default:
+            double[] d = new double[newLength];
+            System.arraycopy( doubles, 0, d, 0, size );
+            doubles = d;
+      }
+   }
+
+   private List<Object> inflate() {
+      if( inflated == null ){
+         List<Object> list = new ArrayList<Object>( size + 1 );
+         for( int i = 0; i < size; i++ ){
+            list.add( get( i ) );
+         }
+         inflated = list;
+         ints = null;
+         longs = null;
+         doubles = null;
+         size = 0;
+         modCount++;
+      }
+      return inflated;
+   }
+
+   private void store( int index, Object element ) {
+      switch( kind ){
+         case INT:
+            ints[index] = ((Integer) element).intValue();
+            break;
+         case LONG:
+            longs[index] = ((Number) element).longValue();
+            break;
+         default:
+            doubles[index] = ((Double) element).doubleValue();
+      }
+   }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import net.sf.json.processors.JsonValueProcessor;
+import net.sf.json.processors.JsonVerifier;
+import net.sf.json.util.CycleDetectionStrategy;
+import net.sf.json.util.JSONTokener;
+import net.sf.json.util.JSONUtils;
+import net.sf.json.util.PropertyFilter;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Writes beans, Maps, Collections and arrays to a Writer as JSON text without
+ * building the intermediate JSONObject/JSONArray tree.<br>
+ * Values are transformed with the same rules JSONObject and JSONArray apply
+ * when they are created from the same objects (exclusions, filters,
+ * processors, default values and cycle detection), so the text written is the
+ * same as <code>JSONSerializer.toJSON( object, jsonConfig ).toString()</code>.
+ * Objects that can not be streamed (DynaBeans, beans with a JsonBeanProcessor,
+ * beans whose properties share a key, JSON values, JSON strings, etc) are
+ * converted into a JSON tree and then written.<br>
+ * Events need the JSON values as they are created, when they are enabled the
+ * whole object is converted into a tree first.
+ */
+final class StreamingSerializer {
+   private static final Log log = LogFactory.getLog( StreamingSerializer.class );
+
+   /** used to apply the JSONArray rules to elements */
+   private static final JSONArray ARRAY_CONTEXT = new JSONArray();
+   /** used to apply the JSONObject rules to property values */
+   private static final JSONObject OBJECT_CONTEXT = new JSONObject();
+
+   /**
+    * Writes object as JSON text.
+    *
+    * @throws JSONException if the object can not be converted
+    */
+   static void write( Object object, Writer writer, JsonConfig jsonConfig ) throws IOException {
+      if( jsonConfig.isEventTriggeringEnabled() || object == null || object instanceof JSON
+            || object instanceof JSONString || object instanceof String
+            || object instanceof Reader || object instanceof InputStream
+            || object instanceof JSONTokener ){
+         writeJSON( JSONSerializer.toJSON( object, jsonConfig ), writer );
+      }else if( isStreamable( object, jsonConfig ) ){
+         if( AbstractJSON.addInstance( object, jsonConfig ) ){
+            writeContainer( object, writer, jsonConfig );
+         }else{
+            // called from a processor while object is being converted
+            writeRaw( handleRepeatedReference( object, jsonConfig ), writer );
+         }
+      }else if( JSONUtils.isArray( object ) ){
+         writeJSON( JSONArray.fromObject( object, jsonConfig ), writer );
+      }else{
+         writeJSON( JSONSerializer.toJSON( object, jsonConfig ), writer );
+      }
+   }
+
+   /**
+    * Returns true if value is converted by JSONObject or JSONArray into a new
+    * object or array whose contents can be written one by one.
+    */
+   private static boolean isStreamable( Object value, JsonConfig jsonConfig ) {
+      if( value == null || value instanceof JSON || value instanceof JSONString
+            || value instanceof JSONTokener || value instanceof Reader
+            || value instanceof DynaBean || value instanceof Enum || value instanceof Annotation
+            || value instanceof Class || value instanceof JSONFunction ){
+         return false;
+      }
+      if( value instanceof Map ){
+         // non String keys may collide once converted
+         return !jsonConfig.isAllowNonStringKeys();
+      }
+      if( value instanceof Collection || value instanceof Object[] ){
+         return true;
+      }
+      Class type = value.getClass();
+      if( type.isArray() || type.isAnnotation() || JSONUtils.isNumber( type )
+            || JSONUtils.isBoolean( type ) || JSONUtils.isString( type ) ){
+         return false;
+      }
+      return jsonConfig.findJsonBeanProcessor( type ) == null
+            && jsonConfig.getBeanSerializationPlan( type ).uniqueKeys;
+   }
+
+   /**
+    * Writes a Map, Collection, Object[] or bean, the instance is registered for
+    * cycle detection while its contents are written.
+    */
+   private static void writeContainer( Object value, Writer writer, JsonConfig jsonConfig )
+         throws IOException {
+      try{
+         if( value instanceof Map ){
+            writeMap( (Map) value, writer, jsonConfig );
+         }else if( value instanceof Collection ){
+            writeElements( ((Collection) value).iterator(), writer, jsonConfig );
+         }else if( value instanceof Object[] ){
+            writeElements( new ArrayIterator( (Object[]) value ), writer, jsonConfig );
+         }else{
+            writeBean( value, writer, jsonConfig );
+         }
+      }catch( JSONException jsone ){
+         throw jsone;
+      }catch( RuntimeException e ){
+         throw new JSONException( e );
+      }finally{
+         AbstractJSON.removeInstance( value );
+      }
+   }
+
+   private static void writeBean( Object bean, Writer writer, JsonConfig jsonConfig )
+         throws IOException {
+      BeanSerializationPlan plan = jsonConfig.getBeanSerializationPlan( bean.getClass() );
+      PropertyFilter jsonPropertyFilter = jsonConfig.getJsonPropertyFilter();
+      boolean comma = false;
+      writer.write( '{' );
+      for( int i = 0; i < plan.properties.length; i++ ){
+         BeanSerializationPlan.Accessor accessor = plan.properties[i];
+         if( accessor.warning != null ){
+            log.info( accessor.warning );
+            continue;
+         }
+         Object value;
+         try{
+            value = accessor.getValue( bean );
+         }catch( Exception e ){
+            throw new JSONException( e );
+         }
+         comma |= writeBeanValue( bean, accessor, value, comma, jsonPropertyFilter, writer,
+               jsonConfig );
+      }
+      if( plan.fields.length > 0 ){
+         // public fields may fail to be read under a SecurityManager
+         // so we will eat all exceptions, the failing field and the ones
+         // after it are dropped as JSONObject does
+         StringWriter fields = new StringWriter();
+         StringBuffer buffer = fields.getBuffer();
+         for( int i = 0; i < plan.fields.length; i++ ){
+            BeanSerializationPlan.Accessor accessor = plan.fields[i];
+            int mark = buffer.length();
+            try{
+               Object value = accessor.getValue( bean );
+               comma |= writeBeanValue( bean, accessor, value, comma, jsonPropertyFilter, fields,
+                     jsonConfig );
+            }catch( Exception e ){
+               log.trace( "Couldn't read public fields.", e );
+               buffer.setLength( mark );
+               break;
+            }
+         }
+         writer.write( buffer.toString() );
+      }
+      writer.write( '}' );
+   }
+
+   private static boolean writeBeanValue( Object bean, BeanSerializationPlan.Accessor accessor,
+         Object value, boolean comma, PropertyFilter jsonPropertyFilter, Writer writer,
+         JsonConfig jsonConfig ) throws IOException {
+      if( jsonPropertyFilter != null && jsonPropertyFilter.apply( bean, accessor.name, value ) ){
+         return false;
+      }
+      boolean bypass = false;
+      if( accessor.jsonValueProcessor != null ){
+         value = accessor.jsonValueProcessor.processObjectValue( accessor.name, value, jsonConfig );
+         bypass = true;
+         verify( value );
+      }
+      if( value == null ){
+         value = jsonConfig.findDefaultValueProcessor( accessor.type )
+               .getDefaultValue( accessor.type );
+         verify( value );
+      }
+      if( bypass || String.class.isAssignableFrom( accessor.type ) ){
+         writeKey( accessor.key, comma, writer );
+         writeRaw( value, writer );
+         return true;
+      }
+      return writeValue( accessor.key, value, comma, writer, jsonConfig );
+   }
+
+   private static void writeElements( Iterator elements, Writer writer, JsonConfig jsonConfig )
+         throws IOException {
+      boolean comma = false;
+      writer.write( '[' );
+      while( elements.hasNext() ){
+         Object value = elements.next();
+         if( value != null ){
+            JsonValueProcessor jsonValueProcessor = jsonConfig.findJsonValueProcessor( value.getClass() );
+            if( jsonValueProcessor != null ){
+               value = jsonValueProcessor.processArrayValue( value, jsonConfig );
+               verify( value );
+            }
+         }
+         comma |= writeValue( null, value, comma, writer, jsonConfig );
+      }
+      writer.write( ']' );
+   }
+
+   /**
+    * Writes the separator and key of a property, or only the separator when key
+    * is null.
+    */
+   private static void writeKey( String key, boolean comma, Writer writer ) throws IOException {
+      if( comma ){
+         writer.write( ',' );
+      }
+      if( key != null ){
+         JSONUtils.quote( key, writer );
+         writer.write( ':' );
+      }
+   }
+
+   private static void writeJSON( JSON json, Writer writer ) throws IOException {
+      if( JSONUtils.isNull( json ) ){
+         writer.write( JSONNull.getInstance()
+               .toString() );
+      }else{
+         json.write( writer );
+      }
+   }
+
+   private static void writeMap( Map map, Writer writer, JsonConfig jsonConfig ) throws IOException {
+      Collection exclusions = jsonConfig.getMergedExcludes();
+      PropertyFilter jsonPropertyFilter = jsonConfig.getJsonPropertyFilter();
+      boolean comma = false;
+      writer.write( '{' );
+      for( Iterator entries = map.entrySet()
+            .iterator(); entries.hasNext(); ){
+         Map.Entry entry = (Map.Entry) entries.next();
+         Object k = entry.getKey();
+         if( k == null ){
+            throw new JSONException( "JSON keys cannot be null." );
+         }
+         if( !(k instanceof String) ){
+            throw new ClassCastException( "JSON keys must be strings." );
+         }
+         String key = (String) k;
+         if( "null".equals( key ) ){
+            throw new NullPointerException( "JSON keys must not be null nor the 'null' string." );
+         }
+         if( exclusions.contains( key ) ){
+            continue;
+         }
+         Object value = entry.getValue();
+         if( jsonPropertyFilter != null && jsonPropertyFilter.apply( map, key, value ) ){
+            continue;
+         }
+         if( value == null ){
+            writeKey( key, comma, writer );
+            writeRaw( JSONNull.getInstance(), writer );
+            comma = true;
+            continue;
+         }
+         JsonValueProcessor jsonValueProcessor = jsonConfig.findJsonValueProcessor( value.getClass(),
+               key );
+         if( jsonValueProcessor != null ){
+            value = jsonValueProcessor.processObjectValue( key, value, jsonConfig );
+            verify( value );
+            writeKey( key, comma, writer );
+            writeRaw( value, writer );
+            comma = true;
+         }else if( value instanceof String ){
+            writeKey( key, comma, writer );
+            writeRaw( value, writer );
+            comma = true;
+         }else{
+            comma |= writeValue( key, value, comma, writer, jsonConfig );
+         }
+      }
+      writer.write( '}' );
+   }
+
+   /**
+    * Writes a value that is stored as is.
+    */
+   private static void writeRaw( Object value, Writer writer ) throws IOException {
+      if( value instanceof JSON ){
+         writeJSON( (JSON) value, writer );
+      }else if( value instanceof String && !JSONUtils.isNull( value ) ){
+         JSONUtils.quote( (String) value, writer );
+      }else{
+         writer.write( JSONUtils.valueToString( value ) );
+      }
+   }
+
+   /**
+    * Writes a property value (key != null) or an array element (key == null)
+    * that has not been processed yet.
+    *
+    * @return false if the property was skipped
+    */
+   private static boolean writeValue( String key, Object value, boolean comma, Writer writer,
+         JsonConfig jsonConfig ) throws IOException {
+      if( key != null && value != null ){
+         JsonValueProcessor processor = jsonConfig.findJsonValueProcessor( value.getClass(), key );
+         if( processor != null ){
+            value = processor.processObjectValue( null, value, jsonConfig );
+            verify( value );
+         }
+      }
+
+      if( isStreamable( value, jsonConfig ) ){
+         if( AbstractJSON.addInstance( value, jsonConfig ) ){
+            writeKey( key, comma, writer );
+            writeContainer( value, writer, jsonConfig );
+            return true;
+         }
+         value = handleRepeatedReference( value, jsonConfig );
+      }else if( key != null ){
+         value = OBJECT_CONTEXT._processValue( value, jsonConfig );
+      }else{
+         value = ARRAY_CONTEXT._processValue( value, jsonConfig );
+      }
+
+      if( key != null
+            && (CycleDetectionStrategy.IGNORE_PROPERTY_OBJ == value || CycleDetectionStrategy.IGNORE_PROPERTY_ARR == value) ){
+         return false;
+      }
+      writeKey( key, comma, writer );
+      writeRaw( value, writer );
+      return true;
+   }
+
+   private static Object handleRepeatedReference( Object value, JsonConfig jsonConfig ) {
+      try{
+         if( JSONUtils.isArray( value ) ){
+            return jsonConfig.getCycleDetectionStrategy()
+                  .handleRepeatedReferenceAsArray( value );
+         }
+         JSONObject jsonObject = jsonConfig.getCycleDetectionStrategy()
+               .handleRepeatedReferenceAsObject( value );
+         if( jsonObject != null && jsonObject.isNullObject() ){
+            return JSONNull.getInstance();
+         }
+         return jsonObject;
+      }catch( JSONException jsone ){
+         AbstractJSON.removeInstance( value );
+         throw jsone;
+      }catch( RuntimeException e ){
+         AbstractJSON.removeInstance( value );
+         throw new JSONException( e );
+      }
+   }
+
+   private static void verify( Object value ) {
+      if( !JsonVerifier.isValidJsonValue( value ) ){
+         throw new JSONException( "Value is not a valid JSON value. " + value );
+      }
+   }
+
+   private static final class ArrayIterator implements Iterator {
+      private final Object[] array;
+      private int index;
+
+      ArrayIterator( Object[] array ) {
+         this.array = array;
+      }
+
+      public boolean hasNext() {
+         return index < array.length;
+      }
+
+      public Object next() {
+         return array[index++];
+      }
+
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private StreamingSerializer() {
+
+   }
+}
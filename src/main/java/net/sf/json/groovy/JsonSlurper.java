@@ -18,9 +18,8 @@ package net.sf.json.groovy;
 
 import groovy.lang.GroovyObjectSupport;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -48,8 +47,16 @@ public class JsonSlurper extends GroovyObjectSupport {
       this.jsonConfig = jsonConfig != null ? jsonConfig : new JsonConfig();
    }
 
+   /**
+    * Parses a UTF-8 file, memory mapped instead of read into a String.
+    */
    public JSON parse( File file ) throws IOException {
-      return parse( new FileReader( file ) );
+      FileInputStream input = new FileInputStream( file );
+      try{
+         return JSONSerializer.toJSON( input.getChannel(), jsonConfig );
+      }finally{
+         input.close();
+      }
    }
 
    public JSON parse( URL url ) throws IOException {
@@ -65,15 +72,7 @@ public class JsonSlurper extends GroovyObjectSupport {
    }
 
    public JSON parse( Reader reader ) throws IOException {
-      // unfortunately JSONSerializer can't process the text as a stream
-      // so we must read the full content first and then parse it
-      StringBuffer buffer = new StringBuffer();
-      BufferedReader in = new BufferedReader( reader );
-      String line = null;
-      while( (line = in.readLine()) != null ) {
-         buffer.append( line ).append( "\n" );
-      }
-      return parseText( buffer.toString() );
+      return JSONSerializer.toJSON( reader, jsonConfig );
    }
 
    public JSON parseText( String text ) {
@@ -16,12 +16,21 @@
 
 package net.sf.json.regexp;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Convenience utility for working withRegexpMatcher.<br>
+ * Matchers are cached by pattern, they hold no matching state and may be
+ * shared by several threads.
  * 
  * @author Andres Almiray <aalmiray@users.sourceforge.net>
  */
 public class RegexpUtils {
+   /** patterns may come from configuration or data, so the cache is bounded */
+   private static final int MAX_CACHED_MATCHERS = 256;
+   private static final Map matchers = new ConcurrentHashMap();
+   private static final Map multilineMatchers = new ConcurrentHashMap();
    private static String javaVersion = "1.3.1";
    static{
       javaVersion = System.getProperty( "java.version" );
@@ -33,11 +42,16 @@ public class RegexpUtils {
     * younger (1.4+) it will return a JdkRegexpMatcher.
     */
    public static RegexpMatcher getMatcher( String pattern ) {
-      if( isJDK13() ){
-         return new Perl5RegexpMatcher( pattern );
-      }else{
-         return new JdkRegexpMatcher( pattern );
+      RegexpMatcher matcher = (RegexpMatcher) matchers.get( pattern );
+      if( matcher == null ){
+         if( isJDK13() ){
+            matcher = new Perl5RegexpMatcher( pattern );
+         }else{
+            matcher = new JdkRegexpMatcher( pattern );
+         }
+         cache( matchers, pattern, matcher );
       }
+      return matcher;
    }
 
    /**
@@ -46,11 +60,16 @@ public class RegexpUtils {
     * younger (1.4+) it will return a JdkRegexpMatcher.
     */
    public static RegexpMatcher getMatcher( String pattern, boolean multiline ) {
-      if( isJDK13() ){
-         return new Perl5RegexpMatcher( pattern, true );
-      }else{
-         return new JdkRegexpMatcher( pattern, true );
+      RegexpMatcher matcher = (RegexpMatcher) multilineMatchers.get( pattern );
+      if( matcher == null ){
+         if( isJDK13() ){
+            matcher = new Perl5RegexpMatcher( pattern, true );
+         }else{
+            matcher = new JdkRegexpMatcher( pattern, true );
+         }
+         cache( multilineMatchers, pattern, matcher );
       }
+      return matcher;
    }
    
    /**
@@ -60,6 +79,14 @@ public class RegexpUtils {
       return javaVersion.indexOf( "1.3" ) != -1;
    }
 
+   private static void cache( Map cache, String pattern, RegexpMatcher matcher ) {
+      if( cache.size() >= MAX_CACHED_MATCHERS ){
+         // start over so patterns in use now get cached again
+         cache.clear();
+      }
+      cache.put( pattern, matcher );
+   }
+
    private RegexpUtils() {
 
    }
@@ -209,7 +209,7 @@ public class JSONBuilder {
             if( this.comma ){
                this.writer.write( ',' );
             }
-            this.writer.write( JSONUtils.quote( s ) );
+            JSONUtils.quote( s, this.writer );
             this.writer.write( ':' );
             this.comma = false;
             this.mode = 'o';
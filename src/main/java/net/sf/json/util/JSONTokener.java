@@ -15,6 +15,16 @@
  */
 package net.sf.json.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
 import net.sf.json.JSONArray;
 import net.sf.json.JSONException;
 import net.sf.json.JSONNull;
@@ -28,12 +38,131 @@ import org.apache.commons.lang.math.NumberUtils;
 /**
  * A JSONTokener takes a source string and extracts characters and tokens from
  * it. It is used by the JSONObject and JSONArray constructors to parse JSON
- * source strings.
+ * source strings.<br>
+ * A JSONTokener may also be backed by a Reader, in which case characters are
+ * pulled through a bounded sliding buffer and the whole text is never held in
+ * memory. Only a short window of already consumed characters is kept, enough
+ * for {@link #back()} and for error messages.
  *
  * @author JSON.org
  * @version 4
  */
 public class JSONTokener {
+   /**
+    * Default size of the sliding buffer used by stream-backed tokeners.
+    */
+   public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+   /**
+    * Number of consumed characters retained behind the current index when the
+    * sliding buffer is compacted.
+    */
+   private static final int HISTORY_SIZE = 64;
+
+   /**
+    * Number of bytes of a file mapped at a time by
+    * {@link #fromFileChannel(FileChannel)}.
+    */
+   private static final int MAPPED_WINDOW_SIZE = 1 << 26;
+
+   private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+   /**
+    * Creates a JSONTokener that reads UTF-8 bytes. The bytes are decoded as
+    * they are consumed, the text is never held as a whole String.
+    *
+    * @param bytes A source array, it must not be modified while the tokener
+    *        is in use.
+    */
+   public static JSONTokener fromBytes( byte[] bytes ) {
+      return fromBytes( bytes, 0, bytes != null ? bytes.length : 0 );
+   }
+
+   /**
+    * Creates a JSONTokener that reads length UTF-8 bytes of an array starting
+    * at offset. The bytes are decoded as they are consumed, the text is never
+    * held as a whole String.
+    *
+    * @param bytes A source array, it must not be modified while the tokener
+    *        is in use.
+    * @param offset Index of the first byte.
+    * @param length Number of bytes to read.
+    */
+   public static JSONTokener fromBytes( byte[] bytes, int offset, int length ) {
+      if( bytes != null && (offset < 0 || length < 0 || offset > bytes.length - length) ){
+         throw new IndexOutOfBoundsException( "offset=" + offset + ", length=" + length
+               + ", array length=" + bytes.length );
+      }
+      return fromReader( bytes != null ? new Utf8Reader( bytes, offset, length ) : null );
+   }
+
+   /**
+    * Creates a JSONTokener that reads the remaining UTF-8 bytes of a buffer,
+    * heap or direct. The bytes are decoded as they are consumed, the text is
+    * never held as a whole String. The position of the buffer is not changed.
+    *
+    * @param buffer A source buffer, it must not be modified while the tokener
+    *        is in use.
+    */
+   public static JSONTokener fromByteBuffer( ByteBuffer buffer ) {
+      return fromReader( buffer != null ? new Utf8Reader( buffer ) : null );
+   }
+
+   /**
+    * Creates a JSONTokener that reads a file as UTF-8, from the current
+    * position of channel to its end. The file is memory mapped a window at a
+    * time and decoded as it is consumed, so its text is neither copied to the
+    * heap nor held as a whole String. The channel is neither moved nor closed
+    * by the tokener.
+    *
+    * @param channel A source channel, the file must not be truncated while
+    *        the tokener is in use.
+    * @throws JSONException if the file can not be mapped
+    */
+   public static JSONTokener fromFileChannel( FileChannel channel ) {
+      if( channel == null ){
+         return fromReader( null );
+      }
+      try{
+         return fromReader( new Utf8Reader( channel, MAPPED_WINDOW_SIZE ) );
+      }catch( IOException ioe ){
+         throw new JSONException( ioe );
+      }
+   }
+
+   /**
+    * Creates a JSONTokener that reads from an InputStream. The stream is
+    * decoded as UTF-8 and is not closed by the tokener.
+    *
+    * @param in A source stream.
+    */
+   public static JSONTokener fromInputStream( InputStream in ) {
+      return fromReader( in != null ? new InputStreamReader( in, UTF_8 ) : null );
+   }
+
+   /**
+    * Creates a JSONTokener that reads from a Reader through a sliding buffer
+    * of {@link #DEFAULT_BUFFER_SIZE} characters. The reader is not closed by
+    * the tokener.
+    *
+    * @param reader A source reader.
+    */
+   public static JSONTokener fromReader( Reader reader ) {
+      return fromReader( reader, DEFAULT_BUFFER_SIZE );
+   }
+
+   /**
+    * Creates a JSONTokener that reads from a Reader through a sliding buffer.
+    * The buffer only grows past bufferSize when a lookahead requires it. The
+    * reader is not closed by the tokener.
+    *
+    * @param reader A source reader.
+    * @param bufferSize The initial size of the sliding buffer.
+    */
+   public static JSONTokener fromReader( Reader reader, int bufferSize ) {
+      return new JSONTokener( reader, bufferSize );
+   }
+
    /**
     * Get the hex value of a character (base16).
     *
@@ -55,15 +184,67 @@ public class JSONTokener {
    }
 
    /**
-    * The index of the next character.
+    * The absolute index of the next character, a long as a stream may be
+    * longer than an int can count.
+    */
+   private long myIndex;
+
+   /**
+    * The index reset() moves back to.
     */
-   private int myIndex;
+   private long myStart;
 
    /**
     * The source string being tokenized.
     */
    private String mySource;
 
+   /**
+    * The source reader, null if this tokener is backed by a string.
+    */
+   private Reader myReader;
+
+   /**
+    * The sliding buffer of a stream-backed tokener.
+    */
+   private char[] myBuffer;
+
+   /**
+    * Absolute index of the first character held in myBuffer.
+    */
+   private long myBufferOffset;
+
+   /**
+    * Number of valid characters held in myBuffer.
+    */
+   private int myBufferLength;
+
+   /**
+    * Absolute index that must be kept in the buffer, -1 if none.
+    */
+   private long myMark = -1;
+
+   /**
+    * Whether the source reader has been exhausted.
+    */
+   private boolean myEof;
+
+   /**
+    * Whether the last call to next() was past the end of the source. back()
+    * then stays at the end instead of returning to the last character.
+    */
+   private boolean myPastEnd;
+
+   /**
+    * Keys read so far, null until a configuration asks for them to be reused.
+    */
+   private KeySymbolTable myKeys;
+
+   /**
+    * Holds the characters of a quoted key while it is looked up in myKeys.
+    */
+   private char[] myKeyBuffer;
+
    /**
     * Construct a JSONTokener from a string.
     *
@@ -89,26 +270,88 @@ public class JSONTokener {
       this.mySource = s;
    }
 
+   /**
+    * Construct a JSONTokener over a string that has already been trimmed and
+    * checked, positioned at index.
+    */
+   private JSONTokener( String s, int index ) {
+      this.mySource = s;
+      this.myIndex = index;
+      this.myStart = index;
+   }
+
+   /**
+    * Construct a stream-backed JSONTokener.
+    */
+   private JSONTokener( Reader reader, int bufferSize ) {
+      this.myIndex = 0;
+      if( reader == null ){
+         this.mySource = "";
+         return;
+      }
+      if( bufferSize < 1 ){
+         throw new JSONException( "Buffer size must be greater than 0" );
+      }
+      this.myReader = reader;
+      this.myBuffer = new char[bufferSize];
+      // skip leading whitespace, as the String constructor trims its input
+      while( available( this.myIndex ) && charAt( this.myIndex ) <= ' ' ){
+         this.myIndex += 1;
+      }
+   }
+
    /**
     * Back up one character. This provides a sort of lookahead capability, so
     * that you can test for a digit or letter before attempting to parse the
     * next number or identifier.
     */
    public void back() {
-      if( this.myIndex > 0 ){
+      if( this.myPastEnd ){
+         this.myPastEnd = false;
+      }else if( this.myIndex > 0 ){
          this.myIndex -= 1;
       }
    }
 
+   /**
+    * Returns the length of the source string. A stream-backed tokener returns
+    * the number of characters read so far, at most Integer.MAX_VALUE.
+    */
    public int length() {
-      if( this.mySource == null ){
-         return 0;
+      return (int) Math.min( end(), Integer.MAX_VALUE );
+   }
+
+   /**
+    * Tests if the remaining text starts with prefix, without consuming any
+    * character. Unlike <code>matches( prefix + ".*" )</code> this does not
+    * copy the remaining text.
+    */
+   public boolean startsWith( String prefix ) {
+      int len = prefix.length();
+      if( len > 0 && !available( this.myIndex + len - 1 ) ){
+         return false;
       }
-      return this.mySource.length();
+      for( int i = 0; i < len; i++ ){
+         if( charAt( this.myIndex + i ) != prefix.charAt( i ) ){
+            return false;
+         }
+      }
+      return true;
    }
 
+   /**
+    * Tests the remaining text against a pattern. A stream-backed tokener only
+    * tests the text held in its buffer.
+    */
    public boolean matches( String pattern ) {
-      String str = this.mySource.substring( this.myIndex );
+      String str;
+      if( this.myReader != null ){
+         available( this.myIndex + this.myBuffer.length / 2 );
+         int start = (int) (Math.min( this.myIndex, end() ) - this.myBufferOffset);
+         str = new String( this.myBuffer, start, this.myBufferLength - start );
+      }else{
+         str = this.mySource.substring( (int) this.myIndex );
+      }
       return RegexpUtils.getMatcher( pattern )
             .matches( str );
    }
@@ -120,7 +363,7 @@ public class JSONTokener {
     * @return true if not yet at the end of the source.
     */
    public boolean more() {
-      return this.myIndex < this.mySource.length();
+      return available( this.myIndex );
    }
 
    /**
@@ -130,10 +373,12 @@ public class JSONTokener {
     */
    public char next() {
       if( more() ){
-         char c = this.mySource.charAt( this.myIndex );
+         char c = charAt( this.myIndex );
          this.myIndex += 1;
+         this.myPastEnd = false;
          return c;
       }
+      this.myPastEnd = true;
       return 0;
    }
 
@@ -162,13 +407,12 @@ public class JSONTokener {
     *         remaining in the source string.
     */
    public String next( int n ) {
-      int i = this.myIndex;
-      int j = i + n;
-      if( j >= this.mySource.length() ){
+      long i = this.myIndex;
+      if( !available( i + n ) ){
          throw syntaxError( "Substring bounds error" );
       }
       this.myIndex += n;
-      return this.mySource.substring( i, j );
+      return text( i, i + n );
    }
 
    /**
@@ -216,6 +460,34 @@ public class JSONTokener {
       }
    }
 
+   /**
+    * Get the next key of an object. When the configuration sets a key symbol
+    * table size, keys are looked up in a table shared by every object read
+    * through this tokener and equal keys are returned as the same String. A
+    * quoted key found in the table doesn't allocate a new String.
+    *
+    * @throws JSONException If syntax error.
+    * @return The key.
+    * @see JsonConfig#setKeySymbolTableSize(int)
+    */
+   public String nextKey( JsonConfig jsonConfig ) {
+      int tableSize = jsonConfig.getKeySymbolTableSize();
+      if( tableSize <= 0 ){
+         return nextValue( jsonConfig ).toString();
+      }
+      if( this.myKeys == null ){
+         this.myKeys = new KeySymbolTable( tableSize );
+      }
+      char c = nextClean();
+      if( c == '"' || c == '\'' ){
+         return nextSymbol( c );
+      }
+      if( c != 0 ){
+         back();
+      }
+      return this.myKeys.intern( nextValue( jsonConfig ).toString() );
+   }
+
    /**
     * Return the characters up to the next close quote character. Backslash
     * processing is done. The formal JSON format does not allow strings in
@@ -350,6 +622,22 @@ public class JSONTokener {
          case '[':
             back();
             return JSONArray.fromObject( this, jsonConfig );
+         case '-':
+         case '0':
+         case '1':
+         case '2':
+         case '3':
+         case '4':
+         case '5':
+         case '6':
+         case '7':
+         case '8':
+         case '9':
+            Number number = nextNumber( c );
+            if( number != null ){
+               return number;
+            }
+            break;
          default:
             // empty
       }
@@ -443,14 +731,69 @@ public class JSONTokener {
     */
    public char peek() {
       if( more() ){
-         char c = this.mySource.charAt( this.myIndex );
+         char c = charAt( this.myIndex );
          return c;
       }
       return 0;
    }
 
+   /**
+    * Moves back to the start of the source, or of the value a tokener returned
+    * by {@link #skipValue(JsonConfig)} reads. A stream-backed tokener can only
+    * be reset while the start of the stream is still buffered.
+    *
+    * @throws JSONException if the start of the stream is no longer available.
+    */
    public void reset() {
-      this.myIndex = 0;
+      if( this.myReader != null && this.myBufferOffset > 0 ){
+         throw syntaxError( "Unable to reset, the start of the stream was discarded" );
+      }
+      this.myIndex = this.myStart;
+      this.myPastEnd = false;
+   }
+
+   /**
+    * Skips the next object or array without building it. The skipped text is
+    * checked the way nextValue would parse it with jsonConfig, so it fails
+    * with the same syntax errors, but only keys and unquoted values are read
+    * as Strings.<br>
+    * The returned tokener is positioned at the start of the skipped value and
+    * {@link #reset()} moves it back there, so it can be parsed later, more
+    * than once if need be. A string-backed tokener shares its source string,
+    * a stream-backed one copies the text of the value.
+    *
+    * @return a tokener for the skipped value, or null if the next value is not
+    *         an object or array, in that case only whitespace and comments are
+    *         consumed.
+    * @throws JSONException if the value is not valid.
+    */
+   public JSONTokener skipValue( JsonConfig jsonConfig ) {
+      char c = nextClean();
+      if( c != '{' && c != '[' ){
+         if( c != 0 ){
+            back();
+         }
+         return null;
+      }
+      back();
+      long start = this.myIndex;
+      long mark = this.myMark;
+      if( mark < 0 ){
+         this.myMark = start;
+      }
+      try{
+         if( c == '{' ){
+            skipObject( jsonConfig );
+         }else{
+            skipArray( jsonConfig );
+         }
+         if( this.myReader != null ){
+            return new JSONTokener( text( start, this.myIndex ), 0 );
+         }
+         return new JSONTokener( this.mySource, (int) start );
+      }finally{
+         this.myMark = mark;
+      }
    }
 
    /**
@@ -460,7 +803,25 @@ public class JSONTokener {
     * @param to A string to skip past.
     */
    public void skipPast( String to ) {
-      this.myIndex = this.mySource.indexOf( to, this.myIndex );
+      if( this.myReader != null ){
+         int n = to.length();
+         for( ;; ){
+            if( !available( this.myIndex + n - 1 ) ){
+               this.myIndex = end();
+               return;
+            }
+            int k = 0;
+            while( k < n && charAt( this.myIndex + k ) == to.charAt( k ) ){
+               k++;
+            }
+            if( k == n ){
+               this.myIndex += n;
+               return;
+            }
+            this.myIndex += 1;
+         }
+      }
+      this.myIndex = this.mySource.indexOf( to, (int) this.myIndex );
       if( this.myIndex < 0 ){
          this.myIndex = this.mySource.length();
       }else{
@@ -478,14 +839,22 @@ public class JSONTokener {
     */
    public char skipTo( char to ) {
       char c;
-      int index = this.myIndex;
-      do{
-         c = next();
-         if( c == 0 ){
-            this.myIndex = index;
-            return c;
-         }
-      }while( c != to );
+      long index = this.myIndex;
+      long mark = this.myMark;
+      if( mark < 0 ){
+         this.myMark = index;
+      }
+      try{
+         do{
+            c = next();
+            if( c == 0 ){
+               this.myIndex = index;
+               return c;
+            }
+         }while( c != to );
+      }finally{
+         this.myMark = mark;
+      }
       back();
       return c;
    }
@@ -506,6 +875,497 @@ public class JSONTokener {
     * @return " at character [this.myIndex] of [this.mySource]"
     */
    public String toString() {
+      if( this.myReader != null ){
+         return " at character " + this.myIndex + " of ..."
+               + new String( this.myBuffer, 0, this.myBufferLength );
+      }
       return " at character " + this.myIndex + " of " + this.mySource;
    }
+
+   /**
+    * Keeps the text from the current index on available until
+    * {@link #rewind()} or {@link #unmark()} is called, so that a stream-backed
+    * tokener can go back to it.
+    */
+   void mark() {
+      this.myMark = this.myIndex;
+   }
+
+   /**
+    * Goes back to the index saved by {@link #mark()} and clears the mark.
+    */
+   void rewind() {
+      if( this.myMark >= 0 ){
+         this.myIndex = this.myMark;
+         this.myMark = -1;
+         this.myPastEnd = false;
+      }
+   }
+
+   /**
+    * Clears the mark, the text before the current index may be discarded.
+    */
+   void unmark() {
+      this.myMark = -1;
+   }
+
+   /**
+    * Reads a number written as the JSON grammar allows, whose first character
+    * has already been consumed, without going through a StringBuffer or
+    * exceptions. Returns the same value the general path of nextValue() would,
+    * or null without consuming anything if the token is not such a number
+    * (octal, hexadecimal, a leading '+', a type suffix, ...).
+    */
+   private Number nextNumber( char first ) {
+      long start = this.myIndex - 1;
+      long i = this.myIndex;
+      boolean negative = first == '-';
+      if( negative ){
+         if( !available( i ) ){
+            return null;
+         }
+         first = charAt( i++ );
+         if( first < '0' || first > '9' ){
+            return null;
+         }
+      }
+
+      // integer part, accumulated negatively so Long.MIN_VALUE fits
+      long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+      long multmin = limit / 10;
+      long value = -(first - '0');
+      boolean overflow = false;
+      char c = 0;
+      if( first == '0' ){
+         if( available( i ) && (c = charAt( i )) >= '0' && c <= '9' ){
+            return null;
+         }
+      }else{
+         while( available( i ) && (c = charAt( i )) >= '0' && c <= '9' ){
+            int digit = c - '0';
+            if( value < multmin || value * 10 < limit + digit ){
+               overflow = true;
+            }else{
+               value = value * 10 - digit;
+            }
+            i++;
+         }
+      }
+      long mantissaEnd = i;
+
+      boolean decimal = false;
+      if( available( i ) && charAt( i ) == '.' ){
+         i++;
+         if( !available( i ) || (c = charAt( i )) < '0' || c > '9' ){
+            return null;
+         }
+         while( available( i ) && (c = charAt( i )) >= '0' && c <= '9' ){
+            i++;
+         }
+         decimal = true;
+      }
+      long exponentStart = -1;
+      if( available( i ) && ((c = charAt( i )) == 'e' || c == 'E') ){
+         i++;
+         exponentStart = i;
+         if( available( i ) && ((c = charAt( i )) == '+' || c == '-') ){
+            i++;
+         }
+         if( !available( i ) || (c = charAt( i )) < '0' || c > '9' ){
+            return null;
+         }
+         while( available( i ) && (c = charAt( i )) >= '0' && c <= '9' ){
+            i++;
+         }
+      }
+      long end = i;
+
+      // the general path reads up to a delimiter and trims the token
+      while( available( i ) && charAt( i ) == ' ' ){
+         i++;
+      }
+      if( available( i ) ){
+         c = charAt( i );
+         if( c >= ' ' && ",:]}/\\\"[{;=#".indexOf( c ) < 0 ){
+            return null;
+         }
+         this.myIndex = i;
+      }else{
+         // as next() at the end followed by back()
+         this.myIndex = i;
+      }
+
+      if( !decimal && exponentStart < 0 ){
+         if( overflow ){
+            return new BigInteger( text( start, end ) );
+         }
+         if( !negative ){
+            value = -value;
+         }
+         if( value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ){
+            return new Integer( (int) value );
+         }
+         return new Long( value );
+      }
+
+      /*
+       * Same choice as NumberUtils.createNumber(): a Float unless it overflows
+       * or underflows, then a Double, then a BigDecimal. A zero is accepted if
+       * the mantissa before the dot (sign included) and the exponent (sign
+       * included) are all zeros.
+       */
+      String s = text( start, end );
+      boolean allZeros = allZeros( start, mantissaEnd )
+            && (exponentStart < 0 || allZeros( exponentStart, end ));
+      float f = Float.parseFloat( s );
+      if( !(Float.isInfinite( f ) || (f == 0.0F && !allZeros)) ){
+         return new Float( f );
+      }
+      double d = Double.parseDouble( s );
+      if( !(Double.isInfinite( d ) || (d == 0.0D && !allZeros)) ){
+         return new Double( d );
+      }
+      return new BigDecimal( s );
+   }
+
+   /**
+    * Reads the rest of a quoted key like nextString() does, looking it up in
+    * myKeys instead of building a new String.
+    */
+   private String nextSymbol( char quote ) {
+      char[] buffer = this.myKeyBuffer;
+      if( buffer == null ){
+         buffer = new char[32];
+      }
+      int length = 0;
+      for( ;; ){
+         char c = next();
+         switch( c ){
+            case 0:
+            case '\n':
+            case '\r':
+               throw syntaxError( "Unterminated string" );
+            case '\\':
+               c = next();
+               switch( c ){
+                  case 'b':
+                     c = '\b';
+                     break;
+                  case 't':
+                     c = '\t';
+                     break;
+                  case 'n':
+                     c = '\n';
+                     break;
+                  case 'f':
+                     c = '\f';
+                     break;
+                  case 'r':
+                     c = '\r';
+                     break;
+                  case 'u':
+                     c = (char) Integer.parseInt( next( 4 ), 16 );
+                     break;
+                  case 'x':
+                     c = (char) Integer.parseInt( next( 2 ), 16 );
+                     break;
+                  default:
+                     // the escaped character itself
+               }
+               break;
+            default:
+               if( c == quote ){
+                  this.myKeyBuffer = buffer;
+                  return this.myKeys.get( buffer, length );
+               }
+         }
+         if( length == buffer.length ){
+            char[] b = new char[buffer.length * 2];
+            System.arraycopy( buffer, 0, b, 0, length );
+            buffer = b;
+         }
+         buffer[length++] = c;
+      }
+   }
+
+   /**
+    * Skips an array as JSONArray reads it from a tokener.
+    */
+   private void skipArray( JsonConfig jsonConfig ) {
+      next();
+      if( nextClean() == ']' ){
+         return;
+      }
+      back();
+      for( ;; ){
+         if( nextClean() == ',' ){
+            back();
+         }else{
+            back();
+            Object value = skipNextValue( jsonConfig, true );
+            if( JSONUtils.isFunctionHeader( value ) ){
+               skipFunctionBody( value );
+            }
+         }
+         switch( nextClean() ){
+            case ';':
+            case ',':
+               char c = nextClean();
+               if( c == ']' ){
+                  return;
+               }
+               back();
+               if( c == 0 && peek() == ',' ){
+                  // back() stepped onto the last ',', JSONArray would read it
+                  // again and again
+                  throw syntaxError( "A JSONArray text must end with ']'" );
+               }
+               break;
+            case ']':
+               return;
+            default:
+               throw syntaxError( "Expected a ',' or ']'" );
+         }
+      }
+   }
+
+   /**
+    * Skips the body of a function whose header has been read, as JSONObject
+    * and JSONArray read it.
+    */
+   private void skipFunctionBody( Object header ) {
+      int depth = 0;
+      int length = 0;
+      for( ;; ){
+         char c = next();
+         if( c == 0 ){
+            break;
+         }
+         if( c == '{' ){
+            depth++;
+         }
+         if( c == '}' ){
+            depth--;
+         }
+         length++;
+         if( depth == 0 ){
+            break;
+         }
+      }
+      if( depth != 0 || length < 2 ){
+         throw syntaxError( "Unbalanced '{' or '}' on prop: " + header );
+      }
+   }
+
+   /**
+    * Skips the next value, reading it only if it is unquoted text, or a quoted
+    * string that may be a function header when readStrings is true.
+    *
+    * @return the value read, null if it was skipped
+    */
+   private Object skipNextValue( JsonConfig jsonConfig, boolean readStrings ) {
+      char c = nextClean();
+      switch( c ){
+         case '"':
+         case '\'':
+            if( readStrings && peek() == 'f' ){
+               return nextString( c );
+            }
+            skipString( c );
+            return null;
+         case '{':
+            back();
+            skipObject( jsonConfig );
+            return null;
+         case '[':
+            back();
+            skipArray( jsonConfig );
+            return null;
+         case 0:
+            break;
+         default:
+            back();
+      }
+      return nextValue( jsonConfig );
+   }
+
+   /**
+    * Skips an object as JSONObject reads it from a tokener.
+    */
+   private void skipObject( JsonConfig jsonConfig ) {
+      next();
+      for( ;; ){
+         char c = nextClean();
+         switch( c ){
+            case 0:
+               throw syntaxError( "A JSONObject text must end with '}'" );
+            case '}':
+               return;
+            default:
+               back();
+               // the key, read as nextKey reads it
+               skipNextValue( jsonConfig, false );
+         }
+
+         c = nextClean();
+         if( c == '=' ){
+            if( next() != '>' ){
+               back();
+            }
+         }else if( c != ':' ){
+            throw syntaxError( "Expected a ':' after a key" );
+         }
+
+         // a quoted value is never taken for a function header
+         Object value = skipNextValue( jsonConfig, false );
+         if( JSONUtils.isFunctionHeader( value ) ){
+            skipFunctionBody( value );
+         }
+
+         switch( nextClean() ){
+            case ';':
+            case ',':
+               if( nextClean() == '}' ){
+                  return;
+               }
+               back();
+               break;
+            case '}':
+               return;
+            default:
+               throw syntaxError( "Expected a ',' or '}'" );
+         }
+      }
+   }
+
+   /**
+    * Skips the rest of a string, the opening quote has already been consumed.
+    */
+   private void skipString( char quote ) {
+      for( ;; ){
+         char c = next();
+         switch( c ){
+            case 0:
+            case '\n':
+            case '\r':
+               throw syntaxError( "Unterminated string" );
+            case '\\':
+               // escapes fail as nextString would fail on them
+               c = next();
+               if( c == 'u' ){
+                  Integer.parseInt( next( 4 ), 16 );
+               }else if( c == 'x' ){
+                  Integer.parseInt( next( 2 ), 16 );
+               }
+               break;
+            default:
+               if( c == quote ){
+                  return;
+               }
+         }
+      }
+   }
+
+   /**
+    * Returns true if the characters between the given absolute indexes are all
+    * '0' and there is at least one.
+    */
+   private boolean allZeros( long start, long end ) {
+      for( long i = start; i < end; i++ ){
+         if( charAt( i ) != '0' ){
+            return false;
+         }
+      }
+      return end > start;
+   }
+
+   /**
+    * Returns true if the character at the given absolute index can be read,
+    * filling the sliding buffer from the reader if needed.
+    */
+   private boolean available( long index ) {
+      if( this.myReader == null ){
+         return index < this.mySource.length();
+      }
+      while( index >= this.myBufferOffset + this.myBufferLength ){
+         if( this.myEof ){
+            return false;
+         }
+         fill();
+      }
+      return true;
+   }
+
+   /**
+    * Returns the character at the given absolute index. The index must be
+    * available.
+    */
+   private char charAt( long index ) {
+      if( this.myReader == null ){
+         return this.mySource.charAt( (int) index );
+      }
+      if( index < this.myBufferOffset ){
+         throw syntaxError( "Character " + index + " is no longer buffered" );
+      }
+      return this.myBuffer[(int) (index - this.myBufferOffset)];
+   }
+
+   /**
+    * Returns the text between the given absolute indexes, which must still be
+    * available.
+    */
+   private String text( long start, long end ) {
+      if( this.myReader == null ){
+         return this.mySource.substring( (int) start, (int) end );
+      }
+      return new String( this.myBuffer, (int) (start - this.myBufferOffset), (int) (end - start) );
+   }
+
+   /**
+    * Returns the absolute index past the last character read so far.
+    */
+   private long end() {
+      if( this.myReader != null ){
+         return this.myBufferOffset + this.myBufferLength;
+      }
+      if( this.mySource == null ){
+         return 0;
+      }
+      return this.mySource.length();
+   }
+
+   /**
+    * Discards consumed characters from the sliding buffer and reads more from
+    * the reader. The buffer only grows when a mark or a long lookahead
+    * prevents it from being compacted.
+    */
+   private void fill() {
+      long keep = Math.max( 0, this.myIndex - HISTORY_SIZE );
+      if( this.myMark >= 0 && this.myMark < keep ){
+         keep = this.myMark;
+      }
+      // never more than the buffer holds, so it fits an int
+      int discard = (int) (keep - this.myBufferOffset);
+      if( discard > 0 ){
+         System.arraycopy( this.myBuffer, discard, this.myBuffer, 0, this.myBufferLength - discard );
+         this.myBufferOffset += discard;
+         this.myBufferLength -= discard;
+      }
+      if( this.myBufferLength == this.myBuffer.length ){
+         char[] buffer = new char[this.myBuffer.length * 2];
+         System.arraycopy( this.myBuffer, 0, buffer, 0, this.myBufferLength );
+         this.myBuffer = buffer;
+      }
+      try{
+         int n = this.myReader.read( this.myBuffer, this.myBufferLength, this.myBuffer.length
+               - this.myBufferLength );
+         if( n < 0 ){
+            this.myEof = true;
+         }else{
+            this.myBufferLength += n;
+         }
+      }catch( IOException ioe ){
+         throw new JSONException( ioe );
+      }
+   }
 }
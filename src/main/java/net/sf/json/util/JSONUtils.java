@@ -16,6 +16,8 @@
 
 package net.sf.json.util;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Collection;
@@ -57,6 +59,7 @@ public final class JSONUtils {
    private static final String FUNCTION_PARAMS_PATTERN = "^function[ ]?\\((.*?)\\).*";
    private static final String FUNCTION_PATTERN = "^function[ ]?\\(.*?\\)[ \n\t]*\\{.*?\\}$";
    private static final String FUNCTION_PREFIX = "function";
+   private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
    private static final MorpherRegistry morpherRegistry = new MorpherRegistry();
 
@@ -276,7 +279,9 @@ public final class JSONUtils {
    public static boolean isFunction( Object obj ) {
       if( obj instanceof String ){
          String str = (String) obj;
-         return str.startsWith( FUNCTION_PREFIX ) && RegexpUtils.getMatcher( FUNCTION_PATTERN, true ).matches( str );
+         // both ends are checked before running the regexp
+         return str.startsWith( FUNCTION_PREFIX ) && str.endsWith( "}" )
+               && RegexpUtils.getMatcher( FUNCTION_PATTERN, true ).matches( str );
       }
       if( obj instanceof JSONFunction ){
          return true;
@@ -291,7 +296,8 @@ public final class JSONUtils {
    public static boolean isFunctionHeader( Object obj ) {
       if( obj instanceof String ){
          String str = (String) obj;
-         return str.startsWith( FUNCTION_PREFIX ) && RegexpUtils.getMatcher( FUNCTION_HEADER_PATTERN, true ).matches( str );
+         return str.startsWith( FUNCTION_PREFIX ) && str.endsWith( ")" )
+               && RegexpUtils.getMatcher( FUNCTION_HEADER_PATTERN, true ).matches( str );
       }
       return false;
    }
@@ -469,83 +475,119 @@ public final class JSONUtils {
     * @return A String correctly formatted for insertion in a JSON text.
     */
    public static String quote( String string ) {
-      if( isFunction( string ) ) {
-         return string;
-      }
       if( string == null || string.length() == 0 ) {
          return "\"\"";
       }
+      StringBuilder sb = new StringBuilder( string.length() + 16 );
+      try {
+         quote( string, sb );
+      } catch( IOException e ) {
+         // StringBuilder does not throw IOException
+         throw new JSONException( e );
+      }
+      return sb.toString();
+   }
+
+   /**
+    * Appends a string in double quotes with backslash sequences in all the
+    * right places, same as {@link #quote(String)} but without creating
+    * intermediate strings. Runs of characters that need no escaping are
+    * appended in bulk.<br>
+    * <strong>CAUTION:</strong> if <code>string</code> represents a
+    * javascript function, translation of characters will not take place. This
+    * will produce a non-conformant JSON text.
+    *
+    * @param string A CharSequence, null is appended as an empty string
+    * @param out where the quoted string is appended
+    * @throws IOException if out fails
+    */
+   public static void quote( CharSequence string, Appendable out ) throws IOException {
+      if( string == null || string.length() == 0 ) {
+         out.append( "\"\"" );
+         return;
+      }
+      if( startsWith( string, FUNCTION_PREFIX ) && isFunction( string.toString() ) ) {
+         appendRun( string, 0, string.length(), out );
+         return;
+      }
 
-      char b;
-      char c = 0;
-      int i;
       int len = string.length();
-      StringBuffer sb = new StringBuffer( len * 2 );
-      String t;
-      char[] chars = string.toCharArray();
-      char[] buffer = new char[1030];
-      int bufferIndex = 0;
-      sb.append( '"' );
-      for( i = 0; i < len; i += 1 ) {
-         if( bufferIndex > 1024 ) {
-            sb.append( buffer, 0, bufferIndex );
-            bufferIndex = 0;
-         }
-         b = c;
-         c = chars[i];
+      int start = 0;
+      out.append( '"' );
+      for( int i = 0; i < len; i++ ) {
+         char c = string.charAt( i );
+         char escape;
          switch( c ) {
             case '\\':
             case '"':
-               buffer[bufferIndex++] = '\\';
-               buffer[bufferIndex++] = c;
+               escape = c;
                break;
             case '/':
-               if( b == '<' ) {
-                  buffer[bufferIndex++] = '\\';
+               if( i == 0 || string.charAt( i - 1 ) != '<' ) {
+                  continue;
                }
-               buffer[bufferIndex++] = c;
+               escape = c;
+               break;
+            case '\b':
+               escape = 'b';
+               break;
+            case '\t':
+               escape = 't';
+               break;
+            case '\n':
+               escape = 'n';
+               break;
+            case '\f':
+               escape = 'f';
+               break;
+            case '\r':
+               escape = 'r';
                break;
             default:
-               if( c < ' ' ) {
-                  switch( c ) {
-                     case '\b':
-                        buffer[bufferIndex++] = '\\';
-                        buffer[bufferIndex++] = 'b';
-                        break;
-                     case '\t':
-                        buffer[bufferIndex++] = '\\';
-                        buffer[bufferIndex++] = 't';
-                        break;
-                     case '\n':
-                        buffer[bufferIndex++] = '\\';
-                        buffer[bufferIndex++] = 'n';
-                        break;
-                     case '\f':
-                        buffer[bufferIndex++] = '\\';
-                        buffer[bufferIndex++] = 'f';
-                        break;
-                     case '\r':
-                        buffer[bufferIndex++] = '\\';
-                        buffer[bufferIndex++] = 'r';
-                        break;
-                     default:
-                        t = "000" + Integer.toHexString( c );
-                        int tLength = t.length();
-                        buffer[bufferIndex++] = '\\';
-                        buffer[bufferIndex++] = 'u';
-                        buffer[bufferIndex++] = t.charAt( tLength - 4 );
-                        buffer[bufferIndex++] = t.charAt( tLength - 3 );
-                        buffer[bufferIndex++] = t.charAt( tLength - 2 );
-                        buffer[bufferIndex++] = t.charAt( tLength - 1 );
-                  }
-               } else {
-                  buffer[bufferIndex++] = c;
+               if( c >= ' ' ) {
+                  continue;
                }
+               escape = 'u';
+         }
+         appendRun( string, start, i, out );
+         start = i + 1;
+         out.append( '\\' );
+         out.append( escape );
+         if( escape == 'u' ) {
+            out.append( '0' );
+            out.append( '0' );
+            out.append( HEX_DIGITS[(c >> 4) & 0xF] );
+            out.append( HEX_DIGITS[c & 0xF] );
          }
       }
-      sb.append( buffer, 0, bufferIndex );
-      sb.append( '"' );
-      return sb.toString();
+      appendRun( string, start, len, out );
+      out.append( '"' );
+   }
+
+   private static void appendRun( CharSequence string, int start, int end, Appendable out )
+         throws IOException {
+      if( start == end ) {
+         return;
+      }
+      if( out instanceof Writer && string instanceof String ) {
+         // Writer.append( CharSequence, int, int ) creates a substring
+         ((Writer) out).write( (String) string, start, end - start );
+      } else {
+         out.append( string, start, end );
+      }
+   }
+
+   private static boolean startsWith( CharSequence string, String prefix ) {
+      int len = prefix.length();
+      if( string.length() < len ) {
+         return false;
+      }
+      for( int i = 0; i < len; i++ ) {
+         if( string.charAt( i ) != prefix.charAt( i ) ) {
+            return false;
+         }
+      }
+      return true;
    }
 
     /**
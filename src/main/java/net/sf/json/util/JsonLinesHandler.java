@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.util;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONException;
+
+/**
+ * Receives the records read by a {@link JsonLinesReader}.
+ */
+public interface JsonLinesHandler {
+
+   /**
+    * Triggered when a line could not be parsed. The line is skipped.
+    *
+    * @param jsone the parse error
+    * @param lineNumber the number of the line, starting at 1
+    * @return true to keep reading, false to stop
+    */
+   boolean onMalformedLine( JSONException jsone, int lineNumber );
+
+   /**
+    * Triggered for each record.
+    *
+    * @param json the record, a JSONObject, JSONArray or JSONNull
+    * @param lineNumber the number of the line the record was read from,
+    *        starting at 1
+    * @return true to keep reading, false to stop
+    */
+   boolean onRecord( JSON json, int lineNumber );
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.util;
+
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import net.sf.json.JsonConfig;
+
+/**
+ * Reads newline-delimited JSON (JSON Lines), one JSONObject, JSONArray or null
+ * per line, for example
+ *
+ * <pre>
+ * JsonLinesReader reader = new JsonLinesReader( in, jsonConfig );
+ * while( reader.hasNext() ){
+ *    JSONObject record = (JSONObject) reader.next();
+ *    ...
+ * }</pre>
+ *
+ * All records are parsed by one stream-backed JSONTokener, so its buffer and
+ * key symbol table are reused from one record to the next. Blank lines are
+ * ignored. A record must end its line; a line that can't be parsed is skipped
+ * as a whole and reading resumes on the next one.<br>
+ * Line numbers count line breaks between records, a record is expected not to
+ * span several lines.
+ */
+public class JsonLinesReader implements Iterator<JSON> {
+   private JSONException error;
+   private JsonConfig jsonConfig;
+   /** number of the line being read */
+   private int line = 1;
+   private int lineNumber;
+   private JSON next;
+   private boolean skipMalformedLines;
+   private int skippedLineCount;
+   private JSONTokener tokener;
+
+   /**
+    * Creates a JsonLinesReader that reads a stream through a sliding buffer.
+    * The reader is not closed.
+    */
+   public JsonLinesReader( Reader reader ) {
+      this( JSONTokener.fromReader( reader ), new JsonConfig() );
+   }
+
+   /**
+    * Creates a JsonLinesReader that reads a stream through a sliding buffer.
+    * The reader is not closed.
+    */
+   public JsonLinesReader( Reader reader, JsonConfig jsonConfig ) {
+      this( JSONTokener.fromReader( reader ), jsonConfig );
+   }
+
+   /**
+    * Creates a JsonLinesReader that reads the records of a JSONTokener.
+    */
+   public JsonLinesReader( JSONTokener tokener, JsonConfig jsonConfig ) {
+      if( tokener == null ){
+         throw new JSONException( "tokener is null" );
+      }
+      this.tokener = tokener;
+      this.jsonConfig = jsonConfig != null ? jsonConfig : new JsonConfig();
+   }
+
+   /**
+    * Returns the number of the line the last record or malformed line was
+    * read from, starting at 1. Returns 0 before the first one.
+    */
+   public int getLineNumber() {
+      return lineNumber;
+   }
+
+   /**
+    * Returns the number of malformed lines read so far, all of which have been
+    * skipped.
+    */
+   public int getSkippedLineCount() {
+      return skippedLineCount;
+   }
+
+   /**
+    * Returns true if there is another record.<br>
+    * Unless malformed lines are skipped, a malformed line is reported here or
+    * by <code>next()</code> with a JSONException. Iteration may go on
+    * afterwards with the following line.
+    *
+    * @throws JSONException if the next line is malformed and malformed lines
+    *         are not skipped
+    */
+   public boolean hasNext() {
+      if( next == null && error == null ){
+         while( advance() && next == null && skipMalformedLines ){
+            error = null;
+         }
+      }
+      if( error != null ){
+         JSONException e = error;
+         error = null;
+         throw e;
+      }
+      return next != null;
+   }
+
+   /**
+    * Returns true if malformed lines are skipped by the iterator instead of
+    * being reported with a JSONException.
+    */
+   public boolean isSkipMalformedLines() {
+      return skipMalformedLines;
+   }
+
+   /**
+    * Returns the next record, a JSONObject, JSONArray or JSONNull.
+    *
+    * @throws JSONException if the next line is malformed and malformed lines
+    *         are not skipped
+    * @throws NoSuchElementException if there are no more records
+    */
+   public JSON next() {
+      if( !hasNext() ){
+         throw new NoSuchElementException();
+      }
+      JSON json = next;
+      next = null;
+      return json;
+   }
+
+   /**
+    * Reads the remaining records, passing each one and each malformed line to
+    * handler until it returns false or the input ends.
+    *
+    * @return the number of records passed to handler
+    */
+   public int read( JsonLinesHandler handler ) {
+      int count = 0;
+      if( next != null ){
+         JSON json = next;
+         next = null;
+         count++;
+         if( !handler.onRecord( json, lineNumber ) ){
+            return count;
+         }
+      }
+      for( ;; ){
+         if( error != null ){
+            JSONException e = error;
+            error = null;
+            if( !handler.onMalformedLine( e, lineNumber ) ){
+               return count;
+            }
+         }
+         if( !advance() ){
+            return count;
+         }
+         if( next != null ){
+            JSON json = next;
+            next = null;
+            count++;
+            if( !handler.onRecord( json, lineNumber ) ){
+               return count;
+            }
+         }
+      }
+   }
+
+   /**
+    * Unsupported.
+    *
+    * @throws UnsupportedOperationException always
+    */
+   public void remove() {
+      throw new UnsupportedOperationException();
+   }
+
+   /**
+    * Sets whether the iterator skips malformed lines instead of reporting
+    * them with a JSONException. Skipped lines are counted by
+    * {@link #getSkippedLineCount()}.
+    */
+   public void setSkipMalformedLines( boolean skipMalformedLines ) {
+      this.skipMalformedLines = skipMalformedLines;
+   }
+
+   /**
+    * Reads the next line holding a record into next, or the error of a
+    * malformed line into error.
+    *
+    * @return false at the end of the input
+    */
+   private boolean advance() {
+      char c;
+      for( ;; ){
+         c = tokener.next();
+         if( c == '\n' ){
+            line++;
+         }else if( c == 0 || c > ' ' ){
+            break;
+         }
+      }
+      if( c == 0 ){
+         return false;
+      }
+      tokener.back();
+      lineNumber = line;
+      tokener.mark();
+      try{
+         switch( c ){
+            case '{':
+               next = JSONObject.fromObject( tokener, jsonConfig );
+               break;
+            case '[':
+               next = JSONArray.fromObject( tokener, jsonConfig );
+               break;
+            default:
+               if( !JSONNull.getInstance()
+                     .equals( tokener.nextValue( jsonConfig ) ) ){
+                  throw tokener.syntaxError( "A JSON Lines record must be an object, an array or null" );
+               }
+               next = JSONNull.getInstance();
+         }
+         for( c = tokener.next(); c != '\n' && c != 0; c = tokener.next() ){
+            if( c > ' ' ){
+               throw tokener.syntaxError( "Expected a line break after the record" );
+            }
+         }
+         tokener.unmark();
+      }catch( JSONException jsone ){
+         next = null;
+         tokener.rewind();
+         for( c = tokener.next(); c != '\n' && c != 0; c = tokener.next() ){
+            // skip the rest of the line
+         }
+         skippedLineCount++;
+         error = new JSONException( "Malformed line " + lineNumber + ": " + jsone.getMessage(), jsone );
+      }
+      if( c == '\n' ){
+         line++;
+      }
+      return true;
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import net.sf.json.JSONException;
+import net.sf.json.JSONSerializer;
+import net.sf.json.JsonConfig;
+
+/**
+ * Writes newline-delimited JSON (JSON Lines), one record per line, for
+ * example
+ *
+ * <pre>
+ * JsonLinesWriter writer = new JsonLinesWriter( out, jsonConfig );
+ * for( Iterator i = beans.iterator(); i.hasNext(); ){
+ *    writer.write( i.next() );
+ * }
+ * writer.flush();</pre>
+ *
+ * Each record is written as compact JSON text with
+ * {@link JSONSerializer#write(Object, Writer, JsonConfig)}.
+ */
+public class JsonLinesWriter {
+   private JsonConfig jsonConfig;
+   private int recordCount;
+   private Writer writer;
+
+   /**
+    * Creates a JsonLinesWriter that writes to writer.
+    */
+   public JsonLinesWriter( Writer writer ) {
+      this( writer, new JsonConfig() );
+   }
+
+   /**
+    * Creates a JsonLinesWriter that writes to writer.
+    */
+   public JsonLinesWriter( Writer writer, JsonConfig jsonConfig ) {
+      if( writer == null ){
+         throw new JSONException( "writer is null" );
+      }
+      this.writer = writer;
+      this.jsonConfig = jsonConfig != null ? jsonConfig : new JsonConfig();
+   }
+
+   /**
+    * Closes the underlying writer.
+    */
+   public void close() throws IOException {
+      writer.close();
+   }
+
+   /**
+    * Flushes the underlying writer.
+    */
+   public void flush() throws IOException {
+      writer.flush();
+   }
+
+   /**
+    * Returns the number of records written so far.
+    */
+   public int getRecordCount() {
+      return recordCount;
+   }
+
+   /**
+    * Writes object as JSON text followed by a line break. Accepts the same
+    * objects as {@link JSONSerializer#toJSON(Object, JsonConfig)}.
+    *
+    * @throws JSONException if the object can not be converted, part of the
+    *         record may have been written already
+    * @throws IOException if the writer fails
+    */
+   public void write( Object object ) throws IOException {
+      JSONSerializer.write( object, writer, jsonConfig );
+      writer.write( '\n' );
+      recordCount++;
+   }
+}
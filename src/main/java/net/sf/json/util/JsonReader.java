@@ -0,0 +1,403 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.util;
+
+import java.io.Reader;
+
+import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JsonConfig;
+
+/**
+ * A pull parser for JSON text, modeled after StAX's XMLStreamReader.<br>
+ * Each call to <code>next()</code> advances to the next event and returns its
+ * type. No JSONObject or JSONArray is created, so large documents can be
+ * scanned with memory bounded by the nesting depth when the reader is backed by
+ * a stream, for example
+ *
+ * <pre>
+ * JsonReader reader = new JsonReader( JSONTokener.fromReader( in ) );
+ * while( reader.hasNext() ){
+ *    if( reader.next() == JsonReader.KEY &amp;&amp; "id".equals( reader.getString() ) ){
+ *       reader.next();
+ *       ids.add( reader.getString() );
+ *    }
+ * }</pre>
+ *
+ * The same non-standard forms accepted by JSONObject and JSONArray are
+ * accepted here (unquoted keys and strings, single quotes, '=' or '=>' after
+ * keys, ';' as separator, empty array elements), with the exception of
+ * javascript function literals.
+ */
+public class JsonReader {
+   /** Event for '{' */
+   public static final int START_OBJECT = 1;
+   /** Event for '}' */
+   public static final int END_OBJECT = 2;
+   /** Event for '[' */
+   public static final int START_ARRAY = 3;
+   /** Event for ']' */
+   public static final int END_ARRAY = 4;
+   /** Event for the key of an object property */
+   public static final int KEY = 5;
+   /** Event for a string value */
+   public static final int VALUE_STRING = 6;
+   /** Event for a number value */
+   public static final int VALUE_NUMBER = 7;
+   /** Event for a boolean value */
+   public static final int VALUE_BOOLEAN = 8;
+   /** Event for a null value */
+   public static final int VALUE_NULL = 9;
+   /** Event reported after the root value has been read */
+   public static final int END_DOCUMENT = 10;
+
+   private int eventType;
+   private JsonConfig jsonConfig;
+   private String key;
+   private int[] stack = new int[16];
+   private JSONTokener tokener;
+   private int top;
+   private Object value;
+
+   /**
+    * Creates a JsonReader that pulls events from a JSONTokener.
+    */
+   public JsonReader( JSONTokener tokener ) {
+      this( tokener, new JsonConfig() );
+   }
+
+   /**
+    * Creates a JsonReader that pulls events from a JSONTokener.
+    */
+   public JsonReader( JSONTokener tokener, JsonConfig jsonConfig ) {
+      if( tokener == null ){
+         throw new JSONException( "tokener is null" );
+      }
+      this.tokener = tokener;
+      this.jsonConfig = jsonConfig != null ? jsonConfig : new JsonConfig();
+   }
+
+   /**
+    * Creates a JsonReader that reads a stream through a sliding buffer.
+    */
+   public JsonReader( Reader reader ) {
+      this( JSONTokener.fromReader( reader ) );
+   }
+
+   /**
+    * Creates a JsonReader for a JSON text.
+    */
+   public JsonReader( String text ) {
+      this( new JSONTokener( text ) );
+   }
+
+   /**
+    * Returns the boolean value of the current VALUE_BOOLEAN event.
+    *
+    * @throws JSONException if the current event is not VALUE_BOOLEAN
+    */
+   public boolean getBoolean() {
+      if( eventType != VALUE_BOOLEAN ){
+         throw new JSONException( "Current event is not a boolean value" );
+      }
+      return ((Boolean) value).booleanValue();
+   }
+
+   /**
+    * Returns the nesting depth of the current event. The root object or array
+    * is at depth 1.
+    */
+   public int getDepth() {
+      return top;
+   }
+
+   /**
+    * Returns the double value of the current VALUE_NUMBER event.
+    *
+    * @throws JSONException if the current event is not VALUE_NUMBER
+    */
+   public double getDouble() {
+      return getNumber().doubleValue();
+   }
+
+   /**
+    * Returns the type of the current event, 0 if <code>next()</code> has not
+    * been called yet.
+    */
+   public int getEventType() {
+      return eventType;
+   }
+
+   /**
+    * Returns the int value of the current VALUE_NUMBER event.
+    *
+    * @throws JSONException if the current event is not VALUE_NUMBER
+    */
+   public int getInt() {
+      return getNumber().intValue();
+   }
+
+   /**
+    * Returns the last key read. It remains available while the value that
+    * follows the key is being read.
+    */
+   public String getKey() {
+      return key;
+   }
+
+   /**
+    * Returns the long value of the current VALUE_NUMBER event.
+    *
+    * @throws JSONException if the current event is not VALUE_NUMBER
+    */
+   public long getLong() {
+      return getNumber().longValue();
+   }
+
+   /**
+    * Returns the value of the current VALUE_NUMBER event.
+    *
+    * @throws JSONException if the current event is not VALUE_NUMBER
+    */
+   public Number getNumber() {
+      if( eventType != VALUE_NUMBER ){
+         throw new JSONException( "Current event is not a number value" );
+      }
+      return (Number) value;
+   }
+
+   /**
+    * Returns the text of the current event. KEY and VALUE_STRING return the
+    * string as read, VALUE_NUMBER and VALUE_BOOLEAN return their string form
+    * and VALUE_NULL returns null.
+    *
+    * @throws JSONException if the current event does not carry a value
+    */
+   public String getString() {
+      switch( eventType ){
+         case KEY:
+         case VALUE_STRING:
+            return (String) value;
+         case VALUE_NUMBER:
+            return JSONUtils.numberToString( (Number) value );
+         case VALUE_BOOLEAN:
+            return String.valueOf( value );
+         case VALUE_NULL:
+            return null;
+         default:
+            throw new JSONException( "Current event does not have a value" );
+      }
+   }
+
+   /**
+    * Returns the value of the current event as a String, Number, Boolean or
+    * JSONNull. Returns null if the current event does not carry a value.
+    */
+   public Object getValue() {
+      return value;
+   }
+
+   /**
+    * Returns true until END_DOCUMENT has been reported.
+    */
+   public boolean hasNext() {
+      return eventType != END_DOCUMENT;
+   }
+
+   /**
+    * Advances to the next event and returns its type.
+    *
+    * @throws JSONException if the text is malformed or END_DOCUMENT was
+    *         already reported
+    */
+   public int next() {
+      if( eventType == END_DOCUMENT ){
+         throw new JSONException( "There are no more events" );
+      }
+      value = null;
+      if( top == 0 ){
+         if( eventType != 0 ){
+            // nothing but whitespace may follow the root value
+            if( tokener.nextClean() != 0 ){
+               throw tokener.syntaxError( "Unexpected text after the JSON value" );
+            }
+            return eventType = END_DOCUMENT;
+         }
+         char c = tokener.nextClean();
+         if( c == 0 ){
+            return eventType = END_DOCUMENT;
+         }
+         return readValue( c );
+      }
+
+      char c = tokener.nextClean();
+      if( stack[top - 1] == START_OBJECT ){
+         if( eventType == KEY ){
+            /*
+             * The key is followed by ':'. We will also tolerate '=' or '=>'.
+             */
+            if( c == '=' ){
+               if( tokener.next() != '>' ){
+                  tokener.back();
+               }
+            }else if( c != ':' ){
+               throw tokener.syntaxError( "Expected a ':' after a key" );
+            }
+            return readValue( tokener.nextClean() );
+         }
+         if( eventType != START_OBJECT ){
+            if( c == ',' || c == ';' ){
+               c = tokener.nextClean();
+            }else if( c != '}' ){
+               throw tokener.syntaxError( "Expected a ',' or '}'" );
+            }
+         }
+         switch( c ){
+            case 0:
+               throw tokener.syntaxError( "A JSONObject text must end with '}'" );
+            case '}':
+               return endContainer( END_OBJECT );
+            case '"':
+            case '\'':
+               key = tokener.nextString( c );
+               break;
+            default:
+               tokener.back();
+               key = tokener.nextValue( jsonConfig )
+                     .toString();
+         }
+         value = key;
+         return eventType = KEY;
+      }
+
+      if( eventType != START_ARRAY && c != ']' ){
+         if( c != ',' && c != ';' ){
+            throw tokener.syntaxError( "Expected a ',' or ']'" );
+         }
+         c = tokener.nextClean();
+      }
+      switch( c ){
+         case 0:
+            throw tokener.syntaxError( "A JSONArray text must end with ']'" );
+         case ']':
+            return endContainer( END_ARRAY );
+         case ',':
+            // empty element
+            tokener.back();
+            value = JSONNull.getInstance();
+            return eventType = VALUE_NULL;
+         default:
+            return readValue( c );
+      }
+   }
+
+   /**
+    * Skips the contents of the current object or array. If the current event
+    * is START_OBJECT or START_ARRAY the reader is advanced to the matching
+    * END_OBJECT or END_ARRAY without reporting the nested events, otherwise
+    * this method does nothing. Skipped text is only checked for balanced
+    * brackets and terminated strings.
+    */
+   public void skipChildren() {
+      if( eventType != START_OBJECT && eventType != START_ARRAY ){
+         return;
+      }
+      int depth = 1;
+      while( depth > 0 ){
+         char c = tokener.nextClean();
+         switch( c ){
+            case 0:
+               throw tokener.syntaxError( "Unexpected end of text" );
+            case '"':
+            case '\'':
+               skipString( c );
+               break;
+            case '{':
+            case '[':
+               depth++;
+               break;
+            case '}':
+            case ']':
+               depth--;
+               break;
+            default:
+               // empty
+         }
+      }
+      endContainer( eventType == START_OBJECT ? END_OBJECT : END_ARRAY );
+   }
+
+   private int endContainer( int type ) {
+      top--;
+      return eventType = type;
+   }
+
+   private void push( int type ) {
+      if( top == stack.length ){
+         int[] s = new int[stack.length * 2];
+         System.arraycopy( stack, 0, s, 0, top );
+         stack = s;
+      }
+      stack[top++] = type;
+   }
+
+   private int readValue( char c ) {
+      switch( c ){
+         case 0:
+            throw tokener.syntaxError( "Missing value." );
+         case '{':
+            push( START_OBJECT );
+            return eventType = START_OBJECT;
+         case '[':
+            push( START_ARRAY );
+            return eventType = START_ARRAY;
+         case '"':
+         case '\'':
+            value = tokener.nextString( c );
+            return eventType = VALUE_STRING;
+         default:
+            tokener.back();
+            value = tokener.nextValue( jsonConfig );
+      }
+      if( value instanceof Boolean ){
+         return eventType = VALUE_BOOLEAN;
+      }else if( value instanceof Number ){
+         // the same types a JSONObject holds
+         value = JSONUtils.transformNumber( (Number) value );
+         return eventType = VALUE_NUMBER;
+      }else if( JSONNull.getInstance()
+            .equals( value ) ){
+         return eventType = VALUE_NULL;
+      }else if( JSONUtils.isFunctionHeader( value ) ){
+         throw tokener.syntaxError( "Function literals are not supported" );
+      }
+      return eventType = VALUE_STRING;
+   }
+
+   private void skipString( char quote ) {
+      for( ;; ){
+         char c = tokener.next();
+         if( c == 0 ){
+            throw tokener.syntaxError( "Unterminated string" );
+         }else if( c == '\\' ){
+            tokener.next();
+         }else if( c == quote ){
+            return;
+         }
+      }
+   }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.util;
+
+/**
+ * The keys a JSONTokener has read, so that a key seen before is returned as
+ * the same String without allocating a new one.<br>
+ * An open addressing table that grows as keys are added and stops remembering
+ * new keys once it holds maxSize of them. Not thread safe.
+ */
+final class KeySymbolTable {
+   private int[] hashes = new int[16];
+   private final int maxSize;
+   private int size;
+   private String[] symbols = new String[16];
+
+   KeySymbolTable( int maxSize ) {
+      this.maxSize = maxSize;
+   }
+
+   /**
+    * Returns the String made of the first length chars of buffer, reusing a
+    * remembered instance when there is one.
+    */
+   String get( char[] buffer, int length ) {
+      int hash = 0;
+      for( int i = 0; i < length; i++ ){
+         hash = 31 * hash + buffer[i];
+      }
+      int mask = symbols.length - 1;
+      int slot = hash & mask;
+      for( String symbol = symbols[slot]; symbol != null; symbol = symbols[slot] ){
+         if( hashes[slot] == hash && matches( symbol, buffer, length ) ){
+            return symbol;
+         }
+         slot = (slot + 1) & mask;
+      }
+      return add( slot, hash, new String( buffer, 0, length ) );
+   }
+
+   /**
+    * Returns the remembered instance equal to s, or s itself.
+    */
+   String intern( String s ) {
+      int hash = s.hashCode();
+      int mask = symbols.length - 1;
+      int slot = hash & mask;
+      for( String symbol = symbols[slot]; symbol != null; symbol = symbols[slot] ){
+         if( hashes[slot] == hash && symbol.equals( s ) ){
+            return symbol;
+         }
+         slot = (slot + 1) & mask;
+      }
+      return add( slot, hash, s );
+   }
+
+   private String add( int slot, int hash, String symbol ) {
+      if( size >= maxSize ){
+         return symbol;
+      }
+      symbols[slot] = symbol;
+      hashes[slot] = hash;
+      size++;
+      if( size * 2 > symbols.length ){
+         rehash();
+      }
+      return symbol;
+   }
+
+   private boolean matches( String symbol, char[] buffer, int length ) {
+      if( symbol.length() != length ){
+         return false;
+      }
+      for( int i = 0; i < length; i++ ){
+         if( symbol.charAt( i ) != buffer[i] ){
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private void rehash() {
+      String[] oldSymbols = symbols;
+      int[] oldHashes = hashes;
+      symbols = new String[oldSymbols.length * 2];
+      hashes = new int[oldSymbols.length * 2];
+      int mask = symbols.length - 1;
+      for( int i = 0; i < oldSymbols.length; i++ ){
+         if( oldSymbols[i] != null ){
+            int slot = oldHashes[i] & mask;
+            while( symbols[slot] != null ){
+               slot = (slot + 1) & mask;
+            }
+            symbols[slot] = oldSymbols[i];
+            hashes[slot] = oldHashes[i];
+         }
+      }
+   }
+}
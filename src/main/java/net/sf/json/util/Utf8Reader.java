@@ -0,0 +1,202 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An unsynchronized Reader that decodes UTF-8 bytes held in memory as they
+ * are read, so a JSONTokener can parse them through its sliding buffer without
+ * the whole text being decoded first.<br>
+ * Files are read through a FileChannel mapped one window at a time, so their
+ * bytes stay in the page cache instead of being copied to the heap.<br>
+ * Malformed input is replaced with U+FFFD as
+ * <code>new String( bytes, "UTF-8" )</code> does: an invalid lead byte, or a
+ * lead byte whose next byte can not follow it, is replaced on its own; a
+ * sequence that stops early or encodes a surrogate is replaced as a whole.
+ */
+final class Utf8Reader extends Reader {
+   private static final char REPLACEMENT = '\uFFFD';
+
+   /** the bytes when they are not in an array */
+   private ByteBuffer buffer;
+   private final byte[] bytes;
+   /** the mapped file, null unless reading a FileChannel */
+   private final FileChannel channel;
+   /** file position of the end of the bytes to read */
+   private long channelEnd;
+   private int limit;
+   /** low surrogate that did not fit in the last read */
+   private char pending;
+   private int position;
+   /** file position of the first byte of buffer */
+   private long windowStart;
+   private int windowSize;
+
+   Utf8Reader( byte[] bytes, int offset, int length ) {
+      this.buffer = null;
+      this.channel = null;
+      this.bytes = bytes;
+      this.position = offset;
+      this.limit = offset + length;
+   }
+
+   /**
+    * Reads the remaining bytes of buffer, whose position is not changed.
+    */
+   Utf8Reader( ByteBuffer buffer ) {
+      this.channel = null;
+      if( buffer.hasArray() ){
+         this.buffer = null;
+         this.bytes = buffer.array();
+         this.position = buffer.arrayOffset() + buffer.position();
+         this.limit = buffer.arrayOffset() + buffer.limit();
+      }else{
+         this.buffer = buffer;
+         this.bytes = null;
+         this.position = buffer.position();
+         this.limit = buffer.limit();
+      }
+   }
+
+   /**
+    * Reads channel from its current position to its end, mapping windowSize
+    * bytes at a time. The position of the channel is not changed.
+    */
+   Utf8Reader( FileChannel channel, int windowSize ) throws IOException {
+      this.bytes = null;
+      this.channel = channel;
+      this.windowSize = windowSize;
+      this.windowStart = channel.position();
+      this.channelEnd = channel.size();
+      map( this.windowStart );
+   }
+
+   public void close() {
+      // nothing to release, the channel belongs to the caller
+   }
+
+   public int read( char[] cbuf, int off, int len ) throws IOException {
+      if( len <= 0 ){
+         return 0;
+      }
+      int n = off;
+      int end = off + len;
+      if( pending != 0 ){
+         cbuf[n++] = pending;
+         pending = 0;
+      }
+      int i = position;
+      while( n < end ){
+         if( i >= limit ){
+            if( !hasNextWindow() ){
+               break;
+            }
+            map( windowStart + i );
+            i = position;
+         }
+         int c = byteAt( i );
+         if( c >= 0 ){
+            cbuf[n++] = (char) c;
+            i++;
+            continue;
+         }
+         c &= 0xFF;
+         int length;
+         // the range of the second byte, narrower after some leads so that
+         // overlong and out of range sequences are caught there
+         int lower = 0x80;
+         int upper = 0xBF;
+         if( c >= 0xC2 && c <= 0xDF ){
+            length = 2;
+         }else if( c >= 0xE0 && c <= 0xEF ){
+            length = 3;
+            if( c == 0xE0 ){
+               lower = 0xA0;
+            }
+         }else if( c >= 0xF0 && c <= 0xF4 ){
+            length = 4;
+            if( c == 0xF0 ){
+               lower = 0x90;
+            }else if( c == 0xF4 ){
+               upper = 0x8F;
+            }
+         }else{
+            cbuf[n++] = REPLACEMENT;
+            i++;
+            continue;
+         }
+         c &= 0x3F >> (length - 1);
+         if( i + length > limit && hasNextWindow() ){
+            // the sequence continues in the next window
+            map( windowStart + i );
+            i = position;
+         }
+         int j = i + 1;
+         if( j < limit && ((byteAt( j ) & 0xFF) < lower || (byteAt( j ) & 0xFF) > upper) ){
+            // only the lead byte is replaced, the next one is read again
+            cbuf[n++] = REPLACEMENT;
+            i = j;
+            continue;
+         }
+         while( j < i + length && j < limit && (byteAt( j ) & 0xC0) == 0x80 ){
+            c = (c << 6) | (byteAt( j ) & 0x3F);
+            j++;
+         }
+         if( j < i + length || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) ){
+            // truncated, or a surrogate, replaced as a whole
+            cbuf[n++] = REPLACEMENT;
+         }else if( c < Character.MIN_SUPPLEMENTARY_CODE_POINT ){
+            cbuf[n++] = (char) c;
+         }else{
+            c -= Character.MIN_SUPPLEMENTARY_CODE_POINT;
+            cbuf[n++] = (char) (Character.MIN_HIGH_SURROGATE + (c >>> 10));
+            char low = (char) (Character.MIN_LOW_SURROGATE + (c & 0x3FF));
+            if( n < end ){
+               cbuf[n++] = low;
+            }else{
+               pending = low;
+            }
+         }
+         i = j;
+      }
+      position = i;
+      return n == off ? -1 : n - off;
+   }
+
+   private boolean hasNextWindow() {
+      return channel != null && windowStart + limit < channelEnd;
+   }
+
+   /**
+    * Maps the window of the channel that starts at the given file position.
+    */
+   private void map( long start ) throws IOException {
+      long size = Math.min( windowSize, channelEnd - start );
+      buffer = channel.map( FileChannel.MapMode.READ_ONLY, start, size );
+      windowStart = start;
+      position = 0;
+      limit = (int) size;
+   }
+
+   private int byteAt( int i ) {
+      return bytes != null ? bytes[i] : buffer.get( i );
+   }
+}
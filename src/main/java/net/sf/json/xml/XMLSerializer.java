@@ -29,6 +29,7 @@ import nu.xom.Document;
 import nu.xom.Element;
 import nu.xom.Elements;
 import nu.xom.Node;
+import nu.xom.ParentNode;
 import nu.xom.ProcessingInstruction;
 import nu.xom.Serializer;
 import nu.xom.Text;
@@ -45,14 +46,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 /**
  * Utility class for transforming JSON to XML an back.<br>
  * When transforming JSONObject and JSONArray instances to XML, this class will
@@ -82,6 +96,8 @@ import java.util.TreeMap;
 public class XMLSerializer {
    private static final String[] EMPTY_ARRAY = new String[0];
    private static final String JSON_PREFIX = "json_";
+   /** makes the JDK parser report CDATA sections instead of plain characters */
+   private static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event";
    private static final Log log = LogFactory.getLog( XMLSerializer.class );
 
    /**
@@ -129,6 +145,14 @@ public class XMLSerializer {
     * flag for skipping whitespace elements while reading
     */
    private boolean skipWhitespace;
+   /**
+    * flag for reading XML with a StAX parser instead of building a XOM document
+    */
+   private boolean streamingRead;
+   /**
+    * the StAX factory used by streaming reads, created on first use
+    */
+   private XMLInputFactory inputFactory;
    /**
     * flag for trimming spaces from string values
     */
@@ -323,6 +347,13 @@ public class XMLSerializer {
       return skipWhitespace;
    }
 
+   /**
+    * Returns wether this serializer reads XML with a StAX parser or not.
+    */
+   public boolean isStreamingRead() {
+      return streamingRead;
+   }
+
    /**
     * Returns wether this serializer will trim leading and trealing whitespace
     * from values or not.
@@ -354,6 +385,9 @@ public class XMLSerializer {
     *                       I/O or format reasons.
     */
    public JSON read( String xml ) {
+      if( streamingRead ){
+         return readStreaming( new StringReader( xml ) );
+      }
       JSON json = null;
       try{
          Document doc = new Builder().build( new StringReader( xml ) );
@@ -401,10 +435,20 @@ public class XMLSerializer {
       if( file.isDirectory() ){
          throw new JSONException( "File is a directory" );
       }
+      InputStream stream = null;
       try{
-         return readFromStream( new FileInputStream( file ) );
+         stream = new FileInputStream( file );
+         return readFromStream( stream );
       }catch( IOException ioe ){
          throw new JSONException( ioe );
+      }finally{
+         if( stream != null ){
+            try{
+               stream.close();
+            }catch( IOException ioe ){
+               // ignore
+            }
+         }
       }
    }
 
@@ -431,6 +475,9 @@ public class XMLSerializer {
     *                       I/O or format reasons.
     */
    public JSON readFromStream( InputStream stream ) {
+      if( streamingRead ){
+         return readStreaming( stream );
+      }
       try{
          StringBuffer xml = new StringBuffer();
          BufferedReader in = new BufferedReader( new InputStreamReader( stream ) );
@@ -620,6 +667,19 @@ public class XMLSerializer {
       this.skipWhitespace = skipWhitespace;
    }
 
+   /**
+    * Sets if this serializer will read XML with a StAX parser, converting each
+    * element as soon as it ends instead of building a XOM document first.<br>
+    * Only the open elements and the JSON of their children are kept in memory,
+    * so large documents can be read. The resulting JSON is the same; streams are
+    * passed to the parser as they are, so their encoding declaration is honored
+    * and line breaks in values are kept.<br>
+    * Default is false.
+    */
+   public void setStreamingRead( boolean streamingRead ) {
+      this.streamingRead = streamingRead;
+   }
+
    /**
     * Sets if this serializer will trim leading and trealing whitespace from
     * values when reading.
@@ -665,37 +725,63 @@ public class XMLSerializer {
     *                       I/O reasons or the encoding is not supported.
     */
    public String write( JSON json, String encoding ) {
-      if( keepArrayName && typeHintsEnabled ){
-         throw new IllegalStateException( "Type Hints cannot be used together with 'keepArrayName'" );
-      }
-      if( JSONNull.getInstance()
-            .equals( json ) ){
-         Element root = null;
-         root = newElement( getRootName() == null ? getObjectName() : getRootName() );
-         root.addAttribute( new Attribute( addJsonPrefix( "null" ), "true" ) );
-         Document doc = new Document( root );
-         return writeDocument( doc, encoding );
-      }else if( json instanceof JSONArray ){
-         JSONArray jsonArray = (JSONArray) json;
-         Element root = processJSONArray( jsonArray,
-               newElement( getRootName() == null ? getArrayName() : getRootName() ),
-               expandableProperties );
-         Document doc = new Document( root );
-         return writeDocument( doc, encoding );
-      }else{
-         JSONObject jsonObject = (JSONObject) json;
-         Element root = null;
-         if( jsonObject.isNullObject() ){
-            root = newElement( getObjectName() );
-            root.addAttribute( new Attribute( addJsonPrefix( "null" ), "true" ) );
-         }else{
-            root = processJSONObject( jsonObject,
-                  newElement( getRootName() == null ? getObjectName() : getRootName() ),
-                  expandableProperties, true );
-         }
-         Document doc = new Document( root );
-         return writeDocument( doc, encoding );
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      encoding = writeXml( json, baos, encoding );
+      String str = null;
+      try{
+         str = baos.toString( encoding );
+      }catch( UnsupportedEncodingException uee ){
+         throw new JSONException( uee );
       }
+      return str;
+   }
+
+   /**
+    * Writes a JSON value as a XML document with UTF-8 encoding to out.<br>
+    * The XML is written as the JSON value is traversed, without building the
+    * whole document in memory first. If the conversion fails part of the
+    * document may have been written already.
+    *
+    * @param json The JSON value to transform
+    * @param out where the document is written, it is flushed but not closed
+    * @throws JSONException if the conversion from JSON to XML can't be made for
+    *                       I/O reasons.
+    */
+   public void writeTo( JSON json, OutputStream out ) {
+      writeXml( json, out, null );
+   }
+
+   /**
+    * Writes a JSON value as a XML document with an specific encoding to out.<br>
+    * If the encoding string is null it will use UTF-8. The XML is written as
+    * the JSON value is traversed, without building the whole document in
+    * memory first. If the conversion fails part of the document may have been
+    * written already.
+    *
+    * @param json The JSON value to transform
+    * @param out where the document is written, it is flushed but not closed
+    * @param encoding The xml encoding to use
+    * @throws JSONException if the conversion from JSON to XML can't be made for
+    *                       I/O reasons or the encoding is not supported.
+    */
+   public void writeTo( JSON json, OutputStream out, String encoding ) {
+      writeXml( json, out, encoding );
+   }
+
+   /**
+    * Writes a JSON value as a XML document to writer, the XML declaration
+    * states UTF-8 encoding.<br>
+    * The XML is written as the JSON value is traversed, without building the
+    * whole document in memory first. If the conversion fails part of the
+    * document may have been written already.
+    *
+    * @param json The JSON value to transform
+    * @param writer where the document is written, it is flushed but not closed
+    * @throws JSONException if the conversion from JSON to XML can't be made for
+    *                       I/O reasons.
+    */
+   public void writeTo( JSON json, Writer writer ) {
+      writeXml( json, new DecodingOutputStream( writer ), null );
    }
 
    private String addJsonPrefix( String str ) {
@@ -782,17 +868,20 @@ public class XMLSerializer {
 
    private String getClass( Element element ) {
       Attribute attribute = element.getAttribute( addJsonPrefix( "class" ) );
-      String clazz = null;
-      if( attribute != null ){
-         String clazzText = attribute.getValue()
-               .trim();
-         if( JSONTypes.OBJECT.compareToIgnoreCase( clazzText ) == 0 ){
-            clazz = JSONTypes.OBJECT;
-         }else if( JSONTypes.ARRAY.compareToIgnoreCase( clazzText ) == 0 ){
-            clazz = JSONTypes.ARRAY;
+      return attribute != null ? toJsonClass( attribute.getValue() ) : null;
+   }
+
+   private XMLInputFactory getInputFactory() {
+      if( inputFactory == null ){
+         XMLInputFactory factory = XMLInputFactory.newInstance();
+         factory.setProperty( XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE );
+         factory.setProperty( XMLInputFactory.IS_COALESCING, Boolean.FALSE );
+         if( factory.isPropertySupported( REPORT_CDATA_EVENT ) ){
+            factory.setProperty( REPORT_CDATA_EVENT, Boolean.TRUE );
          }
+         inputFactory = factory;
       }
-      return clazz;
+      return inputFactory;
    }
 
    private String getType( Element element ) {
@@ -803,25 +892,7 @@ public class XMLSerializer {
       Attribute attribute = element.getAttribute( addJsonPrefix( "type" ) );
       String type = null;
       if( attribute != null ){
-         String typeText = attribute.getValue()
-               .trim();
-         if( JSONTypes.BOOLEAN.compareToIgnoreCase( typeText ) == 0 ){
-            type = JSONTypes.BOOLEAN;
-         }else if( JSONTypes.NUMBER.compareToIgnoreCase( typeText ) == 0 ){
-            type = JSONTypes.NUMBER;
-         }else if( JSONTypes.INTEGER.compareToIgnoreCase( typeText ) == 0 ){
-            type = JSONTypes.INTEGER;
-         }else if( JSONTypes.FLOAT.compareToIgnoreCase( typeText ) == 0 ){
-            type = JSONTypes.FLOAT;
-         }else if( JSONTypes.OBJECT.compareToIgnoreCase( typeText ) == 0 ){
-            type = JSONTypes.OBJECT;
-         }else if( JSONTypes.ARRAY.compareToIgnoreCase( typeText ) == 0 ){
-            type = JSONTypes.ARRAY;
-         }else if( JSONTypes.STRING.compareToIgnoreCase( typeText ) == 0 ){
-            type = JSONTypes.STRING;
-         }else if( JSONTypes.FUNCTION.compareToIgnoreCase( typeText ) == 0 ){
-            type = JSONTypes.FUNCTION;
-         }
+         type = toJsonType( attribute.getValue() );
       }else{
          if( defaultType != null ){
             log.info( "Using default type " + defaultType );
@@ -1007,115 +1078,6 @@ public class XMLSerializer {
       }
    }
 
-   private Element processJSONArray( JSONArray array, Element root, String[] expandableProperties ) {
-      int l = array.size();
-      for( int i = 0; i < l; i++ ){
-         Object value = array.get( i );
-         Element element = processJSONValue( value, root, null, expandableProperties );
-         root.appendChild( element );
-      }
-      return root;
-   }
-
-   private Element processJSONObject( JSONObject jsonObject, Element root,
-                                      String[] expandableProperties, boolean isRoot ) {
-      if( jsonObject.isNullObject() ){
-         root.addAttribute( new Attribute( addJsonPrefix( "null" ), "true" ) );
-         return root;
-      }else if( jsonObject.isEmpty() ){
-         return root;
-      }
-
-      if( isRoot ){
-         if( !rootNamespace.isEmpty() ){
-            setNamespaceLenient( true );
-            for( Iterator entries = rootNamespace.entrySet()
-                  .iterator(); entries.hasNext(); ){
-               Map.Entry entry = (Map.Entry) entries.next();
-               String prefix = (String) entry.getKey();
-               String uri = (String) entry.getValue();
-               if( StringUtils.isBlank( prefix ) ){
-                  root.setNamespaceURI( uri );
-               }else{
-                  root.addNamespaceDeclaration( prefix, uri );
-               }
-            }
-         }
-      }
-
-      addNameSpaceToElement( root );
-
-      Object[] names = jsonObject.names().toArray();
-      List unprocessed = new ArrayList();
-      for( int i = 0; i < names.length; i++ ){
-         String name = (String) names[i];
-         Object value = jsonObject.get( name );
-         if( name.startsWith( "@xmlns" ) ){
-            setNamespaceLenient( true );
-            int colon = name.indexOf( ':' );
-            if( colon == -1 ){
-               // do not override if already defined by nameSpaceMaps
-               if( StringUtils.isBlank( root.getNamespaceURI() ) ){
-                  root.setNamespaceURI( String.valueOf( value ) );
-               }
-            }else{
-               String prefix = name.substring( colon + 1 );
-               if( StringUtils.isBlank( root.getNamespaceURI( prefix ) ) ){
-                  root.addNamespaceDeclaration( prefix, String.valueOf( value ) );
-               }
-            }
-         }else{
-            unprocessed.add( name );
-         }
-      }
-      Element element = null;
-      for( int i = 0; i < unprocessed.size(); i++ ){
-         String name = (String) unprocessed.get( i );
-         Object value = jsonObject.get( name );
-         if( name.startsWith( "@" ) ){
-            int colon = name.indexOf( ':' );
-            if( colon == -1 ){
-               root.addAttribute( new Attribute( name.substring( 1 ), String.valueOf( value ) ) );
-            }else{
-               String prefix = name.substring( 1, colon );
-               final String namespaceURI = root.getNamespaceURI( prefix );
-               root.addAttribute( new Attribute( name.substring( 1 ), namespaceURI, String.valueOf( value ) ) );
-            }
-         }else if( name.equals( "#text" ) ){
-            if( value instanceof JSONArray ){
-               root.appendChild( ((JSONArray) value).join( "", true ) );
-            }else{
-               root.appendChild( String.valueOf( value ) );
-            }
-         }else if( value instanceof JSONArray
-               && (((JSONArray) value).isExpandElements() || ArrayUtils.contains(
-               expandableProperties, name ) || (isPerformAutoExpansion && canAutoExpand( (JSONArray) value ))) ){
-            JSONArray array = (JSONArray) value;
-            int l = array.size();
-            for( int j = 0; j < l; j++ ){
-               Object item = array.get( j );
-               element = newElement( name );
-               root.appendChild( element );
-               if( item instanceof JSONObject ){
-                  element = processJSONValue( (JSONObject) item, root, element,
-                        expandableProperties );
-               }else if( item instanceof JSONArray ){
-                  element = processJSONValue( (JSONArray) item, root, element, expandableProperties );
-               }else{
-                  element = processJSONValue( item, root, element, expandableProperties );
-               }
-               addNameSpaceToElement( element );
-            }
-         }else{
-            element = newElement( name );
-            root.appendChild( element );
-            element = processJSONValue( value, root, element, expandableProperties );
-            addNameSpaceToElement( element );
-         }
-      }
-      return root;
-   }
-
    /**
     * Only perform auto expansion if all children are objects.
     *
@@ -1131,58 +1093,6 @@ public class XMLSerializer {
       return true;
    }
 
-   private Element processJSONValue( Object value, Element root, Element target,
-                                     String[] expandableProperties ) {
-      if( target == null ){
-         target = newElement( getElementName() );
-      }
-      if( JSONUtils.isBoolean( value ) ){
-         if( isTypeHintsEnabled() ){
-            target.addAttribute( new Attribute( addJsonPrefix( "type" ), JSONTypes.BOOLEAN ) );
-         }
-         target.appendChild( value.toString() );
-      }else if( JSONUtils.isNumber( value ) ){
-         if( isTypeHintsEnabled() ){
-            target.addAttribute( new Attribute( addJsonPrefix( "type" ), JSONTypes.NUMBER ) );
-         }
-         target.appendChild( value.toString() );
-      }else if( JSONUtils.isFunction( value ) ){
-         if( value instanceof String ){
-            value = JSONFunction.parse( (String) value );
-         }
-         JSONFunction func = (JSONFunction) value;
-         if( isTypeHintsEnabled() ){
-            target.addAttribute( new Attribute( addJsonPrefix( "type" ), JSONTypes.FUNCTION ) );
-         }
-         String params = ArrayUtils.toString( func.getParams() );
-         params = params.substring( 1 );
-         params = params.substring( 0, params.length() - 1 );
-         target.addAttribute( new Attribute( addJsonPrefix( "params" ), params ) );
-         target.appendChild( new Text( "<![CDATA[" + func.getText() + "]]>" ) );
-      }else if( JSONUtils.isString( value ) ){
-         if( isTypeHintsEnabled() ){
-            target.addAttribute( new Attribute( addJsonPrefix( "type" ), JSONTypes.STRING ) );
-         }
-         target.appendChild( value.toString() );
-      }else if( value instanceof JSONArray ){
-         if( isTypeHintsEnabled() ){
-            target.addAttribute( new Attribute( addJsonPrefix( "class" ), JSONTypes.ARRAY ) );
-         }
-         target = processJSONArray( (JSONArray) value, target, expandableProperties );
-      }else if( value instanceof JSONObject ){
-         if( isTypeHintsEnabled() ){
-            target.addAttribute( new Attribute( addJsonPrefix( "class" ), JSONTypes.OBJECT ) );
-         }
-         target = processJSONObject( (JSONObject) value, target, expandableProperties, false );
-      }else if( JSONUtils.isNull( value ) ){
-         if( isTypeHintsEnabled() ){
-            target.addAttribute( new Attribute( addJsonPrefix( "class" ), JSONTypes.OBJECT ) );
-         }
-         target.addAttribute( new Attribute( addJsonPrefix( "null" ), "true" ) );
-      }
-      return target;
-   }
-
    private JSON processObjectElement( Element element, String defaultType ) {
       if( isNullObject( element ) ){
          return JSONNull.getInstance();
@@ -1235,6 +1145,38 @@ public class XMLSerializer {
       return jsonObject;
    }
 
+   private JSON readStreaming( InputStream stream ) {
+      try{
+         return readStreaming( getInputFactory().createXMLStreamReader( stream ) );
+      }catch( XMLStreamException xse ){
+         throw new JSONException( xse );
+      }
+   }
+
+   private JSON readStreaming( Reader reader ) {
+      try{
+         return readStreaming( getInputFactory().createXMLStreamReader( reader ) );
+      }catch( XMLStreamException xse ){
+         throw new JSONException( xse );
+      }
+   }
+
+   private JSON readStreaming( XMLStreamReader reader ) {
+      try{
+         return new StaxReader().read( reader );
+      }catch( JSONException jsone ){
+         throw jsone;
+      }catch( Exception e ){
+         throw new JSONException( e );
+      }finally{
+         try{
+            reader.close();
+         }catch( XMLStreamException xse ){
+            // ignore
+         }
+      }
+   }
+
    private String removeNamespacePrefix( String name ) {
       if( isRemoveNamespacePrefixFromElements() ){
          int colon = name.indexOf( ':' );
@@ -1449,6 +1391,38 @@ public class XMLSerializer {
       return json;
    }
 
+   private String toJsonClass( String clazzText ) {
+      clazzText = clazzText.trim();
+      if( JSONTypes.OBJECT.compareToIgnoreCase( clazzText ) == 0 ){
+         return JSONTypes.OBJECT;
+      }else if( JSONTypes.ARRAY.compareToIgnoreCase( clazzText ) == 0 ){
+         return JSONTypes.ARRAY;
+      }
+      return null;
+   }
+
+   private String toJsonType( String typeText ) {
+      typeText = typeText.trim();
+      if( JSONTypes.BOOLEAN.compareToIgnoreCase( typeText ) == 0 ){
+         return JSONTypes.BOOLEAN;
+      }else if( JSONTypes.NUMBER.compareToIgnoreCase( typeText ) == 0 ){
+         return JSONTypes.NUMBER;
+      }else if( JSONTypes.INTEGER.compareToIgnoreCase( typeText ) == 0 ){
+         return JSONTypes.INTEGER;
+      }else if( JSONTypes.FLOAT.compareToIgnoreCase( typeText ) == 0 ){
+         return JSONTypes.FLOAT;
+      }else if( JSONTypes.OBJECT.compareToIgnoreCase( typeText ) == 0 ){
+         return JSONTypes.OBJECT;
+      }else if( JSONTypes.ARRAY.compareToIgnoreCase( typeText ) == 0 ){
+         return JSONTypes.ARRAY;
+      }else if( JSONTypes.STRING.compareToIgnoreCase( typeText ) == 0 ){
+         return JSONTypes.STRING;
+      }else if( JSONTypes.FUNCTION.compareToIgnoreCase( typeText ) == 0 ){
+         return JSONTypes.FUNCTION;
+      }
+      return null;
+   }
+
    private String trimSpaceFromValue( String value ) {
       if( isTrimSpaces() ){
          return value.trim();
@@ -1456,24 +1430,23 @@ public class XMLSerializer {
       return value;
    }
 
-   private String writeDocument( Document doc, String encoding ) {
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+   /**
+    * Writes json as a XML document to out.
+    *
+    * @return the encoding of the document
+    */
+   private String writeXml( JSON json, OutputStream out, String encoding ) {
+      if( keepArrayName && typeHintsEnabled ){
+         throw new IllegalStateException( "Type Hints cannot be used together with 'keepArrayName'" );
+      }
       try{
-         XomSerializer serializer = (encoding == null) ? new XomSerializer( baos )
-               : new XomSerializer( baos, encoding );
-         serializer.write( doc );
-         encoding = serializer.getEncoding();
+         XomSerializer serializer = (encoding == null) ? new XomSerializer( out )
+               : new XomSerializer( out, encoding );
+         new XmlWriter( serializer ).write( json );
+         return serializer.getEncoding();
       }catch( IOException ioe ){
          throw new JSONException( ioe );
       }
-
-      String str = null;
-      try{
-         str = baos.toString( encoding );
-      }catch( UnsupportedEncodingException uee ){
-         throw new JSONException( uee );
-      }
-      return str;
    }
 
    private static class CustomElement extends Element {
@@ -1591,5 +1564,1076 @@ public class XMLSerializer {
          writeNamespaceDeclarations( element );
       }
 
+      void writeDocumentEnd() throws IOException {
+         breakLine();
+         flush();
+      }
+
+      void writeDocumentStart() throws IOException {
+         writeXMLDeclaration();
+      }
+   }
+
+   /**
+    * An OutputStream that decodes the UTF-8 a XomSerializer writes to it and
+    * passes the characters on to a Writer.
+    */
+   private static final class DecodingOutputStream extends OutputStream {
+      private final ByteBuffer bytes = ByteBuffer.allocate( 8192 );
+      private final CharBuffer chars = CharBuffer.allocate( 8192 );
+      private final CharsetDecoder decoder = Charset.forName( "UTF-8" )
+            .newDecoder()
+            .onMalformedInput( CodingErrorAction.REPLACE )
+            .onUnmappableCharacter( CodingErrorAction.REPLACE );
+      private final Writer writer;
+
+      DecodingOutputStream( Writer writer ) {
+         this.writer = writer;
+      }
+
+      public void flush() throws IOException {
+         decode();
+         writer.flush();
+      }
+
+      public void write( byte[] b, int off, int len ) throws IOException {
+         while( len > 0 ){
+            int n = Math.min( len, bytes.remaining() );
+            bytes.put( b, off, n );
+            off += n;
+            len -= n;
+            decode();
+         }
+      }
+
+      public void write( int b ) throws IOException {
+         if( !bytes.hasRemaining() ){
+            decode();
+         }
+         bytes.put( (byte) b );
+      }
+
+      /**
+       * Decodes the bytes received so far, but for an incomplete sequence at
+       * their end.
+       */
+      private void decode() throws IOException {
+         bytes.flip();
+         CoderResult result = null;
+         do{
+            result = decoder.decode( bytes, chars, false );
+            writer.write( chars.array(), 0, chars.position() );
+            chars.clear();
+         }while( result.isOverflow() );
+         bytes.compact();
+      }
+   }
+
+   /**
+    * Writes JSON as XML through a XomSerializer while it is traversed. Only the
+    * elements from the root to the one being written are kept, each attached to
+    * its parent so the serializer declares namespaces as it does for a whole
+    * Document. Elements are set up with the calls and namespace lookups the
+    * conversion to a Document made, so the XML written is the same.
+    */
+   private class XmlWriter {
+      /**
+       * The innermost element of an array being written. A Document got array
+       * elements appended once complete, so lookups from their content did not
+       * go past them.
+       */
+      private Element arrayElement;
+      /** the element whose start tag waits for content, it is empty if none comes */
+      private Element pending;
+      private final XomSerializer serializer;
+
+      XmlWriter( XomSerializer serializer ) {
+         this.serializer = serializer;
+      }
+
+      void write( JSON json ) throws IOException {
+         serializer.writeDocumentStart();
+         if( JSONNull.getInstance()
+               .equals( json ) ){
+            Element root = newElement( getRootName() == null ? getObjectName() : getRootName() );
+            root.addAttribute( new Attribute( addJsonPrefix( "null" ), "true" ) );
+            startElement( root );
+            endElement( root );
+         }else if( json instanceof JSONArray ){
+            Element root = newElement( getRootName() == null ? getArrayName() : getRootName() );
+            startElement( root );
+            writeJSONArray( (JSONArray) json, root );
+            endElement( root );
+         }else{
+            JSONObject jsonObject = (JSONObject) json;
+            Element root = null;
+            List children = null;
+            if( jsonObject.isNullObject() ){
+               root = newElement( getObjectName() );
+               root.addAttribute( new Attribute( addJsonPrefix( "null" ), "true" ) );
+            }else{
+               root = newElement( getRootName() == null ? getObjectName() : getRootName() );
+               children = processJSONObject( jsonObject, root, true );
+            }
+            startElement( root );
+            if( children != null ){
+               writeChildren( jsonObject, children, root );
+            }
+            endElement( root );
+         }
+         serializer.writeDocumentEnd();
+      }
+
+      private void endElement( Element element ) throws IOException {
+         if( pending == element ){
+            serializer.writeEmptyElementTag( element );
+            pending = null;
+         }else{
+            serializer.writeEndTag( element );
+         }
+         element.detach();
+      }
+
+      /**
+       * Looks up the namespace of prefix from element, not going past
+       * arrayElement.
+       */
+      private String getNamespaceURI( Element element, String prefix ) {
+         ParentNode parent = arrayElement != null ? arrayElement.getParent() : null;
+         if( parent == null ){
+            return element.getNamespaceURI( prefix );
+         }
+         arrayElement.detach();
+         try{
+            return element.getNamespaceURI( prefix );
+         }finally{
+            parent.appendChild( arrayElement );
+         }
+      }
+
+      /**
+       * Sets the namespaces and attributes of jsonObject on root.
+       *
+       * @return the names of the children of root, null if it has none
+       */
+      private List processJSONObject( JSONObject jsonObject, Element root, boolean isRoot ) {
+         if( jsonObject.isNullObject() ){
+            root.addAttribute( new Attribute( addJsonPrefix( "null" ), "true" ) );
+            return null;
+         }else if( jsonObject.isEmpty() ){
+            return null;
+         }
+
+         if( isRoot ){
+            if( !rootNamespace.isEmpty() ){
+               setNamespaceLenient( true );
+               for( Iterator entries = rootNamespace.entrySet()
+                     .iterator(); entries.hasNext(); ){
+                  Map.Entry entry = (Map.Entry) entries.next();
+                  String prefix = (String) entry.getKey();
+                  String uri = (String) entry.getValue();
+                  if( StringUtils.isBlank( prefix ) ){
+                     root.setNamespaceURI( uri );
+                  }else{
+                     root.addNamespaceDeclaration( prefix, uri );
+                  }
+               }
+            }
+         }
+
+         addNameSpaceToElement( root );
+
+         Object[] names = jsonObject.names().toArray();
+         List unprocessed = new ArrayList();
+         for( int i = 0; i < names.length; i++ ){
+            String name = (String) names[i];
+            Object value = jsonObject.get( name );
+            if( name.startsWith( "@xmlns" ) ){
+               setNamespaceLenient( true );
+               int colon = name.indexOf( ':' );
+               if( colon == -1 ){
+                  // do not override if already defined by nameSpaceMaps
+                  if( StringUtils.isBlank( root.getNamespaceURI() ) ){
+                     root.setNamespaceURI( String.valueOf( value ) );
+                  }
+               }else{
+                  String prefix = name.substring( colon + 1 );
+                  if( StringUtils.isBlank( getNamespaceURI( root, prefix ) ) ){
+                     root.addNamespaceDeclaration( prefix, String.valueOf( value ) );
+                  }
+               }
+            }else{
+               unprocessed.add( name );
+            }
+         }
+         List children = new ArrayList();
+         for( int i = 0; i < unprocessed.size(); i++ ){
+            String name = (String) unprocessed.get( i );
+            Object value = jsonObject.get( name );
+            if( name.startsWith( "@" ) ){
+               int colon = name.indexOf( ':' );
+               if( colon == -1 ){
+                  root.addAttribute( new Attribute( name.substring( 1 ), String.valueOf( value ) ) );
+               }else{
+                  String prefix = name.substring( 1, colon );
+                  final String namespaceURI = getNamespaceURI( root, prefix );
+                  root.addAttribute( new Attribute( name.substring( 1 ), namespaceURI, String.valueOf( value ) ) );
+               }
+            }else{
+               children.add( name );
+            }
+         }
+         return children;
+      }
+
+      /**
+       * Writes the start tag of the pending element, if any, once content for
+       * it comes.
+       */
+      private void startContent() throws IOException {
+         if( pending != null ){
+            serializer.writeStartTag( pending );
+            pending = null;
+         }
+      }
+
+      private void startElement( Element element ) throws IOException {
+         startContent();
+         pending = element;
+      }
+
+      private void writeChildren( JSONObject jsonObject, List names, Element root ) throws IOException {
+         for( int i = 0; i < names.size(); i++ ){
+            String name = (String) names.get( i );
+            Object value = jsonObject.get( name );
+            if( name.equals( "#text" ) ){
+               if( value instanceof JSONArray ){
+                  writeText( ((JSONArray) value).join( "", true ) );
+               }else{
+                  writeText( String.valueOf( value ) );
+               }
+            }else if( value instanceof JSONArray
+                  && (((JSONArray) value).isExpandElements() || ArrayUtils.contains(
+                  expandableProperties, name ) || (isPerformAutoExpansion && canAutoExpand( (JSONArray) value ))) ){
+               JSONArray array = (JSONArray) value;
+               int l = array.size();
+               for( int j = 0; j < l; j++ ){
+                  Element element = newElement( name );
+                  root.appendChild( element );
+                  writeJSONValue( array.get( j ), root, element );
+               }
+            }else{
+               Element element = newElement( name );
+               root.appendChild( element );
+               writeJSONValue( value, root, element );
+            }
+         }
+      }
+
+      private void writeJSONArray( JSONArray array, Element root ) throws IOException {
+         int l = array.size();
+         for( int i = 0; i < l; i++ ){
+            writeJSONValue( array.get( i ), root, null );
+         }
+      }
+
+      /**
+       * Writes value as target, or as a new element appended to root once it is
+       * set up if target is null.
+       */
+      private void writeJSONValue( Object value, Element root, Element target ) throws IOException {
+         boolean isArrayElement = target == null;
+         if( isArrayElement ){
+            target = newElement( getElementName() );
+         }
+         String text = null;
+         List children = null;
+         if( JSONUtils.isBoolean( value ) ){
+            if( isTypeHintsEnabled() ){
+               target.addAttribute( new Attribute( addJsonPrefix( "type" ), JSONTypes.BOOLEAN ) );
+            }
+            text = value.toString();
+         }else if( JSONUtils.isNumber( value ) ){
+            if( isTypeHintsEnabled() ){
+               target.addAttribute( new Attribute( addJsonPrefix( "type" ), JSONTypes.NUMBER ) );
+            }
+            text = value.toString();
+         }else if( JSONUtils.isFunction( value ) ){
+            if( value instanceof String ){
+               value = JSONFunction.parse( (String) value );
+            }
+            JSONFunction func = (JSONFunction) value;
+            if( isTypeHintsEnabled() ){
+               target.addAttribute( new Attribute( addJsonPrefix( "type" ), JSONTypes.FUNCTION ) );
+            }
+            String params = ArrayUtils.toString( func.getParams() );
+            params = params.substring( 1 );
+            params = params.substring( 0, params.length() - 1 );
+            target.addAttribute( new Attribute( addJsonPrefix( "params" ), params ) );
+            text = "<![CDATA[" + func.getText() + "]]>";
+         }else if( JSONUtils.isString( value ) ){
+            if( isTypeHintsEnabled() ){
+               target.addAttribute( new Attribute( addJsonPrefix( "type" ), JSONTypes.STRING ) );
+            }
+            text = value.toString();
+         }else if( value instanceof JSONArray ){
+            if( isTypeHintsEnabled() ){
+               target.addAttribute( new Attribute( addJsonPrefix( "class" ), JSONTypes.ARRAY ) );
+            }
+         }else if( value instanceof JSONObject ){
+            if( isTypeHintsEnabled() ){
+               target.addAttribute( new Attribute( addJsonPrefix( "class" ), JSONTypes.OBJECT ) );
+            }
+            children = processJSONObject( (JSONObject) value, target, false );
+         }else if( JSONUtils.isNull( value ) ){
+            if( isTypeHintsEnabled() ){
+               target.addAttribute( new Attribute( addJsonPrefix( "class" ), JSONTypes.OBJECT ) );
+            }
+            target.addAttribute( new Attribute( addJsonPrefix( "null" ), "true" ) );
+         }
+
+         Element enclosingArrayElement = arrayElement;
+         if( isArrayElement ){
+            root.appendChild( target );
+            arrayElement = target;
+         }else{
+            // declarations no lookup from the content of target could see
+            addNameSpaceToElement( target );
+         }
+         startElement( target );
+         if( text != null ){
+            writeText( text );
+         }else if( value instanceof JSONArray ){
+            writeJSONArray( (JSONArray) value, target );
+         }else if( children != null ){
+            writeChildren( (JSONObject) value, children, target );
+         }
+         endElement( target );
+         arrayElement = enclosingArrayElement;
+      }
+
+      private void writeText( String value ) throws IOException {
+         Text text = new Text( value );
+         if( value.length() > 0 ){
+            startContent();
+            serializer.write( text );
+         }
+      }
+   }
+
+   /**
+    * An element read by StaxReader, holding what the conversion needs to know
+    * of it. Its children are kept only until it ends; from then on it holds the
+    * JSON it converts to for each type its parent may read it with.
+    */
+   private static final class StaxElement {
+      /** stands for a comment or processing instruction child */
+      private static final Object OTHER = new Object();
+
+      private Object[] arrays;
+      private boolean array;
+      private final String[] attributeNames;
+      private final String[] attributeValues;
+      /** true if the only child is the text of CDATA sections */
+      private boolean cdata;
+      /** Strings for text, StaxElements and OTHER, null once converted */
+      private List children = new ArrayList();
+      private String clazz;
+      /** the types this element may be converted with */
+      private String[] contexts;
+      private String[] declaredPrefixes;
+      private String[] declaredUris;
+      private int elementCount;
+      /** thrown by isArray() and isObject() if checking the children failed */
+      private RuntimeException failure;
+      private String[] namespacePrefixes;
+      private String[] namespaceUris;
+      private boolean nullObject;
+      private boolean object;
+      private Object[] objects;
+      private final StaxElement parent;
+      private final String qName;
+      private StringBuilder text;
+      private boolean textIsCData;
+      private String type;
+      private String value;
+      /** offset of this element's text in StaxReader.values, -1 if not kept */
+      private int valueStart = -1;
+
+      StaxElement( StaxElement parent, XMLStreamReader reader ) {
+         this.parent = parent;
+         String prefix = StringUtils.defaultString( reader.getPrefix() );
+         String uri = StringUtils.defaultString( reader.getNamespaceURI() );
+         qName = prefix.length() == 0 ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+
+         // same namespaces as a XOM Element: its own, those of its attributes
+         // and the ones declared on it that differ from the inherited ones
+         Map namespaces = null;
+         int attributeCount = reader.getAttributeCount();
+         attributeNames = new String[attributeCount];
+         attributeValues = new String[attributeCount];
+         for( int i = 0; i < attributeCount; i++ ){
+            String attributePrefix = StringUtils.defaultString( reader.getAttributePrefix( i ) );
+            String localName = reader.getAttributeLocalName( i );
+            attributeNames[i] = attributePrefix.length() == 0 ? localName : attributePrefix + ":"
+                  + localName;
+            attributeValues[i] = reader.getAttributeValue( i );
+            if( attributePrefix.length() > 0 && !"xml".equals( attributePrefix ) ){
+               if( namespaces == null ){
+                  namespaces = new TreeMap();
+               }
+               namespaces.put( attributePrefix, reader.getAttributeNamespace( i ) );
+            }
+         }
+         int declaredCount = reader.getNamespaceCount();
+         if( declaredCount > 0 ){
+            declaredPrefixes = new String[declaredCount];
+            declaredUris = new String[declaredCount];
+            for( int i = 0; i < declaredCount; i++ ){
+               declaredPrefixes[i] = StringUtils.defaultString( reader.getNamespacePrefix( i ) );
+               declaredUris[i] = StringUtils.defaultString( reader.getNamespaceURI( i ) );
+               if( parent == null
+                     || !declaredUris[i].equals( parent.getNamespaceURI( declaredPrefixes[i] ) ) ){
+                  if( namespaces == null ){
+                     namespaces = new TreeMap();
+                  }
+                  namespaces.put( declaredPrefixes[i], declaredUris[i] );
+               }
+            }
+         }
+         if( namespaces == null ){
+            namespacePrefixes = new String[] { prefix };
+            namespaceUris = new String[] { uri };
+         }else{
+            namespaces.put( prefix, uri );
+            namespacePrefixes = (String[]) namespaces.keySet()
+                  .toArray( new String[namespaces.size()] );
+            namespaceUris = (String[]) namespaces.values()
+                  .toArray( new String[namespaces.size()] );
+         }
+      }
+
+      void addChild( Object child ) {
+         flushText();
+         children.add( child );
+         if( child instanceof StaxElement ){
+            elementCount++;
+         }
+      }
+
+      void appendText( char[] chars, int start, int length, boolean isCData ) {
+         if( text == null ){
+            text = new StringBuilder();
+         }
+         textIsCData = text.length() == 0 ? isCData : textIsCData && isCData;
+         text.append( chars, start, length );
+      }
+
+      /**
+       * Returns the value of the unprefixed attribute name, null if there is none.
+       */
+      String attribute( String name ) {
+         for( int i = 0; i < attributeNames.length; i++ ){
+            if( attributeNames[i].equals( name ) ){
+               return attributeValues[i];
+            }
+         }
+         return null;
+      }
+
+      /**
+       * Ends the current text child, adjacent text and CDATA sections make a
+       * single child as they do in XOM.
+       */
+      void flushText() {
+         if( text != null && text.length() > 0 ){
+            if( children.isEmpty() ){
+               cdata = textIsCData;
+            }
+            children.add( text.toString() );
+            text.setLength( 0 );
+         }
+      }
+
+      JSON getArray( String type ) {
+         return getConverted( arrays, type );
+      }
+
+      /**
+       * Returns the URI bound to prefix where this element is.
+       */
+      String getNamespaceURI( String prefix ) {
+         for( StaxElement element = this; element != null; element = element.parent ){
+            if( element.declaredPrefixes != null ){
+               for( int i = 0; i < element.declaredPrefixes.length; i++ ){
+                  if( element.declaredPrefixes[i].equals( prefix ) ){
+                     return element.declaredUris[i];
+                  }
+               }
+            }
+         }
+         return "xml".equals( prefix ) ? "http://www.w3.org/XML/1998/namespace" : "";
+      }
+
+      JSON getObject( String type ) {
+         return getConverted( objects, type );
+      }
+
+      /**
+       * Returns the text of this element and its descendants.
+       */
+      String getValue() {
+         if( value == null ){
+            throw new IllegalStateException( "The value of " + qName + " was not kept" );
+         }
+         return value;
+      }
+
+      boolean isArray() {
+         if( failure != null ){
+            throw failure;
+         }
+         return array;
+      }
+
+      boolean isObject() {
+         if( failure != null ){
+            throw failure;
+         }
+         return object;
+      }
+
+      private JSON getConverted( Object[] converted, String type ) {
+         if( converted != null ){
+            for( int i = 0; i < contexts.length; i++ ){
+               if( StringUtils.equals( contexts[i], type ) ){
+                  if( converted[i] instanceof RuntimeException ){
+                     throw (RuntimeException) converted[i];
+                  }
+                  return (JSON) converted[i];
+               }
+            }
+         }
+         throw new IllegalStateException( qName + " was not converted with type " + type );
+      }
+   }
+
+   /**
+    * Converts XML to JSON as a StAX parser reads it, with the same rules as the
+    * conversion of a XOM Document.<br>
+    * When an element ends its children are checked the way the XOM conversion
+    * checks them, and it is converted for every type it may be read with,
+    * which are the types of its ancestors and its own. Errors are kept until
+    * the conversion that raised them is used. The text of an element is kept
+    * only if it may be read as a number, boolean or function.
+    */
+   private class StaxReader {
+      /** text of the open elements whose value is kept */
+      private final StringBuilder values = new StringBuilder();
+      private int valueDepth;
+
+      JSON read( XMLStreamReader reader ) throws XMLStreamException {
+         StaxElement current = null;
+         StaxElement root = null;
+         while( reader.hasNext() ){
+            int event = reader.next();
+            switch( event ){
+               case XMLStreamConstants.START_ELEMENT:
+                  StaxElement element = start( current, reader );
+                  if( current != null ){
+                     current.addChild( element );
+                  }
+                  current = element;
+                  break;
+               case XMLStreamConstants.END_ELEMENT:
+                  current.flushText();
+                  if( current.parent == null ){
+                     root = current;
+                  }else{
+                     end( current );
+                  }
+                  current = current.parent;
+                  break;
+               case XMLStreamConstants.CHARACTERS:
+               case XMLStreamConstants.CDATA:
+               case XMLStreamConstants.SPACE:
+                  if( current != null ){
+                     char[] chars = reader.getTextCharacters();
+                     int start = reader.getTextStart();
+                     int length = reader.getTextLength();
+                     current.appendText( chars, start, length, event == XMLStreamConstants.CDATA );
+                     if( valueDepth > 0 ){
+                        values.append( chars, start, length );
+                     }
+                  }
+                  break;
+               case XMLStreamConstants.COMMENT:
+               case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                  if( current != null ){
+                     current.addChild( StaxElement.OTHER );
+                  }
+                  break;
+               default:
+                  // the document itself, DTD and entity events
+            }
+         }
+
+         if( isNullObject( root ) ){
+            return JSONNull.getInstance();
+         }
+         JSON json = null;
+         String defaultType = root.contexts[0];
+         if( isArray( root, true ) ){
+            json = processArrayElement( root, defaultType );
+         }else{
+            json = processObjectElement( root, defaultType );
+         }
+         if( forceTopLevelObject ){
+            String key = removeNamespacePrefix( root.qName );
+            json = new JSONObject().element( key, json );
+         }
+         return json;
+      }
+
+      private boolean checkChildElements( StaxElement element, boolean isTopLevel ) {
+         List children = element.children;
+         int childCount = children.size();
+         int elementCount = element.elementCount;
+
+         if( childCount == 1 && children.get( 0 ) instanceof String ){
+            return isTopLevel;
+         }
+
+         if( childCount == elementCount ){
+            if( elementCount == 0 ){
+               return true;
+            }
+            if( elementCount == 1 ){
+               return false;
+            }
+         }
+
+         if( childCount > elementCount && !skipWhitespace ){
+            for( int i = 0; i < childCount; i++ ){
+               Object child = children.get( i );
+               if( child instanceof String
+                     && StringUtils.isNotBlank( StringUtils.strip( (String) child ) ) ){
+                  return false;
+               }
+            }
+         }
+
+         if( elementCount == 0 ){
+            // the XOM conversion fails here too
+            throw new IndexOutOfBoundsException( "Index: 0, Size: 0" );
+         }
+         String childName = null;
+         for( int i = 0; i < childCount; i++ ){
+            Object child = children.get( i );
+            if( child instanceof StaxElement ){
+               String name = ((StaxElement) child).qName;
+               if( childName == null ){
+                  childName = name;
+               }else if( childName.compareTo( name ) != 0 ){
+                  return false;
+               }
+            }
+         }
+
+         if( childName.equals( arrayName ) ){
+            return true;
+         }
+
+         return elementCount > 1;
+      }
+
+      /**
+       * Summarizes the element once its children have been read and converts
+       * it, the children are released afterwards.
+       */
+      private void end( StaxElement element ) {
+         List children = element.children;
+         if( element.valueStart >= 0 ){
+            element.value = values.substring( element.valueStart );
+            if( --valueDepth == 0 ){
+               values.setLength( 0 );
+            }
+         }else if( children.isEmpty() ){
+            element.value = "";
+         }else if( children.size() == 1 && children.get( 0 ) instanceof String ){
+            element.value = (String) children.get( 0 );
+         }
+         element.cdata = element.cdata && children.size() == 1;
+         element.nullObject = isNullObject( element );
+         try{
+            element.array = isArray( element, false );
+            element.object = isObject( element, false );
+         }catch( RuntimeException e ){
+            element.failure = e;
+         }
+
+         int count = element.contexts.length;
+         if( element.array || JSONTypes.ARRAY.equals( element.clazz ) ){
+            element.arrays = new Object[count];
+            for( int i = 0; i < count; i++ ){
+               try{
+                  element.arrays[i] = processArrayElement( element, element.contexts[i] );
+               }catch( RuntimeException e ){
+                  element.arrays[i] = e;
+               }
+            }
+         }
+         if( element.object || JSONTypes.OBJECT.equals( element.clazz ) ){
+            element.objects = new Object[count];
+            for( int i = 0; i < count; i++ ){
+               try{
+                  element.objects[i] = processObjectElement( element, element.contexts[i] );
+               }catch( RuntimeException e ){
+                  element.objects[i] = e;
+               }
+            }
+         }
+         element.children = null;
+         element.text = null;
+      }
+
+      private boolean hasNamespaces( StaxElement element ) {
+         for( int i = 0; i < element.namespaceUris.length; i++ ){
+            if( !StringUtils.isBlank( element.namespaceUris[i] ) ){
+               return true;
+            }
+         }
+         return false;
+      }
+
+      private boolean isArray( StaxElement element, boolean isTopLevel ) {
+         boolean isArray = false;
+         int attributeCount = element.attributeNames.length;
+         boolean hasClass = element.attribute( addJsonPrefix( "class" ) ) != null;
+         boolean hasType = element.attribute( addJsonPrefix( "type" ) ) != null;
+         if( JSONTypes.ARRAY.equals( element.clazz ) ){
+            isArray = true;
+         }else if( attributeCount == 0 ){
+            isArray = checkChildElements( element, isTopLevel );
+         }else if( attributeCount == 1 && (hasClass || hasType) ){
+            isArray = checkChildElements( element, isTopLevel );
+         }else if( attributeCount == 2 && (hasClass && hasType) ){
+            isArray = checkChildElements( element, isTopLevel );
+         }
+
+         if( isArray && hasNamespaces( element ) ){
+            return false;
+         }
+         return isArray;
+      }
+
+      private boolean isFunction( StaxElement element ) {
+         int attributeCount = element.attributeNames.length;
+         if( attributeCount > 0 ){
+            String typeAttr = element.attribute( addJsonPrefix( "type" ) );
+            String paramsAttr = element.attribute( addJsonPrefix( "params" ) );
+            if( attributeCount == 1 && paramsAttr != null ){
+               return true;
+            }
+            if( attributeCount == 2 && paramsAttr != null && typeAttr != null
+                  && (typeAttr.compareToIgnoreCase( JSONTypes.STRING ) == 0 || typeAttr.compareToIgnoreCase( JSONTypes.FUNCTION ) == 0) ){
+               return true;
+            }
+         }
+         return false;
+      }
+
+      private boolean isNullObject( StaxElement element ) {
+         int childCount = element.children.size();
+         if( childCount == 0 ){
+            int attributeCount = element.attributeNames.length;
+            boolean hasClass = element.attribute( addJsonPrefix( "class" ) ) != null;
+            boolean hasType = element.attribute( addJsonPrefix( "type" ) ) != null;
+            if( attributeCount == 0 ){
+               return true;
+            }else if( element.attribute( addJsonPrefix( "null" ) ) != null ){
+               return true;
+            }else if( attributeCount == 1 && (hasClass || hasType) ){
+               return true;
+            }else if( attributeCount == 2 && (hasClass && hasType) ){
+               return true;
+            }
+         }
+         return skipWhitespace && childCount == 1 && element.children.get( 0 ) instanceof String;
+      }
+
+      private boolean isObject( StaxElement element, boolean isTopLevel ) {
+         if( isArray( element, isTopLevel ) || isFunction( element ) ){
+            return false;
+         }
+         if( hasNamespaces( element ) ){
+            return true;
+         }
+
+         int attributeCount = element.attributeNames.length;
+         if( attributeCount > 0 ){
+            int attrs = element.attribute( addJsonPrefix( "null" ) ) == null ? 0 : 1;
+            attrs += element.attribute( addJsonPrefix( "class" ) ) == null ? 0 : 1;
+            attrs += element.attribute( addJsonPrefix( "type" ) ) == null ? 0 : 1;
+            if( attributeCount > 3 || attrs < attributeCount ){
+               return true;
+            }
+         }
+
+         if( element.children.size() == 1 && element.children.get( 0 ) instanceof String ){
+            return isTopLevel;
+         }
+         return true;
+      }
+
+      private JSON processArrayElement( StaxElement element, String defaultType ) {
+         JSONArray jsonArray = new JSONArray();
+         // process children (including text)
+         List children = element.children;
+         int childCount = children.size();
+         for( int i = 0; i < childCount; i++ ){
+            Object child = children.get( i );
+            if( child instanceof String ){
+               if( StringUtils.isNotBlank( StringUtils.strip( (String) child ) ) ){
+                  jsonArray.element( (String) child );
+               }
+            }else if( child instanceof StaxElement ){
+               setValue( jsonArray, (StaxElement) child, defaultType );
+            }
+         }
+         if( keepArrayName ){
+            boolean isSameElementNameInArray = true;
+            String arrayName = null;
+            for( int i = 0; i < childCount; i++ ){
+               Object child = children.get( i );
+               if( child instanceof StaxElement ){
+                  String arrayElement = ((StaxElement) child).qName;
+                  if( arrayName == null ){
+                     arrayName = arrayElement;
+                  }else if( !arrayName.equals( arrayElement ) ){
+                     isSameElementNameInArray = false;
+                  }
+               }
+            }
+            if( isSameElementNameInArray ){
+               JSONObject result = new JSONObject();
+               result.put( arrayName, jsonArray );
+               return result;
+            }
+         }
+         return jsonArray;
+      }
+
+      private Object processElement( StaxElement element, String type ) {
+         if( element.nullObject ){
+            return JSONNull.getInstance();
+         }else if( element.isArray() ){
+            return element.getArray( type );
+         }else if( element.isObject() ){
+            return element.getObject( type );
+         }else{
+            return trimSpaceFromValue( element.getValue() );
+         }
+      }
+
+      private JSON processObjectElement( StaxElement element, String defaultType ) {
+         if( isNullObject( element ) ){
+            return JSONNull.getInstance();
+         }
+         JSONObject jsonObject = new JSONObject();
+
+         if( !skipNamespaces ){
+            for( int j = 0; j < element.namespacePrefixes.length; j++ ){
+               String prefix = element.namespacePrefixes[j];
+               String uri = element.namespaceUris[j];
+               if( StringUtils.isBlank( uri ) ){
+                  continue;
+               }
+               if( !StringUtils.isBlank( prefix ) ){
+                  prefix = ":" + prefix;
+               }
+               setOrAccumulate( jsonObject, "@xmlns" + prefix, trimSpaceFromValue( uri ) );
+            }
+         }
+
+         // process attributes first
+         for( int i = 0; i < element.attributeNames.length; i++ ){
+            String attrname = element.attributeNames[i];
+            if( isTypeHintsEnabled()
+                  && (addJsonPrefix( "class" ).compareToIgnoreCase( attrname ) == 0 || addJsonPrefix(
+                  "type" ).compareToIgnoreCase( attrname ) == 0) ){
+               continue;
+            }
+            setOrAccumulate( jsonObject, "@" + removeNamespacePrefix( attrname ),
+                  trimSpaceFromValue( element.attributeValues[i] ) );
+         }
+
+         // process children (including text)
+         List children = element.children;
+         int childCount = children.size();
+         for( int i = 0; i < childCount; i++ ){
+            Object child = children.get( i );
+            if( child instanceof String ){
+               if( StringUtils.isNotBlank( StringUtils.strip( (String) child ) ) ){
+                  setOrAccumulate( jsonObject, "#text", trimSpaceFromValue( (String) child ) );
+               }
+            }else if( child instanceof StaxElement ){
+               setValue( jsonObject, (StaxElement) child, defaultType );
+            }
+         }
+
+         return jsonObject;
+      }
+
+      private void setValue( JSONArray jsonArray, StaxElement element, String defaultType ) {
+         String clazz = element.clazz;
+         String type = (element.type == null) ? defaultType : element.type;
+
+         if( hasNamespaces( element ) && !skipNamespaces ){
+            jsonArray.element( simplifyValue( null, processElement( element, type ) ) );
+            return;
+         }else if( element.attributeNames.length > 0 ){
+            if( isFunction( element ) ){
+               String[] params = StringUtils.split( element.attribute( addJsonPrefix( "params" ) ), "," );
+               jsonArray.element( new JSONFunction( params, element.getValue() ) );
+            }else{
+               jsonArray.element( simplifyValue( null, processElement( element, type ) ) );
+            }
+            return;
+         }
+
+         if( JSONTypes.ARRAY.equals( clazz ) ){
+            jsonArray.element( element.getArray( type ) );
+         }else if( JSONTypes.OBJECT.equals( clazz ) ){
+            jsonArray.element( simplifyValue( null, element.getObject( type ) ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.BOOLEAN ) == 0 ){
+            jsonArray.element( Boolean.valueOf( element.getValue() ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.NUMBER ) == 0 ){
+            // try integer first
+            try{
+               jsonArray.element( Integer.valueOf( element.getValue() ) );
+            }catch( NumberFormatException e ){
+               jsonArray.element( Double.valueOf( element.getValue() ) );
+            }
+         }else if( type.compareToIgnoreCase( JSONTypes.INTEGER ) == 0 ){
+            jsonArray.element( Integer.valueOf( element.getValue() ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.FLOAT ) == 0 ){
+            jsonArray.element( Double.valueOf( element.getValue() ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.FUNCTION ) == 0 ){
+            String[] params = null;
+            String paramsAttribute = element.attribute( addJsonPrefix( "params" ) );
+            if( paramsAttribute != null ){
+               params = StringUtils.split( paramsAttribute, "," );
+            }
+            jsonArray.element( new JSONFunction( params, element.getValue() ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.STRING ) == 0 ){
+            // see if by any chance has a 'params' attribute
+            String paramsAttribute = element.attribute( addJsonPrefix( "params" ) );
+            if( paramsAttribute != null ){
+               String[] params = StringUtils.split( paramsAttribute, "," );
+               jsonArray.element( new JSONFunction( params, element.getValue() ) );
+            }else if( element.isArray() ){
+               jsonArray.element( element.getArray( defaultType ) );
+            }else if( element.isObject() ){
+               jsonArray.element( simplifyValue( null, element.getObject( defaultType ) ) );
+            }else{
+               jsonArray.element( trimSpaceFromValue( element.getValue() ) );
+            }
+         }
+      }
+
+      private void setValue( JSONObject jsonObject, StaxElement element, String defaultType ) {
+         String clazz = element.clazz;
+         String type = (element.type == null) ? defaultType : element.type;
+
+         String key = removeNamespacePrefix( element.qName );
+         if( hasNamespaces( element ) && !skipNamespaces ){
+            setOrAccumulate( jsonObject, key, simplifyValue( jsonObject,
+                  processElement( element, type ) ) );
+            return;
+         }else if( element.attributeNames.length > 0 && isFunction( element ) ){
+            String[] params = StringUtils.split( element.attribute( addJsonPrefix( "params" ) ), "," );
+            setOrAccumulate( jsonObject, key, new JSONFunction( params, element.getValue() ) );
+            return;
+         }
+
+         if( JSONTypes.ARRAY.equals( clazz ) ){
+            setOrAccumulate( jsonObject, key, element.getArray( type ) );
+         }else if( JSONTypes.OBJECT.equals( clazz ) ){
+            setOrAccumulate( jsonObject, key, simplifyValue( jsonObject, element.getObject( type ) ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.BOOLEAN ) == 0 ){
+            setOrAccumulate( jsonObject, key, Boolean.valueOf( element.getValue() ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.NUMBER ) == 0 ){
+            // try integer first
+            try{
+               setOrAccumulate( jsonObject, key, Integer.valueOf( element.getValue() ) );
+            }catch( NumberFormatException e ){
+               setOrAccumulate( jsonObject, key, Double.valueOf( element.getValue() ) );
+            }
+         }else if( type.compareToIgnoreCase( JSONTypes.INTEGER ) == 0 ){
+            setOrAccumulate( jsonObject, key, Integer.valueOf( element.getValue() ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.FLOAT ) == 0 ){
+            setOrAccumulate( jsonObject, key, Double.valueOf( element.getValue() ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.FUNCTION ) == 0 ){
+            String[] params = null;
+            String paramsAttribute = element.attribute( addJsonPrefix( "params" ) );
+            if( paramsAttribute != null ){
+               params = StringUtils.split( paramsAttribute, "," );
+            }
+            setOrAccumulate( jsonObject, key, new JSONFunction( params, element.getValue() ) );
+         }else if( type.compareToIgnoreCase( JSONTypes.STRING ) == 0 ){
+            // see if by any chance has a 'params' attribute
+            String paramsAttribute = element.attribute( addJsonPrefix( "params" ) );
+            if( paramsAttribute != null ){
+               String[] params = StringUtils.split( paramsAttribute, "," );
+               setOrAccumulate( jsonObject, key, new JSONFunction( params, element.getValue() ) );
+            }else if( element.isArray() ){
+               setOrAccumulate( jsonObject, key, element.getArray( defaultType ) );
+            }else if( element.isObject() ){
+               setOrAccumulate( jsonObject, key, simplifyValue( jsonObject,
+                     element.getObject( defaultType ) ) );
+            }else{
+               String value;
+               if( isKeepCData && element.cdata ){
+                  value = "<![CDATA[" + element.getValue() + "]]>";
+               }else{
+                  value = element.getValue();
+               }
+               setOrAccumulate( jsonObject, key, trimSpaceFromValue( value ) );
+            }
+         }
+      }
+
+      private StaxElement start( StaxElement parent, XMLStreamReader reader ) {
+         StaxElement element = new StaxElement( parent, reader );
+         String clazz = element.attribute( addJsonPrefix( "class" ) );
+         element.clazz = clazz != null ? toJsonClass( clazz ) : null;
+         String type = element.attribute( addJsonPrefix( "type" ) );
+         element.type = type != null ? toJsonType( type ) : null;
+
+         if( parent == null ){
+            element.contexts = new String[] { type != null ? element.type : JSONTypes.STRING };
+            return element;
+         }
+         String[] contexts = parent.contexts;
+         if( element.type != null && !ArrayUtils.contains( contexts, element.type ) ){
+            contexts = (String[]) ArrayUtils.add( contexts, element.type );
+         }
+         element.contexts = contexts;
+
+         // keep the text of elements that may be read with getValue()
+         boolean keepValue = element.attribute( addJsonPrefix( "params" ) ) != null;
+         for( int i = 0; i < contexts.length && !keepValue; i++ ){
+            String context = contexts[i];
+            keepValue = JSONTypes.BOOLEAN.equals( context ) || JSONTypes.NUMBER.equals( context )
+                  || JSONTypes.INTEGER.equals( context ) || JSONTypes.FLOAT.equals( context )
+                  || JSONTypes.FUNCTION.equals( context );
+         }
+         if( keepValue ){
+            element.valueStart = values.length();
+            valueDepth++;
+         }
+         return element;
+      }
    }
 }
\ No newline at end of file
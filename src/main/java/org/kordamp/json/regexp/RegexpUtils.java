@@ -15,24 +15,44 @@
  */
 package org.kordamp.json.regexp;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Convenience utility for working withRegexpMatcher.<br>
+ * Matchers are cached by pattern, they hold no matching state and may be
+ * shared by several threads.
  *
  * @author Andres Almiray
  */
 public class RegexpUtils {
+    /**
+     * patterns may come from configuration or data, so the cache is bounded
+     */
+    private static final int MAX_CACHED_MATCHERS = 256;
+    private static final Map matchers = new ConcurrentHashMap();
+    private static final Map multilineMatchers = new ConcurrentHashMap();
+
     /**
      * Returns a RegexpMatcher that works in a specific environment.<br>
      */
     public static RegexpMatcher getMatcher(String pattern) {
-        return new JdkRegexpMatcher(pattern);
+        return getMatcher(pattern, false);
     }
 
     /**
      * Returns a RegexpMatcher that works in a specific environment.<br>
      */
     public static RegexpMatcher getMatcher(String pattern, boolean multiline) {
-        return new JdkRegexpMatcher(pattern, multiline);
+        Map cache = multiline ? multilineMatchers : matchers;
+        RegexpMatcher matcher = (RegexpMatcher) cache.get(pattern);
+        if (matcher == null) {
+            matcher = new JdkRegexpMatcher(pattern, multiline);
+            if (cache.size() < MAX_CACHED_MATCHERS) {
+                cache.put(pattern, matcher);
+            }
+        }
+        return matcher;
     }
 
     private RegexpUtils() {
@@ -275,7 +275,9 @@ public final class JSONUtils {
     public static boolean isFunction(Object obj) {
         if (obj instanceof String) {
             String str = (String) obj;
-            return str.startsWith(FUNCTION_PREFIX) && RegexpUtils.getMatcher(FUNCTION_PATTERN, true).matches(str);
+            // both ends are checked before running the regexp
+            return str.startsWith(FUNCTION_PREFIX) && str.endsWith("}")
+                && RegexpUtils.getMatcher(FUNCTION_PATTERN, true).matches(str);
         }
         if (obj instanceof JSONFunction) {
             return true;
@@ -290,7 +292,8 @@ public final class JSONUtils {
     public static boolean isFunctionHeader(Object obj) {
         if (obj instanceof String) {
             String str = (String) obj;
-            return str.startsWith(FUNCTION_PREFIX) && RegexpUtils.getMatcher(FUNCTION_HEADER_PATTERN, true).matches(str);
+            return str.startsWith(FUNCTION_PREFIX) && str.endsWith(")")
+                && RegexpUtils.getMatcher(FUNCTION_HEADER_PATTERN, true).matches(str);
         }
         return false;
     }
@@ -56,6 +56,7 @@ public class AllTests extends TestSuite {
 
       suite.addTest( new TestSuite( TestUserSubmitted.class ) );
       suite.addTest( new TestSuite( TestJSONArrayCollections.class ) );
+      suite.addTest( new TestSuite( TestJsonConfig.class ) );
 
       return suite;
    }
@@ -15,6 +15,7 @@
  */
 package net.sf.json;
 
+import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -23,6 +24,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 import net.sf.ezmorph.MorphUtils;
@@ -763,6 +769,86 @@ public class TestJSONArray extends TestCase {
       Assertions.assertEquals( expected, actual );
    }
 
+   public void testFromObject_lazyParsing() {
+      String str = "[{\"a\":[1,2]},[[3]],\"[\",4,{}]";
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setLazyParsing( true );
+      JSONArray json = JSONArray.fromObject( str, jsonConfig );
+      assertEquals( 5, json.size() );
+      assertEquals( JSONArray.fromObject( str ), json );
+      assertEquals( 3, json.getJSONArray( 1 )
+            .getJSONArray( 0 )
+            .getInt( 0 ) );
+      assertEquals( "[", json.getString( 2 ) );
+   }
+
+   public void testFromObject_parallel() {
+      BeanA shared = new BeanA();
+      List list = new ArrayList();
+      for( int i = 0; i < 50; i++ ){
+         List nested = new ArrayList();
+         nested.add( new Integer( i ) );
+         nested.add( shared );
+         nested.add( new Object[] { "a", new BeanA( false, i, "b" ), shared } );
+         list.add( i % 2 == 0 ? (Object) nested : new BeanA( true, i, "json" ) );
+      }
+      ExecutorService executor = Executors.newFixedThreadPool( 2 );
+      try{
+         JsonConfig jsonConfig = new JsonConfig();
+         jsonConfig.setParallelExecutor( executor );
+         jsonConfig.setParallelThreshold( 2 );
+         Assertions.assertEquals( JSONArray.fromObject( list ), JSONArray.fromObject( list, jsonConfig ) );
+         Assertions.assertEquals( JSONArray.fromObject( list.toArray() ),
+               JSONArray.fromObject( list.toArray(), jsonConfig ) );
+      }finally{
+         executor.shutdown();
+      }
+   }
+
+   public void testFromObject_parallel_fromExecutorThread() throws Exception {
+      final List list = new ArrayList();
+      for( int i = 0; i < 50; i++ ){
+         list.add( new BeanA( true, i, "json" ) );
+      }
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try{
+         final JsonConfig jsonConfig = new JsonConfig();
+         jsonConfig.setParallelExecutor( executor );
+         jsonConfig.setParallelThreshold( 2 );
+         Future future = executor.submit( new Callable() {
+            public Object call() {
+               return JSONArray.fromObject( list, jsonConfig );
+            }
+         } );
+         Assertions.assertEquals( JSONArray.fromObject( list ), future.get( 10, TimeUnit.SECONDS ) );
+      }finally{
+         executor.shutdown();
+      }
+   }
+
+   public void testFromObject_parallel_cycle() {
+      List list = new ArrayList();
+      for( int i = 0; i < 20; i++ ){
+         list.add( new Integer( i ) );
+      }
+      List nested = new ArrayList();
+      nested.add( list );
+      list.set( 17, nested );
+      ExecutorService executor = Executors.newFixedThreadPool( 2 );
+      try{
+         JsonConfig jsonConfig = new JsonConfig();
+         jsonConfig.setParallelExecutor( executor );
+         jsonConfig.setParallelThreshold( 2 );
+         JSONArray.fromObject( list, jsonConfig );
+         fail( "A JSONException was expected" );
+      }catch( JSONException expected ){
+         assertTrue( expected.getMessage()
+               .endsWith( "There is a cycle in the hierarchy!" ) );
+      }finally{
+         executor.shutdown();
+      }
+   }
+
    public void testFromObject_Short() {
       JSONArray expected = JSONArray.fromObject( "[1]" );
       JSONArray actual = JSONArray.fromObject( new Short( (short) 1 ) );
@@ -1248,6 +1334,84 @@ public class TestJSONArray extends TestCase {
       Assertions.assertEquals( expected, actual );
    }
 
+   public void testToDoubleArray() {
+      JSONArray jsonArray = JSONArray.fromObject( "[1,2.5,\"3\"]" );
+      double[] actual = jsonArray.toDoubleArray();
+      Assertions.assertEquals( new double[] { 1, 2.5, 3 }, actual );
+      try{
+         JSONArray.fromObject( "[1,true]" )
+               .toDoubleArray();
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+   }
+
+   public void testToDoubleArray_primitiveArray() {
+      JSONArray jsonArray = JSONArray.fromObject( new double[] { 1.5, 2, 1e20 } );
+      Assertions.assertEquals( new double[] { 1.5, 2, 1e20 }, jsonArray.toDoubleArray() );
+      Assertions.assertEquals( new int[] { 1, 2, Integer.MAX_VALUE }, jsonArray.toIntArray() );
+      Assertions.assertEquals( new double[] { 1.5, 2, 1e20 },
+            JSONArray.toArray( jsonArray, Double.TYPE ) );
+   }
+
+   public void testToIntArray_primitiveArray() {
+      int[] expected = new int[] { 1, 2, 3 };
+      JSONArray jsonArray = JSONArray.fromObject( expected );
+      int[] actual = jsonArray.toIntArray();
+      Assertions.assertEquals( expected, actual );
+      assertNotSame( expected, actual );
+      Assertions.assertEquals( new long[] { 1, 2, 3 }, jsonArray.toLongArray() );
+      Assertions.assertEquals( expected, JSONArray.toArray( jsonArray, Integer.TYPE ) );
+   }
+
+   public void testFromObject_primitiveArray_double() {
+      double[] array = new double[] { 1.5, 2, -0d, 1e20, 1.25e-7 };
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.enableEventTriggering();
+      JSONArray expected = JSONArray.fromObject( array, jsonConfig );
+      JSONArray actual = JSONArray.fromObject( array );
+      assertEquals( expected.toString(), actual.toString() );
+      assertEquals( expected, actual );
+      assertEquals( expected.hashCode(), actual.hashCode() );
+      assertEquals( new Double( 1.5 ), actual.get( 0 ) );
+      StringWriter w = new StringWriter();
+      try{
+         actual.writeCanonical( w );
+      }catch( IOException e ){
+         fail( e.getMessage() );
+      }
+      assertEquals( "[1.5,2,-0,1.0e20,1.25e-7]", w.toString() );
+      try{
+         JSONArray.fromObject( new double[] { 1, Double.NaN } );
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected2 ){
+         // ok
+      }
+   }
+
+   public void testFromObject_primitiveArray_int() {
+      JSONArray jsonArray = JSONArray.fromObject( new int[] { 1, 2, 3 } );
+      assertEquals( "[1,2,3]", jsonArray.toString() );
+      assertEquals( new Integer( 2 ), jsonArray.get( 1 ) );
+      jsonArray.element( 4 );
+      jsonArray.remove( 0 );
+      assertEquals( "[2,3,4]", jsonArray.toString() );
+      jsonArray.element( "a" );
+      jsonArray.element( 0, 5 );
+      assertEquals( "[5,3,4,\"a\"]", jsonArray.toString() );
+      assertEquals( JSONArray.fromObject( "[5,3,4,\"a\"]" ), jsonArray );
+   }
+
+   public void testFromObject_primitiveArray_long() {
+      JSONArray jsonArray = JSONArray.fromObject( new long[] { 1, 3000000000L } );
+      assertEquals( "[1,3000000000]", jsonArray.toString() );
+      assertEquals( new Integer( 1 ), jsonArray.get( 0 ) );
+      assertEquals( new Long( 3000000000L ), jsonArray.get( 1 ) );
+      jsonArray.element( 1.5d );
+      assertEquals( "[1,3000000000,1.5]", jsonArray.toString() );
+   }
+
    public void testToJSONObject() {
       JSONArray jsonArray = JSONArray.fromObject( "[\"json\",1,true]" );
       JSONObject expected = JSONObject.fromObject( "{\"string\":\"json\",\"int\":1,\"bool\":true}" );
@@ -1450,6 +1614,20 @@ public class TestJSONArray extends TestCase {
       assertEquals( "[[],{},1,true,\"json\"]", sw.toString() );
    }
 
+   public void testWrite_outputStream() throws IOException {
+      JSONArray jsonArray = new JSONArray();
+      StringBuffer text = new StringBuffer();
+      for( int i = 0; i < 3000; i++ ){
+         text.append( "\u00e9\u4e2d\ud834\udd1e" );
+      }
+      jsonArray.element( text.toString() )
+            .element( new int[] { 1, 2 } )
+            .element( "json" );
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      jsonArray.write( out );
+      assertEquals( jsonArray.toString(), new String( out.toByteArray(), "UTF-8" ) );
+   }
+
    private MorphDynaBean createDynaBean() throws Exception {
       Map properties = new HashMap();
       properties.put( "name", String.class );
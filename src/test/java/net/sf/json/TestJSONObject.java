@@ -48,12 +48,14 @@ import net.sf.json.util.CycleDetectionStrategy;
 import net.sf.json.util.JSONTokener;
 import net.sf.json.util.JSONUtils;
 import net.sf.json.util.JavaIdentifierTransformer;
+import net.sf.json.util.NewBeanInstanceStrategy;
 import net.sf.json.util.PropertyExclusionClassMatcher;
 import net.sf.json.util.PropertyFilter;
 import net.sf.json.util.PropertySetStrategy;
 import org.apache.commons.beanutils.PropertyUtils;
 
 import java.io.Serializable;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -64,6 +66,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * @author Andres Almiray <aalmiray@users.sourceforge.net>
@@ -863,6 +866,67 @@ public class TestJSONObject extends TestCase {
       assertTrue( jsonB.has("bool") );
    }
 
+   public void testFromObject_withExcludesPerClass_configChangedAfterUse() {
+      JsonConfig jsonConfig = new JsonConfig();
+      JSONObject jsonA = JSONObject.fromObject( new BeanA(), jsonConfig );
+      assertTrue( jsonA.has("bool") );
+      jsonConfig.registerPropertyExclusion( BeanA.class, "bool" );
+      jsonA = JSONObject.fromObject( new BeanA(), jsonConfig );
+      assertFalse( jsonA.has("bool") );
+      jsonConfig.unregisterPropertyExclusion( BeanA.class, "bool" );
+      jsonA = JSONObject.fromObject( new BeanA(), jsonConfig );
+      assertTrue( jsonA.has("bool") );
+   }
+
+   public void testFromObject_cyclesAreDetectedByIdentity() {
+      EqualBean bean = new EqualBean();
+      bean.setChild( new EqualBean() );
+      JSONObject json = JSONObject.fromObject( bean );
+      assertTrue( json.getJSONObject( "child" )
+            .getJSONObject( "child" )
+            .isNullObject() );
+   }
+
+   public void testFromObject_deepGraph() {
+      List root = new ArrayList();
+      List list = root;
+      for( int i = 0; i < 100; i++ ){
+         List child = new ArrayList();
+         list.add( child );
+         list = child;
+      }
+      list.add( root );
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setCycleDetectionStrategy( CycleDetectionStrategy.LENIENT );
+      JSONArray json = JSONArray.fromObject( root, jsonConfig );
+      for( int i = 0; i < 101; i++ ){
+         json = json.getJSONArray( 0 );
+      }
+      assertTrue( json.isEmpty() );
+   }
+
+   public void testFromObject_trustAcyclic_maxDepth() {
+      ParentBean parent = new ParentBean();
+      ChildBean child = new ChildBean();
+      parent.setChild( child );
+      child.setParent( parent );
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setCycleDetectionStrategy( CycleDetectionStrategy.LENIENT );
+      jsonConfig.setTrustAcyclic( true );
+      jsonConfig.setMaxDepth( 10 );
+      try{
+         JSONObject.fromObject( parent, jsonConfig );
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         assertTrue( expected.getMessage()
+               .indexOf( "Maximum depth of 10" ) != -1 );
+      }
+      child.setParent( null );
+      JSONObject json = JSONObject.fromObject( parent, jsonConfig );
+      assertTrue( json.getJSONObject( "child" )
+            .has( "parent" ) );
+   }
+
    public void testFromObject_withExcludesPerClassAndMatcher() {
       JsonConfig jsonConfig = new JsonConfig();
       jsonConfig.registerPropertyExclusion( BeanA.class, "bool" );
@@ -926,6 +990,182 @@ public class TestJSONObject extends TestCase {
       assertTrue( json.has( "pchar" ) );
    }
 
+   public void testFromString_keySymbolTable() {
+      String json = "{\"records\":[{\"id\":1,\"na\\u006de\":\"a\"},{\"id\":2,'name':\"b\"},{id:3,\"name\":\"c\"}]}";
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setKeySymbolTableSize( 64 );
+      JSONObject jsonObject = JSONObject.fromObject( json, jsonConfig );
+      assertEquals( JSONObject.fromObject( json ), jsonObject );
+
+      JSONArray records = jsonObject.getJSONArray( "records" );
+      Iterator keys = records.getJSONObject( 0 )
+            .keys();
+      Object id = keys.next();
+      Object name = keys.next();
+      assertEquals( "name", name );
+      for( int i = 1; i < records.size(); i++ ){
+         keys = records.getJSONObject( i )
+               .keys();
+         assertSame( id, keys.next() );
+         assertSame( name, keys.next() );
+      }
+   }
+
+   public void testFromString_keySymbolTable_isBounded() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setKeySymbolTableSize( 1 );
+      JSONArray jsonArray = JSONArray.fromObject( "[{\"a\":1,\"b\":2},{\"a\":3,\"b\":4}]",
+            jsonConfig );
+      Iterator keys0 = jsonArray.getJSONObject( 0 )
+            .keys();
+      Iterator keys1 = jsonArray.getJSONObject( 1 )
+            .keys();
+      assertSame( keys0.next(), keys1.next() );
+      Object b0 = keys0.next();
+      Object b1 = keys1.next();
+      assertEquals( b0, b1 );
+      assertNotSame( b0, b1 );
+   }
+
+   public void testFromString_lazyParsing() {
+      String str = "{\"a\":1,\"b\":{\"c\":[1,2,{\"d\":\"x\"}],\"s\":\"]}\",'q':'}{',/* } */\"n\":[]},\"e\":[{\"f\":\"}\"}]}";
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setLazyParsing( true );
+      JSONObject json = JSONObject.fromObject( str, jsonConfig );
+      JSONObject expected = JSONObject.fromObject( str );
+      assertEquals( expected.toString(), json.toString() );
+      assertEquals( expected, JSONObject.fromObject( str, jsonConfig ) );
+      assertEquals( "x", json.getJSONObject( "b" )
+            .getJSONArray( "c" )
+            .getJSONObject( 2 )
+            .getString( "d" ) );
+      assertEquals( "}{", json.getJSONObject( "b" )
+            .getString( "q" ) );
+   }
+
+   public void testFromString_lazyParsing_appliesConfig() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setLazyParsing( true );
+      jsonConfig.setExcludes( new String[] { "secret" } );
+      JSONObject json = JSONObject.fromObject(
+            "{\"header\":{\"id\":1,\"secret\":2},\"secret\":{\"x\":1},\"body\":[{\"secret\":3}]}",
+            jsonConfig );
+      assertFalse( json.has( "secret" ) );
+      assertEquals( "{\"id\":1}", json.getJSONObject( "header" )
+            .toString() );
+      assertEquals( "[{}]", json.getJSONArray( "body" )
+            .toString() );
+   }
+
+   public void testFromString_lazyParsing_errors() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setLazyParsing( true );
+      String[] strs = { "{\"a\":1,\"b\":{\"c\":}}", "{\"a\":{\"b\":1}", "{\"a\":{\"b\" 1}}",
+            "{\"a\":{'b':'it''s'}}", "{\"a\":{\"b\" 1{\"c\":1}}}", "{\"a\":[1,{\"b\":\"\\u00zz\"}]}",
+            "{\"a\":{\"x\":1,\"b\" 1, \"c\":{\"d\":2}}}", "{\"a\":[[1] 2]}" };
+      for( int i = 0; i < strs.length; i++ ){
+         String expected = null;
+         try{
+            JSONObject.fromObject( strs[i] );
+            fail( "Expected a parse error for " + strs[i] );
+         }catch( RuntimeException e ){
+            expected = e.getMessage();
+         }
+         try{
+            JSONObject.fromObject( strs[i], jsonConfig );
+            fail( "Expected a parse error for " + strs[i] );
+         }catch( RuntimeException e ){
+            assertEquals( expected, e.getMessage() );
+         }
+      }
+   }
+
+   public void testFromString_lazyParsing_retry() {
+      final int[] calls = new int[1];
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setLazyParsing( true );
+      jsonConfig.setJsonPropertyFilter( new PropertyFilter() {
+         public boolean apply( Object source, String name, Object value ) {
+            if( "b".equals( name ) && calls[0]++ == 0 ){
+               throw new JSONException( "first" );
+            }
+            return false;
+         }
+      } );
+      JSONObject json = JSONObject.fromObject( "{\"a\":{\"x\":1,\"b\":2,\"c\":{\"d\":3}}}", jsonConfig );
+      JSONObject a = json.getJSONObject( "a" );
+      try{
+         a.get( "x" );
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         assertEquals( "first", expected.getMessage() );
+      }
+      assertEquals( 3, a.size() );
+      assertEquals( "{\"x\":1,\"b\":2,\"c\":{\"d\":3}}", a.toString() );
+   }
+
+   public void testFromString_lazyParsing_sharedAcrossThreads() throws Exception {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setLazyParsing( true );
+      final List errors = Collections.synchronizedList( new ArrayList() );
+      for( int round = 0; round < 200; round++ ){
+         final JSONObject json = JSONObject.fromObject( "{\"a\":{\"b\":1,\"c\":[1,2,3],\"d\":{}}}",
+               jsonConfig );
+         final CountDownLatch start = new CountDownLatch( 1 );
+         Thread[] threads = new Thread[8];
+         for( int i = 0; i < threads.length; i++ ){
+            threads[i] = new Thread() {
+               public void run() {
+                  try{
+                     start.await();
+                     JSONObject a = json.getJSONObject( "a" );
+                     if( a.size() != 3 || a.getJSONArray( "c" )
+                           .size() != 3 ){
+                        errors.add( a.toString() );
+                     }
+                  }catch( Throwable t ){
+                     errors.add( t );
+                  }
+               }
+            };
+            threads[i].start();
+         }
+         start.countDown();
+         for( int i = 0; i < threads.length; i++ ){
+            threads[i].join();
+         }
+      }
+      assertEquals( Collections.EMPTY_LIST, errors );
+   }
+
+   public void testFromString_lazyParsing_sameAsEager() {
+      String str = "{\"a\":{\"b\":\"{\\\"x\\\":1}\",\"c\":\"[1,2]\",\"d\":[\"[3]\",{\"e\":\"{}\"}],"
+            + "\"f\":\"function(){}\",\"g\":\"null\"},\"h\":\"[4]\",\"i\":[[\"{\\\"y\\\":2}\"]]}";
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setLazyParsing( true );
+      JSONObject expected = JSONObject.fromObject( str );
+      JSONObject json = JSONObject.fromObject( str, jsonConfig );
+      assertEquals( expected.toString(), json.toString() );
+      assertEquals( 1, json.getJSONObject( "a" )
+            .getJSONObject( "b" )
+            .getInt( "x" ) );
+      assertEquals( JSONObject.fromObject( expected, jsonConfig )
+            .toString(), JSONObject.fromObject( JSONObject.fromObject( str, jsonConfig ), jsonConfig )
+            .toString() );
+      assertEquals( expected.toString(), JSONObject.fromObject(
+            JSONTokener.fromReader( new StringReader( str ), 8 ), jsonConfig )
+            .toString() );
+   }
+
+   public void testFromString_lazyParsing_reader() {
+      String str = "{\"a\":{\"b\":[1,{\"c\":true}]},\"d\":\"e\"}";
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setLazyParsing( true );
+      JSONObject json = JSONObject.fromObject( JSONTokener.fromReader( new StringReader( str ), 4 ),
+            jsonConfig );
+      assertEquals( str, json.toString() );
+   }
+
    public void testFromString_null_String() {
       JSONObject json = JSONObject.fromObject( null );
       assertTrue( json.isNullObject() );
@@ -1443,6 +1683,74 @@ public class TestJSONObject extends TestCase {
       assertTrue( obj.getPmap() instanceof MorphDynaBean );
    }
 
+   public void testToBean_ObjectBean_classMapChanged() {
+      JSONObject json = JSONObject.fromObject( "{pbean:{string:'json'},pstring:'a'}" );
+      Map classMap = new HashMap();
+      classMap.put( "pbean", BeanA.class );
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setRootClass( ObjectBean.class );
+      jsonConfig.setClassMap( classMap );
+      for( int i = 0; i < 2; i++ ){
+         ObjectBean obj = (ObjectBean) JSONObject.toBean( json, jsonConfig );
+         assertEquals( BeanA.class, obj.getPbean()
+               .getClass() );
+         assertEquals( "json", ((BeanA) obj.getPbean()).getString() );
+         assertEquals( "a", obj.getPstring() );
+      }
+      classMap = new HashMap();
+      classMap.put( "pbean", BeanB.class );
+      jsonConfig.setClassMap( classMap );
+      ObjectBean obj = (ObjectBean) JSONObject.toBean( json, jsonConfig );
+      assertEquals( BeanB.class, obj.getPbean()
+            .getClass() );
+   }
+
+   public void testToBean_ObjectBean_classMapChangedInPlace() {
+      JSONObject json = JSONObject.fromObject( "{pbean:{string:'json'}}" );
+      Map classMap = new HashMap();
+      classMap.put( "pbean", BeanA.class );
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setRootClass( ObjectBean.class );
+      jsonConfig.setClassMap( classMap );
+      ObjectBean obj = (ObjectBean) JSONObject.toBean( json, jsonConfig );
+      assertEquals( BeanA.class, obj.getPbean()
+            .getClass() );
+      jsonConfig.getClassMap()
+            .put( "pbean", BeanB.class );
+      obj = (ObjectBean) JSONObject.toBean( json, jsonConfig );
+      assertEquals( BeanB.class, obj.getPbean()
+            .getClass() );
+   }
+
+   public void testToBean_ObjectBean_frozenClassMapVariants() {
+      JSONObject json = JSONObject.fromObject( "{pbean:{string:'json'}}" );
+      JsonConfig frozen = new JsonConfig().freeze()
+            .withRootClass( ObjectBean.class );
+      Map classMap = new HashMap();
+      classMap.put( "pbean", BeanA.class );
+      ObjectBean obj = (ObjectBean) JSONObject.toBean( json, frozen.withClassMap( classMap ) );
+      assertEquals( BeanA.class, obj.getPbean()
+            .getClass() );
+      classMap.put( "pbean", BeanB.class );
+      obj = (ObjectBean) JSONObject.toBean( json, frozen.withClassMap( classMap ) );
+      assertEquals( BeanB.class, obj.getPbean()
+            .getClass() );
+   }
+
+   public void testToBean_newBeanInstanceSubclasses() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setRootClass( PolyBase.class );
+      jsonConfig.setNewBeanInstanceStrategy( new PolyBeanInstanceStrategy() );
+      PolyA a = (PolyA) JSONObject.toBean( JSONObject.fromObject( "{kind:'a',x:1,y:'one'}" ),
+            jsonConfig );
+      PolyB b = (PolyB) JSONObject.toBean( JSONObject.fromObject( "{kind:'b',x:2,y:'two'}" ),
+            jsonConfig );
+      assertEquals( 1, a.getX() );
+      assertEquals( "one", a.getY() );
+      assertEquals( 2, b.getX() );
+      assertEquals( "two", b.getY() );
+   }
+
    public void testToBean_ObjectBean_empty() throws Exception {
       // FR 1611204
       ObjectBean bean = new ObjectBean();
@@ -1537,6 +1845,19 @@ public class TestJSONObject extends TestCase {
       assertEquals( "false", bean.getString() );
    }
    
+   public void testToBeanWithJavaPropertyNameProcessor_registeredAfterUse(){
+      String json = "{bool:false}";
+      JSONObject jsonObject = JSONObject.fromObject( json );
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setRootClass( BeanA.class );
+      BeanA bean = (BeanA) JSONObject.toBean( jsonObject, jsonConfig );
+      assertFalse( bean.isBool() );
+      jsonConfig.registerJavaPropertyNameProcessor( BeanA.class, new SwapPropertyNameProcessor() );
+      bean = (BeanA) JSONObject.toBean( jsonObject, jsonConfig );
+      assertTrue( bean.isBool() );
+      assertEquals( "false", bean.getString() );
+   }
+
    public void testToJSONArray() {
       String json = "{bool:true,integer:1,string:\"json\"}";
       JSONArray names = JSONArray.fromObject( "['string','integer','bool']" );
@@ -1627,6 +1948,57 @@ public class TestJSONObject extends TestCase {
       }
    }
    
+   public static class PolyBase {
+      private String kind;
+      private int x;
+
+      public String getKind() {
+         return kind;
+      }
+
+      public int getX() {
+         return x;
+      }
+
+      public void setKind( String kind ) {
+         this.kind = kind;
+      }
+
+      public void setX( int x ) {
+         this.x = x;
+      }
+   }
+
+   public static class PolyA extends PolyBase {
+      private String y;
+
+      public String getY() {
+         return y;
+      }
+
+      public void setY( String y ) {
+         this.y = y;
+      }
+   }
+
+   public static class PolyB extends PolyBase {
+      private String y;
+
+      public String getY() {
+         return y;
+      }
+
+      public void setY( String y ) {
+         this.y = y;
+      }
+   }
+
+   public static class PolyBeanInstanceStrategy extends NewBeanInstanceStrategy {
+      public Object newInstance( Class target, JSONObject source ) {
+         return "a".equals( source.getString( "kind" ) ) ? (Object) new PolyA() : new PolyB();
+      }
+   }
+
    public static class SwapPropertyNameProcessor implements PropertyNameProcessor {
       public String processPropertyName( Class beanClass, String name ) {
          if( name.equals("bool")){
@@ -1656,4 +2028,24 @@ public class TestJSONObject extends TestCase {
         a.writeCanonical( sw );
         assertEquals(sw.toString(),"[true,1,5.3,{\"key1\":\"1\",\"key2\":\"2\",\"key3\":\"3\",\"string\":\"123\\u000d\\u000a\\u0008\\u0009\\u000c\\\\\\\\u65E5\\\\u672C\\\\u8A9E\"}]");
     }
-}
\ No newline at end of file
+
+   public static class EqualBean {
+      private EqualBean child;
+
+      public boolean equals( Object obj ) {
+         return obj instanceof EqualBean;
+      }
+
+      public EqualBean getChild() {
+         return child;
+      }
+
+      public int hashCode() {
+         return 1;
+      }
+
+      public void setChild( EqualBean child ) {
+         this.child = child;
+      }
+   }
+}
@@ -16,7 +16,10 @@
 
 package net.sf.json;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
@@ -54,6 +57,76 @@ public class TestJSONObjectAsMap extends TestCase {
       assertFalse( jsonObject.isEmpty() );
    }
 
+   public void testManyKeys_keepInsertionOrder() {
+      JSONObject json = new JSONObject();
+      StringBuffer expected = new StringBuffer( "{" );
+      for( int i = 0; i < 40; i++ ){
+         json.element( "key" + i, i );
+         expected.append( i > 0 ? "," : "" )
+               .append( "\"key" )
+               .append( i )
+               .append( "\":" )
+               .append( i );
+      }
+      expected.append( '}' );
+      assertEquals( expected.toString(), json.toString() );
+      assertEquals( 40, json.size() );
+      assertEquals( 39, json.getInt( "key39" ) );
+
+      json.element( "key0", 100 );
+      assertEquals( 100, json.getInt( "key0" ) );
+      assertEquals( "key0", json.keys()
+            .next() );
+      for( int i = 0; i < 35; i++ ){
+         json.remove( "key" + i );
+      }
+      assertEquals( "{\"key35\":35,\"key36\":36,\"key37\":37,\"key38\":38,\"key39\":39}",
+            json.toString() );
+      assertFalse( json.has( "key0" ) );
+      json.element( "key0", 0 );
+      assertEquals( 0, json.getInt( "key0" ) );
+      assertEquals( 6, json.size() );
+   }
+
+   public void testManyKeys_remove() {
+      Map map = new CompactOrderedMap();
+      List keys = new ArrayList();
+      for( int i = 0; i < 200; i++ ){
+         // "Aa" and "BB" share a hashCode, so some keys collide
+         String key = (i % 2 == 0 ? "Aa" : "BB") + i;
+         map.put( key, new Integer( i ) );
+         keys.add( key );
+      }
+      // remove through the map, the key set and the iterator
+      for( int i = 0; i < 200; i += 3 ){
+         assertEquals( new Integer( i ), map.remove( keys.get( i ) ) );
+      }
+      for( int i = 1; i < 200; i += 6 ){
+         assertTrue( map.keySet()
+               .remove( keys.get( i ) ) );
+      }
+      for( Iterator it = map.keySet()
+            .iterator(); it.hasNext(); ){
+         String key = (String) it.next();
+         if( Integer.parseInt( key.substring( 2 ) ) % 5 == 0 ){
+            it.remove();
+         }
+      }
+
+      List expected = new ArrayList();
+      for( int i = 0; i < 200; i++ ){
+         String key = (String) keys.get( i );
+         if( i % 3 == 0 || i % 6 == 1 || i % 5 == 0 ){
+            assertFalse( map.containsKey( key ) );
+         }else{
+            assertEquals( new Integer( i ), map.get( key ) );
+            expected.add( key );
+         }
+      }
+      assertEquals( expected, new ArrayList( map.keySet() ) );
+      assertEquals( expected.size(), map.size() );
+   }
+
    public void testPut() {
       String key = "key";
       Object value = "value";
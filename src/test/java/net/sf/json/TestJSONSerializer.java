@@ -16,17 +16,29 @@
 
 package net.sf.json;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
+import net.sf.json.processors.JsonValueProcessor;
 import net.sf.json.sample.ArrayJSONStringBean;
 import net.sf.json.sample.BeanA;
+import net.sf.json.sample.ChildBean;
+import net.sf.json.sample.JsonEventAdpater;
 import net.sf.json.sample.MappingBean;
+import net.sf.json.sample.ObjectBean;
 import net.sf.json.sample.ObjectJSONStringBean;
+import net.sf.json.sample.ParentBean;
+import net.sf.json.sample.UnstandardBeanInstanceStrategy;
 import net.sf.json.sample.ValueBean;
+import net.sf.json.util.CycleDetectionStrategy;
 import net.sf.json.util.JSONTokener;
+import net.sf.json.util.PropertyFilter;
 
 import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.beanutils.PropertyUtils;
@@ -248,6 +260,107 @@ public class TestJSONSerializer extends TestCase {
       Assertions.assertEquals( JSONObject.fromObject( "{\"name\":\"json\"}" ), (JSONObject) json );
    }
 
+   public void testWrite_bean() throws Exception {
+      ObjectBean bean = new ObjectBean();
+      bean.setPstring( "[1,2]" );
+      bean.setPint( new Integer( 1 ) );
+      bean.setPbean( new BeanA() );
+      List list = new ArrayList();
+      list.add( "json" );
+      list.add( null );
+      list.add( new BeanA() );
+      list.add( new Object[] { new Integer( 2 ), "{'a':1}" } );
+      bean.setPlist( list );
+      Map map = new LinkedHashMap();
+      map.put( "one", "function(){ return 1; }" );
+      map.put( "two", null );
+      map.put( "three", new int[] { 3 } );
+      bean.setPmap( map );
+      bean.setParray( new String[] { "a", "b" } );
+      bean.setPexcluded( "excluded" );
+      bean.setPfunction( new JSONFunction( "this;" ) );
+      jsonConfig.setExcludes( new String[] { "pexcluded" } );
+      jsonConfig.setJsonPropertyFilter( new PropertyFilter() {
+         public boolean apply( Object source, String name, Object value ) {
+            return "bool".equals( name );
+         }
+      } );
+      jsonConfig.registerJsonValueProcessor( "pint", new NumberJsonValueProcessor() );
+      assertWriteEquals( bean, jsonConfig );
+   }
+
+   public void testWrite_cycles() throws Exception {
+      ParentBean parent = new ParentBean();
+      ChildBean child = new ChildBean();
+      parent.setChild( child );
+      child.setParent( parent );
+      jsonConfig.setCycleDetectionStrategy( CycleDetectionStrategy.LENIENT );
+      assertWriteEquals( parent, jsonConfig );
+      jsonConfig.setCycleDetectionStrategy( CycleDetectionStrategy.NOPROP );
+      assertWriteEquals( parent, jsonConfig );
+      jsonConfig.setCycleDetectionStrategy( CycleDetectionStrategy.STRICT );
+      try{
+         JSONSerializer.write( parent, new StringWriter(), jsonConfig );
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+      // the failed attempt must not leave instances behind
+      jsonConfig.setCycleDetectionStrategy( CycleDetectionStrategy.LENIENT );
+      assertWriteEquals( parent, jsonConfig );
+   }
+
+   public void testWrite_events() throws Exception {
+      JsonEventAdpater listener = new JsonEventAdpater();
+      jsonConfig.enableEventTriggering();
+      jsonConfig.addJsonEventListener( listener );
+      assertWriteEquals( new BeanA(), jsonConfig );
+      // once for write, once for toJSON
+      assertEquals( 6, listener.getPropertySet() );
+      assertEquals( 2, listener.getObjectStart() );
+   }
+
+   public void testWrite_outputStream() throws Exception {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      JSONSerializer.write( "{'name':'j\u00e9son'}", out, jsonConfig );
+      assertEquals( "{\"name\":\"j\u00e9son\"}", new String( out.toByteArray(), "UTF-8" ) );
+      out.reset();
+      JSONSerializer.write( null, out );
+      assertEquals( "null", new String( out.toByteArray(), "UTF-8" ) );
+   }
+
+   public void testWrite_publicFieldFailure() throws Exception {
+      // the inherited DEFAULT field refers to a bean of the same class,
+      // the failing field is dropped by both paths
+      jsonConfig.setIgnorePublicFields( false );
+      jsonConfig.registerJsonValueProcessor( String.class, new NumberJsonValueProcessor() );
+      assertWriteEquals( new UnstandardBeanInstanceStrategy(), jsonConfig );
+   }
+
+   public void testWrite_scalars() throws Exception {
+      assertWriteEquals( null, jsonConfig );
+      assertWriteEquals( "{'name':'json'}", jsonConfig );
+      assertWriteEquals( new int[] { 1, 2 }, jsonConfig );
+      assertWriteEquals( new JSONArray().element( "json" ), jsonConfig );
+   }
+
+   private void assertWriteEquals( Object object, JsonConfig jsonConfig ) throws Exception {
+      StringWriter writer = new StringWriter();
+      JSONSerializer.write( object, writer, jsonConfig );
+      assertEquals( JSONSerializer.toJSON( object, jsonConfig )
+            .toString(), writer.toString() );
+   }
+
+   public static class NumberJsonValueProcessor implements JsonValueProcessor {
+      public Object processArrayValue( Object value, JsonConfig jsonConfig ) {
+         return value;
+      }
+
+      public Object processObjectValue( String key, Object value, JsonConfig jsonConfig ) {
+         return value != null ? String.valueOf( value ) : null;
+      }
+   }
+
    protected void setUp() throws Exception {
       jsonConfig = new JsonConfig();
    }
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import net.sf.json.sample.BeanA;
+import net.sf.json.sample.BeanB;
+import net.sf.json.sample.IdentityJsonValueProcessor;
+import net.sf.json.sample.JsonEventAdpater;
+import net.sf.json.processors.JsonBeanProcessor;
+import net.sf.json.processors.JsonValueProcessor;
+import net.sf.json.processors.JsonValueProcessorMatcher;
+
+public class TestJsonConfig extends TestCase {
+   public static void main( String[] args ) {
+      junit.textui.TestRunner.run( TestJsonConfig.class );
+   }
+
+   public TestJsonConfig( String name ) {
+      super( name );
+   }
+
+   public void testFindJsonBeanProcessor_resolvedLookupIsDiscarded() {
+      JsonConfig jsonConfig = new JsonConfig();
+      assertNull( jsonConfig.findJsonBeanProcessor( BeanA.class ) );
+      JsonBeanProcessor processor = new BeanAJsonBeanProcessor();
+      jsonConfig.registerJsonBeanProcessor( BeanA.class, processor );
+      assertSame( processor, jsonConfig.findJsonBeanProcessor( BeanA.class ) );
+      assertEquals( "{\"id\":\"a\"}", JSONObject.fromObject( new BeanA(), jsonConfig )
+            .toString() );
+      jsonConfig.unregisterJsonBeanProcessor( BeanA.class );
+      assertNull( jsonConfig.findJsonBeanProcessor( BeanA.class ) );
+   }
+
+   public void testFindJsonValueProcessor_resolvedLookupIsDiscarded() {
+      JsonConfig jsonConfig = new JsonConfig();
+      JsonValueProcessor processor = new IdentityJsonValueProcessor();
+      assertNull( jsonConfig.findJsonValueProcessor( Integer.class ) );
+      assertNull( jsonConfig.findJsonValueProcessor( Integer.class, "integer" ) );
+
+      jsonConfig.registerJsonValueProcessor( Integer.class, processor );
+      assertSame( processor, jsonConfig.findJsonValueProcessor( Integer.class ) );
+      assertSame( processor, jsonConfig.findJsonValueProcessor( Integer.class, "integer" ) );
+      assertSame( processor, jsonConfig.findJsonValueProcessor( BeanA.class, Integer.class, "integer" ) );
+
+      jsonConfig.setJsonValueProcessorMatcher( new NoneJsonValueProcessorMatcher() );
+      assertNull( jsonConfig.findJsonValueProcessor( Integer.class ) );
+      jsonConfig.setJsonValueProcessorMatcher( null );
+      assertSame( processor, jsonConfig.findJsonValueProcessor( Integer.class ) );
+
+      jsonConfig.unregisterJsonValueProcessor( Integer.class );
+      assertNull( jsonConfig.findJsonValueProcessor( Integer.class ) );
+      assertNull( jsonConfig.findJsonValueProcessor( BeanA.class, Integer.class, "integer" ) );
+   }
+
+   public void testFreeze() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setExcludes( new String[] { "string" } );
+      JsonConfig frozen = jsonConfig.freeze();
+      assertTrue( frozen.isFrozen() );
+      assertFalse( jsonConfig.isFrozen() );
+      assertSame( frozen, frozen.freeze() );
+
+      // the snapshot does not follow the original
+      jsonConfig.setExcludes( new String[] { "integer" } );
+      assertEquals( "{\"bool\":true,\"integer\":42}", JSONObject.fromObject( new BeanA(), frozen )
+            .toString() );
+   }
+
+   public void testFreeze_classExclusions() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.registerPropertyExclusion( BeanA.class, "string" );
+      JsonConfig frozen = jsonConfig.freeze();
+      JsonConfig copy = jsonConfig.copy();
+
+      // neither the snapshot nor the copy follow the original
+      jsonConfig.registerPropertyExclusion( BeanA.class, "integer" );
+      assertEquals( "{\"bool\":true,\"integer\":42}", JSONObject.fromObject( new BeanA(), frozen )
+            .toString() );
+      assertEquals( "{\"bool\":true,\"integer\":42}", JSONObject.fromObject( new BeanA(), copy )
+            .toString() );
+      jsonConfig.unregisterPropertyExclusions( BeanA.class );
+      assertEquals( "{\"bool\":true,\"integer\":42}", JSONObject.fromObject( new BeanA(), frozen )
+            .toString() );
+   }
+
+   public void testFreeze_keepsSettings() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setArrayMode( JsonConfig.MODE_OBJECT_ARRAY );
+      assertEquals( JsonConfig.MODE_OBJECT_ARRAY, jsonConfig.copy()
+            .getArrayMode() );
+      JsonConfig frozen = jsonConfig.freeze();
+      assertEquals( JsonConfig.MODE_OBJECT_ARRAY, frozen.getArrayMode() );
+      assertNull( frozen.getClassMap() );
+   }
+
+   public void testFreeze_copyIsMutable() {
+      JsonConfig copy = new JsonConfig().freeze()
+            .copy();
+      assertFalse( copy.isFrozen() );
+      copy.setRootClass( BeanA.class );
+      assertEquals( BeanA.class, copy.getRootClass() );
+   }
+
+   public void testFreeze_isImmutable() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setExcludes( new String[] { "string" } );
+      JsonConfig frozen = jsonConfig.freeze();
+      try{
+         frozen.setRootClass( BeanA.class );
+         fail( "Expected an UnsupportedOperationException" );
+      }catch( UnsupportedOperationException expected ){
+         // ok
+      }
+      try{
+         frozen.registerJsonValueProcessor( Integer.class, new IdentityJsonValueProcessor() );
+         fail( "Expected an UnsupportedOperationException" );
+      }catch( UnsupportedOperationException expected ){
+         // ok
+      }
+      try{
+         frozen.getJsonEventListeners()
+               .add( new JsonEventAdpater() );
+         fail( "Expected an UnsupportedOperationException" );
+      }catch( UnsupportedOperationException expected ){
+         // ok
+      }
+      try{
+         frozen.getMergedExcludes()
+               .add( "integer" );
+         fail( "Expected an UnsupportedOperationException" );
+      }catch( UnsupportedOperationException expected ){
+         // ok
+      }
+      frozen.getExcludes()[0] = "integer";
+      assertEquals( "string", frozen.getExcludes()[0] );
+   }
+
+   public void testFreeze_resolvesLookups() {
+      JsonConfig jsonConfig = new JsonConfig();
+      JsonValueProcessor processor = new IdentityJsonValueProcessor();
+      jsonConfig.registerJsonValueProcessor( Integer.class, processor );
+      jsonConfig.registerPropertyExclusion( BeanA.class, "string" );
+      JsonConfig frozen = jsonConfig.freeze();
+
+      assertSame( processor, frozen.findJsonValueProcessor( Integer.class ) );
+      assertSame( processor, frozen.findJsonValueProcessor( Integer.class ) );
+      assertSame( processor, frozen.findJsonValueProcessor( BeanA.class, Integer.class, "integer" ) );
+      assertNull( frozen.findJsonValueProcessor( String.class ) );
+      assertNull( frozen.findJsonValueProcessor( String.class ) );
+      assertNull( frozen.findJsonBeanProcessor( BeanA.class ) );
+
+      Collection exclusions = frozen.getMergedExcludes( BeanA.class );
+      assertTrue( exclusions.contains( "string" ) );
+      assertTrue( exclusions.contains( "class" ) );
+      assertSame( exclusions, frozen.getMergedExcludes( BeanA.class ) );
+      assertFalse( frozen.getMergedExcludes()
+            .contains( "string" ) );
+   }
+
+   public void testJsonEventListeners_snapshot() {
+      JsonConfig jsonConfig = new JsonConfig();
+      JsonEventAdpater first = new JsonEventAdpater();
+      JsonEventAdpater second = new JsonEventAdpater();
+      jsonConfig.addJsonEventListener( first );
+      jsonConfig.addJsonEventListener( second );
+      jsonConfig.addJsonEventListener( first );
+      List listeners = jsonConfig.getJsonEventListeners();
+      assertEquals( 2, listeners.size() );
+
+      jsonConfig.removeJsonEventListener( first );
+      assertEquals( 2, listeners.size() );
+      assertEquals( 1, jsonConfig.getJsonEventListeners()
+            .size() );
+      assertSame( second, jsonConfig.getJsonEventListeners()
+            .get( 0 ) );
+
+      jsonConfig.enableEventTriggering();
+      JSONObject.fromObject( "{\"a\":[1]}", jsonConfig );
+      assertEquals( 0, first.getObjectStart() );
+      assertEquals( 0, first.getElementAdded() );
+      assertTrue( second.getObjectStart() > 0 );
+      assertTrue( second.getElementAdded() > 0 );
+   }
+
+   public void testGetMergedExcludes_cachedUntilChanged() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.setExcludes( new String[] { " string " } );
+      Collection exclusions = jsonConfig.getMergedExcludes();
+      assertTrue( exclusions.contains( "string" ) );
+      assertSame( exclusions, jsonConfig.getMergedExcludes() );
+      assertSame( exclusions, jsonConfig.getMergedExcludes( BeanA.class ) );
+      try{
+         exclusions.add( "integer" );
+         fail( "Expected an UnsupportedOperationException" );
+      }catch( UnsupportedOperationException expected ){
+         // ok
+      }
+
+      jsonConfig.registerPropertyExclusion( BeanA.class, "integer" );
+      Collection classExclusions = jsonConfig.getMergedExcludes( BeanA.class );
+      assertTrue( classExclusions.contains( "integer" ) );
+      assertTrue( classExclusions.contains( "string" ) );
+      assertSame( classExclusions, jsonConfig.getMergedExcludes( BeanA.class ) );
+      assertFalse( jsonConfig.getMergedExcludes( BeanB.class )
+            .contains( "integer" ) );
+
+      jsonConfig.setIgnoreDefaultExcludes( true );
+      assertFalse( jsonConfig.getMergedExcludes()
+            .contains( "class" ) );
+      assertFalse( jsonConfig.getMergedExcludes( BeanA.class )
+            .contains( "class" ) );
+   }
+
+   public void testWithClassMap() {
+      Map classMap = new HashMap();
+      classMap.put( "bean", BeanA.class );
+      JsonConfig frozen = new JsonConfig().freeze();
+      JsonConfig derived = frozen.withClassMap( classMap );
+      classMap.clear();
+      assertTrue( derived.isFrozen() );
+      assertEquals( BeanA.class, derived.getClassMap()
+            .get( "bean" ) );
+      assertNull( frozen.getClassMap() );
+   }
+
+   public void testWithRootClass() {
+      JsonConfig jsonConfig = new JsonConfig();
+      jsonConfig.registerPropertyExclusion( BeanA.class, "string" );
+      JsonConfig frozen = jsonConfig.freeze();
+      JsonConfig derived = frozen.withRootClass( BeanB.class );
+      assertTrue( derived.isFrozen() );
+      assertNull( frozen.getRootClass() );
+      assertEquals( BeanB.class, derived.getRootClass() );
+      assertSame( frozen.getMergedExcludes( BeanA.class ), derived.getMergedExcludes( BeanA.class ) );
+
+      JSONObject json = JSONObject.fromObject( "{\"bool\":false,\"integer\":1,\"intarray\":[1,2]}" );
+      BeanB bean = (BeanB) JSONObject.toBean( json, derived );
+      assertFalse( bean.isBool() );
+      assertEquals( 1, bean.getInteger() );
+      assertEquals( 2, bean.getIntarray().length );
+   }
+
+   public void testWithRootClass_notFrozen() {
+      try{
+         new JsonConfig().withRootClass( BeanA.class );
+         fail( "Expected an IllegalStateException" );
+      }catch( IllegalStateException expected ){
+         // ok
+      }
+      try{
+         new JsonConfig().withClassMap( new HashMap() );
+         fail( "Expected an IllegalStateException" );
+      }catch( IllegalStateException expected ){
+         // ok
+      }
+   }
+
+   public static class BeanAJsonBeanProcessor implements JsonBeanProcessor {
+      public JSONObject processBean( Object bean, JsonConfig jsonConfig ) {
+         return new JSONObject().element( "id", "a" );
+      }
+   }
+
+   public static class NoneJsonValueProcessorMatcher extends JsonValueProcessorMatcher {
+      public Object getMatch( Class target, Set set ) {
+         return null;
+      }
+   }
+}
@@ -28,6 +28,7 @@ public class AllTests extends TestSuite {
 
       suite.addTest( new TestSuite( TestJdkRegexpMatcher.class ) );
       suite.addTest( new TestSuite( TestPerl5RegexpMatcher.class ) );
+      suite.addTest( new TestSuite( TestRegexpUtils.class ) );
 
       return suite;
    }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.regexp;
+
+import junit.framework.TestCase;
+
+public class TestRegexpUtils extends TestCase {
+   public static void main( String[] args ) {
+      junit.textui.TestRunner.run( TestRegexpUtils.class );
+   }
+
+   public TestRegexpUtils( String name ) {
+      super( name );
+   }
+
+   public void testGetMatcher_cached() {
+      RegexpMatcher matcher = RegexpUtils.getMatcher( "[a-z]+" );
+      assertSame( matcher, RegexpUtils.getMatcher( "[a-z]+" ) );
+      assertTrue( matcher.matches( "json" ) );
+      assertFalse( matcher.matches( "JSON" ) );
+   }
+
+   public void testGetMatcher_multiline() {
+      RegexpMatcher matcher = RegexpUtils.getMatcher( "^a$", true );
+      assertSame( matcher, RegexpUtils.getMatcher( "^a$", true ) );
+      assertNotSame( matcher, RegexpUtils.getMatcher( "^a$" ) );
+   }
+
+   public void testGetMatcher_manyPatterns() {
+      // patterns beyond the cache limit are still compiled
+      for( int i = 0; i < 1000; i++ ){
+         assertTrue( RegexpUtils.getMatcher( "p" + i + ".*" )
+               .matches( "p" + i + "q" ) );
+      }
+   }
+}
@@ -29,6 +29,8 @@ public class AllTests extends TestSuite {
       suite.addTest( new TestSuite( TestJavaIdentifierTransformer.class ) );
       suite.addTest( new TestSuite( TestJSONUtils.class ) );
       suite.addTest( new TestSuite( TestJSONTokener.class ) );
+      suite.addTest( new TestSuite( TestJsonReader.class ) );
+      suite.addTest( new TestSuite( TestJsonLines.class ) );
       suite.addTest( new TestSuite( TestJSONBuilder.class ) );
       suite.addTest( new TestSuite( TestJSONStringer.class ) );
       suite.addTest( new TestSuite( TestWebUtils.class ) );
@@ -16,8 +16,25 @@
 
 package net.sf.json.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
 import junit.framework.TestCase;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
 import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import net.sf.json.JsonConfig;
 
 /**
  * @author Andres Almiray <aalmiray@users.sourceforge.net>
@@ -74,6 +91,40 @@ public class TestJSONTokener extends TestCase {
       }
    }
 
+   public void testNextValue_numbers() {
+      assertEquals( new Integer( -2147483648 ), new JSONTokener( "-2147483648" ).nextValue() );
+      assertEquals( new Long( 2147483648L ), new JSONTokener( "2147483648" ).nextValue() );
+      assertEquals( new Long( Long.MIN_VALUE ), new JSONTokener( "-9223372036854775808" ).nextValue() );
+      assertEquals( new BigInteger( "9223372036854775808" ),
+            new JSONTokener( "9223372036854775808" ).nextValue() );
+      assertEquals( new Float( 1.5f ), new JSONTokener( "1.5" ).nextValue() );
+      assertEquals( new Float( -25e-3f ), new JSONTokener( "-2.5E-2" ).nextValue() );
+      assertEquals( new Double( 1e-50 ), new JSONTokener( "1e-50" ).nextValue() );
+      assertEquals( new BigDecimal( "1e400" ), new JSONTokener( "1e400" ).nextValue() );
+      // not in the JSON grammar, left to the general path
+      assertEquals( new Integer( 10 ), new JSONTokener( "012" ).nextValue() );
+      assertEquals( new Integer( 31 ), new JSONTokener( "0x1F" ).nextValue() );
+      assertEquals( new Integer( 5 ), new JSONTokener( "+5" ).nextValue() );
+      assertEquals( "1 2", new JSONTokener( "1 2" ).nextValue() );
+      assertEquals( "12abc", new JSONTokener( "12abc" ).nextValue() );
+   }
+
+   public void testNextValue_numbers_delimited() {
+      JSONTokener tok = new JSONTokener( "[12 , -3.5e1]" );
+      assertEquals( '[', tok.next() );
+      assertEquals( new Integer( 12 ), tok.nextValue() );
+      assertEquals( ',', tok.nextClean() );
+      assertEquals( new Float( -35f ), tok.nextValue() );
+      assertEquals( ']', tok.next() );
+
+      tok = JSONTokener.fromReader( new StringReader( "[1234567890123,7]" ), 2 );
+      assertEquals( '[', tok.next() );
+      assertEquals( new Long( 1234567890123L ), tok.nextValue() );
+      assertEquals( ',', tok.next() );
+      assertEquals( new Integer( 7 ), tok.nextValue() );
+      assertEquals( ']', tok.next() );
+   }
+
    public void testReset() {
       JSONTokener tok = new JSONTokener( "abc" );
       tok.next();
@@ -82,4 +133,291 @@ public class TestJSONTokener extends TestCase {
       tok.reset();
       assertEquals( 'a', tok.next() );
    }
-}
\ No newline at end of file
+
+   public void testReader_nextAndBack() {
+      JSONTokener tok = JSONTokener.fromReader( new StringReader( "  abcdef" ), 2 );
+      assertEquals( 'a', tok.next() );
+      assertEquals( 'b', tok.next() );
+      tok.back();
+      assertEquals( 'b', tok.peek() );
+      assertEquals( "bcd", tok.next( 3 ) );
+      assertEquals( 'e', tok.next() );
+      assertEquals( 'f', tok.next() );
+      assertFalse( tok.more() );
+      assertEquals( 0, tok.next() );
+   }
+
+   public void testReader_skip() {
+      JSONTokener tok = JSONTokener.fromReader( new StringReader( "abc/*xyz*/def" ), 4 );
+      tok.skipPast( "*/" );
+      assertEquals( 'd', tok.next() );
+      assertEquals( 0, tok.skipTo( 'z' ) );
+      assertEquals( 'e', tok.next() );
+   }
+
+   public void testStartsWith() {
+      JSONTokener tok = new JSONTokener( "null\n" );
+      assertTrue( tok.startsWith( "null" ) );
+      assertFalse( tok.startsWith( "null\n!" ) );
+      assertEquals( 'n', tok.next() );
+      assertFalse( tok.startsWith( "null" ) );
+      assertTrue( tok.startsWith( "" ) );
+   }
+
+   public void testReader_longerThanIntRange() {
+      // "[1," then more spaces than an int can count, then "2]"
+      final long spaces = Integer.MAX_VALUE + 1000L;
+      Reader reader = new Reader() {
+         private final char[] head = "[1,".toCharArray();
+         private final char[] tail = "2]".toCharArray();
+         private long position;
+
+         public int read( char[] cbuf, int off, int len ) {
+            long total = head.length + spaces + tail.length;
+            if( position >= total ){
+               return -1;
+            }
+            int n = (int) Math.min( len, total - position );
+            for( int i = 0; i < n; i++, position++ ){
+               if( position < head.length ){
+                  cbuf[off + i] = head[(int) position];
+               }else if( position >= head.length + spaces ){
+                  cbuf[off + i] = tail[(int) (position - head.length - spaces)];
+               }else{
+                  cbuf[off + i] = ' ';
+               }
+            }
+            return n;
+         }
+
+         public void close() {
+         }
+      };
+      JSONArray json = JSONArray.fromObject( JSONTokener.fromReader( reader, 1 << 16 ) );
+      assertEquals( JSONArray.fromObject( "[1,2]" ), json );
+   }
+
+   public void testReader_startsWith() {
+      JSONTokener tok = JSONTokener.fromReader( new StringReader( "  nul" ), 2 );
+      assertTrue( tok.startsWith( "nul" ) );
+      assertFalse( tok.startsWith( "null" ) );
+      assertEquals( 'n', tok.next() );
+   }
+
+   public void testReader_fromObject() {
+      String json = "{\"name\":\"json\",\"int\":1,\"array\":[1,2,{\"nested\":[true,null]}],\"object\":{}}";
+      JSONObject expected = JSONObject.fromObject( json );
+      JSONObject actual = JSONObject.fromObject( JSONTokener.fromReader( new StringReader( json ), 3 ) );
+      assertEquals( expected, actual );
+      assertEquals( expected, JSONObject.fromObject( new StringReader( json ) ) );
+   }
+
+   public void testReader_fromObject_unterminated() {
+      try{
+         JSONObject.fromObject( new StringReader( "{\"a\":[1,2" ) );
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+   }
+
+   public void testReader_fromObject_trailingText() {
+      try{
+         JSONObject.fromObject( new StringReader( "{\"a\":1} xyz" ) );
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+      try{
+         JSONArray.fromObject( new StringReader( "[1] garbage" ) );
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+      assertEquals( JSONArray.fromObject( "[1]" ), JSONArray.fromObject( new StringReader( "[1] \n" ) ) );
+   }
+
+   public void testReader_toJSON() {
+      JSON json = JSONSerializer.toJSON( new StringReader( " [1,\"two\",{\"three\":3}]\n" ) );
+      assertTrue( json instanceof JSONArray );
+      assertEquals( JSONArray.fromObject( "[1,\"two\",{\"three\":3}]" ), json );
+      assertEquals( JSONNull.getInstance(), JSONSerializer.toJSON( new StringReader( "null" ) ) );
+      try{
+         JSONSerializer.toJSON( new StringReader( "nope" ) );
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+   }
+
+   public void testReader_toJSON_trailingText() throws Exception {
+      JsonConfig lazy = new JsonConfig();
+      lazy.setLazyParsing( true );
+      String[] texts = new String[] { "[1,2] xyz", "{\"a\":1}}", "null null", "[1]," };
+      for( int i = 0; i < texts.length; i++ ){
+         try{
+            JSONSerializer.toJSON( new StringReader( texts[i] ) );
+            fail( "Expected a JSONException for " + texts[i] );
+         }catch( JSONException expected ){
+            // ok
+         }
+         try{
+            JSONSerializer.toJSON( new ByteArrayInputStream( texts[i].getBytes( "UTF-8" ) ), lazy );
+            fail( "Expected a JSONException for " + texts[i] );
+         }catch( JSONException expected ){
+            // ok
+         }
+      }
+      assertEquals( JSONArray.fromObject( "[1,2]" ), JSONSerializer.toJSON( new StringReader( "[1,2] \n\t" ) ) );
+   }
+
+   public void testReader_toJSON_truncated() throws Exception {
+      JsonConfig lazy = new JsonConfig();
+      lazy.setLazyParsing( true );
+      String[] texts = new String[] { "[", "[[", "{\"a\":[", "[1,", "[{\"a\":1},", "{\"a\":",
+            "{\"a\"", "[1", "[\"ab", "[function()", "[function(){", "{\"f\":function(){ return" };
+      for( int i = 0; i < texts.length; i++ ){
+         byte[] bytes = texts[i].getBytes( "UTF-8" );
+         try{
+            JSONSerializer.toJSON( new StringReader( texts[i] ) );
+            fail( "Expected a JSONException for " + texts[i] );
+         }catch( JSONException expected ){
+            // ok
+         }
+         try{
+            JSONSerializer.toJSON( JSONTokener.fromBytes( bytes ) );
+            fail( "Expected a JSONException for " + texts[i] );
+         }catch( JSONException expected ){
+            // ok
+         }
+         try{
+            JSONSerializer.toJSON( ByteBuffer.wrap( bytes ), new JsonConfig() );
+            fail( "Expected a JSONException for " + texts[i] );
+         }catch( JSONException expected ){
+            // ok
+         }
+         try{
+            JSONSerializer.toJSON( new ByteArrayInputStream( bytes ), lazy );
+            fail( "Expected a JSONException for " + texts[i] );
+         }catch( JSONException expected ){
+            // ok
+         }
+      }
+   }
+
+   public void testInputStream_toJSON() throws Exception {
+      byte[] bytes = "{\"greeting\":\"h\u00e9llo\"}".getBytes( "UTF-8" );
+      JSONObject json = (JSONObject) JSONSerializer.toJSON( new ByteArrayInputStream( bytes ) );
+      assertEquals( "h\u00e9llo", json.getString( "greeting" ) );
+   }
+
+   public void testBytes_fromObject() throws Exception {
+      String text = "{\"greeting\":\"h\u00e9llo \u4e16\u754c \ud834\udd1e\",\"n\":[1,2.5]}";
+      byte[] bytes = ("  " + text + "  ").getBytes( "UTF-8" );
+      JSONObject expected = JSONObject.fromObject( text );
+      assertEquals( expected, JSONObject.fromObject( JSONTokener.fromBytes( bytes ) ) );
+      byte[] padded = new byte[bytes.length + 4];
+      System.arraycopy( bytes, 0, padded, 2, bytes.length );
+      padded[0] = '[';
+      padded[padded.length - 1] = ']';
+      assertEquals( expected, JSONObject.fromObject( JSONTokener.fromBytes( padded, 2, bytes.length ) ) );
+   }
+
+   public void testByteBuffer_toJSON() throws Exception {
+      byte[] bytes = "[\"h\u00e9llo\",{\"k\":\"\ud834\udd1e\"}]".getBytes( "UTF-8" );
+      ByteBuffer direct = ByteBuffer.allocateDirect( bytes.length );
+      direct.put( bytes );
+      direct.flip();
+      JSON expected = JSONArray.fromObject( "[\"h\u00e9llo\",{\"k\":\"\ud834\udd1e\"}]" );
+      assertEquals( expected, JSONSerializer.toJSON( direct, new JsonConfig() ) );
+      assertEquals( 0, direct.position() );
+      assertEquals( expected, JSONSerializer.toJSON( (Object) ByteBuffer.wrap( bytes ) ) );
+      assertEquals( JSONNull.getInstance(), JSONSerializer.toJSON( ByteBuffer.wrap( "null".getBytes( "UTF-8" ) ),
+            new JsonConfig() ) );
+   }
+
+   public void testUtf8Reader() throws Exception {
+      byte[] bytes = "a\u00e9\u4e16\ud834\udd1e".getBytes( "UTF-8" );
+      Utf8Reader reader = new Utf8Reader( bytes, 0, bytes.length );
+      char[] cbuf = new char[1];
+      StringBuffer sb = new StringBuffer();
+      for( int n = reader.read( cbuf, 0, 1 ); n > 0; n = reader.read( cbuf, 0, 1 ) ){
+         sb.append( cbuf[0] );
+      }
+      assertEquals( "a\u00e9\u4e16\ud834\udd1e", sb.toString() );
+
+      // malformed sequences decode as the JDK decoder does for these cases
+      byte[] malformed = new byte[] { 'a', (byte) 0xFF, 'b', (byte) 0xE4, (byte) 0xB8, 'c', (byte) 0xC0,
+            (byte) 0x80, (byte) 0xED, (byte) 0xA0, (byte) 0x80 };
+      reader = new Utf8Reader( malformed, 0, malformed.length );
+      cbuf = new char[32];
+      int n = reader.read( cbuf, 0, cbuf.length );
+      assertEquals( new String( malformed, "UTF-8" ), new String( cbuf, 0, n ) );
+      assertEquals( -1, reader.read( cbuf, n, cbuf.length - n ) );
+   }
+
+   public void testUtf8Reader_malformed() throws Exception {
+      int[][] cases = new int[][] { { 0xE0, 0x80, 0x80 }, { 0xF4, 0x90, 0x80, 0x80 }, { 0xF0, 0x80, 0x80, 0x80 },
+            { 0xED, 0xA0, 0x80 }, { 0xED, 0xA0 }, { 0xE0, 0x9F }, { 0xE4, 0xB8 }, { 0xF0, 0x90, 0x80 },
+            { 0xF0, 0x90, 'a' }, { 0xC3 }, { 0x80, 0xBF }, { 0xF5, 0x80 }, { 0xE4, 0xB8, 0xE4, 0xB8, 0x96 } };
+      for( int c = 0; c < cases.length; c++ ){
+         byte[] bytes = new byte[cases[c].length];
+         for( int i = 0; i < bytes.length; i++ ){
+            bytes[i] = (byte) cases[c][i];
+         }
+         assertEquals( new String( bytes, "UTF-8" ), decode( bytes ) );
+      }
+
+      // random bytes, mostly above 0x7F, decode as the JDK decoder does
+      Random random = new Random( 42 );
+      for( int k = 0; k < 20000; k++ ){
+         byte[] bytes = new byte[1 + random.nextInt( 8 )];
+         for( int i = 0; i < bytes.length; i++ ){
+            bytes[i] = (byte) (random.nextInt( 8 ) == 0 ? random.nextInt( 0x80 ) : 0x80 + random.nextInt( 0x80 ));
+         }
+         assertEquals( new String( bytes, "UTF-8" ), decode( bytes ) );
+      }
+   }
+
+   public void testFileChannel_toJSON() throws Exception {
+      String text = "{\"greeting\":\"h\u00e9llo \u4e16\u754c \ud834\udd1e\",\"n\":[1,2.5,null]}";
+      File file = File.createTempFile( "json", ".json" );
+      file.deleteOnExit();
+      FileOutputStream out = new FileOutputStream( file );
+      out.write( ("  " + text).getBytes( "UTF-8" ) );
+      out.close();
+
+      FileInputStream in = new FileInputStream( file );
+      try{
+         in.getChannel()
+               .position( 2 );
+         assertEquals( JSONObject.fromObject( text ), JSONSerializer.toJSON( in.getChannel(),
+               new JsonConfig() ) );
+         assertEquals( 2, in.getChannel()
+               .position() );
+
+         // windows smaller than a multi-byte sequence still decode it whole
+         for( int windowSize = 4; windowSize < 8; windowSize++ ){
+            Utf8Reader reader = new Utf8Reader( in.getChannel(), windowSize );
+            char[] cbuf = new char[text.length() + 1];
+            int n = 0;
+            for( int r = reader.read( cbuf, n, 3 ); r > 0; r = reader.read( cbuf, n, 3 ) ){
+               n += r;
+            }
+            assertEquals( text, new String( cbuf, 0, n ) );
+         }
+      }finally{
+         in.close();
+      }
+   }
+
+   private String decode( byte[] bytes ) throws Exception {
+      Utf8Reader reader = new Utf8Reader( bytes, 0, bytes.length );
+      char[] cbuf = new char[bytes.length * 2 + 1];
+      int n = 0;
+      for( int r = reader.read( cbuf, n, 1 ); r > 0; r = reader.read( cbuf, n, 1 ) ){
+         n += r;
+      }
+      return new String( cbuf, 0, n );
+   }
+}
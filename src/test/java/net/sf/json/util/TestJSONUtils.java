@@ -16,6 +16,7 @@
 
 package net.sf.json.util;
 
+import java.io.StringWriter;
 import java.util.Collections;
 
 import junit.framework.TestCase;
@@ -118,6 +119,19 @@ public class TestJSONUtils extends TestCase {
       assertEquals( "\"\"", JSONUtils.quote( null ) );
    }
 
+   public void testQuote_toAppendable() throws Exception {
+      String str = "plain \"q\" \\ </tag> \u0001\u001f end";
+      StringWriter writer = new StringWriter();
+      JSONUtils.quote( str, writer );
+      assertEquals( "\"plain \\\"q\\\" \\\\ <\\/tag> \\u0001\\u001f end\"", writer.toString() );
+      StringBuilder sb = new StringBuilder();
+      JSONUtils.quote( new StringBuffer( str ), sb );
+      assertEquals( JSONUtils.quote( str ), sb.toString() );
+      sb.setLength( 0 );
+      JSONUtils.quote( "function(){ a }", sb );
+      assertEquals( "function(){ a }", sb.toString() );
+   }
+
    public void testStripQuotes_singleChar_doubleeQuote() {
       String quoted = "\"";
       String actual = JSONUtils.stripQuotes( quoted );
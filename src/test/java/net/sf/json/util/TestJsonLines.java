@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.util;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import net.sf.json.sample.BeanA;
+
+public class TestJsonLines extends TestCase {
+   public static void main( String[] args ) {
+      junit.textui.TestRunner.run( TestJsonLines.class );
+   }
+
+   public TestJsonLines( String name ) {
+      super( name );
+   }
+
+   public void testIterator() {
+      JsonLinesReader reader = new JsonLinesReader( JSONTokener.fromReader( new StringReader(
+            "{\"id\":1,\"name\":\"a\"}\n\n  [1,2] \r\nnull\n{\"id\":2,\"name\":\"b\"}" ), 4 ), null );
+      assertTrue( reader.hasNext() );
+      assertEquals( JSONObject.fromObject( "{\"id\":1,\"name\":\"a\"}" ), reader.next() );
+      assertEquals( 1, reader.getLineNumber() );
+      assertEquals( JSONArray.fromObject( "[1,2]" ), reader.next() );
+      assertEquals( 3, reader.getLineNumber() );
+      assertEquals( JSONNull.getInstance(), reader.next() );
+      assertEquals( JSONObject.fromObject( "{\"id\":2,\"name\":\"b\"}" ), reader.next() );
+      assertEquals( 5, reader.getLineNumber() );
+      assertFalse( reader.hasNext() );
+   }
+
+   public void testIterator_malformed() {
+      JsonLinesReader reader = new JsonLinesReader( new StringReader(
+            "{\"id\":1}\n{\"id\":\n{\"id\":2} x\n\"text\"\n{\"id\":3}\n" ) );
+      assertEquals( 1, JSONObject.fromObject( reader.next() ).getInt( "id" ) );
+      for( int i = 2; i <= 4; i++ ){
+         try{
+            reader.next();
+            fail( "Expected a JSONException" );
+         }catch( JSONException expected ){
+            assertEquals( i, reader.getLineNumber() );
+         }
+      }
+      assertEquals( 3, JSONObject.fromObject( reader.next() ).getInt( "id" ) );
+      assertFalse( reader.hasNext() );
+      assertEquals( 3, reader.getSkippedLineCount() );
+
+      reader = new JsonLinesReader( new StringReader( "{\"id\":1}\n{\n{\"id\":3}" ) );
+      reader.setSkipMalformedLines( true );
+      assertEquals( 1, JSONObject.fromObject( reader.next() ).getInt( "id" ) );
+      assertEquals( 3, JSONObject.fromObject( reader.next() ).getInt( "id" ) );
+      assertFalse( reader.hasNext() );
+      assertEquals( 1, reader.getSkippedLineCount() );
+   }
+
+   public void testIterator_truncatedLastLine() {
+      String[] texts = new String[] { "{\"a\":1}\n[1,", "{\"a\":1}\n{\"b\":[", "{\"a\":1}\n{\"b\":\"c" };
+      for( int i = 0; i < texts.length; i++ ){
+         JsonLinesReader reader = new JsonLinesReader( new StringReader( texts[i] ) );
+         reader.setSkipMalformedLines( true );
+         assertEquals( 1, JSONObject.fromObject( reader.next() ).getInt( "a" ) );
+         assertFalse( reader.hasNext() );
+         assertEquals( 1, reader.getSkippedLineCount() );
+
+         reader = new JsonLinesReader( new StringReader( texts[i] ) );
+         reader.next();
+         try{
+            reader.next();
+            fail( "Expected a JSONException for " + texts[i] );
+         }catch( JSONException expected ){
+            assertEquals( 2, reader.getLineNumber() );
+         }
+         assertFalse( reader.hasNext() );
+      }
+   }
+
+   public void testRead_handler() {
+      final List records = new ArrayList();
+      final List malformed = new ArrayList();
+      JsonLinesReader reader = new JsonLinesReader( new StringReader( "[1]\n[2\n[3]\n[4]\n" ) );
+      int count = reader.read( new JsonLinesHandler(){
+         public boolean onMalformedLine( JSONException jsone, int lineNumber ) {
+            malformed.add( new Integer( lineNumber ) );
+            return true;
+         }
+
+         public boolean onRecord( JSON json, int lineNumber ) {
+            records.add( json );
+            return records.size() < 2;
+         }
+      } );
+      assertEquals( 2, count );
+      assertEquals( JSONArray.fromObject( "[3]" ), records.get( 1 ) );
+      assertEquals( 1, malformed.size() );
+      assertEquals( new Integer( 2 ), malformed.get( 0 ) );
+      assertEquals( JSONArray.fromObject( "[4]" ), reader.next() );
+   }
+
+   public void testWriter_roundTrip() throws Exception {
+      StringWriter out = new StringWriter();
+      JsonLinesWriter writer = new JsonLinesWriter( out );
+      writer.write( new BeanA() );
+      writer.write( "{'text':'two\\nlines'}" );
+      writer.write( new int[] { 1, 2 } );
+      writer.flush();
+      assertEquals( 3, writer.getRecordCount() );
+
+      JsonLinesReader reader = new JsonLinesReader( new StringReader( out.toString() ) );
+      assertEquals( JSONObject.fromObject( new BeanA() ), reader.next() );
+      assertEquals( "two\nlines", ((JSONObject) reader.next()).getString( "text" ) );
+      assertEquals( JSONArray.fromObject( "[1,2]" ), reader.next() );
+      assertFalse( reader.hasNext() );
+   }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.sf.json.util;
+
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+
+public class TestJsonReader extends TestCase {
+   public static void main( String[] args ) {
+      junit.textui.TestRunner.run( TestJsonReader.class );
+   }
+
+   public TestJsonReader( String name ) {
+      super( name );
+   }
+
+   public void testNumbers_sameAsJSONObject() {
+      String str = "{\"a\":0.1,\"b\":1e-50,\"c\":2147483648,\"d\":12}";
+      JSONObject json = JSONObject.fromObject( str );
+      JsonReader reader = new JsonReader( str );
+      reader.next();
+      while( reader.next() == JsonReader.KEY ){
+         String key = reader.getString();
+         assertEquals( JsonReader.VALUE_NUMBER, reader.next() );
+         assertEquals( json.get( key ), reader.getNumber() );
+         assertEquals( json.getDouble( key ), reader.getDouble(), 0d );
+      }
+      assertEquals( 0.1d, json.getDouble( "a" ), 0d );
+   }
+
+   public void testEvents() {
+      JsonReader reader = new JsonReader( "{\"name\":\"json\",\"int\":1,\"double\":2.5,"
+            + "\"bool\":true,\"nil\":null,\"array\":[1,'two',[]]}" );
+      assertEquals( JsonReader.START_OBJECT, reader.next() );
+      assertEquals( 1, reader.getDepth() );
+      assertEquals( JsonReader.KEY, reader.next() );
+      assertEquals( "name", reader.getString() );
+      assertEquals( JsonReader.VALUE_STRING, reader.next() );
+      assertEquals( "json", reader.getString() );
+      assertEquals( "name", reader.getKey() );
+      assertEquals( JsonReader.KEY, reader.next() );
+      assertEquals( JsonReader.VALUE_NUMBER, reader.next() );
+      assertEquals( 1, reader.getInt() );
+      assertEquals( 1L, reader.getLong() );
+      assertEquals( JsonReader.KEY, reader.next() );
+      assertEquals( JsonReader.VALUE_NUMBER, reader.next() );
+      assertEquals( 2.5d, reader.getDouble(), 0d );
+      assertEquals( JsonReader.KEY, reader.next() );
+      assertEquals( JsonReader.VALUE_BOOLEAN, reader.next() );
+      assertTrue( reader.getBoolean() );
+      assertEquals( JsonReader.KEY, reader.next() );
+      assertEquals( JsonReader.VALUE_NULL, reader.next() );
+      assertNull( reader.getString() );
+      assertEquals( JsonReader.KEY, reader.next() );
+      assertEquals( "array", reader.getString() );
+      assertEquals( JsonReader.START_ARRAY, reader.next() );
+      assertEquals( 2, reader.getDepth() );
+      assertEquals( JsonReader.VALUE_NUMBER, reader.next() );
+      assertEquals( JsonReader.VALUE_STRING, reader.next() );
+      assertEquals( "two", reader.getString() );
+      assertEquals( JsonReader.START_ARRAY, reader.next() );
+      assertEquals( JsonReader.END_ARRAY, reader.next() );
+      assertEquals( JsonReader.END_ARRAY, reader.next() );
+      assertEquals( JsonReader.END_OBJECT, reader.next() );
+      assertEquals( 0, reader.getDepth() );
+      assertTrue( reader.hasNext() );
+      assertEquals( JsonReader.END_DOCUMENT, reader.next() );
+      assertFalse( reader.hasNext() );
+   }
+
+   public void testEmptyElementsAndTrailingComma() {
+      JsonReader reader = new JsonReader( "[1,,2,]" );
+      assertEquals( JsonReader.START_ARRAY, reader.next() );
+      assertEquals( JsonReader.VALUE_NUMBER, reader.next() );
+      assertEquals( JsonReader.VALUE_NULL, reader.next() );
+      assertEquals( JsonReader.VALUE_NUMBER, reader.next() );
+      assertEquals( 2, reader.getInt() );
+      assertEquals( JsonReader.END_ARRAY, reader.next() );
+      assertEquals( JsonReader.END_DOCUMENT, reader.next() );
+   }
+
+   public void testSkipChildren() {
+      JsonReader reader = new JsonReader( JSONTokener.fromReader( new StringReader(
+            "{\"skip\":{\"a\":[1,{\"b\":\"}]\"}],\"c\":'\\''},\"id\":42}" ), 4 ) );
+      assertEquals( JsonReader.START_OBJECT, reader.next() );
+      assertEquals( JsonReader.KEY, reader.next() );
+      assertEquals( JsonReader.START_OBJECT, reader.next() );
+      reader.skipChildren();
+      assertEquals( JsonReader.END_OBJECT, reader.getEventType() );
+      assertEquals( 1, reader.getDepth() );
+      assertEquals( JsonReader.KEY, reader.next() );
+      assertEquals( "id", reader.getString() );
+      assertEquals( JsonReader.VALUE_NUMBER, reader.next() );
+      assertEquals( 42, reader.getInt() );
+      assertEquals( JsonReader.END_OBJECT, reader.next() );
+      assertEquals( JsonReader.END_DOCUMENT, reader.next() );
+   }
+
+   public void testWrongAccessor() {
+      JsonReader reader = new JsonReader( "[\"text\"]" );
+      reader.next();
+      reader.next();
+      try{
+         reader.getNumber();
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+   }
+
+   public void testMalformed() {
+      JsonReader reader = new JsonReader( "{\"a\" 1}" );
+      reader.next();
+      reader.next();
+      try{
+         reader.next();
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+   }
+
+   public void testTrailingText() {
+      JsonReader reader = new JsonReader( new StringReader( "[1] xyz" ) );
+      assertEquals( JsonReader.START_ARRAY, reader.next() );
+      assertEquals( JsonReader.VALUE_NUMBER, reader.next() );
+      assertEquals( JsonReader.END_ARRAY, reader.next() );
+      try{
+         reader.next();
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+
+      reader = new JsonReader( new StringReader( " [1] \n" ) );
+      reader.next();
+      reader.next();
+      reader.next();
+      assertEquals( JsonReader.END_DOCUMENT, reader.next() );
+   }
+}
@@ -16,10 +16,13 @@
 
 package net.sf.json.xml;
 
+import java.io.ByteArrayInputStream;
+
 import junit.framework.TestCase;
 import net.sf.json.Assertions;
 import net.sf.json.JSON;
 import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
 import net.sf.json.JSONNull;
 import net.sf.json.JSONObject;
 import net.sf.json.test.JSONAssert;
@@ -423,6 +426,63 @@ public class TestXMLSerializer_reads extends TestCase {
       assertFalse( json.getJSONObject( "item" ).has( "@xmlns" ) );
    }
 
+   public void testStreamingRead_fromStream() throws Exception {
+      String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<o><name>caf\u00e9\nbar</name></o>";
+      xmlSerializer.setStreamingRead( true );
+      JSONObject actual = (JSONObject) xmlSerializer.readFromStream( new ByteArrayInputStream( xml.getBytes( "ISO-8859-1" ) ) );
+      assertEquals( "caf\u00e9\nbar", actual.getString( "name" ) );
+   }
+
+   public void testStreamingRead_sameAsDocument() throws Exception {
+      String[] xmls = {
+            "<a><e class=\"object\" null=\"true\"/><e class=\"object\" null=\"true\"/></a>",
+            "<a type=\"number\"><e>1</e><e type=\"string\">2</e><e class=\"array\"><e>3.5</e></e></a>",
+            "<o><bool type=\"boolean\">true</bool><func params=\"a\">return a;</func><a class=\"array\"/>"
+                  + "<n null=\"true\"/><t>text <!-- c --> more</t></o>",
+            "<o xmlns=\"http://json.org/json/1.0\" xmlns:ns=\"http://json.org/ns\"><ns:i>1</ns:i>"
+                  + "<ns:i ns:att=\"x\">2</ns:i><i xmlns=\"\">3</i></o>",
+            "<o><c><![CDATA[<b>cdata</b>]]></c><m>mixed<![CDATA[ cdata]]></m><e>  </e></o>",
+            "<root><span class=\"vevent\"><a class=\"url\" href=\"http://www.web2con.com/\">"
+                  + "<abbr class=\"dtstart\" title=\"2005-10-05\">October 5</abbr>"
+                  + "<abbr class=\"dtend\" title=\"2005-10-08\">7</abbr></a></span></root>",
+            "<!DOCTYPE o [<!ENTITY e \"entity\">]><o><v>&e; and &amp;</v><?pi data?></o>" };
+      XMLSerializer streaming = new XMLSerializer();
+      streaming.setStreamingRead( true );
+      for( int i = 0; i < xmls.length; i++ ){
+         for( int j = 0; j < 4; j++ ){
+            xmlSerializer.setKeepCData( j == 1 );
+            streaming.setKeepCData( j == 1 );
+            xmlSerializer.setSkipNamespaces( j == 2 );
+            streaming.setSkipNamespaces( j == 2 );
+            xmlSerializer.setForceTopLevelObject( j == 3 );
+            streaming.setForceTopLevelObject( j == 3 );
+            assertEquals( xmls[i], xmlSerializer.read( xmls[i] )
+                  .toString(), streaming.read( xmls[i] )
+                  .toString() );
+         }
+      }
+
+      String[] files = { "net/sf/json/xml/1735732.xml", "net/sf/json/xml/1739066.xml",
+            "net/sf/json/xml/delicious.xml" };
+      xmlSerializer.setTrimSpaces( true );
+      streaming.setTrimSpaces( true );
+      for( int i = 0; i < files.length; i++ ){
+         assertEquals( files[i], xmlSerializer.readFromFile( files[i] )
+               .toString(), streaming.readFromFile( files[i] )
+               .toString() );
+      }
+   }
+
+   public void testStreamingRead_malformed() {
+      xmlSerializer.setStreamingRead( true );
+      try{
+         xmlSerializer.read( "<a><b></a>" );
+         fail( "Expected a JSONException" );
+      }catch( JSONException expected ){
+         // ok
+      }
+   }
+
    public void testTrimSpaces() throws Exception {
       JSONObject json = (JSONObject) xmlSerializer.readFromFile( "net/sf/json/xml/delicious.xml" );
       String link = json.getJSONObject( "item" ).getString( "link" );
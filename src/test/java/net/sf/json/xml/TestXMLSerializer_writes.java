@@ -16,6 +16,9 @@
 
 package net.sf.json.xml;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
 import net.sf.json.JSONArray;
 import net.sf.json.JSONNull;
 import net.sf.json.JSONObject;
@@ -259,6 +262,37 @@ public class TestXMLSerializer_writes extends XMLTestCase {
       assertXMLEqual( expected, xml );
    }
 
+   public void testWriteNullEncoding() throws Exception {
+      JSONObject jsonObject = new JSONObject().element( "name", "caf\u00e9" );
+      assertEquals( xmlSerializer.write( jsonObject ), xmlSerializer.write( jsonObject, null ) );
+   }
+
+   public void testWriteToOutputStream() throws Exception {
+      JSONObject jsonObject = new JSONObject().element( "@id", "1" )
+            .element( "name", "caf\u00e9 <&>" )
+            .element( "empty", "" )
+            .element( "values", JSONArray.fromObject( "[1,{},null,[true]]" ) );
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      xmlSerializer.writeTo( jsonObject, out, "ISO-8859-1" );
+      String xml = out.toString( "ISO-8859-1" );
+      assertEquals( xmlSerializer.write( jsonObject, "ISO-8859-1" ), xml );
+      assertXMLEqual( "<o id=\"1\"><empty type=\"string\"/><name type=\"string\">caf\u00e9 &lt;&amp;&gt;</name>"
+            + "<values class=\"array\"><e type=\"number\">1</e><e class=\"object\"/>"
+            + "<e class=\"object\" null=\"true\"/><e class=\"array\"><e type=\"boolean\">true</e></e>"
+            + "</values></o>", xml );
+   }
+
+   public void testWriteToWriter() throws Exception {
+      JSONObject jsonObject = new JSONObject().element( "@xmlns", "http://json.org/json/1.0" )
+            .element( "@xmlns:ns", "http://www.w3.org/2001/XMLSchema-instance" )
+            .element( "ns:string", "\ud834\udd1e" )
+            .element( "list", JSONArray.fromObject( "[{'@id':'1','#text':'a'},'b']" ) );
+      xmlSerializer.addNamespace( "x", "http://x.org", "list" );
+      StringWriter writer = new StringWriter();
+      xmlSerializer.writeTo( jsonObject, writer );
+      assertEquals( xmlSerializer.write( jsonObject ), writer.toString() );
+   }
+
    public void testWriteWithNamespace() throws Exception {
       JSONObject jsonObject = new JSONObject().element( "@xmlns", "http://json.org/json/1.0" )
             .element( "@xmlns:ns", "http://www.w3.org/2001/XMLSchema-instance" )
@@ -8,6 +8,7 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.ParserConfigurationException;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -157,6 +158,48 @@ public class TestXmlWithSingleAndMultipleElements extends XMLTestCase {
 		assertXMLEqual(fixture, result);
 	}		
 
+	public void test_convert_xml_streaming() throws IOException,
+			SAXException, ParserConfigurationException {
+		String fixture = "<plan>\n"
+				   + " <validPeriods>\n"
+				   + "  <timePeriod>\n"
+				   + "   <validFrom><transactionDate year=\"2015\" month=\"2\" day=\"1\"/></validFrom>\n"
+				   + "  </timePeriod>\n"
+				   + "  <timePeriod>\n"
+				   + "   <validTo user=\"BBROWN5\"><effectiveDate year=\"2010\" month=\"1\" day=\"1\"/></validTo>\n"
+				   + "  </timePeriod>\n"
+				   + " </validPeriods>\n"
+				   + " <subgroups><subgroup>a</subgroup></subgroups>\n"
+				   + "</plan>";
+
+		org.kordamp.json.xml.XMLSerializer xmlSerializer = createXmlSerializer("plan");
+		final JSON expected = xmlSerializer.read(fixture);
+		xmlSerializer.setStreamingRead(true);
+		final JSON json = xmlSerializer.read(fixture);
+
+		assertEquals(expected.toString(), json.toString());
+	}
+
+	public void test_convert_json_to_xml_writer() throws IOException,
+			SAXException, ParserConfigurationException {
+		String fixture = strip("<plan>"
+				   + " <validPeriods>"
+				   + "  <timePeriod>"
+				   + "   <validTo user=\"BBROWN5\"><effectiveDate year=\"2010\" month=\"1\" day=\"1\"/></validTo>"
+				   + "  </timePeriod>"
+				   + " </validPeriods>"
+				   + " <subgroups/>"
+				   + "</plan>");
+
+		org.kordamp.json.xml.XMLSerializer xmlSerializer = createXmlSerializer("plan");
+		xmlSerializer.setKeepEmptyEntries(true);
+		final JSON json = xmlSerializer.read(fixture);
+		StringWriter writer = new StringWriter();
+		xmlSerializer.writeTo(json, writer);
+
+		assertEquals(xmlSerializer.write(json), writer.toString());
+	}
+
 	private org.kordamp.json.xml.XMLSerializer createXmlSerializer(String rootName ) {
 		org.kordamp.json.xml.XMLSerializer xmlSerializer = new org.kordamp.json.xml.XMLSerializer();
 		xmlSerializer.setEscapeLowerChars(true);